@@ -0,0 +1,36 @@
+/*
+ * Copyright (c) 2002-2024 Gargoyle Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.htmlunit;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A {@link WebConnection} that is able to retrieve responses without blocking the caller.
+ * Connections not implementing this interface are used through an
+ * {@link org.htmlunit.util.AsyncWebConnectionAdapter}.
+ *
+ * @see WebClient#loadWebResponseAsync(WebRequest)
+ * @author agent <agent@local>
+ */
+public interface AsyncWebConnection extends WebConnection {
+
+    /**
+     * Submits a request; the response is delivered through the returned future.
+     * IO problems complete the future exceptionally with the {@link java.io.IOException}.
+     * @param request the request
+     * @return the future response to the request
+     */
+    CompletableFuture<WebResponse> getResponseAsync(WebRequest request);
+}
@@ -14,12 +14,16 @@
  */
 package org.htmlunit;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.net.URL;
-import java.util.Collections;
 import java.util.Date;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -33,6 +37,10 @@ import org.htmlunit.util.UrlUtils;
  * compiled JavaScript files avoids unnecessary web requests and additional compilation overhead, while
  * caching parsed CSS snippets avoids very expensive CSS parsing.</p>
  *
+ * <p>The cache is thread safe and can be shared between many {@link WebClient}s. Lookups are done without
+ * locking; the least recently used entry is evicted (in constant time) if the cache holds more
+ * than {@link #getMaxSize()} entries or more than {@link #getMaxBytes()} bytes of content.</p>
+ *
  * @author Marc Guillemot
  * @author Daniel Gredler
  * @author Ahmed Ashour
@@ -51,6 +59,12 @@ public class Cache implements Serializable {
     // for taking ten percent of a number in milliseconds and converting that to the amount in seconds
     private static final double TEN_PERCENT_OF_MILLISECONDS_IN_SECONDS = 0.0001;
 
+    /** The max number of outdated disk cache entries kept for the revalidation. */
+    private static final int MAX_OUTDATED_DISK_ENTRIES = 16;
+
+    /** The maximum number of content bytes of all cached entries. */
+    private long maxBytes_ = Long.MAX_VALUE;
+
     /**
      * The map which holds the cached responses. Note that when keying on URLs, we key on the string version
      * of the URLs, rather than on the URLs themselves. This is done for performance, because a) the
@@ -58,55 +72,63 @@ public class Cache implements Serializable {
      * method triggers DNS lookups of the URL hostnames' IPs. As of this writing, the HtmlUnit unit tests
      * run ~20% faster whey keying on strings rather than on {@link java.net.URL} instances.
      */
-    private final Map<String, Entry> entries_ = Collections.synchronizedMap(new HashMap<>(maxSize_));
+    private final Map<String, Entry> entries_ = new ConcurrentHashMap<>(maxSize_);
+
+    /**
+     * Guards the access order list (and the byte size); all structural changes
+     * of {@link #entries_} are done while holding this lock.
+     */
+    private final ReentrantLock lock_ = new ReentrantLock();
+
+    /** Sentinel of the access order list; next is the most, prev the least recently used entry. */
+    private transient Entry lru_ = newSentinel();
+    private transient long byteSize_;
+
+    private final LongAdder hitCount_ = new LongAdder();
+    private final LongAdder missCount_ = new LongAdder();
+    private final LongAdder evictionCount_ = new LongAdder();
+
+    private DiskCache diskCache_;
+
+    /**
+     * The outdated (but revalidatable) responses found by the last disk cache lookups;
+     * used by {@link #getCachedResponseForRevalidation(WebRequest)} to not read the disk again.
+     */
+    private transient Map<String, DiskCache.Stored> outdatedDiskEntries_ = newOutdatedDiskEntries();
 
     /**
      * A cache entry.
      */
-    private static class Entry implements Comparable<Entry>, Serializable {
+    private static class Entry implements Serializable {
         private final String key_;
         private final WebResponse response_;
         private final Object value_;
-        private long lastAccess_;
         private final long createdAt_;
+        private final long size_;
+
+        private transient Entry prev_;
+        private transient Entry next_;
 
         Entry(final String key, final WebResponse response, final Object value) {
+            this(key, response, value, System.currentTimeMillis());
+        }
+
+        Entry(final String key, final WebResponse response, final Object value, final long createdAt) {
             key_ = key;
             response_ = response;
             value_ = value;
-            createdAt_ = System.currentTimeMillis();
-            lastAccess_ = createdAt_;
-        }
+            createdAt_ = createdAt;
 
-        /**
-         * {@inheritDoc}
-         */
-        @Override
-        public int compareTo(final Entry other) {
-            return Long.compare(lastAccess_, other.lastAccess_);
-        }
-
-        /**
-         * {@inheritDoc}
-         */
-        @Override
-        public boolean equals(final Object obj) {
-            return obj instanceof Entry && lastAccess_ == ((Entry) obj).lastAccess_;
-        }
-
-        /**
-         * {@inheritDoc}
-         */
-        @Override
-        public int hashCode() {
-            return ((Long) lastAccess_).hashCode();
-        }
-
-        /**
-         * Updates the last access date.
-         */
-        public void touch() {
-            lastAccess_ = System.currentTimeMillis();
+            if (response != null) {
+                size_ = response.getContentLength();
+            }
+            else if (key != null) {
+                // css snippets; two bytes per char
+                size_ = 2L * key.length();
+            }
+            else {
+                size_ = 0;
+            }
         }
 
         /**
@@ -118,6 +140,26 @@ public class Cache implements Serializable {
         boolean isStillFresh(final long now) {
             return Cache.isWithinCacheWindow(response_, now, createdAt_);
         }
+
+        boolean isLinked() {
+            return next_ != null;
+        }
+    }
+
+    private static Map<String, DiskCache.Stored> newOutdatedDiskEntries() {
+        return new LinkedHashMap<String, DiskCache.Stored>(MAX_OUTDATED_DISK_ENTRIES, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, DiskCache.Stored> eldest) {
+                return size() > MAX_OUTDATED_DISK_ENTRIES;
+            }
+        };
+    }
+
+    private static Entry newSentinel() {
+        final Entry sentinel = new Entry(null, null, null);
+        sentinel.prev_ = sentinel;
+        sentinel.next_ = sentinel;
+        return sentinel;
     }
 
     /**
@@ -173,6 +215,23 @@ public class Cache implements Serializable {
      * @return whether the response was cached or not
      */
     public boolean cacheIfPossible(final WebRequest request, final WebResponse response, final Object toCache) {
+        return cacheIfPossible(request, response, toCache, false);
+    }
+
+    /**
+     * Caches the cached response updated by a successful revalidation (<code>304 Not Modified</code>);
+     * the entry of the disk cache is updated as well.
+     *
+     * @param request the request
+     * @param response the cached response with the updated headers
+     * @return whether the response was cached or not
+     */
+    boolean cacheRevalidatedResponse(final WebRequest request, final WebResponse response) {
+        return cacheIfPossible(request, response, null, true);
+    }
+
+    private boolean cacheIfPossible(final WebRequest request, final WebResponse response, final Object toCache,
+            final boolean revalidated) {
         if (isCacheable(request, response)) {
             final URL url = request.getUrl();
             if (url == null) {
@@ -180,8 +239,24 @@ public class Cache implements Serializable {
             }
 
             final Entry entry = new Entry(UrlUtils.normalize(url), response, toCache);
-            entries_.put(entry.key_, entry);
-            deleteOverflow();
+            if (entry.size_ > maxBytes_) {
+                return false;
+            }
+            put(entry);
+
+            final DiskCache diskCache = diskCache_;
+            if (diskCache != null) {
+                synchronized (outdatedDiskEntries_) {
+                    outdatedDiskEntries_.remove(entry.key_);
+                }
+                if (revalidated) {
+                    diskCache.update(entry.key_, response, entry.createdAt_);
+                }
+                else if (!(response instanceof WebResponseFromCache)) {
+                    // responses from cache are already stored
+                    diskCache.put(entry.key_, response, entry.createdAt_);
+                }
+            }
             return true;
         }
 
@@ -201,23 +276,99 @@ public class Cache implements Serializable {
      */
     public void cache(final String css, final CSSStyleSheetImpl styleSheet) {
         final Entry entry = new Entry(css, null, styleSheet);
-        entries_.put(entry.key_, entry);
-        deleteOverflow();
+        put(entry);
+    }
+
+    private void put(final Entry entry) {
+        lock_.lock();
+        try {
+            final Entry old = entries_.put(entry.key_, entry);
+            if (old != null) {
+                unlink(old);
+            }
+            linkFirst(entry);
+            deleteOverflow();
+        }
+        finally {
+            lock_.unlock();
+        }
     }
 
     /**
-     * Truncates the cache to the maximal number of entries.
+     * Truncates the cache to the maximal number of entries and the maximal number of bytes
+     * by removing the least recently used entries.
      */
     protected void deleteOverflow() {
-        synchronized (entries_) {
-            while (entries_.size() > maxSize_) {
-                final Entry oldestEntry = Collections.min(entries_.values());
-                entries_.remove(oldestEntry.key_);
+        lock_.lock();
+        try {
+            while ((entries_.size() > maxSize_ || byteSize_ > maxBytes_) && lru_.prev_ != lru_) {
+                final Entry oldestEntry = lru_.prev_;
+                unlink(oldestEntry);
+                entries_.remove(oldestEntry.key_, oldestEntry);
+                evictionCount_.increment();
                 if (oldestEntry.response_ != null) {
                     oldestEntry.response_.cleanUp();
                 }
             }
         }
+        finally {
+            lock_.unlock();
+        }
+    }
+
+    private void remove(final Entry entry) {
+        lock_.lock();
+        try {
+            if (entries_.remove(entry.key_, entry)) {
+                unlink(entry);
+            }
+        }
+        finally {
+            lock_.unlock();
+        }
+    }
+
+    /**
+     * Marks the entry as most recently used. If some other thread is changing the
+     * access order right now, we simply skip this - the order is a hint only.
+     * @param entry the entry
+     */
+    private void touch(final Entry entry) {
+        if (lock_.tryLock()) {
+            try {
+                if (entry.isLinked() && lru_.next_ != entry) {
+                    entry.prev_.next_ = entry.next_;
+                    entry.next_.prev_ = entry.prev_;
+                    entry.prev_ = lru_;
+                    entry.next_ = lru_.next_;
+                    lru_.next_.prev_ = entry;
+                    lru_.next_ = entry;
+                }
+            }
+            finally {
+                lock_.unlock();
+            }
+        }
+    }
+
+    // has to be called while holding the lock
+    private void linkFirst(final Entry entry) {
+        entry.prev_ = lru_;
+        entry.next_ = lru_.next_;
+        lru_.next_.prev_ = entry;
+        lru_.next_ = entry;
+        byteSize_ += entry.size_;
+    }
+
+    // has to be called while holding the lock
+    private void unlink(final Entry entry) {
+        if (entry.isLinked()) {
+            entry.prev_.next_ = entry.next_;
+            entry.next_.prev_ = entry.prev_;
+            entry.prev_ = null;
+            entry.next_ = null;
+            byteSize_ -= entry.size_;
+        }
     }
 
     /**
@@ -337,19 +488,121 @@ public class Cache implements Serializable {
         final String normalizedUrl = UrlUtils.normalize(url);
         final Entry cachedEntry = entries_.get(normalizedUrl);
         if (cachedEntry == null) {
-            return null;
+            final Entry diskEntry = getFreshDiskEntry(normalizedUrl, request);
+            if (diskEntry == null) {
+                missCount_.increment();
+                return null;
+            }
+            hitCount_.increment();
+            return diskEntry;
         }
 
         if (cachedEntry.isStillFresh(getCurrentTimestamp())) {
-            synchronized (entries_) {
-                cachedEntry.touch();
-            }
+            hitCount_.increment();
+            touch(cachedEntry);
             return cachedEntry;
         }
-        entries_.remove(UrlUtils.normalize(url));
+        remove(cachedEntry);
+        final Entry diskEntry = getFreshDiskEntry(normalizedUrl, request);
+        if (diskEntry == null) {
+            missCount_.increment();
+            return null;
+        }
+        hitCount_.increment();
+        return diskEntry;
+    }
+
+    private Entry getFreshDiskEntry(final String normalizedUrl, final WebRequest request) {
+        final DiskCache diskCache = diskCache_;
+        if (diskCache == null) {
+            return null;
+        }
+
+        final DiskCache.Stored stored = diskCache.get(normalizedUrl, request);
+        synchronized (outdatedDiskEntries_) {
+            outdatedDiskEntries_.remove(normalizedUrl);
+        }
+        if (stored == null) {
+            return null;
+        }
+
+        final Entry entry = new Entry(normalizedUrl, stored.getResponse(), null, stored.getCreatedAt());
+        if (!entry.isStillFresh(getCurrentTimestamp())) {
+            // most likely the revalidation is the next step
+            synchronized (outdatedDiskEntries_) {
+                outdatedDiskEntries_.put(normalizedUrl, stored);
+            }
+            return null;
+        }
+        if (entry.size_ > maxBytes_) {
+            return null;
+        }
+        put(entry);
+        return entry;
+    }
+
+    /**
+     * Returns a response from the disk cache that is no longer fresh but can be revalidated
+     * with the server (the response has an <code>ETag</code> or a <code>Last-Modified</code> header).
+     * If there is no disk cache or no such response, this method returns {@code null}.
+     *
+     * @param request the request whose corresponding response is sought
+     * @return the outdated response or {@code null}
+     * @see #setDiskCache(DiskCache)
+     */
+    public WebResponse getCachedResponseForRevalidation(final WebRequest request) {
+        final DiskCache diskCache = diskCache_;
+        if (diskCache == null || HttpMethod.GET != request.getHttpMethod()) {
+            return null;
+        }
+
+        final URL url = request.getUrl();
+        if (url == null) {
+            return null;
+        }
+
+        final String normalizedUrl = UrlUtils.normalize(url);
+        DiskCache.Stored stored;
+        synchronized (outdatedDiskEntries_) {
+            stored = outdatedDiskEntries_.get(normalizedUrl);
+        }
+        if (stored == null) {
+            stored = diskCache.get(normalizedUrl, request);
+            if (stored == null) {
+                return null;
+            }
+        }
+
+        final WebResponse response = stored.getResponse();
+        if (HeaderUtils.containsETag(response) || HeaderUtils.containsLastModified(response)) {
+            return response;
+        }
         return null;
     }
 
+    /**
+     * Returns the persistent second tier of this cache.
+     *
+     * @return the disk cache or {@code null}
+     */
+    public DiskCache getDiskCache() {
+        return diskCache_;
+    }
+
+    /**
+     * Sets the persistent second tier of this cache. All cacheable responses are additionally
+     * stored on disk; if a response is not found in memory, the disk cache is consulted.
+     * Note: {@link #clear()} does not touch the disk cache, use {@link DiskCache#clear()}.
+     *
+     * @param diskCache the disk cache or {@code null} to use the memory only
+     */
+    public void setDiskCache(final DiskCache diskCache) {
+        diskCache_ = diskCache;
+        synchronized (outdatedDiskEntries_) {
+            outdatedDiskEntries_.clear();
+        }
+    }
+
     /**
      * Returns the cached parsed version of the specified CSS snippet. If there is no
      * corresponding cached stylesheet, this method returns {@code null}.
@@ -360,11 +613,11 @@ public class Cache implements Serializable {
     public CSSStyleSheetImpl getCachedStyleSheet(final String css) {
         final Entry cachedEntry = entries_.get(css);
         if (cachedEntry == null) {
+            missCount_.increment();
             return null;
         }
-        synchronized (entries_) {
-            cachedEntry.touch();
-        }
+        hitCount_.increment();
+        touch(cachedEntry);
         return (CSSStyleSheetImpl) cachedEntry.value_;
     }
 
@@ -392,6 +645,31 @@ public class Cache implements Serializable {
         deleteOverflow();
     }
 
+    /**
+     * Returns the maximum number of content bytes of all cached entries.
+     * The default is {@link Long#MAX_VALUE} (no limit).
+     *
+     * @return the cache's maximum number of bytes
+     */
+    public long getMaxBytes() {
+        return maxBytes_;
+    }
+
+    /**
+     * Sets the maximum number of content bytes of all cached entries. For responses
+     * the length of the downloaded content is used; for css snippets two bytes per char.
+     * Responses larger than this value are not cached at all.
+     *
+     * @param maxBytes the cache's maximum number of bytes (must be &gt;= 0)
+     */
+    public void setMaxBytes(final long maxBytes) {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("Illegal value for maxBytes: " + maxBytes);
+        }
+        maxBytes_ = maxBytes;
+        deleteOverflow();
+    }
+
     /**
      * Returns the number of entries in the cache.
      *
@@ -402,28 +680,113 @@ public class Cache implements Serializable {
     }
 
     /**
-     * Clears the cache.
+     * Returns the number of content bytes of all cached entries.
+     *
+     * @return the number of bytes
+     * @see #setMaxBytes(long)
+     */
+    public long getByteSize() {
+        lock_.lock();
+        try {
+            return byteSize_;
+        }
+        finally {
+            lock_.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of lookups that found a (fresh) entry.
+     *
+     * @return the hit count
+     */
+    public long getHitCount() {
+        return hitCount_.sum();
+    }
+
+    /**
+     * Returns the number of lookups that did not find a (fresh) entry.
+     *
+     * @return the miss count
+     */
+    public long getMissCount() {
+        return missCount_.sum();
+    }
+
+    /**
+     * Returns the number of entries removed because the cache was full.
+     *
+     * @return the eviction count
+     */
+    public long getEvictionCount() {
+        return evictionCount_.sum();
+    }
+
+    /**
+     * Resets the hit, miss and eviction counters.
+     */
+    public void resetStatistics() {
+        hitCount_.reset();
+        missCount_.reset();
+        evictionCount_.reset();
+    }
+
+    /**
+     * Clears the cache (the in memory part only).
      */
     public void clear() {
-        synchronized (entries_) {
+        lock_.lock();
+        try {
             for (final Entry entry : entries_.values()) {
                 if (entry.response_ != null) {
                     entry.response_.cleanUp();
                 }
+                unlink(entry);
             }
             entries_.clear();
         }
+        finally {
+            lock_.unlock();
+        }
     }
 
     /**
      * Removes outdated entries from the cache.
      */
     public void clearOutdated() {
-        synchronized (entries_) {
+        lock_.lock();
+        try {
             final long now = getCurrentTimestamp();
 
-            entries_.entrySet().removeIf(entry -> entry.getValue().response_ == null
-                    || !entry.getValue().isStillFresh(now));
+            Entry entry = lru_.next_;
+            while (entry != lru_) {
+                final Entry next = entry.next_;
+                if (entry.response_ == null || !entry.isStillFresh(now)) {
+                    unlink(entry);
+                    entries_.remove(entry.key_, entry);
+                }
+                entry = next;
+            }
+        }
+        finally {
+            lock_.unlock();
+        }
+    }
+
+    /**
+     * Rebuilds the access order list (the order itself is not serialized).
+     * @param in the stream to read form
+     * @throws IOException in case of error
+     * @throws ClassNotFoundException in case of error
+     */
+    private void readObject(final ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+
+        outdatedDiskEntries_ = newOutdatedDiskEntries();
+        lru_ = newSentinel();
+        byteSize_ = 0;
+        for (final Entry entry : entries_.values()) {
+            linkFirst(entry);
         }
     }
 }
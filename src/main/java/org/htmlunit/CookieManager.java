@@ -14,13 +14,23 @@
  */
 package org.htmlunit;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
-import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Objects;
+import java.util.PriorityQueue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.htmlunit.util.Cookie;
 
@@ -30,6 +40,11 @@ import org.htmlunit.util.Cookie;
  * CookieManager itself takes care of this and ignores all cookie request if
  * disabled. If you override this your methods have to do the same.
  *
+ * <p>The cookies are indexed by domain; {@link #getCookiesForHost(String)} does not
+ * have to look at all cookies and does not lock. Subclasses overriding {@link #getCookies()}
+ * but not {@link #getCookiesForHost(String)} are still supported; for them
+ * {@link #getCookiesForHost(String)} returns all the cookies.</p>
+ *
  * @author Daniel Gredler
  * @author Ahmed Ashour
  * @author Nicolas Belisle
@@ -37,17 +52,59 @@ import org.htmlunit.util.Cookie;
  */
 public class CookieManager implements Serializable {
 
+    private static final Entry[] NO_ENTRIES = new Entry[0];
+
+    /** The index key of the cookies without domain. */
+    private static final String NO_DOMAIN = "";
+
     /** Whether or not cookies are enabled. */
-    private boolean cookiesEnabled_;
+    private volatile boolean cookiesEnabled_;
+
+    /** The cookies added to this cookie manager (cookie is key and value, the key is only an identity). */
+    private final Map<Cookie, Entry> cookies_ = new LinkedHashMap<>();
+
+    /** Lower case domain (without leading dot) to cookies; the arrays are never modified (copy on write). */
+    private transient Map<String, Entry[]> domainIndex_ = new ConcurrentHashMap<>();
 
-    /** The cookies added to this cookie manager. */
-    private final Set<Cookie> cookies_ = new LinkedHashSet<>();
+    /** The entries of cookies with an expiration date, the first to expire first. */
+    private transient PriorityQueue<Entry> expirations_ = newExpirationsQueue();
+
+    /** The earliest expiration date of all cookies. */
+    private transient volatile long nextExpiration_ = Long.MAX_VALUE;
+
+    private long sequence_;
+
+    /** False for subclasses overriding {@link #getCookies()} but not {@link #getCookiesForHost(String)}. */
+    private final boolean indexUsable_;
+
+    /**
+     * A stored cookie together with the order of the addition.
+     */
+    private static final class Entry implements Serializable {
+        private final Cookie cookie_;
+        private final long sequence_;
+
+        Entry(final Cookie cookie, final long sequence) {
+            cookie_ = cookie;
+            sequence_ = sequence;
+        }
+    }
 
     /**
      * Creates a new instance.
      */
     public CookieManager() {
         cookiesEnabled_ = true;
+        indexUsable_ = !isOverridden("getCookies") || isOverridden("getCookiesForHost", String.class);
+    }
+
+    private boolean isOverridden(final String methodName, final Class<?>... parameterTypes) {
+        try {
+            return getClass().getMethod(methodName, parameterTypes).getDeclaringClass() != CookieManager.class;
+        }
+        catch (final NoSuchMethodException e) {
+            return false;
+        }
     }
 
     /**
@@ -62,7 +119,7 @@ public class CookieManager implements Serializable {
      * Returns {@code true} if cookies are enabled. Cookies are enabled by default.
      * @return {@code true} if cookies are enabled, {@code false} otherwise
      */
-    public synchronized boolean isCookiesEnabled() {
+    public boolean isCookiesEnabled() {
         return cookiesEnabled_;
     }
 
@@ -76,17 +133,77 @@ public class CookieManager implements Serializable {
             return Collections.emptySet();
         }
 
-        final Set<Cookie> copy = new LinkedHashSet<>(cookies_);
+        final Set<Cookie> copy = new LinkedHashSet<>();
+        for (final Entry entry : cookies_.values()) {
+            copy.add(entry.cookie_);
+        }
         return Collections.unmodifiableSet(copy);
     }
 
+    /**
+     * Returns the currently configured cookies whose domain matches the given host
+     * (e.g. cookies of the domains 'www.example.com' and 'example.com' for the host 'www.example.com'),
+     * in an unmodifiable set. The cookies are in the order of {@link #getCookies()}.
+     * This is only a preselection, the path and the other attributes of the cookie are not checked;
+     * cookies without a domain are part of every result.
+     * If disabled, this returns an empty set.
+     * @param host the host
+     * @return the cookies of the domains the host belongs to
+     */
+    public Set<Cookie> getCookiesForHost(final String host) {
+        if (!indexUsable_) {
+            // the subclass maintains the cookies on its own
+            return getCookies();
+        }
+        if (!isCookiesEnabled() || host == null) {
+            return Collections.emptySet();
+        }
+
+        List<Entry> matches = null;
+        String domain = host.toLowerCase(Locale.ROOT);
+        while (true) {
+            matches = addEntries(matches, domain);
+
+            final int dotIndex = domain.indexOf('.');
+            if (dotIndex == -1) {
+                break;
+            }
+            domain = domain.substring(dotIndex + 1);
+        }
+        if (!domain.isEmpty()) {
+            matches = addEntries(matches, NO_DOMAIN);
+        }
+
+        if (matches == null) {
+            return Collections.emptySet();
+        }
+
+        matches.sort(Comparator.comparingLong(e -> e.sequence_));
+        final Set<Cookie> result = new LinkedHashSet<>(matches.size());
+        for (final Entry entry : matches) {
+            result.add(entry.cookie_);
+        }
+        return Collections.unmodifiableSet(result);
+    }
+
+    private List<Entry> addEntries(final List<Entry> matches, final String key) {
+        final Entry[] entries = domainIndex_.get(key);
+        if (entries == null) {
+            return matches;
+        }
+
+        final List<Entry> result = matches == null ? new ArrayList<>(entries.length) : matches;
+        result.addAll(Arrays.asList(entries));
+        return result;
+    }
+
     /**
      * Clears all cookies that have expired before supplied date.
      * If disabled, this returns false.
      * @param date the date to use for comparison when clearing expired cookies
      * @return whether any cookies were found expired, and were cleared
      */
-    public synchronized boolean clearExpired(final Date date) {
+    public boolean clearExpired(final Date date) {
         if (!isCookiesEnabled()) {
             return false;
         }
@@ -95,15 +212,26 @@ public class CookieManager implements Serializable {
             return false;
         }
 
-        boolean foundExpired = false;
-        for (final Iterator<Cookie> iter = cookies_.iterator(); iter.hasNext();) {
-            final Cookie cookie = iter.next();
-            if (cookie.getExpires() != null && date.after(cookie.getExpires())) {
-                iter.remove();
-                foundExpired = true;
+        // fast path without lock
+        if (date.getTime() <= nextExpiration_) {
+            return false;
+        }
+
+        synchronized (this) {
+            boolean foundExpired = false;
+            Entry head = expirations_.peek();
+            while (head != null && date.after(head.cookie_.getExpires())) {
+                expirations_.poll();
+                // the entry might be outdated, the cookie was replaced or removed
+                if (cookies_.get(head.cookie_) == head) {
+                    remove(head);
+                    foundExpired = true;
+                }
+                head = expirations_.peek();
             }
+            updateNextExpiration();
+            return foundExpired;
         }
-        return foundExpired;
     }
 
     /**
@@ -117,9 +245,9 @@ public class CookieManager implements Serializable {
             return null;
         }
 
-        for (final Cookie cookie : cookies_) {
-            if (Objects.equals(cookie.getName(), name)) {
-                return cookie;
+        for (final Entry entry : cookies_.values()) {
+            if (Objects.equals(entry.cookie_.getName(), name)) {
+                return entry.cookie_;
             }
         }
         return null;
@@ -135,11 +263,14 @@ public class CookieManager implements Serializable {
             return;
         }
 
-        cookies_.remove(cookie);
+        final Entry old = cookies_.get(cookie);
+        if (old != null) {
+            remove(old);
+        }
 
         // don't add expired cookie
         if (cookie.getExpires() == null || cookie.getExpires().after(new Date())) {
-            cookies_.add(cookie);
+            add(new Entry(cookie, sequence_++));
         }
     }
 
@@ -153,7 +284,10 @@ public class CookieManager implements Serializable {
             return;
         }
 
-        cookies_.remove(cookie);
+        final Entry old = cookies_.get(cookie);
+        if (old != null) {
+            remove(old);
+        }
     }
 
     /**
@@ -166,5 +300,84 @@ public class CookieManager implements Serializable {
         }
 
         cookies_.clear();
+        domainIndex_.clear();
+        expirations_.clear();
+        nextExpiration_ = Long.MAX_VALUE;
+    }
+
+    private void add(final Entry entry) {
+        cookies_.put(entry.cookie_, entry);
+
+        final String key = getIndexKey(entry.cookie_);
+        final Entry[] entries = domainIndex_.getOrDefault(key, NO_ENTRIES);
+        final Entry[] newEntries = Arrays.copyOf(entries, entries.length + 1);
+        newEntries[entries.length] = entry;
+        domainIndex_.put(key, newEntries);
+
+        if (entry.cookie_.getExpires() != null) {
+            // outdated entries are removed lazily; don't let them pile up
+            if (expirations_.size() > 2 * cookies_.size() + 16) {
+                expirations_.removeIf(e -> cookies_.get(e.cookie_) != e);
+            }
+            expirations_.add(entry);
+            updateNextExpiration();
+        }
+    }
+
+    private void remove(final Entry entry) {
+        cookies_.remove(entry.cookie_);
+
+        final String key = getIndexKey(entry.cookie_);
+        final Entry[] entries = domainIndex_.get(key);
+        if (entries != null) {
+            final List<Entry> remaining = new ArrayList<>(entries.length);
+            for (final Entry e : entries) {
+                if (e != entry) {
+                    remaining.add(e);
+                }
+            }
+            if (remaining.isEmpty()) {
+                domainIndex_.remove(key);
+            }
+            else {
+                domainIndex_.put(key, remaining.toArray(NO_ENTRIES));
+            }
+        }
+    }
+
+    private void updateNextExpiration() {
+        final Entry head = expirations_.peek();
+        nextExpiration_ = head == null ? Long.MAX_VALUE : head.cookie_.getExpires().getTime();
+    }
+
+    private static String getIndexKey(final Cookie cookie) {
+        String domain = cookie.getDomain();
+        if (domain == null) {
+            return NO_DOMAIN;
+        }
+        domain = domain.toLowerCase(Locale.ROOT);
+        int start = 0;
+        while (start < domain.length() && domain.charAt(start) == '.') {
+            start++;
+        }
+        return domain.substring(start);
+    }
+
+    private static PriorityQueue<Entry> newExpirationsQueue() {
+        return new PriorityQueue<>(Comparator.comparing(e -> e.cookie_.getExpires()));
+    }
+
+    private void readObject(final ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+
+        domainIndex_ = new ConcurrentHashMap<>();
+        expirations_ = newExpirationsQueue();
+        nextExpiration_ = Long.MAX_VALUE;
+
+        final List<Entry> entries = new ArrayList<>(cookies_.values());
+        cookies_.clear();
+        for (final Entry entry : entries) {
+            add(entry);
+        }
     }
 }
@@ -0,0 +1,504 @@
+/*
+ * Copyright (c) 2002-2024 Gargoyle Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.htmlunit;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.htmlunit.util.NameValuePair;
+
+/**
+ * <p>Optional persistent second tier of the {@link Cache}. Responses are stored on disk and
+ * survive a restart of the JVM; several processes on one host may share the same directory.</p>
+ *
+ * <p>The bodies are stored content addressed (the file name is the SHA-256 of the content),
+ * so identical bodies delivered for different urls are stored only once. For every url
+ * there is a small index file with the status, the headers and the download time; the
+ * freshness is checked using the same rules as for the in memory cache. Entries that are
+ * no longer fresh are still used for conditional revalidation
+ * (<code>If-None-Match</code>/<code>If-Modified-Since</code>).</p>
+ *
+ * <p>If the size of all stored bodies exceeds the limit, the least recently used entries
+ * are removed; entries whose body is still used by a response of this process are kept.
+ * Per user headers (e.g. <code>Set-Cookie</code>) are not stored.</p>
+ *
+ * @see Cache#setDiskCache(DiskCache)
+ * @author agent <agent@local>
+ */
+public class DiskCache implements Serializable {
+
+    private static final Log LOG = LogFactory.getLog(DiskCache.class);
+
+    private static final int INDEX_MAGIC = 0x48554443; // HUDC
+    private static final int INDEX_VERSION = 3;
+
+    private static final String INDEX_DIR = "index";
+    private static final String CONTENT_DIR = "content";
+    private static final String TMP_SUFFIX = ".tmp";
+
+    /** These headers are specific to the user or the connection and are not stored. */
+    private static final Set<String> NOT_STORED_HEADERS = new HashSet<>(Arrays.asList(
+            "set-cookie", "set-cookie2", "connection", "keep-alive", "proxy-connection",
+            "proxy-authenticate", "te", "trailer", "transfer-encoding", "upgrade",
+            // the body is stored decoded; the headers describing the
+            // encoding of the original body are no longer valid
+            "content-encoding", "content-length"));
+
+    private final File directory_;
+    private final long maxBytes_;
+    private final AtomicLong writesSinceTrim_ = new AtomicLong();
+
+    /** The bodies handed out by {@link #get(String, WebRequest)} and the content hash of each. */
+    private transient Map<DownloadedContent, String> contentInUse_ = new WeakHashMap<>();
+
+    /**
+     * A response loaded from the disk.
+     */
+    static final class Stored {
+        private final WebResponse response_;
+        private final long createdAt_;
+
+        Stored(final WebResponse response, final long createdAt) {
+            response_ = response;
+            createdAt_ = createdAt;
+        }
+
+        WebResponse getResponse() {
+            return response_;
+        }
+
+        long getCreatedAt() {
+            return createdAt_;
+        }
+    }
+
+    /**
+     * The content of an index file.
+     */
+    private static final class IndexEntry {
+        private final String contentHash_;
+        private final long createdAt_;
+        private final int statusCode_;
+        private final String statusMessage_;
+        private final List<NameValuePair> headers_;
+
+        IndexEntry(final String contentHash, final long createdAt, final int statusCode,
+                final String statusMessage, final List<NameValuePair> headers) {
+            contentHash_ = contentHash;
+            createdAt_ = createdAt;
+            statusCode_ = statusCode;
+            statusMessage_ = statusMessage;
+            headers_ = headers;
+        }
+    }
+
+    /**
+     * Creates a new disk cache.
+     *
+     * @param directory the directory to store the responses in; will be created if needed
+     * @param maxBytes the maximum size of all stored bodies
+     * @throws IOException if the directory can't be created
+     */
+    public DiskCache(final File directory, final long maxBytes) throws IOException {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("Illegal value for maxBytes: " + maxBytes);
+        }
+        directory_ = directory;
+        maxBytes_ = maxBytes;
+
+        FileUtils.forceMkdir(new File(directory_, INDEX_DIR));
+        FileUtils.forceMkdir(new File(directory_, CONTENT_DIR));
+    }
+
+    /**
+     * @return the directory used by this cache
+     */
+    public File getDirectory() {
+        return directory_;
+    }
+
+    /**
+     * @return the maximum size of all stored bodies
+     */
+    public long getMaxBytes() {
+        return maxBytes_;
+    }
+
+    /**
+     * Stores the response.
+     *
+     * @param key the (normalized) url
+     * @param response the response
+     * @param createdAt the time the response was downloaded
+     */
+    void put(final String key, final WebResponse response, final long createdAt) {
+        if (response.getContentLength() > maxBytes_) {
+            return;
+        }
+
+        final File contentDir = new File(directory_, CONTENT_DIR);
+        File tmp = null;
+        try {
+            tmp = File.createTempFile("body", TMP_SUFFIX, contentDir);
+            final MessageDigest digest = DigestUtils.getSha256Digest();
+            try (InputStream in = response.getContentAsStream();
+                    OutputStream out = new DigestOutputStream(
+                            new BufferedOutputStream(Files.newOutputStream(tmp.toPath())), digest)) {
+                IOUtils.copy(in, out);
+            }
+            final String contentHash = Hex.encodeHexString(digest.digest());
+
+            final File content = new File(contentDir, contentHash);
+            if (content.exists()) {
+                FileUtils.deleteQuietly(tmp);
+            }
+            else {
+                move(tmp, content);
+            }
+            tmp = null;
+
+            writeIndex(key, contentHash, response, createdAt);
+        }
+        catch (final IOException e) {
+            LOG.warn("Can't store '" + key + "' in the disk cache: " + e.getMessage(), e);
+        }
+        finally {
+            if (tmp != null) {
+                FileUtils.deleteQuietly(tmp);
+            }
+        }
+
+        if (writesSinceTrim_.incrementAndGet() % 16 == 1) {
+            trim();
+        }
+    }
+
+    /**
+     * Returns the stored response for the given request.
+     *
+     * @param key the (normalized) url
+     * @param request the request the response is for
+     * @return the response or {@code null}
+     */
+    Stored get(final String key, final WebRequest request) {
+        final File index = indexFile(key);
+        final IndexEntry entry;
+        try {
+            entry = readIndex(key, index);
+        }
+        catch (final IOException e) {
+            LOG.warn("Can't read '" + key + "' from the disk cache: " + e.getMessage(), e);
+            return null;
+        }
+        if (entry == null) {
+            return null;
+        }
+
+        final File content = new File(new File(directory_, CONTENT_DIR), entry.contentHash_);
+        if (!content.exists()) {
+            return null;
+        }
+
+        // used recently
+        final long now = System.currentTimeMillis();
+        if (!index.setLastModified(now) || !content.setLastModified(now)) {
+            LOG.debug("Can't update the last modified date of the disk cache entry for '" + key + "'");
+        }
+
+        final DownloadedContent downloadedContent;
+        if (content.length() == 0) {
+            downloadedContent = new DownloadedContent.InMemory(null);
+        }
+        else {
+            downloadedContent = new DownloadedContent.OnFile(content, false);
+            // the file must not be removed by trim() as long as the response is in use
+            synchronized (contentInUse_) {
+                contentInUse_.put(downloadedContent, entry.contentHash_);
+            }
+        }
+        final WebResponseData data = new WebResponseData(downloadedContent,
+                entry.statusCode_, entry.statusMessage_, entry.headers_);
+        return new Stored(new WebResponse(data, request, 0), entry.createdAt_);
+    }
+
+    /**
+     * Replaces the stored headers and the download time of an entry after a successful
+     * revalidation (<code>304 Not Modified</code>); the stored body is kept.
+     *
+     * @param key the (normalized) url
+     * @param response the response with the updated headers
+     * @param createdAt the time the response was revalidated
+     */
+    void update(final String key, final WebResponse response, final long createdAt) {
+        try {
+            final IndexEntry entry = readIndex(key, indexFile(key));
+            if (entry != null && new File(new File(directory_, CONTENT_DIR), entry.contentHash_).exists()) {
+                writeIndex(key, entry.contentHash_, response, createdAt);
+            }
+        }
+        catch (final IOException e) {
+            LOG.warn("Can't update '" + key + "' in the disk cache: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Removes the entry for the given key (the content is removed later by the size check).
+     * @param key the (normalized) url
+     */
+    void remove(final String key) {
+        FileUtils.deleteQuietly(indexFile(key));
+    }
+
+    /**
+     * Removes all entries.
+     */
+    public void clear() {
+        try {
+            FileUtils.cleanDirectory(new File(directory_, INDEX_DIR));
+            FileUtils.cleanDirectory(new File(directory_, CONTENT_DIR));
+        }
+        catch (final IOException e) {
+            LOG.warn("Can't clear the disk cache: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @return the size of all stored bodies
+     */
+    public long getByteSize() {
+        long size = 0;
+        for (final File file : listFiles(CONTENT_DIR)) {
+            size += file.length();
+        }
+        return size;
+    }
+
+    /**
+     * Removes the least recently used entries until the size of all bodies fits
+     * into the limit. Bodies no longer referenced by any index are removed too.
+     * Entries whose body is still used by a response of this process are kept.
+     */
+    public synchronized void trim() {
+        final File[] indexFiles = listFiles(INDEX_DIR);
+        final File[] contentFiles = listFiles(CONTENT_DIR);
+        final Set<String> inUse;
+        synchronized (contentInUse_) {
+            inUse = new HashSet<>(contentInUse_.values());
+        }
+
+        // the same body might be referenced by more than one index
+        final Map<String, Integer> referenced = new HashMap<>();
+        final List<File> indexes = new ArrayList<>(Arrays.asList(indexFiles));
+        for (final File index : indexFiles) {
+            final String contentHash = readContentHash(index);
+            if (contentHash != null) {
+                referenced.merge(contentHash, 1, Integer::sum);
+            }
+        }
+
+        long size = 0;
+        for (final File content : contentFiles) {
+            if (content.getName().endsWith(TMP_SUFFIX)) {
+                continue;
+            }
+            if (referenced.containsKey(content.getName())) {
+                size += content.length();
+            }
+            else if (!inUse.contains(content.getName())
+                    && content.lastModified() < System.currentTimeMillis() - 60_000) {
+                // maybe another process is writing the index right now
+                FileUtils.deleteQuietly(content);
+            }
+        }
+
+        if (size <= maxBytes_) {
+            return;
+        }
+
+        indexes.sort(Comparator.comparingLong(File::lastModified));
+        for (final File index : indexes) {
+            if (size <= maxBytes_) {
+                break;
+            }
+            final String contentHash = readContentHash(index);
+            if (contentHash != null && inUse.contains(contentHash)) {
+                continue;
+            }
+            FileUtils.deleteQuietly(index);
+            if (contentHash != null && referenced.merge(contentHash, -1, Integer::sum) == 0) {
+                final File content = new File(new File(directory_, CONTENT_DIR), contentHash);
+                size -= content.length();
+                FileUtils.deleteQuietly(content);
+            }
+        }
+    }
+
+    private void writeIndex(final String key, final String contentHash,
+            final WebResponse response, final long createdAt) throws IOException {
+        final File indexDir = new File(directory_, INDEX_DIR);
+        final File tmp = File.createTempFile("index", TMP_SUFFIX, indexDir);
+        try {
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(tmp.toPath())))) {
+                out.writeInt(INDEX_MAGIC);
+                out.writeInt(INDEX_VERSION);
+                out.writeUTF(key);
+                out.writeUTF(contentHash);
+                out.writeLong(createdAt);
+                out.writeInt(response.getStatusCode());
+                out.writeUTF(StringUtils.defaultString(response.getStatusMessage()));
+                final List<NameValuePair> headers = getStoredHeaders(response);
+                out.writeInt(headers.size());
+                for (final NameValuePair header : headers) {
+                    out.writeUTF(header.getName());
+                    out.writeUTF(StringUtils.defaultString(header.getValue()));
+                }
+            }
+            Files.move(tmp.toPath(), indexFile(key).toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        finally {
+            FileUtils.deleteQuietly(tmp);
+        }
+    }
+
+    private static List<NameValuePair> getStoredHeaders(final WebResponse response) {
+        final List<NameValuePair> headers = new ArrayList<>();
+        for (final NameValuePair header : response.getResponseHeaders()) {
+            final String name = org.htmlunit.util.StringUtils.toRootLowerCase(header.getName());
+            if (!NOT_STORED_HEADERS.contains(name)) {
+                headers.add(header);
+            }
+        }
+        return headers;
+    }
+
+    /**
+     * @return the content of the index file or {@code null} if there is no (valid) entry for the key
+     */
+    private static IndexEntry readIndex(final String key, final File index) throws IOException {
+        if (!index.exists()) {
+            return null;
+        }
+
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(index.toPath())))) {
+            if (in.readInt() != INDEX_MAGIC || in.readInt() != INDEX_VERSION) {
+                return null;
+            }
+            if (!key.equals(in.readUTF())) {
+                // hash collision
+                return null;
+            }
+
+            final String contentHash = in.readUTF();
+            final long createdAt = in.readLong();
+            final int statusCode = in.readInt();
+            final String statusMessage = in.readUTF();
+            final int headerCount = in.readInt();
+            final List<NameValuePair> headers = new ArrayList<>(headerCount);
+            for (int i = 0; i < headerCount; i++) {
+                headers.add(new NameValuePair(in.readUTF(), in.readUTF()));
+            }
+            return new IndexEntry(contentHash, createdAt, statusCode, statusMessage, headers);
+        }
+    }
+
+    private String readContentHash(final File index) {
+        if (index.getName().endsWith(TMP_SUFFIX)) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(index.toPath())))) {
+            if (in.readInt() != INDEX_MAGIC || in.readInt() != INDEX_VERSION) {
+                return null;
+            }
+            in.readUTF();
+            return in.readUTF();
+        }
+        catch (final IOException e) {
+            return null;
+        }
+    }
+
+    private File indexFile(final String key) {
+        return new File(new File(directory_, INDEX_DIR), DigestUtils.sha256Hex(key));
+    }
+
+    private File[] listFiles(final String dir) {
+        final File[] files = new File(directory_, dir).listFiles();
+        if (files == null) {
+            return new File[0];
+        }
+        return files;
+    }
+
+    private void readObject(final ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        contentInUse_ = new WeakHashMap<>();
+    }
+
+    private static void move(final File source, final File target) throws IOException {
+        final Path sourcePath = source.toPath();
+        final Path targetPath = target.toPath();
+        try {
+            Files.move(sourcePath, targetPath, StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch (final AtomicMoveNotSupportedException e) {
+            try {
+                Files.move(sourcePath, targetPath);
+            }
+            catch (final FileAlreadyExistsException ex) {
+                // same content written by some other process
+                Files.deleteIfExists(sourcePath);
+            }
+        }
+        catch (final FileAlreadyExistsException e) {
+            // same content written by some other process
+            Files.deleteIfExists(sourcePath);
+        }
+    }
+}
@@ -14,14 +14,25 @@
  */
 package org.htmlunit;
 
+import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.SequenceInputStream;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.InvalidMarkException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.ArrayUtils;
 
 /**
@@ -32,6 +43,11 @@ import org.apache.commons.lang3.ArrayUtils;
  */
 public interface DownloadedContent extends Serializable {
 
+    /**
+     * The size of the segments used when downloading content.
+     */
+    int CHUNK_SIZE = 16 * 1024;
+
     /**
      * Implementation keeping content in memory.
      */
@@ -52,6 +68,16 @@ public interface DownloadedContent extends Serializable {
             return new ByteArrayInputStream(bytes_);
         }
 
+        @Override
+        public ByteBuffer getByteBuffer() {
+            return ByteBuffer.wrap(bytes_).asReadOnlyBuffer();
+        }
+
+        @Override
+        public boolean hasByteBuffer() {
+            return true;
+        }
+
         @Override
         public void cleanUp() {
             // nothing to do
@@ -68,12 +94,75 @@ public interface DownloadedContent extends Serializable {
         }
     }
 
+    /**
+     * Implementation keeping content in memory as a list of segments.
+     * The segments are used as they are, the content is never copied into one big array.
+     */
+    class InMemoryChunks implements DownloadedContent {
+        private final List<byte[]> chunks_;
+        private final long length_;
+
+        /**
+         * @param chunks the segments; they must not be modified afterwards
+         */
+        InMemoryChunks(final List<byte[]> chunks) {
+            chunks_ = chunks;
+
+            long length = 0;
+            for (final byte[] chunk : chunks) {
+                length += chunk.length;
+            }
+            length_ = length;
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            final List<InputStream> streams = new ArrayList<>(chunks_.size());
+            for (final byte[] chunk : chunks_) {
+                streams.add(new ByteArrayInputStream(chunk));
+            }
+            // support mark/reset like all the other in memory streams
+            return new BufferedInputStream(new SequenceInputStream(Collections.enumeration(streams)));
+        }
+
+        /**
+         * {@inheritDoc}
+         * The segments are copied into one buffer of the exact size; prefer
+         * {@link #getInputStream()} if the content can be processed piece by piece.
+         */
+        @Override
+        public ByteBuffer getByteBuffer() {
+            final ByteBuffer buffer = ByteBuffer.allocate((int) length_);
+            for (final byte[] chunk : chunks_) {
+                buffer.put(chunk);
+            }
+            buffer.flip();
+            return buffer.asReadOnlyBuffer();
+        }
+
+        @Override
+        public void cleanUp() {
+            // nothing to do
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return length() == 0;
+        }
+
+        @Override
+        public long length() {
+            return length_;
+        }
+    }
+
     /**
      * Implementation keeping content on the file system.
      */
     class OnFile implements DownloadedContent {
         private final File file_;
         private final boolean temporary_;
+        private final transient TempFileCleaner.Cleanable cleanable_;
 
         /**
          * @param file the file
@@ -82,6 +171,7 @@ public interface DownloadedContent extends Serializable {
         OnFile(final File file, final boolean temporary) {
             file_ = file;
             temporary_ = temporary;
+            cleanable_ = temporary ? TempFileCleaner.register(this, file) : null;
         }
 
         @Override
@@ -92,7 +182,13 @@ public interface DownloadedContent extends Serializable {
         @Override
         public void cleanUp() {
             if (temporary_) {
-                FileUtils.deleteQuietly(file_);
+                if (cleanable_ == null) {
+                    // deserialized
+                    FileUtils.deleteQuietly(file_);
+                }
+                else {
+                    cleanable_.clean();
+                }
             }
         }
 
@@ -102,17 +198,163 @@ public interface DownloadedContent extends Serializable {
         }
 
         @Override
-        protected void finalize() throws Throwable {
-            super.finalize();
-            cleanUp();
+        public long length() {
+            if (file_ == null) {
+                return 0;
+            }
+            return file_.length();
+        }
+    }
+
+    /**
+     * Implementation keeping content in a memory-mapped file.
+     * The file is mapped once, all streams and buffers are views of this mapping.
+     */
+    class OnMappedFile implements DownloadedContent {
+        private final File file_;
+        private final boolean temporary_;
+        private final transient TempFileCleaner.Cleanable cleanable_;
+        private transient ByteBuffer buffer_;
+        /** Deletes the (temporary) file once the mapping is no longer reachable. */
+        private transient TempFileCleaner.Cleanable mappingCleanable_;
+
+        /**
+         * @param file the file; the size has to be less than {@link Integer#MAX_VALUE}
+         * @param temporary if true, the file will be deleted when cleanUp() is called;
+         *        if the file is mapped already, as soon as the mapping is no longer used
+         */
+        OnMappedFile(final File file, final boolean temporary) {
+            file_ = file;
+            temporary_ = temporary;
+            cleanable_ = temporary ? TempFileCleaner.register(this, file) : null;
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return new ByteBufferInputStream(getByteBuffer());
+        }
+
+        @Override
+        public synchronized ByteBuffer getByteBuffer() throws IOException {
+            if (buffer_ == null) {
+                try (FileChannel channel = FileChannel.open(file_.toPath(), StandardOpenOption.READ)) {
+                    // the mapping stays valid after closing the channel
+                    final MappedByteBuffer mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                    buffer_ = mapping.asReadOnlyBuffer();
+
+                    // all views of the mapping reference it; the file must not
+                    // be deleted before none of them is reachable anymore
+                    if (temporary_ && mappingCleanable_ == null) {
+                        mappingCleanable_ = TempFileCleaner.register(mapping, file_);
+                        if (cleanable_ != null) {
+                            cleanable_.cancel();
+                        }
+                    }
+                }
+            }
+            return buffer_.duplicate();
+        }
+
+        @Override
+        public boolean hasByteBuffer() {
+            return true;
+        }
+
+        @Override
+        public void cleanUp() {
+            synchronized (this) {
+                if (mappingCleanable_ != null) {
+                    // the file is deleted as soon as the mapping (and all the views) is no longer reachable
+                    return;
+                }
+                buffer_ = null;
+            }
+            if (temporary_) {
+                if (cleanable_ == null) {
+                    // deserialized
+                    FileUtils.deleteQuietly(file_);
+                }
+                else {
+                    cleanable_.clean();
+                }
+            }
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return length() == 0;
         }
 
         @Override
         public long length() {
-            if (file_ == null) {
+            return file_.length();
+        }
+    }
+
+    /**
+     * An {@link InputStream} reading from a {@link ByteBuffer}, supporting mark and reset.
+     */
+    class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer_;
+
+        ByteBufferInputStream(final ByteBuffer buffer) {
+            buffer_ = buffer;
+        }
+
+        @Override
+        public int read() {
+            if (!buffer_.hasRemaining()) {
+                return -1;
+            }
+            return buffer_.get() & 0xFF;
+        }
+
+        @Override
+        public int read(final byte[] bytes, final int off, final int len) {
+            if (len == 0) {
                 return 0;
             }
-            return file_.length();
+            if (!buffer_.hasRemaining()) {
+                return -1;
+            }
+            final int count = Math.min(len, buffer_.remaining());
+            buffer_.get(bytes, off, count);
+            return count;
+        }
+
+        @Override
+        public long skip(final long n) {
+            if (n <= 0) {
+                return 0;
+            }
+            final int count = (int) Math.min(n, buffer_.remaining());
+            buffer_.position(buffer_.position() + count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return buffer_.remaining();
+        }
+
+        @Override
+        public boolean markSupported() {
+            return true;
+        }
+
+        @Override
+        public synchronized void mark(final int readlimit) {
+            buffer_.mark();
+        }
+
+        @Override
+        public synchronized void reset() throws IOException {
+            try {
+                buffer_.reset();
+            }
+            catch (final InvalidMarkException e) {
+                throw new IOException("Resetting to invalid mark", e);
+            }
         }
     }
 
@@ -123,6 +365,28 @@ public interface DownloadedContent extends Serializable {
      */
     InputStream getInputStream() throws IOException;
 
+    /**
+     * Returns a new read-only {@link ByteBuffer} view of the downloaded content.
+     * Implementations holding the content in one block of memory return a view
+     * of this memory without copying.
+     * @return the ByteBuffer
+     * @throws IOException in case of problem accessing the content
+     */
+    default ByteBuffer getByteBuffer() throws IOException {
+        try (InputStream is = getInputStream()) {
+            return ByteBuffer.wrap(IOUtils.toByteArray(is)).asReadOnlyBuffer();
+        }
+    }
+
+    /**
+     * Returns true if {@link #getByteBuffer()} is a view of the content and
+     * does not have to copy it.
+     * @return true or false
+     */
+    default boolean hasByteBuffer() {
+        return false;
+    }
+
     /**
      * Clean up resources associated to this content.
      */
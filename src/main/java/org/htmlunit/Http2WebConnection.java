@@ -0,0 +1,691 @@
+/*
+ * Copyright (c) 2002-2024 Gargoyle Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.htmlunit;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+import javax.net.ssl.SSLPeerUnverifiedException;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hc.client5.http.async.methods.AbstractBinResponseConsumer;
+import org.apache.hc.client5.http.async.methods.SimpleHttpRequest;
+import org.apache.hc.client5.http.async.methods.SimpleRequestProducer;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.config.TlsConfig;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManager;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.ssl.ClientTlsStrategyBuilder;
+import org.apache.hc.client5.http.ssl.NoopHostnameVerifier;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http2.HttpVersionPolicy;
+import org.apache.hc.core5.http2.config.H2Config;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.reactor.IOReactorConfig;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpException;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.ProtocolVersion;
+import org.apache.http.auth.AuthScope;
+import org.apache.http.auth.Credentials;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.client.protocol.RequestAcceptEncoding;
+import org.apache.http.client.protocol.ResponseContentEncoding;
+import org.apache.http.client.protocol.ResponseProcessCookies;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.entity.InputStreamEntity;
+import org.apache.http.impl.EnglishReasonPhraseCatalog;
+import org.apache.http.message.BasicHttpResponse;
+import org.htmlunit.http.HttpStatus;
+import org.htmlunit.httpclient.HtmlUnitCookieStore;
+import org.htmlunit.httpclient.HtmlUnitSSLConnectionSocketFactory;
+
+/**
+ * A {@link WebConnection} supporting HTTP/2, built on the async client of
+ * HttpClient 5 (optional dependency org.apache.httpcomponents.client5:httpclient5).
+ * <p>
+ * HTTP/2 is negotiated (ALPN) for https connections; all requests to one host
+ * are multiplexed over one connection using header compression, servers not supporting
+ * HTTP/2 are served using HTTP/1.1. If {@link WebClientOptions#isHttp2PriorKnowledge()}
+ * is set, HTTP/2 is used without negotiation, also for plain http (h2c).
+ * <p>
+ * The requests are built, the cookies are handled and the response is decoded like in
+ * the {@link HttpWebConnection}; requests using a proxy or a local address and the retry
+ * using SSLv3 only (see {@link WebClientOptions#setUseInsecureSSL(boolean)}) are passed to the
+ * {@link HttpWebConnection} implementation. Authentication is limited to basic authentication.
+ * Like for HTTP/1.1, response bodies larger than {@link WebClientOptions#getMaxInMemory()}
+ * are stored in a temporary file.
+ * <p>
+ * This connection is used by the default {@link HttpWebConnection} if
+ * {@link WebClientOptions#setHttp2Enabled(boolean)} is set, or can be set directly using
+ * {@link WebClient#setWebConnection(WebConnection)}.
+ *
+ * @author agent <agent@local>
+ */
+public class Http2WebConnection extends HttpWebConnection implements AsyncWebConnection {
+
+    private static final Log LOG = LogFactory.getLog(Http2WebConnection.class);
+
+    // these are handled by the client or are not allowed for HTTP/2
+    private static final Set<String> CONNECTION_SPECIFIC_HEADERS = new HashSet<>(Arrays.asList(
+            "connection", "keep-alive", "proxy-connection", "transfer-encoding", "upgrade", "te",
+            HttpHeader.HOST_LC, HttpHeader.CONTENT_LENGTH_LC));
+
+    private final WebClient webClient_;
+
+    /** The client used by all threads. */
+    private SharedAsyncClient sharedAsyncClient_;
+
+    /**
+     * Creates a new HTTP/2 web connection instance.
+     * @param webClient the WebClient that is using this connection
+     */
+    public Http2WebConnection(final WebClient webClient) {
+        super(webClient);
+        webClient_ = webClient;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public WebResponse getResponse(final WebRequest webRequest) throws IOException {
+        try {
+            return getResponseAsync(webRequest).get();
+        }
+        catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while loading " + webRequest.getUrl());
+        }
+        catch (final ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<WebResponse> getResponseAsync(final WebRequest webRequest) {
+        if (webRequest.getProxyHost() != null || webClient_.getOptions().getLocalAddress() != null) {
+            return getHttp1ResponseAsync(webRequest);
+        }
+
+        final HttpClientContext httpContext = createHttpContext();
+        final HttpUriRequest httpMethod;
+        final SimpleHttpRequest request;
+        try {
+            httpMethod = makeHttpMethod(webRequest, httpContext);
+            prepareHttpContext(httpContext, webRequest);
+
+            // the same headers in the same order as for HTTP/1.1
+            for (final HttpRequestInterceptor interceptor : getHttpRequestInterceptors(webRequest)) {
+                interceptor.process(httpMethod, httpContext);
+            }
+            new RequestAcceptEncoding().process(httpMethod, httpContext);
+
+            request = toSimpleHttpRequest(httpMethod);
+        }
+        catch (final URISyntaxException e) {
+            return failedFuture(new IOException("Unable to create URI from URL: "
+                    + webRequest.getUrl().toExternalForm() + " (reason: " + e.getMessage() + ")", e));
+        }
+        catch (final HttpException e) {
+            return failedFuture(new IOException(e));
+        }
+        catch (final IOException | RuntimeException e) {
+            return failedFuture(e);
+        }
+
+        final Timeout timeout = Timeout.ofMilliseconds(getTimeout(webRequest));
+        request.setConfig(RequestConfig.custom()
+                .setConnectionRequestTimeout(timeout)
+                .setResponseTimeout(timeout)
+                .build());
+
+        final long startTime = System.currentTimeMillis();
+        final SharedAsyncClient client = acquireHttpAsyncClient();
+        final CompletableFuture<Http2Response> responseFuture = execute(client, request)
+                .thenCompose(response -> authenticateIfRequired(client, webRequest, request, response));
+        // the body is completely received, the client is no longer needed
+        responseFuture.whenComplete((response, e) -> releaseHttpAsyncClient(client));
+
+        final CompletableFuture<WebResponse> webResponseFuture = responseFuture
+                // don't block the io threads with decoding and storing the content
+                .thenApplyAsync(response -> {
+                    try {
+                        return toWebResponse(response, httpMethod, httpContext, webRequest, startTime);
+                    }
+                    catch (final IOException e) {
+                        throw new CompletionException(e);
+                    }
+                }, webClient_.getExecutor());
+
+        if (!webClient_.getOptions().isUseInsecureSSL()) {
+            return webResponseFuture;
+        }
+        return webResponseFuture.handle((response, e) -> {
+            if (e == null) {
+                return CompletableFuture.completedFuture(response);
+            }
+            final Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof SSLPeerUnverifiedException) {
+                // the HTTP/1.1 implementation tries again using SSLv3 only
+                return getHttp1ResponseAsync(webRequest);
+            }
+            return Http2WebConnection.<WebResponse>failedFuture(cause);
+        }).thenCompose(future -> future);
+    }
+
+    private CompletableFuture<WebResponse> getHttp1ResponseAsync(final WebRequest webRequest) {
+        final CompletableFuture<WebResponse> future = new CompletableFuture<>();
+        webClient_.getExecutor().execute(() -> {
+            try {
+                future.complete(getHttp1Response(webRequest));
+            }
+            catch (final IOException | RuntimeException | Error e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    private static <T> CompletableFuture<T> failedFuture(final Throwable e) {
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(e);
+        return future;
+    }
+
+    /**
+     * Fills the context with everything required by the HttpClient 4 interceptors
+     * used for the request headers, the cookies and the content decoding.
+     */
+    private void prepareHttpContext(final HttpClientContext httpContext, final WebRequest webRequest) {
+        final URL url = webRequest.getUrl();
+        final int port = url.getPort() == -1 ? url.getDefaultPort() : url.getPort();
+        final HttpHost httpHost = new HttpHost(url.getHost(), port, url.getProtocol());
+
+        httpContext.setAttribute(HttpClientContext.HTTP_TARGET_HOST, httpHost);
+        httpContext.setAttribute(HttpClientContext.HTTP_ROUTE,
+                new HttpRoute(httpHost, null, "https".equals(url.getProtocol())));
+        httpContext.setRequestConfig(
+                createRequestConfigBuilder(getTimeout(webRequest), webClient_.getOptions().getLocalAddress()).build());
+        httpContext.setCookieSpecRegistry(createCookieSpecRegistry());
+
+        // the store only looks at the cookies of the domains the host belongs to
+        httpContext.setCookieStore(new HtmlUnitCookieStore(webClient_.getCookieManager(), url.getHost()));
+    }
+
+    private static SimpleHttpRequest toSimpleHttpRequest(final HttpUriRequest httpMethod) throws IOException {
+        final SimpleHttpRequest request = SimpleHttpRequest.create(httpMethod.getMethod(), httpMethod.getURI());
+        for (final Header header : httpMethod.getAllHeaders()) {
+            final String name = org.htmlunit.util.StringUtils.toRootLowerCase(header.getName());
+            if (!CONNECTION_SPECIFIC_HEADERS.contains(name)) {
+                request.addHeader(header.getName(), header.getValue());
+            }
+        }
+
+        if (httpMethod instanceof HttpEntityEnclosingRequest) {
+            final HttpEntity entity = ((HttpEntityEnclosingRequest) httpMethod).getEntity();
+            if (entity != null) {
+                final Header contentType = entity.getContentType();
+                if (contentType != null && !request.containsHeader(HttpHeader.CONTENT_TYPE)) {
+                    request.addHeader(HttpHeader.CONTENT_TYPE, contentType.getValue());
+                }
+
+                final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+                entity.writeTo(bos);
+                request.setBody(bos.toByteArray(), null);
+            }
+        }
+        return request;
+    }
+
+    private CompletableFuture<Http2Response> execute(final SharedAsyncClient client,
+            final SimpleHttpRequest request) {
+        final WebClientOptions options = webClient_.getOptions();
+        final ResponseConsumer consumer =
+                new ResponseConsumer(options.getMaxInMemory(), options.getTempFileDirectory());
+
+        final CompletableFuture<Http2Response> future = new CompletableFuture<>();
+        final FutureCallback<Http2Response> callback = new FutureCallback<Http2Response>() {
+            @Override
+            public void completed(final Http2Response response) {
+                future.complete(response);
+            }
+
+            @Override
+            public void failed(final Exception ex) {
+                if (ex instanceof IOException || ex instanceof RuntimeException) {
+                    future.completeExceptionally(ex);
+                }
+                else {
+                    future.completeExceptionally(new IOException(ex));
+                }
+            }
+
+            @Override
+            public void cancelled() {
+                future.cancel(false);
+            }
+        };
+
+        try {
+            client.httpAsyncClient_.execute(SimpleRequestProducer.create(request), consumer, callback);
+        }
+        catch (final RuntimeException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * Repeats the request using basic authentication if the server asks for and
+     * the credentials provider knows the credentials.
+     */
+    private CompletableFuture<Http2Response> authenticateIfRequired(final SharedAsyncClient client,
+            final WebRequest webRequest, final SimpleHttpRequest request, final Http2Response response) {
+        if (response.head_.getCode() != HttpStatus.UNAUTHORIZED_401
+                || request.containsHeader(HttpHeaders.AUTHORIZATION)
+                || !isBasicChallenge(response)) {
+            return CompletableFuture.completedFuture(response);
+        }
+
+        final URL url = webRequest.getUrl();
+        final Credentials credentials = webClient_.getCredentialsProvider()
+                                            .getCredentials(new AuthScope(url.getHost(), url.getPort()));
+        if (credentials == null || credentials.getUserPrincipal() == null) {
+            return CompletableFuture.completedFuture(response);
+        }
+
+        final String userPassword = credentials.getUserPrincipal().getName()
+                + ":" + StringUtils.defaultString(credentials.getPassword());
+        request.setHeader(HttpHeaders.AUTHORIZATION,
+                "Basic " + Base64.getEncoder().encodeToString(userPassword.getBytes(UTF_8)));
+        response.cleanUp();
+        return execute(client, request);
+    }
+
+    private static boolean isBasicChallenge(final Http2Response response) {
+        for (final org.apache.hc.core5.http.Header header
+                : response.head_.getHeaders(HttpHeaders.WWW_AUTHENTICATE)) {
+            if (StringUtils.startsWithIgnoreCase(header.getValue(), "Basic")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Converts the response into the HttpClient 4 model to process it like the {@link HttpWebConnection}.
+     */
+    private WebResponse toWebResponse(final Http2Response response, final HttpUriRequest httpMethod,
+            final HttpClientContext httpContext, final WebRequest webRequest, final long startTime)
+                    throws IOException {
+        try {
+            final HttpResponse httpResponse = toHttpResponse(response);
+            try {
+                new ResponseContentEncoding().process(httpResponse, httpContext);
+                if (!webRequest.hasHint(HttpHint.BlockCookies)) {
+                    new ResponseProcessCookies().process(httpResponse, httpContext);
+                }
+            }
+            catch (final HttpException e) {
+                throw new IOException(e);
+            }
+
+            return downloadResponse(httpMethod, webRequest, httpResponse, startTime);
+        }
+        finally {
+            // the (decoded) content is stored by downloadResponse()
+            response.cleanUp();
+            onResponseGenerated(httpMethod);
+        }
+    }
+
+    private static HttpResponse toHttpResponse(final Http2Response http2Response) throws IOException {
+        final org.apache.hc.core5.http.HttpResponse response = http2Response.head_;
+        final org.apache.hc.core5.http.ProtocolVersion version = response.getVersion();
+        final ProtocolVersion protocolVersion = version == null
+                ? HttpVersion.HTTP_1_1
+                : new ProtocolVersion(version.getProtocol(), version.getMajor(), version.getMinor());
+
+        final int statusCode = response.getCode();
+        String reasonPhrase = response.getReasonPhrase();
+        if (StringUtils.isEmpty(reasonPhrase)) {
+            // HTTP/2 has no reason phrase
+            reasonPhrase = EnglishReasonPhraseCatalog.INSTANCE.getReason(statusCode, Locale.ROOT);
+        }
+
+        final BasicHttpResponse httpResponse = new BasicHttpResponse(protocolVersion, statusCode, reasonPhrase);
+        for (final org.apache.hc.core5.http.Header header : response.getHeaders()) {
+            httpResponse.addHeader(header.getName(), header.getValue());
+        }
+
+        final DownloadedContent body = http2Response.body_;
+        if (body != null) {
+            final InputStreamEntity entity = new InputStreamEntity(body.getInputStream(), body.length());
+            entity.setContentType(httpResponse.getFirstHeader(HttpHeaders.CONTENT_TYPE));
+            entity.setContentEncoding(httpResponse.getFirstHeader(HttpHeaders.CONTENT_ENCODING));
+            httpResponse.setEntity(entity);
+        }
+        return httpResponse;
+    }
+
+    /**
+     * Returns the client shared by all threads; the client is only built again if the
+     * configuration (the one of the {@link HttpWebConnection} and the HTTP/2 settings) has changed.
+     * Every call has to be followed by a call of {@link #releaseHttpAsyncClient(SharedAsyncClient)}.
+     */
+    private synchronized SharedAsyncClient acquireHttpAsyncClient() {
+        final List<Object> configuration = new ArrayList<>(getSharedHttpClientConfiguration());
+        configuration.add(webClient_.getOptions().isHttp2PriorKnowledge());
+
+        if (sharedAsyncClient_ == null || !configuration.equals(sharedAsyncClient_.configuration_)) {
+            discardHttpAsyncClient();
+            sharedAsyncClient_ = new SharedAsyncClient(createHttpAsyncClient(), configuration);
+        }
+
+        sharedAsyncClient_.users_++;
+        return sharedAsyncClient_;
+    }
+
+    /**
+     * The request is done; closes the client if it was discarded in the meantime and
+     * this was the last request using it.
+     */
+    private synchronized void releaseHttpAsyncClient(final SharedAsyncClient client) {
+        client.users_--;
+        if (client.discarded_ && client.users_ == 0) {
+            client.httpAsyncClient_.close(CloseMode.GRACEFUL);
+        }
+    }
+
+    /**
+     * Discards the shared client; it is closed as soon as no request is using it.
+     */
+    private synchronized void discardHttpAsyncClient() {
+        final SharedAsyncClient client = sharedAsyncClient_;
+        sharedAsyncClient_ = null;
+        if (client != null && !client.discarded_) {
+            client.discarded_ = true;
+            if (client.users_ == 0) {
+                client.httpAsyncClient_.close(CloseMode.GRACEFUL);
+            }
+        }
+    }
+
+    private CloseableHttpAsyncClient createHttpAsyncClient() {
+        final WebClientOptions options = webClient_.getOptions();
+        final int timeout = getTimeout(null);
+
+        final ClientTlsStrategyBuilder tlsStrategyBuilder = ClientTlsStrategyBuilder.create()
+                .setSslContext(HtmlUnitSSLConnectionSocketFactory.buildSSLContext(options));
+        if (options.getSSLClientProtocols() != null) {
+            tlsStrategyBuilder.setTlsVersions(options.getSSLClientProtocols());
+        }
+        if (options.getSSLClientCipherSuites() != null) {
+            tlsStrategyBuilder.setCiphers(options.getSSLClientCipherSuites());
+        }
+        if (options.isUseInsecureSSL()) {
+            tlsStrategyBuilder.setHostnameVerifier(NoopHostnameVerifier.INSTANCE);
+        }
+
+        final Timeout connectionTimeout = Timeout.ofMilliseconds(timeout);
+        final ConnectionConfig.Builder connectionConfigBuilder = ConnectionConfig.custom()
+                .setConnectTimeout(connectionTimeout)
+                .setSocketTimeout(connectionTimeout);
+        if (options.getConnectionTimeToLive() > 0) {
+            connectionConfigBuilder.setTimeToLive(TimeValue.ofMilliseconds(options.getConnectionTimeToLive()));
+        }
+
+        final HttpVersionPolicy versionPolicy = options.isHttp2PriorKnowledge()
+                ? HttpVersionPolicy.FORCE_HTTP_2
+                : HttpVersionPolicy.NEGOTIATE;
+        final PoolingAsyncClientConnectionManager connectionManager =
+                PoolingAsyncClientConnectionManagerBuilder.create()
+                    .setTlsStrategy(tlsStrategyBuilder.build())
+                    .setDefaultTlsConfig(TlsConfig.custom().setVersionPolicy(versionPolicy).build())
+                    .setDefaultConnectionConfig(connectionConfigBuilder.build())
+                    // only used for HTTP/1.1, HTTP/2 multiplexes all requests over one connection
+                    .setMaxConnPerRoute(options.getMaxConnectionsPerRoute())
+                    .setMaxConnTotal(getMaxConnectionsTotal(options.getMaxConnectionsPerRoute()))
+                    .build();
+
+        final CloseableHttpAsyncClient httpAsyncClient = HttpAsyncClients.custom()
+                .setConnectionManager(connectionManager)
+                .setIOReactorConfig(IOReactorConfig.custom().setSoTimeout(connectionTimeout).build())
+                // browsers are no longer supporting server push
+                .setH2Config(H2Config.custom().setPushEnabled(false).build())
+                // redirects, cookies and authentication are handled by HtmlUnit
+                .disableRedirectHandling()
+                .disableCookieManagement()
+                .disableAuthCaching()
+                .disableAutomaticRetries()
+                .build();
+        httpAsyncClient.start();
+        return httpAsyncClient;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() {
+        super.close();
+
+        synchronized (this) {
+            if (sharedAsyncClient_ != null) {
+                sharedAsyncClient_.discarded_ = true;
+                sharedAsyncClient_.httpAsyncClient_.close(CloseMode.GRACEFUL);
+                sharedAsyncClient_ = null;
+            }
+        }
+    }
+
+    /**
+     * The client shared by all threads together with the configuration it was built for
+     * and the number of requests using it.
+     */
+    private static final class SharedAsyncClient {
+        private final CloseableHttpAsyncClient httpAsyncClient_;
+        private final List<Object> configuration_;
+        private int users_;
+        private boolean discarded_;
+
+        SharedAsyncClient(final CloseableHttpAsyncClient httpAsyncClient, final List<Object> configuration) {
+            httpAsyncClient_ = httpAsyncClient;
+            configuration_ = configuration;
+        }
+    }
+
+    /**
+     * The head of a response and its (still encoded) body.
+     */
+    private static final class Http2Response {
+        private final org.apache.hc.core5.http.HttpResponse head_;
+        private final DownloadedContent body_;
+
+        /**
+         * @param head the head
+         * @param body the body or {@code null} if the response has no body
+         */
+        Http2Response(final org.apache.hc.core5.http.HttpResponse head, final DownloadedContent body) {
+            head_ = head;
+            body_ = body;
+        }
+
+        void cleanUp() {
+            if (body_ != null) {
+                body_.cleanUp();
+            }
+        }
+    }
+
+    /**
+     * Receives the response body; like {@link HttpWebConnection#downloadContent(java.io.InputStream, int, File)}
+     * the body is kept in memory up to the given size, larger bodies are written to a temporary file.
+     */
+    private static final class ResponseConsumer extends AbstractBinResponseConsumer<Http2Response> {
+        private final int maxInMemory_;
+        private final File tempFileDirectory_;
+        private org.apache.hc.core5.http.HttpResponse head_;
+        private ByteArrayOutputStream memory_ = new ByteArrayOutputStream();
+        private File file_;
+        private OutputStream fileStream_;
+        private long length_;
+
+        ResponseConsumer(final int maxInMemory, final File tempFileDirectory) {
+            maxInMemory_ = maxInMemory;
+            tempFileDirectory_ = tempFileDirectory;
+        }
+
+        @Override
+        protected void start(final org.apache.hc.core5.http.HttpResponse response, final ContentType contentType) {
+            head_ = response;
+        }
+
+        @Override
+        protected int capacityIncrement() {
+            return Integer.MAX_VALUE;
+        }
+
+        @Override
+        protected void data(final ByteBuffer src, final boolean endOfStream) throws IOException {
+            final int count = src.remaining();
+            if (count > 0) {
+                write(src, count);
+            }
+            if (endOfStream && fileStream_ != null) {
+                fileStream_.close();
+                fileStream_ = null;
+            }
+        }
+
+        private void write(final ByteBuffer src, final int count) throws IOException {
+            length_ += count;
+
+            if (fileStream_ == null && maxInMemory_ > 0 && length_ > maxInMemory_) {
+                // we have exceeded the max for memory, let's write everything to a temporary file
+                file_ = File.createTempFile("htmlunit", ".tmp", tempFileDirectory_);
+                file_.deleteOnExit();
+                fileStream_ = Files.newOutputStream(file_.toPath());
+                memory_.writeTo(fileStream_);
+                memory_ = null;
+            }
+
+            final OutputStream out = fileStream_ == null ? memory_ : fileStream_;
+            if (src.hasArray()) {
+                out.write(src.array(), src.arrayOffset() + src.position(), count);
+                src.position(src.limit());
+            }
+            else {
+                final byte[] bytes = new byte[count];
+                src.get(bytes);
+                out.write(bytes);
+            }
+        }
+
+        @Override
+        protected Http2Response buildResult() {
+            if (fileStream_ != null) {
+                try {
+                    fileStream_.close();
+                }
+                catch (final IOException e) {
+                    LOG.warn("Closing the temporary file failed: " + e.getMessage(), e);
+                }
+                fileStream_ = null;
+            }
+
+            final DownloadedContent body;
+            if (length_ == 0) {
+                body = null;
+            }
+            else if (file_ != null) {
+                body = new DownloadedContent.OnFile(file_, true);
+                // the content owns the file now
+                file_ = null;
+            }
+            else {
+                body = new DownloadedContent.InMemory(memory_.toByteArray());
+            }
+            return new Http2Response(head_, body);
+        }
+
+        @Override
+        public void releaseResources() {
+            if (fileStream_ != null) {
+                try {
+                    fileStream_.close();
+                }
+                catch (final IOException e) {
+                    // ignore
+                }
+                fileStream_ = null;
+            }
+            // not handed out (e.g. the request failed)
+            if (file_ != null) {
+                file_.delete();
+                file_ = null;
+            }
+            memory_ = null;
+        }
+    }
+}
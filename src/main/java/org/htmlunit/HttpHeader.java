@@ -81,6 +81,9 @@ public final class HttpHeader {
     /** content-length. */
     public static final String CONTENT_LENGTH_LC = "content-length";
 
+    /** Content-Encoding. */
+    public static final String CONTENT_ENCODING = "Content-Encoding";
+
     /** Content-Type. */
     public static final String CONTENT_TYPE = "Content-Type";
     /** content-type. */
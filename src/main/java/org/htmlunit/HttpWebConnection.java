@@ -15,7 +15,6 @@
 package org.htmlunit;
 
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.EOFException;
 import java.io.File;
 import java.io.IOException;
@@ -25,21 +24,25 @@ import java.net.InetAddress;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.CharBuffer;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.net.ssl.HostnameVerifier;
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLPeerUnverifiedException;
 import javax.net.ssl.SSLSocketFactory;
 
-import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.reflect.FieldUtils;
 import org.apache.commons.logging.Log;
@@ -53,6 +56,7 @@ import org.apache.http.HttpHost;
 import org.apache.http.HttpRequest;
 import org.apache.http.HttpRequestInterceptor;
 import org.apache.http.HttpResponse;
+import org.apache.http.HttpResponseInterceptor;
 import org.apache.http.auth.AuthScheme;
 import org.apache.http.auth.AuthScope;
 import org.apache.http.auth.Credentials;
@@ -77,6 +81,7 @@ import org.apache.http.client.protocol.RequestExpectContinue;
 import org.apache.http.client.protocol.ResponseProcessCookies;
 import org.apache.http.client.utils.URLEncodedUtils;
 import org.apache.http.config.ConnectionConfig;
+import org.apache.http.config.Registry;
 import org.apache.http.config.RegistryBuilder;
 import org.apache.http.config.SocketConfig;
 import org.apache.http.conn.DnsResolver;
@@ -97,6 +102,7 @@ import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.apache.http.protocol.HttpContext;
+import org.apache.http.protocol.HttpProcessor;
 import org.apache.http.protocol.HttpProcessorBuilder;
 import org.apache.http.protocol.RequestContent;
 import org.apache.http.protocol.RequestTargetHost;
@@ -136,6 +142,16 @@ public class HttpWebConnection implements WebConnection {
 
     private static final String HACKED_COOKIE_POLICY = "mine";
 
+    // context attributes used by the shared client
+    private static final String REQUEST_INTERCEPTORS = "htmlunit.request.interceptors";
+    private static final String BLOCK_COOKIES = "htmlunit.block.cookies";
+
+    // segments used by downloadContent(); only segments not handed out as part of
+    // some DownloadedContent are returned to the pool
+    private static final int CHUNK_POOL_MAX_SIZE = 64;
+    private static final Queue<byte[]> CHUNK_POOL = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger CHUNK_POOL_SIZE = new AtomicInteger();
+
     // have one per thread because this is (re)configured for every call (see configureHttpProcessorBuilder)
     // do not use a ThreadLocal because this in only accessed form this class
     private final Map<Thread, HttpClientBuilder> httpClientBuilder_ = new WeakHashMap<>();
@@ -152,6 +168,12 @@ public class HttpWebConnection implements WebConnection {
     /** Maintains a separate {@link HttpClientContext} object per HttpWebConnection and thread. */
     private final Map<Thread, HttpClientContext> httpClientContextByThread_ = new WeakHashMap<>();
 
+    /** The client used by all threads if {@link WebClientOptions#isReuseHttpClient()} is set. */
+    private SharedHttpClient sharedHttpClient_;
+
+    // used instead of this connection if HTTP/2 is enabled
+    private Http2WebConnection http2WebConnection_;
+
     /**
      * Creates a new HTTP web connection instance.
      * @param webClient the WebClient that is using this connection
@@ -168,41 +190,79 @@ public class HttpWebConnection implements WebConnection {
      */
     @Override
     public WebResponse getResponse(final WebRequest webRequest) throws IOException {
-        final HttpClientBuilder builder = reconfigureHttpClientIfNeeded(getHttpClientBuilder(), webRequest);
+        if (webClient_.getOptions().isHttp2Enabled()) {
+            return getHttp2WebConnection().getResponse(webRequest);
+        }
+        return getHttp1Response(webRequest);
+    }
+
+    /**
+     * Returns the {@link Http2WebConnection} used if {@link WebClientOptions#isHttp2Enabled()}.
+     */
+    private synchronized Http2WebConnection getHttp2WebConnection() {
+        if (http2WebConnection_ == null) {
+            http2WebConnection_ = new Http2WebConnection(webClient_);
+        }
+        return http2WebConnection_;
+    }
+
+    /**
+     * Does the real work of {@link #getResponse(WebRequest)} using HTTP/1.1.
+     * @param webRequest the request
+     * @return the response
+     * @throws IOException if an IO problem occurs
+     */
+    WebResponse getHttp1Response(final WebRequest webRequest) throws IOException {
+        final HttpClientBuilder builder;
+        final HttpContext httpContext;
+        if (webClient_.getOptions().isReuseHttpClient()) {
+            builder = null;
+            httpContext = createHttpContext();
+        }
+        else {
+            builder = reconfigureHttpClientIfNeeded(getHttpClientBuilder(), webRequest);
+            httpContext = getHttpContext();
+        }
 
         HttpUriRequest httpMethod = null;
         try {
             try {
-                httpMethod = makeHttpMethod(webRequest, builder);
+                httpMethod = makeHttpMethod(webRequest, httpContext);
             }
             catch (final URISyntaxException e) {
                 throw new IOException("Unable to create URI from URL: " + webRequest.getUrl().toExternalForm()
                         + " (reason: " + e.getMessage() + ")", e);
             }
 
+            final CredentialsProvider credentialsProvider = webClient_.getCredentialsProvider();
+            if (builder == null) {
+                // the shared client takes everything request specific from the context
+                httpContext.setAttribute(REQUEST_INTERCEPTORS, getHttpRequestInterceptors(webRequest));
+                if (webRequest.hasHint(HttpHint.BlockCookies)) {
+                    httpContext.setAttribute(BLOCK_COOKIES, Boolean.TRUE);
+                }
+                httpContext.setAttribute(HttpClientContext.CREDS_PROVIDER, credentialsProvider);
+            }
+            else {
+                configureHttpProcessorBuilder(builder, webRequest);
+                builder.setDefaultCredentialsProvider(credentialsProvider);
+            }
+
             final URL url = webRequest.getUrl();
             final HttpHost httpHost = new HttpHost(url.getHost(), url.getPort(), url.getProtocol());
             final long startTime = System.currentTimeMillis();
 
-            final HttpContext httpContext = getHttpContext();
+            // the store only looks at the cookies of the domains the host belongs to
+            httpContext.setAttribute(HttpClientContext.COOKIE_STORE,
+                    new HtmlUnitCookieStore(webClient_.getCookieManager(), url.getHost()));
             try {
-                try (CloseableHttpClient closeableHttpClient = builder.build()) {
-                    try (CloseableHttpResponse httpResponse =
-                            closeableHttpClient.execute(httpHost, httpMethod, httpContext)) {
-                        return downloadResponse(httpMethod, webRequest, httpResponse, startTime);
-                    }
-                }
+                return execute(builder, httpHost, httpMethod, httpContext, webRequest, startTime);
             }
             catch (final SSLPeerUnverifiedException ex) {
                 // Try to use only SSLv3 instead
                 if (webClient_.getOptions().isUseInsecureSSL()) {
                     HtmlUnitSSLConnectionSocketFactory.setUseSSL3Only(httpContext, true);
-                    try (CloseableHttpClient closeableHttpClient = builder.build()) {
-                        try (CloseableHttpResponse httpResponse =
-                                closeableHttpClient.execute(httpHost, httpMethod, httpContext)) {
-                            return downloadResponse(httpMethod, webRequest, httpResponse, startTime);
-                        }
-                    }
+                    return execute(builder, httpHost, httpMethod, httpContext, webRequest, startTime);
                 }
                 throw ex;
             }
@@ -211,7 +271,12 @@ public class HttpWebConnection implements WebConnection {
                 // Calling code may catch the StackOverflowError, but due to the leak, the httpClient_ may
                 // come out of connections and throw a ConnectionPoolTimeoutException.
                 // => best solution, discard the HttpClient instance.
-                httpClientBuilder_.remove(Thread.currentThread());
+                if (builder == null) {
+                    discardSharedHttpClient();
+                }
+                else {
+                    httpClientBuilder_.remove(Thread.currentThread());
+                }
                 throw e;
             }
         }
@@ -222,6 +287,32 @@ public class HttpWebConnection implements WebConnection {
         }
     }
 
+    /**
+     * Executes the request, either with a client built from the given builder
+     * or - if the builder is {@code null} - with the shared client.
+     */
+    private WebResponse execute(final HttpClientBuilder builder, final HttpHost httpHost,
+            final HttpUriRequest httpMethod, final HttpContext httpContext,
+            final WebRequest webRequest, final long startTime) throws IOException {
+        if (builder == null) {
+            final SharedHttpClient sharedHttpClient = acquireSharedHttpClient();
+            try (CloseableHttpResponse httpResponse =
+                    sharedHttpClient.httpClient_.execute(httpHost, httpMethod, httpContext)) {
+                return downloadResponse(httpMethod, webRequest, httpResponse, startTime);
+            }
+            finally {
+                releaseSharedHttpClient(sharedHttpClient);
+            }
+        }
+
+        try (CloseableHttpClient closeableHttpClient = builder.build()) {
+            try (CloseableHttpResponse httpResponse =
+                    closeableHttpClient.execute(httpHost, httpMethod, httpContext)) {
+                return downloadResponse(httpMethod, webRequest, httpResponse, startTime);
+            }
+        }
+    }
+
     /**
      * Called when the response has been generated. Default action is to release
      * the HttpMethod's connection. Subclasses may override.
@@ -237,17 +328,22 @@ public class HttpWebConnection implements WebConnection {
     private synchronized HttpContext getHttpContext() {
         HttpClientContext httpClientContext = httpClientContextByThread_.get(Thread.currentThread());
         if (httpClientContext == null) {
-            httpClientContext = new HttpClientContext();
-
-            // set the shared authentication cache
-            httpClientContext.setAttribute(HttpClientContext.AUTH_CACHE, sharedAuthCache_);
-
+            httpClientContext = createHttpContext();
             httpClientContextByThread_.put(Thread.currentThread(), httpClientContext);
         }
         return httpClientContext;
     }
 
-    private void setProxy(final HttpRequestBase httpRequest, final WebRequest webRequest) {
+    HttpClientContext createHttpContext() {
+        final HttpClientContext httpClientContext = new HttpClientContext();
+
+        // set the shared authentication cache
+        httpClientContext.setAttribute(HttpClientContext.AUTH_CACHE, sharedAuthCache_);
+        return httpClientContext;
+    }
+
+    private void setProxy(final HttpRequestBase httpRequest, final WebRequest webRequest,
+            final HttpContext httpContext) {
         final InetAddress localAddress = webClient_.getOptions().getLocalAddress();
         final RequestConfig.Builder requestBuilder = createRequestConfigBuilder(getTimeout(webRequest), localAddress);
 
@@ -260,7 +356,9 @@ public class HttpWebConnection implements WebConnection {
         final HttpHost proxy = new HttpHost(webRequest.getProxyHost(),
                                     webRequest.getProxyPort(), webRequest.getProxyScheme());
         if (webRequest.isSocksProxy()) {
-            SocksConnectionSocketFactory.setSocksProxy(getHttpContext(), proxy);
+            SocksConnectionSocketFactory.setSocksProxy(httpContext, proxy);
+            requestBuilder.setProxy(null);
+            httpRequest.setConfig(requestBuilder.build());
         }
         else {
             requestBuilder.setProxy(proxy);
@@ -271,14 +369,13 @@ public class HttpWebConnection implements WebConnection {
     /**
      * Creates an <code>HttpMethod</code> instance according to the specified parameters.
      * @param webRequest the request
-     * @param httpClientBuilder the httpClientBuilder that will be configured
+     * @param httpContext the context used to execute the request
      * @return the <code>HttpMethod</code> instance constructed according to the specified parameters
      * @throws URISyntaxException in case of syntax problems
      */
-    private HttpUriRequest makeHttpMethod(final WebRequest webRequest, final HttpClientBuilder httpClientBuilder)
+    HttpUriRequest makeHttpMethod(final WebRequest webRequest, final HttpContext httpContext)
         throws URISyntaxException {
 
-        final HttpContext httpContext = getHttpContext();
         final Charset charset = webRequest.getCharset();
         // Make sure that the URL is fully encoded. IE actually sends some Unicode chars in request
         // URLs; because of this we allow some Unicode chars in URLs. However, at this point we're
@@ -291,7 +388,7 @@ public class HttpWebConnection implements WebConnection {
             uri = URI.create(getVirtualHost());
         }
         final HttpRequestBase httpMethod = buildHttpMethod(webRequest.getHttpMethod(), uri);
-        setProxy(httpMethod, webRequest);
+        setProxy(httpMethod, webRequest, httpContext);
 
         // developer note:
         // this has to be in sync with org.htmlunit.WebRequest.getRequestParameters()
@@ -384,8 +481,6 @@ public class HttpWebConnection implements WebConnection {
             }
         }
 
-        configureHttpProcessorBuilder(httpClientBuilder, webRequest);
-
         // Tell the client where to get its credentials from
         // (it may have changed on the webClient since last call to getHttpClientFor(...))
         final CredentialsProvider credentialsProvider = webClient_.getCredentialsProvider();
@@ -407,7 +502,6 @@ public class HttpWebConnection implements WebConnection {
             // updating our client to keep the credentials for the next request
             credentialsProvider.setCredentials(authScope, requestCredentials);
         }
-        httpClientBuilder.setDefaultCredentialsProvider(credentialsProvider);
         httpContext.removeAttribute(HttpClientContext.CREDS_PROVIDER);
         httpContext.removeAttribute(HttpClientContext.TARGET_AUTH_STATE);
         return httpMethod;
@@ -533,23 +627,140 @@ public class HttpWebConnection implements WebConnection {
         final Thread currentThread = Thread.currentThread();
         HttpClientBuilder builder = httpClientBuilder_.get(currentThread);
         if (builder == null) {
-            builder = createHttpClientBuilder();
-
-            // this factory is required later
-            // to be sure this is done, we do it outside the createHttpClient() call
-            final RegistryBuilder<CookieSpecProvider> registeryBuilder
-                = RegistryBuilder.<CookieSpecProvider>create()
-                            .register(HACKED_COOKIE_POLICY, htmlUnitCookieSpecProvider_);
-            builder.setDefaultCookieSpecRegistry(registeryBuilder.build());
-
-            builder.setDefaultCookieStore(new HtmlUnitCookieStore(webClient_.getCookieManager()));
-            builder.setUserAgent(webClient_.getBrowserVersion().getUserAgent());
+            builder = newHttpClientBuilder();
             httpClientBuilder_.put(currentThread, builder);
         }
 
         return builder;
     }
 
+    private HttpClientBuilder newHttpClientBuilder() {
+        final HttpClientBuilder builder = createHttpClientBuilder();
+
+        // this factory is required later
+        // to be sure this is done, we do it outside the createHttpClient() call
+        builder.setDefaultCookieSpecRegistry(createCookieSpecRegistry());
+
+        builder.setDefaultCookieStore(new HtmlUnitCookieStore(webClient_.getCookieManager()));
+        builder.setUserAgent(webClient_.getBrowserVersion().getUserAgent());
+        return builder;
+    }
+
+    /**
+     * Returns the registry providing the cookie spec used by HtmlUnit.
+     * @return the registry
+     */
+    Registry<CookieSpecProvider> createCookieSpecRegistry() {
+        return RegistryBuilder.<CookieSpecProvider>create()
+                    .register(HACKED_COOKIE_POLICY, htmlUnitCookieSpecProvider_)
+                    .build();
+    }
+
+    /**
+     * The client shared by all threads together with the configuration it was built for
+     * and the number of requests using it.
+     */
+    private static final class SharedHttpClient {
+        private final CloseableHttpClient httpClient_;
+        private final PoolingHttpClientConnectionManager connectionManager_;
+        private final List<Object> configuration_;
+        private int users_;
+        private boolean discarded_;
+
+        SharedHttpClient(final CloseableHttpClient httpClient,
+                final PoolingHttpClientConnectionManager connectionManager, final List<Object> configuration) {
+            httpClient_ = httpClient;
+            connectionManager_ = connectionManager;
+            configuration_ = configuration;
+        }
+
+        void close() {
+            connectionManager_.shutdown();
+            try {
+                httpClient_.close();
+            }
+            catch (final IOException e) {
+                LOG.warn("Closing the shared http client failed: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Returns the configuration the shared client depends on: every option read
+     * by {@link #createHttpClientBuilder()} and the connection settings.
+     * The {@link Http2WebConnection} uses this for its client as well.
+     * @return the configuration; lists are equal if the configuration is the same
+     */
+    List<Object> getSharedHttpClientConfiguration() {
+        final WebClientOptions options = webClient_.getOptions();
+        final ProxyConfig proxyConfig = options.getProxyConfig();
+        final char[] password = options.getSSLClientCertificatePassword();
+        return Arrays.asList(
+                options.isUseInsecureSSL(),
+                options.getSSLContext(),
+                options.getSSLInsecureProtocol(),
+                options.getSSLClientCertificateStore(),
+                password == null ? null : CharBuffer.wrap(password.clone()),
+                options.getSSLTrustStore(),
+                options.getSSLClientCipherSuites() == null ? null : Arrays.asList(options.getSSLClientCipherSuites()),
+                options.getSSLClientProtocols() == null ? null : Arrays.asList(options.getSSLClientProtocols()),
+                proxyConfig == null ? null : proxyConfig.copy(),
+                options.getLocalAddress(),
+                getTimeout(null),
+                options.getConnectionTimeToLive(),
+                options.getMaxConnectionsPerRoute());
+    }
+
+    /**
+     * Returns the client shared by all threads; the client is only built again
+     * if the configuration (see {@link #getSharedHttpClientConfiguration()}) has changed.
+     * All request specific parts are passed using the {@link HttpContext}.
+     * Every call has to be followed by a call of {@link #releaseSharedHttpClient(SharedHttpClient)}.
+     */
+    private synchronized SharedHttpClient acquireSharedHttpClient() {
+        final List<Object> configuration = getSharedHttpClientConfiguration();
+        if (sharedHttpClient_ == null || !configuration.equals(sharedHttpClient_.configuration_)) {
+            discardSharedHttpClient();
+
+            final HttpClientBuilder builder = newHttpClientBuilder();
+            builder.setConnectionTimeToLive(webClient_.getOptions().getConnectionTimeToLive(), TimeUnit.MILLISECONDS);
+            builder.setHttpProcessor(createSharedHttpProcessor());
+
+            final PoolingHttpClientConnectionManager connectionManager = createConnectionManager(builder);
+            builder.setConnectionManager(connectionManager);
+
+            sharedHttpClient_ = new SharedHttpClient(builder.build(), connectionManager, configuration);
+        }
+
+        sharedHttpClient_.users_++;
+        return sharedHttpClient_;
+    }
+
+    /**
+     * The request is done; closes the client if it was discarded in the meantime and
+     * this was the last request using it.
+     */
+    private synchronized void releaseSharedHttpClient(final SharedHttpClient sharedHttpClient) {
+        sharedHttpClient.users_--;
+        if (sharedHttpClient.discarded_ && sharedHttpClient.users_ == 0) {
+            sharedHttpClient.close();
+        }
+    }
+
+    /**
+     * Discards the shared client; it is closed as soon as no request is using it.
+     */
+    private synchronized void discardSharedHttpClient() {
+        final SharedHttpClient sharedHttpClient = sharedHttpClient_;
+        sharedHttpClient_ = null;
+        if (sharedHttpClient != null && !sharedHttpClient.discarded_) {
+            sharedHttpClient.discarded_ = true;
+            if (sharedHttpClient.users_ == 0) {
+                sharedHttpClient.close();
+            }
+        }
+    }
+
     /**
      * Returns the timeout to use for socket and connection timeouts for HttpConnectionManager.
      * Is overridden to 0 by StreamingWebConnection which keeps reading after a timeout and
@@ -578,12 +789,23 @@ public class HttpWebConnection implements WebConnection {
         builder.setRedirectStrategy(new HtmlUnitRedirectStrategie());
         configureTimeout(builder, getTimeout(null));
         configureHttpsScheme(builder);
-        builder.setMaxConnPerRoute(6);
+        configureMaxConnections(builder, webClient_.getOptions().getMaxConnectionsPerRoute());
 
         builder.setConnectionManagerShared(true);
         return builder;
     }
 
+    private void configureMaxConnections(final HttpClientBuilder builder, final int maxConnectionsPerRoute) {
+        builder.setMaxConnPerRoute(maxConnectionsPerRoute);
+        builder.setMaxConnTotal(getMaxConnectionsTotal(maxConnectionsPerRoute));
+        usedOptions_.setMaxConnectionsPerRoute(maxConnectionsPerRoute);
+    }
+
+    static int getMaxConnectionsTotal(final int maxConnectionsPerRoute) {
+        // 20 is the HttpClient default
+        return Math.max(20, 3 * maxConnectionsPerRoute);
+    }
+
     private void configureTimeout(final HttpClientBuilder builder, final int timeout) {
         final InetAddress localAddress = webClient_.getOptions().getLocalAddress();
         final RequestConfig.Builder requestBuilder = createRequestConfigBuilder(timeout, localAddress);
@@ -595,7 +817,7 @@ public class HttpWebConnection implements WebConnection {
         usedOptions_.setTimeout(timeout);
     }
 
-    private static RequestConfig.Builder createRequestConfigBuilder(final int timeout, final InetAddress localAddress) {
+    static RequestConfig.Builder createRequestConfigBuilder(final int timeout, final InetAddress localAddress) {
         return RequestConfig.custom()
                 .setCookieSpec(HACKED_COOKIE_POLICY)
                 .setRedirectsEnabled(false)
@@ -647,9 +869,19 @@ public class HttpWebConnection implements WebConnection {
             usedOptions_.setConnectionTimeToLive(connectionTimeToLive);
         }
 
+        final int maxConnectionsPerRoute = options.getMaxConnectionsPerRoute();
+        if (maxConnectionsPerRoute != usedOptions_.getMaxConnectionsPerRoute()) {
+            configureMaxConnections(httpClientBuilder, maxConnectionsPerRoute);
+        }
+
         if (connectionManager_ == null) {
             connectionManager_ = createConnectionManager(httpClientBuilder);
         }
+        else if (connectionManager_.getDefaultMaxPerRoute() != maxConnectionsPerRoute) {
+            // the pool is able to change the limits on the fly
+            connectionManager_.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+            connectionManager_.setMaxTotal(getMaxConnectionsTotal(maxConnectionsPerRoute));
+        }
         httpClientBuilder.setConnectionManager(connectionManager_);
 
         return httpClientBuilder;
@@ -677,7 +909,23 @@ public class HttpWebConnection implements WebConnection {
         for (final HttpRequestInterceptor i : getHttpRequestInterceptors(webRequest)) {
             b.add(i);
         }
+        addDefaultInterceptors(b);
 
+        if (!webRequest.hasHint(HttpHint.BlockCookies)) {
+            b.add(new ResponseProcessCookies());
+        }
+        builder.setHttpProcessor(b.build());
+    }
+
+    private static HttpProcessor createSharedHttpProcessor() {
+        final HttpProcessorBuilder b = HttpProcessorBuilder.create();
+        b.add(new ContextHttpRequestInterceptor());
+        addDefaultInterceptors(b);
+        b.add(new ContextResponseProcessCookies());
+        return b.build();
+    }
+
+    private static void addDefaultInterceptors(final HttpProcessorBuilder b) {
         // These are the headers used in HttpClientBuilder, excluding the already added ones
         // (RequestClientConnControl and RequestAddCookies)
         b.addAll(new RequestDefaultHeaders(null),
@@ -686,11 +934,6 @@ public class HttpWebConnection implements WebConnection {
                 new RequestExpectContinue());
         b.add(new RequestAcceptEncoding());
         b.add(new RequestAuthCache());
-
-        if (!webRequest.hasHint(HttpHint.BlockCookies)) {
-            b.add(new ResponseProcessCookies());
-        }
-        builder.setHttpProcessor(b.build());
     }
 
     /**
@@ -785,36 +1028,98 @@ public class HttpWebConnection implements WebConnection {
             return new DownloadedContent.InMemory(null);
         }
 
-        try (ByteArrayOutputStream bos = new ByteArrayOutputStream()) {
-            final byte[] buffer = new byte[1024];
+        final List<byte[]> chunks = new ArrayList<>();
+        byte[] chunk = takeChunk();
+        int pos = 0;
+        long length = 0;
+        try {
             int nbRead;
-            try {
-                while ((nbRead = is.read(buffer)) != -1) {
-                    bos.write(buffer, 0, nbRead);
-                    if (maxInMemory > 0 && bos.size() > maxInMemory) {
-                        // we have exceeded the max for memory, let's write everything to a temporary file
-                        final File file = File.createTempFile("htmlunit", ".tmp", tempFileDirectory);
-                        file.deleteOnExit();
-                        try (OutputStream fos = Files.newOutputStream(file.toPath())) {
-                            bos.writeTo(fos); // what we have already read
-                            IOUtils.copyLarge(is, fos); // what remains from the server response
-                        }
-                        return new DownloadedContent.OnFile(file, true);
-                    }
+            while ((nbRead = is.read(chunk, pos, chunk.length - pos)) != -1) {
+                pos += nbRead;
+                length += nbRead;
+                if (maxInMemory > 0 && length > maxInMemory) {
+                    // we have exceeded the max for memory, let's write everything to a temporary file
+                    return spillToFile(is, chunks, chunk, pos, tempFileDirectory);
+                }
+                if (pos == chunk.length) {
+                    chunks.add(chunk);
+                    chunk = takeChunk();
+                    pos = 0;
                 }
             }
-            catch (final ConnectionClosedException e) {
-                LOG.warn("Connection was closed while reading from stream.", e);
-                return new DownloadedContent.InMemory(bos.toByteArray());
+        }
+        catch (final ConnectionClosedException e) {
+            LOG.warn("Connection was closed while reading from stream.", e);
+        }
+        catch (final EOFException e) {
+            // this might happen with broken gzip content
+            LOG.warn("EOFException while reading from stream.", e);
+        }
+
+        // the last segment is only partially filled, keep a trimmed copy and reuse the segment
+        if (pos > 0) {
+            chunks.add(Arrays.copyOf(chunk, pos));
+        }
+        releaseChunk(chunk);
+
+        if (chunks.size() < 2) {
+            return new DownloadedContent.InMemory(chunks.isEmpty() ? null : chunks.get(0));
+        }
+        return new DownloadedContent.InMemoryChunks(chunks);
+    }
+
+    private static DownloadedContent spillToFile(final InputStream is, final List<byte[]> chunks,
+            final byte[] chunk, final int pos, final File tempFileDirectory) throws IOException {
+        final File file = File.createTempFile("htmlunit", ".tmp", tempFileDirectory);
+        file.deleteOnExit();
+        try (OutputStream fos = Files.newOutputStream(file.toPath())) {
+            // what we have already read, segment by segment
+            for (final byte[] full : chunks) {
+                fos.write(full);
+                releaseChunk(full);
             }
-            catch (final EOFException e) {
-                // this might happen with broken gzip content
-                LOG.warn("EOFException while reading from stream.", e);
-                return new DownloadedContent.InMemory(bos.toByteArray());
+            chunks.clear();
+            fos.write(chunk, 0, pos);
+
+            // what remains from the server response
+            int nbRead;
+            while ((nbRead = is.read(chunk)) != -1) {
+                fos.write(chunk, 0, nbRead);
             }
+        }
+        catch (final ConnectionClosedException e) {
+            LOG.warn("Connection was closed while reading from stream.", e);
+        }
+        catch (final EOFException e) {
+            // this might happen with broken gzip content
+            LOG.warn("EOFException while reading from stream.", e);
+        }
+        finally {
+            releaseChunk(chunk);
+        }
 
-            return new DownloadedContent.InMemory(bos.toByteArray());
+        // files are mapped into memory as long as one mapping is sufficient
+        if (file.length() < Integer.MAX_VALUE) {
+            return new DownloadedContent.OnMappedFile(file, true);
         }
+        return new DownloadedContent.OnFile(file, true);
+    }
+
+    private static byte[] takeChunk() {
+        final byte[] chunk = CHUNK_POOL.poll();
+        if (chunk == null) {
+            return new byte[DownloadedContent.CHUNK_SIZE];
+        }
+        CHUNK_POOL_SIZE.decrementAndGet();
+        return chunk;
+    }
+
+    private static void releaseChunk(final byte[] chunk) {
+        if (CHUNK_POOL_SIZE.incrementAndGet() > CHUNK_POOL_MAX_SIZE) {
+            CHUNK_POOL_SIZE.decrementAndGet();
+            return;
+        }
+        CHUNK_POOL.offer(chunk);
     }
 
     /**
@@ -832,7 +1137,7 @@ public class HttpWebConnection implements WebConnection {
         return new WebResponse(responseData, webRequest, loadTime);
     }
 
-    private List<HttpRequestInterceptor> getHttpRequestInterceptors(final WebRequest webRequest) {
+    List<HttpRequestInterceptor> getHttpRequestInterceptors(final WebRequest webRequest) {
         final List<HttpRequestInterceptor> list = new ArrayList<>();
         final Map<String, String> requestHeaders = webRequest.getAdditionalHeaders();
         final URL url = webRequest.getUrl();
@@ -1187,6 +1492,41 @@ public class HttpWebConnection implements WebConnection {
         }
     }
 
+    /**
+     * Runs the interceptors of the current request stored in the context; used by the shared client.
+     * This way the headers are still added in the browser specific order.
+     */
+    private static final class ContextHttpRequestInterceptor implements HttpRequestInterceptor {
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void process(final HttpRequest request, final HttpContext context) throws HttpException, IOException {
+            final List<HttpRequestInterceptor> interceptors =
+                    (List<HttpRequestInterceptor>) context.getAttribute(REQUEST_INTERCEPTORS);
+            if (interceptors != null) {
+                for (final HttpRequestInterceptor interceptor : interceptors) {
+                    interceptor.process(request, context);
+                }
+            }
+        }
+    }
+
+    /**
+     * Processes the cookies of the response if not blocked for the current request;
+     * used by the shared client.
+     */
+    private static final class ContextResponseProcessCookies implements HttpResponseInterceptor {
+        private final ResponseProcessCookies responseProcessCookies_ = new ResponseProcessCookies();
+
+        @Override
+        public void process(final HttpResponse response, final HttpContext context)
+            throws HttpException, IOException {
+            if (context.getAttribute(BLOCK_COOKIES) == null) {
+                responseProcessCookies_.process(response, context);
+            }
+        }
+    }
+
     private static class RequestClientConnControl implements HttpRequestInterceptor {
 
         private static final String PROXY_CONN_DIRECTIVE = "Proxy-Connection";
@@ -1293,6 +1633,19 @@ public class HttpWebConnection implements WebConnection {
             connectionManager_.shutdown();
             connectionManager_ = null;
         }
+
+        synchronized (this) {
+            if (sharedHttpClient_ != null) {
+                // the connection is closed, don't wait for running requests
+                sharedHttpClient_.close();
+                sharedHttpClient_ = null;
+            }
+
+            if (http2WebConnection_ != null) {
+                http2WebConnection_.close();
+                http2WebConnection_ = null;
+            }
+        }
     }
 
     /**
@@ -170,7 +170,7 @@ public class MockWebConnection implements WebConnection {
      * @return the raw response
      * @throws IOException if defined
      */
-    public RawResponseData getRawResponse(final WebRequest request) throws IOException {
+    public synchronized RawResponseData getRawResponse(final WebRequest request) throws IOException {
         final URL url = request.getUrl();
 
         if (LOG.isDebugEnabled()) {
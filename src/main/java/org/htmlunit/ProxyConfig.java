@@ -17,6 +17,7 @@ package org.htmlunit;
 import java.io.Serializable;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Objects;
 import java.util.regex.Pattern;
 
 /**
@@ -201,4 +202,46 @@ public class ProxyConfig implements Serializable {
     protected void setProxyAutoConfigContent(final String proxyAutoConfigContent) {
         proxyAutoConfigContent_ = proxyAutoConfigContent;
     }
+
+    /**
+     * Creates a copy of the configuration; the copy is not affected by later changes of this instance.
+     * @return the copy
+     */
+    ProxyConfig copy() {
+        final ProxyConfig copy = new ProxyConfig(proxyHost_, proxyPort_, proxyScheme_, isSocksProxy_);
+        copy.proxyBypassHosts_.putAll(proxyBypassHosts_);
+        copy.proxyAutoConfigUrl_ = proxyAutoConfigUrl_;
+        copy.proxyAutoConfigContent_ = proxyAutoConfigContent_;
+        return copy;
+    }
+
+    /**
+     * {@inheritDoc}
+     * The downloaded proxy auto-config content is not compared.
+     */
+    @Override
+    public boolean equals(final Object object) {
+        if (this == object) {
+            return true;
+        }
+        if (object == null || getClass() != object.getClass()) {
+            return false;
+        }
+        final ProxyConfig other = (ProxyConfig) object;
+        return proxyPort_ == other.proxyPort_
+                && isSocksProxy_ == other.isSocksProxy_
+                && Objects.equals(proxyHost_, other.proxyHost_)
+                && Objects.equals(proxyScheme_, other.proxyScheme_)
+                && proxyBypassHosts_.keySet().equals(other.proxyBypassHosts_.keySet())
+                && Objects.equals(proxyAutoConfigUrl_, other.proxyAutoConfigUrl_);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int hashCode() {
+        return Objects.hash(proxyHost_, proxyPort_, proxyScheme_, isSocksProxy_,
+                proxyBypassHosts_.keySet(), proxyAutoConfigUrl_);
+    }
 }
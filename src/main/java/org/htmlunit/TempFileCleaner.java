@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2002-2024 Gargoyle Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.htmlunit;
+
+import java.io.File;
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.io.FileUtils;
+
+/**
+ * Deletes temporary files as soon as their owner is cleaned up or no longer reachable.
+ * This replaces the usage of finalize(); the owner itself is never resurrected and
+ * the file is deleted without waiting for the finalizer thread.
+ *
+ * Stale entries are processed whenever a new file is registered.
+ *
+ * @author agent <agent@local>
+ */
+final class TempFileCleaner {
+
+    private static final ReferenceQueue<Object> QUEUE = new ReferenceQueue<>();
+
+    // the references have to be reachable until they are enqueued
+    private static final Set<Cleanable> CLEANABLES = Collections.newSetFromMap(new ConcurrentHashMap<>());
+
+    private TempFileCleaner() {
+        // util class
+    }
+
+    /**
+     * Registers the file to be deleted when the owner is no longer reachable.
+     * @param owner the owner of the file
+     * @param file the file
+     * @return the {@link Cleanable} to be used for deleting the file explicitly
+     */
+    static Cleanable register(final Object owner, final File file) {
+        expungeStaleEntries();
+
+        final Cleanable cleanable = new Cleanable(owner, file);
+        CLEANABLES.add(cleanable);
+        return cleanable;
+    }
+
+    private static void expungeStaleEntries() {
+        Reference<?> ref;
+        while ((ref = QUEUE.poll()) != null) {
+            ((Cleanable) ref).clean();
+        }
+    }
+
+    /**
+     * A registered file.
+     */
+    static final class Cleanable extends PhantomReference<Object> {
+        private final File file_;
+
+        Cleanable(final Object owner, final File file) {
+            super(owner, QUEUE);
+            file_ = file;
+        }
+
+        /**
+         * Deletes the file; calling this more than once has no effect.
+         */
+        void clean() {
+            if (CLEANABLES.remove(this)) {
+                clear();
+                FileUtils.deleteQuietly(file_);
+            }
+        }
+
+        /**
+         * Unregisters the file without deleting it; used if some other
+         * {@link Cleanable} is responsible for the file now.
+         */
+        void cancel() {
+            if (CLEANABLES.remove(this)) {
+                clear();
+            }
+        }
+    }
+}
@@ -33,6 +33,7 @@ import java.net.URLDecoder;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.ConcurrentModificationException;
 import java.util.Date;
@@ -47,10 +48,15 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 
@@ -67,6 +73,7 @@ import org.htmlunit.csp.url.URI;
 import org.htmlunit.css.ComputedCssStyleDeclaration;
 import org.htmlunit.cssparser.parser.CSSErrorHandler;
 import org.htmlunit.cssparser.parser.javacc.CSS3Parser;
+import org.htmlunit.cssparser.parser.selector.SelectorList;
 import org.htmlunit.html.BaseFrameElement;
 import org.htmlunit.html.DomElement;
 import org.htmlunit.html.DomNode;
@@ -82,11 +89,13 @@ import org.htmlunit.http.HttpStatus;
 import org.htmlunit.http.HttpUtils;
 import org.htmlunit.httpclient.HttpClientConverter;
 import org.htmlunit.javascript.AbstractJavaScriptEngine;
+import org.htmlunit.javascript.CompiledScriptCache;
 import org.htmlunit.javascript.DefaultJavaScriptErrorListener;
 import org.htmlunit.javascript.HtmlUnitScriptable;
 import org.htmlunit.javascript.JavaScriptEngine;
 import org.htmlunit.javascript.JavaScriptErrorListener;
 import org.htmlunit.javascript.background.JavaScriptJobManager;
+import org.htmlunit.javascript.background.VirtualClock;
 import org.htmlunit.javascript.host.Location;
 import org.htmlunit.javascript.host.Window;
 import org.htmlunit.javascript.host.dom.Node;
@@ -94,8 +103,10 @@ import org.htmlunit.javascript.host.event.Event;
 import org.htmlunit.javascript.host.file.Blob;
 import org.htmlunit.javascript.host.html.HTMLIFrameElement;
 import org.htmlunit.protocol.data.DataURLConnection;
+import org.htmlunit.util.AsyncWebConnectionAdapter;
 import org.htmlunit.util.Cookie;
 import org.htmlunit.util.HeaderUtils;
+import org.htmlunit.util.LruCache;
 import org.htmlunit.util.MimeType;
 import org.htmlunit.util.NameValuePair;
 import org.htmlunit.util.UrlUtils;
@@ -154,6 +165,10 @@ public class WebClient implements Serializable, AutoCloseable {
 
     /** Like the Firefox default value for {@code network.http.redirection-limit}. */
     private static final int ALLOWED_REDIRECTIONS_SAME_URL = 20;
+    /** The max number of cached selectors. */
+    private static final int SELECTOR_CACHE_SIZE = 500;
+    /** Prefetched responses not used within this time (ms) are discarded. */
+    private static final long PREFETCH_MAX_AGE = 60_000;
     private static final WebResponseData RESPONSE_DATA_NO_HTTP_RESPONSE = new WebResponseData(
             0, "No HTTP Response", Collections.emptyList());
 
@@ -230,10 +245,18 @@ public class WebClient implements Serializable, AutoCloseable {
     private CSSErrorHandler cssErrorHandler_ = new DefaultCssErrorHandler();
     private OnbeforeunloadHandler onbeforeunloadHandler_;
     private Cache cache_ = new Cache();
+    private CompiledScriptCache compiledScriptCache_ = new CompiledScriptCache(0);
+    private final VirtualClock virtualClock_ = new VirtualClock();
 
     // mini pool to save resource when parsing CSS
     private transient CSS3ParserPool css3ParserPool_ = new CSS3ParserPool();
 
+    // parsed and validated selectors of querySelectorAll() and friends
+    private transient LruCache<String, SelectorList> selectorCache_ = new LruCache<>(SELECTOR_CACHE_SIZE);
+
+    // responses requested ahead of the parser, see prefetchWebResponse()
+    private transient Map<List<Object>, PrefetchedResponse> prefetchedResponses_ = new ConcurrentHashMap<>();
+
     /** target "_blank". */
     public static final String TARGET_BLANK = "_blank";
 
@@ -1575,60 +1598,136 @@ public class WebClient implements Serializable, AutoCloseable {
         WebAssert.notNull("method", method);
         WebAssert.notNull("parameters", parameters);
 
-        url = UrlUtils.encodeUrl(url, webRequest.getCharset());
-        webRequest.setUrl(url);
+        prepareWebRequest(webRequest);
+        url = webRequest.getUrl();
 
         if (LOG.isDebugEnabled()) {
             LOG.debug("Load response for " + method + " " + url.toExternalForm());
         }
 
-        // If the request settings don't specify a custom proxy, use the default client proxy...
-        if (webRequest.getProxyHost() == null) {
-            final ProxyConfig proxyConfig = getOptions().getProxyConfig();
-            if (proxyConfig.getProxyAutoConfigUrl() != null) {
-                if (!UrlUtils.sameFile(new URL(proxyConfig.getProxyAutoConfigUrl()), url)) {
-                    String content = proxyConfig.getProxyAutoConfigContent();
-                    if (content == null) {
-                        content = getPage(proxyConfig.getProxyAutoConfigUrl())
-                            .getWebResponse().getContentAsString();
-                        proxyConfig.setProxyAutoConfigContent(content);
-                    }
-                    final String allValue = JavaScriptEngine.evaluateProxyAutoConfig(getBrowserVersion(), content, url);
-                    if (LOG.isDebugEnabled()) {
-                        LOG.debug("Proxy Auto-Config: value '" + allValue + "' for URL " + url);
-                    }
-                    String value = allValue.split(";")[0].trim();
-                    if (value.startsWith("PROXY")) {
-                        value = value.substring(6);
-                        final int colonIndex = value.indexOf(':');
-                        webRequest.setSocksProxy(false);
-                        webRequest.setProxyHost(value.substring(0, colonIndex));
-                        webRequest.setProxyPort(Integer.parseInt(value.substring(colonIndex + 1)));
-                    }
-                    else if (value.startsWith("SOCKS")) {
-                        value = value.substring(6);
-                        final int colonIndex = value.indexOf(':');
-                        webRequest.setSocksProxy(true);
-                        webRequest.setProxyHost(value.substring(0, colonIndex));
-                        webRequest.setProxyPort(Integer.parseInt(value.substring(colonIndex + 1)));
-                    }
+        // Retrieve the response, either from the cache or from the server.
+        final WebResponse fromCache = getCache().getCachedResponse(webRequest);
+        final WebResponse webResponse = getWebResponseOrUseCached(webRequest, fromCache);
+
+        final WebRequest redirect = getRedirectRequest(webRequest, webResponse, allowedRedirects);
+        if (redirect != null) {
+            return loadWebResponseFromWebConnection(redirect, allowedRedirects - 1);
+        }
+
+        if (fromCache == null) {
+            getCache().cacheIfPossible(webRequest, webResponse, null);
+        }
+        return webResponse;
+    }
+
+    /**
+     * Loads a {@link WebResponse} from the server without blocking the caller.
+     * The request is passed to the {@link WebConnection} if it is an {@link AsyncWebConnection};
+     * other connections are called using the {@link #getExecutor() executor}.
+     * Responses for the protocols not handled by the connection (e.g. data urls) and
+     * responses from the cache are delivered in the same way but are created synchronously.
+     * IO problems complete the future exceptionally with the {@link IOException}.
+     *
+     * @param webRequest the request
+     * @return the future response
+     */
+    public CompletableFuture<WebResponse> loadWebResponseAsync(final WebRequest webRequest) {
+        switch (webRequest.getUrl().getProtocol()) {
+            case UrlUtils.ABOUT:
+            case "file":
+            case "data":
+            case "blob":
+                final CompletableFuture<WebResponse> future = new CompletableFuture<>();
+                try {
+                    future.complete(loadWebResponse(webRequest));
+                }
+                catch (final IOException | RuntimeException e) {
+                    future.completeExceptionally(e);
                 }
+                return future;
+
+            default:
+                return loadWebResponseFromWebConnectionAsync(webRequest, ALLOWED_REDIRECTIONS_SAME_URL);
+        }
+    }
+
+    /**
+     * The async counterpart of {@link #loadWebResponseFromWebConnection(WebRequest, int)}.
+     * @param webRequest the request
+     * @param allowedRedirects the number of allowed redirects remaining
+     * @return the future response
+     */
+    private CompletableFuture<WebResponse> loadWebResponseFromWebConnectionAsync(final WebRequest webRequest,
+            final int allowedRedirects) {
+        final CompletableFuture<WebResponse> response;
+        final WebResponse fromCache;
+        try {
+            WebAssert.notNull("url", webRequest.getUrl());
+            WebAssert.notNull("method", webRequest.getHttpMethod());
+            WebAssert.notNull("parameters", webRequest.getRequestParameters());
+
+            prepareWebRequest(webRequest);
+
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Load response async for " + webRequest.getHttpMethod()
+                        + " " + webRequest.getUrl().toExternalForm());
             }
-            // ...unless the host needs to bypass the configured client proxy!
-            else if (!proxyConfig.shouldBypassProxy(webRequest.getUrl().getHost())) {
-                webRequest.setProxyHost(proxyConfig.getProxyHost());
-                webRequest.setProxyPort(proxyConfig.getProxyPort());
-                webRequest.setProxyScheme(proxyConfig.getProxyScheme());
-                webRequest.setSocksProxy(proxyConfig.isSocksProxy());
+
+            fromCache = getCache().getCachedResponse(webRequest);
+            if (fromCache == null
+                    && getCache().getCachedResponseForRevalidation(webRequest) == null
+                    && (prefetchedResponses_.isEmpty()
+                            || !prefetchedResponses_.containsKey(getPrefetchKey(webRequest)))) {
+                response = getAsyncWebConnection().getResponseAsync(webRequest);
+            }
+            else {
+                // cache, revalidation and prefetch are handled the usual way
+                response = CompletableFuture.completedFuture(getWebResponseOrUseCached(webRequest, fromCache));
             }
         }
+        catch (final IOException | RuntimeException e) {
+            final CompletableFuture<WebResponse> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
 
-        // Add the headers that are sent with every request.
-        addDefaultHeaders(webRequest);
+        return response.thenCompose(webResponse -> {
+            final WebRequest redirect = getRedirectRequest(webRequest, webResponse, allowedRedirects);
+            if (redirect != null) {
+                return loadWebResponseFromWebConnectionAsync(redirect, allowedRedirects - 1);
+            }
 
-        // Retrieve the response, either from the cache or from the server.
-        final WebResponse fromCache = getCache().getCachedResponse(webRequest);
-        final WebResponse webResponse = getWebResponseOrUseCached(webRequest, fromCache);
+            if (fromCache == null) {
+                getCache().cacheIfPossible(webRequest, webResponse, null);
+            }
+            return CompletableFuture.completedFuture(webResponse);
+        });
+    }
+
+    /**
+     * Returns the {@link WebConnection} as {@link AsyncWebConnection}; blocking connections
+     * are wrapped using an {@link AsyncWebConnectionAdapter}.
+     * @return the connection
+     */
+    private AsyncWebConnection getAsyncWebConnection() {
+        final WebConnection webConnection = getWebConnection();
+        if (webConnection instanceof AsyncWebConnection) {
+            return (AsyncWebConnection) webConnection;
+        }
+        return new AsyncWebConnectionAdapter(webConnection, getExecutor());
+    }
+
+    /**
+     * Checks the response for a redirect.
+     * @param webRequest the request
+     * @param webResponse the response
+     * @param allowedRedirects the number of allowed redirects remaining
+     * @return the request to follow the redirect or {@code null}
+     * @throws FailingHttpStatusCodeException if there are too many redirects
+     */
+    private WebRequest getRedirectRequest(final WebRequest webRequest, final WebResponse webResponse,
+            final int allowedRedirects) {
+        final URL url = webRequest.getUrl();
 
         // Continue according to the HTTP status code.
         final int status = webResponse.getStatusCode();
@@ -1645,7 +1744,7 @@ public class WebClient implements Serializable, AutoCloseable {
             try {
                 locationString = webResponse.getResponseHeaderValue("Location");
                 if (locationString == null) {
-                    return webResponse;
+                    return null;
                 }
                 locationString = new String(locationString.getBytes(ISO_8859_1), UTF_8);
                 newUrl = expandUrl(url, locationString);
@@ -1655,7 +1754,7 @@ public class WebClient implements Serializable, AutoCloseable {
                     + webResponse.getStatusMessage()
                     + "] but the location is not a valid URL [" + locationString
                     + "]. Skipping redirection processing.", this);
-                return webResponse;
+                return null;
             }
 
             if (LOG.isDebugEnabled()) {
@@ -1679,7 +1778,7 @@ public class WebClient implements Serializable, AutoCloseable {
                 for (final Map.Entry<String, String> entry : webRequest.getAdditionalHeaders().entrySet()) {
                     wrs.setAdditionalHeader(entry.getKey(), entry.getValue());
                 }
-                return loadWebResponseFromWebConnection(wrs, allowedRedirects - 1);
+                return wrs;
             }
             else if (status == HttpStatus.TEMPORARY_REDIRECT_307
                         || status == HttpStatus.PERMANENT_REDIRECT_308) {
@@ -1697,21 +1796,175 @@ public class WebClient implements Serializable, AutoCloseable {
                     }
                 }
                 else {
-                    wrs.setRequestParameters(parameters);
+                    wrs.setRequestParameters(webRequest.getRequestParameters());
                 }
 
                 for (final Map.Entry<String, String> entry : webRequest.getAdditionalHeaders().entrySet()) {
                     wrs.setAdditionalHeader(entry.getKey(), entry.getValue());
                 }
+                return wrs;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * <span style="color:red">INTERNAL API - SUBJECT TO CHANGE AT ANY TIME - USE AT YOUR OWN RISK.</span><br>
+     *
+     * Starts loading the response for the given request in the background (using the
+     * {@link #getExecutor() executor}). A later {@link #loadWebResponse(WebRequest)} for an
+     * equal request (same url, cookies, headers and charsets) uses this response instead of asking
+     * the server again. Nothing is done if the response is available from the cache.
+     *
+     * @param webRequest the request
+     * @see WebClientOptions#setPrefetchSubresources(boolean)
+     */
+    public void prefetchWebResponse(final WebRequest webRequest) {
+        final String protocol = webRequest.getUrl().getProtocol();
+        final WebConnection webConnection = getWebConnection();
+        if (webConnection == null
+                || HttpMethod.GET != webRequest.getHttpMethod()
+                || !("http".equals(protocol) || "https".equals(protocol))) {
+            return;
+        }
+
+        try {
+            prepareWebRequest(webRequest);
+        }
+        catch (final IOException e) {
+            // the regular request will report this
+            return;
+        }
+
+        final Cache cache = getCache();
+        if (cache.getCachedResponse(webRequest) != null
+                || cache.getCachedResponseForRevalidation(webRequest) != null) {
+            return;
+        }
+
+        // responses nobody asked for (e.g. the page was left) should not pile up
+        final long outdated = System.currentTimeMillis() - PREFETCH_MAX_AGE;
+        prefetchedResponses_.values().removeIf(prefetch -> {
+            if (prefetch.created_ < outdated) {
+                prefetch.discard();
+                return true;
+            }
+            return false;
+        });
 
-                return loadWebResponseFromWebConnection(wrs, allowedRedirects - 1);
+        final PrefetchedResponse prefetch = new PrefetchedResponse(() -> webConnection.getResponse(webRequest));
+        if (prefetchedResponses_.putIfAbsent(getPrefetchKey(webRequest), prefetch) == null) {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Prefetch response for " + webRequest.getUrl().toExternalForm());
             }
+            getExecutor().execute(prefetch);
         }
+    }
 
-        if (fromCache == null) {
-            getCache().cacheIfPossible(webRequest, webResponse, null);
+    /**
+     * Returns the prefetched response for the given request (waiting for it if needed)
+     * or {@code null} if there is none or the prefetch failed.
+     * @param webRequest the request
+     */
+    private WebResponse takePrefetchedResponse(final WebRequest webRequest) {
+        if (prefetchedResponses_.isEmpty()) {
+            return null;
         }
-        return webResponse;
+
+        final PrefetchedResponse prefetch = prefetchedResponses_.remove(getPrefetchKey(webRequest));
+        if (prefetch == null) {
+            return null;
+        }
+
+        try {
+            return prefetch.get();
+        }
+        catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+        catch (final ExecutionException e) {
+            // do the request again; this reports the problem the usual way
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Prefetch failed for " + webRequest.getUrl().toExternalForm(), e.getCause());
+            }
+            return null;
+        }
+    }
+
+    /**
+     * The key contains everything the request depends on, including the cookies sent; the
+     * page scripts might change the cookies between the prefetch and the regular request.
+     * @param webRequest the request
+     */
+    private List<Object> getPrefetchKey(final WebRequest webRequest) {
+        final List<String> cookies = new ArrayList<>();
+        for (final Cookie cookie : getCookies(webRequest.getUrl())) {
+            cookies.add(cookie.getName() + '=' + cookie.getValue());
+        }
+
+        return Arrays.asList(webRequest.getUrl().toExternalForm(),
+                cookies,
+                new HashMap<>(webRequest.getAdditionalHeaders()),
+                webRequest.getCharset(),
+                webRequest.getDefaultResponseContentCharset(),
+                webRequest.getProxyHost(),
+                webRequest.getProxyPort(),
+                webRequest.isSocksProxy());
+    }
+
+    /**
+     * Encodes the url and adds the proxy settings and the default headers to the request.
+     * @param webRequest the request
+     * @throws IOException if an IO problem occurs
+     */
+    private void prepareWebRequest(final WebRequest webRequest) throws IOException {
+        final URL url = UrlUtils.encodeUrl(webRequest.getUrl(), webRequest.getCharset());
+        webRequest.setUrl(url);
+
+        // If the request settings don't specify a custom proxy, use the default client proxy...
+        if (webRequest.getProxyHost() == null) {
+            final ProxyConfig proxyConfig = getOptions().getProxyConfig();
+            if (proxyConfig.getProxyAutoConfigUrl() != null) {
+                if (!UrlUtils.sameFile(new URL(proxyConfig.getProxyAutoConfigUrl()), url)) {
+                    String content = proxyConfig.getProxyAutoConfigContent();
+                    if (content == null) {
+                        content = getPage(proxyConfig.getProxyAutoConfigUrl())
+                            .getWebResponse().getContentAsString();
+                        proxyConfig.setProxyAutoConfigContent(content);
+                    }
+                    final String allValue = JavaScriptEngine.evaluateProxyAutoConfig(getBrowserVersion(), content, url);
+                    if (LOG.isDebugEnabled()) {
+                        LOG.debug("Proxy Auto-Config: value '" + allValue + "' for URL " + url);
+                    }
+                    String value = allValue.split(";")[0].trim();
+                    if (value.startsWith("PROXY")) {
+                        value = value.substring(6);
+                        final int colonIndex = value.indexOf(':');
+                        webRequest.setSocksProxy(false);
+                        webRequest.setProxyHost(value.substring(0, colonIndex));
+                        webRequest.setProxyPort(Integer.parseInt(value.substring(colonIndex + 1)));
+                    }
+                    else if (value.startsWith("SOCKS")) {
+                        value = value.substring(6);
+                        final int colonIndex = value.indexOf(':');
+                        webRequest.setSocksProxy(true);
+                        webRequest.setProxyHost(value.substring(0, colonIndex));
+                        webRequest.setProxyPort(Integer.parseInt(value.substring(colonIndex + 1)));
+                    }
+                }
+            }
+            // ...unless the host needs to bypass the configured client proxy!
+            else if (!proxyConfig.shouldBypassProxy(webRequest.getUrl().getHost())) {
+                webRequest.setProxyHost(proxyConfig.getProxyHost());
+                webRequest.setProxyPort(proxyConfig.getProxyPort());
+                webRequest.setProxyScheme(proxyConfig.getProxyScheme());
+                webRequest.setSocksProxy(proxyConfig.isSocksProxy());
+            }
+        }
+
+        // Add the headers that are sent with every request.
+        addDefaultHeaders(webRequest);
     }
 
     /**
@@ -1723,13 +1976,31 @@ public class WebClient implements Serializable, AutoCloseable {
     private WebResponse getWebResponseOrUseCached(
             final WebRequest webRequest, final WebResponse cached) throws IOException {
         if (cached == null) {
-            return getWebConnection().getResponse(webRequest);
+            final WebResponse outdated = getCache().getCachedResponseForRevalidation(webRequest);
+            if (outdated == null) {
+                final WebResponse prefetched = takePrefetchedResponse(webRequest);
+                if (prefetched != null) {
+                    return prefetched;
+                }
+                return getWebConnection().getResponse(webRequest);
+            }
+            return revalidateCachedResponse(webRequest, outdated);
         }
 
         if (!HeaderUtils.containsNoCache(cached)) {
             return new WebResponseFromCache(cached, webRequest);
         }
 
+        return revalidateCachedResponse(webRequest, cached);
+    }
+
+    /**
+     * Asks the server if the cached response is still valid.
+     * @param webRequest the request
+     * @param cached a previous cached response for the request
+     */
+    private WebResponse revalidateCachedResponse(
+            final WebRequest webRequest, final WebResponse cached) throws IOException {
         // implementation based on rfc9111 https://www.rfc-editor.org/rfc/rfc9111#name-validation
         if (HeaderUtils.containsETag(cached)) {
             webRequest.setAdditionalHeader(HttpHeader.IF_NONE_MATCH, cached.getResponseHeaderValue(HttpHeader.ETAG));
@@ -1760,7 +2031,7 @@ public class WebClient implements Serializable, AutoCloseable {
             // then use it to replace the old cached value
             final WebResponse updatedCached =
                     new WebResponseFromCache(cached, new ArrayList<>(header2NameValuePair.values()), webRequest);
-            getCache().cacheIfPossible(webRequest, updatedCached, null);
+            getCache().cacheRevalidatedResponse(webRequest, updatedCached);
             return updatedCached;
         }
 
@@ -2137,6 +2408,17 @@ public class WebClient implements Serializable, AutoCloseable {
         return cache_;
     }
 
+    /**
+     * Returns the clock used for the background JavaScript of this client.
+     * As long as the virtual time mode is not enabled, this clock
+     * always reports the real time.
+     * @return the clock (never {@code null})
+     * @see WebClientOptions#setVirtualTimeEnabled(boolean)
+     */
+    public VirtualClock getVirtualClock() {
+        return virtualClock_;
+    }
+
     /**
      * Sets the cache to use.
      * @param cache the new cache (must not be {@code null})
@@ -2148,6 +2430,27 @@ public class WebClient implements Serializable, AutoCloseable {
         cache_ = cache;
     }
 
+    /**
+     * Gets the cache for compiled scripts currently being used.
+     * The cache is disabled by default, use {@link CompiledScriptCache#setMaxSize(int)} to enable it.
+     * @return the compiled script cache (may not be null)
+     */
+    public CompiledScriptCache getCompiledScriptCache() {
+        return compiledScriptCache_;
+    }
+
+    /**
+     * Sets the cache for compiled scripts; use the same instance for many clients
+     * to share the compiled scripts.
+     * @param compiledScriptCache the new cache (must not be {@code null})
+     */
+    public void setCompiledScriptCache(final CompiledScriptCache compiledScriptCache) {
+        if (compiledScriptCache == null) {
+            throw new IllegalArgumentException("compiledScriptCache should not be null!");
+        }
+        compiledScriptCache_ = compiledScriptCache;
+    }
+
     /**
      * Keeps track of the current window. Inspired by WebTest's logic to track the current response.
      */
@@ -2357,6 +2660,11 @@ public class WebClient implements Serializable, AutoCloseable {
         }
         webConnection_ = null;
 
+        for (final PrefetchedResponse prefetch : prefetchedResponses_.values()) {
+            prefetch.discard();
+        }
+        prefetchedResponses_.clear();
+
         synchronized (this) {
             if (executor_ != null) {
                 try {
@@ -2418,7 +2726,7 @@ public class WebClient implements Serializable, AutoCloseable {
      */
     public int waitForBackgroundJavaScript(final long timeoutMillis) {
         int count = 0;
-        final long endTime = System.currentTimeMillis() + timeoutMillis;
+        final long endTime = virtualClock_.currentTimeMillis() + timeoutMillis;
         for (Iterator<WeakReference<JavaScriptJobManager>> i = jobManagers_.iterator(); i.hasNext();) {
             final JavaScriptJobManager jobManager;
             final WeakReference<JavaScriptJobManager> reference;
@@ -2436,11 +2744,11 @@ public class WebClient implements Serializable, AutoCloseable {
                 continue;
             }
 
-            final long newTimeout = endTime - System.currentTimeMillis();
+            final long newTimeout = endTime - virtualClock_.currentTimeMillis();
             count += jobManager.waitForJobs(newTimeout);
         }
         if (count != getAggregateJobCount()) {
-            final long newTimeout = endTime - System.currentTimeMillis();
+            final long newTimeout = endTime - virtualClock_.currentTimeMillis();
             return waitForBackgroundJavaScript(newTimeout);
         }
         return count;
@@ -2472,7 +2780,7 @@ public class WebClient implements Serializable, AutoCloseable {
      */
     public int waitForBackgroundJavaScriptStartingBefore(final long delayMillis) {
         int count = 0;
-        final long endTime = System.currentTimeMillis() + delayMillis;
+        final long endTime = virtualClock_.currentTimeMillis() + delayMillis;
         for (Iterator<WeakReference<JavaScriptJobManager>> i = jobManagers_.iterator(); i.hasNext();) {
             final JavaScriptJobManager jobManager;
             final WeakReference<JavaScriptJobManager> reference;
@@ -2489,11 +2797,11 @@ public class WebClient implements Serializable, AutoCloseable {
                 count = 0;
                 continue;
             }
-            final long newDelay = endTime - System.currentTimeMillis();
+            final long newDelay = endTime - virtualClock_.currentTimeMillis();
             count += jobManager.waitForJobsStartingBefore(newDelay);
         }
         if (count != getAggregateJobCount()) {
-            final long newDelay = endTime - System.currentTimeMillis();
+            final long newDelay = endTime - virtualClock_.currentTimeMillis();
             return waitForBackgroundJavaScriptStartingBefore(newDelay);
         }
         return count;
@@ -2540,6 +2848,44 @@ public class WebClient implements Serializable, AutoCloseable {
         scriptEngine_ = new JavaScriptEngine(this);
         jobManagers_ = Collections.synchronizedList(new ArrayList<>());
         loadQueue_ = new ArrayList<>();
+        css3ParserPool_ = new CSS3ParserPool();
+        selectorCache_ = new LruCache<>(SELECTOR_CACHE_SIZE);
+        prefetchedResponses_ = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * A response loaded in the background.
+     */
+    private static final class PrefetchedResponse extends FutureTask<WebResponse> {
+        private final long created_ = System.currentTimeMillis();
+
+        PrefetchedResponse(final Callable<WebResponse> callable) {
+            super(callable);
+        }
+
+        @Override
+        protected void set(final WebResponse response) {
+            // nobody is interested in the response anymore
+            if (isCancelled()) {
+                response.cleanUp();
+                return;
+            }
+            super.set(response);
+        }
+
+        void discard() {
+            if (!cancel(false)) {
+                try {
+                    get().cleanUp();
+                }
+                catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                catch (final ExecutionException e) {
+                    // ignore
+                }
+            }
+        }
     }
 
     private static class LoadJob {
@@ -2763,7 +3109,7 @@ public class WebClient implements Serializable, AutoCloseable {
      * @param url the URL on which to filter the returned cookies
      * @return the currently configured cookies applicable to the specified URL, in an unmodifiable set
      */
-    public synchronized Set<Cookie> getCookies(final URL url) {
+    public Set<Cookie> getCookies(final URL url) {
         final CookieManager cookieManager = getCookieManager();
 
         if (!cookieManager.isCookiesEnabled()) {
@@ -2783,7 +3129,7 @@ public class WebClient implements Serializable, AutoCloseable {
         cookieManager.clearExpired(new Date());
 
         final Set<Cookie> matchingCookies = new LinkedHashSet<>();
-        HttpClientConverter.addMatching(cookieManager.getCookies(), normalizedUrl,
+        HttpClientConverter.addMatching(cookieManager.getCookiesForHost(host), normalizedUrl,
                 getBrowserVersion(), matchingCookies);
         return Collections.unmodifiableSet(matchingCookies);
     }
@@ -2898,6 +3244,19 @@ public class WebClient implements Serializable, AutoCloseable {
         return this.css3ParserPool_.get();
     }
 
+    /**
+     * <span style="color:red">INTERNAL API - SUBJECT TO CHANGE AT ANY TIME - USE AT YOUR OWN RISK.</span><br>
+     *
+     * Returns the cache of the parsed and validated selectors used by
+     * {@link DomNode#querySelectorAll(String)} and friends, keyed by the selector text.
+     * The {@link SelectorList}s are shared and must not be modified.
+     *
+     * @return the selector cache
+     */
+    public LruCache<String, SelectorList> getSelectorCache() {
+        return selectorCache_;
+    }
+
     /**
      * Our pool of CSS3Parsers. If you need a parser, get it from here and use the AutoCloseable
      * functionality with a try-with-resource block. If you don't want to do that at all, continue
@@ -28,6 +28,7 @@ import java.security.cert.CertificateException;
 import javax.net.ssl.SSLContext;
 
 import org.apache.commons.io.FileUtils;
+import org.htmlunit.javascript.background.VirtualClock;
 
 /**
  * Represents options of a {@link WebClient}.
@@ -68,6 +69,10 @@ public class WebClientOptions implements Serializable {
     private ProxyConfig proxyConfig_;
     private int timeout_ = 90_000; // like Firefox 16 default's value for network.http.connection-timeout
     private long connectionTimeToLive_ = -1; // HttpClient default
+    private boolean reuseHttpClient_;
+    private int maxConnectionsPerRoute_ = 6; // like the browsers
+    private boolean http2Enabled_;
+    private boolean http2PriorKnowledge_;
 
     private boolean fileProtocolForXMLHttpRequestsAllowed_;
 
@@ -76,6 +81,7 @@ public class WebClientOptions implements Serializable {
     private int historyPageCacheLimit_ = Integer.MAX_VALUE;
     private InetAddress localAddress_;
     private boolean downloadImages_;
+    private boolean prefetchSubresources_;
     private int screenWidth_ = DEFAULT_SCRREN_WIDTH;
     private int screenHeight_ = DEFAULT_SCRREN_HEIGHT;
 
@@ -90,6 +96,13 @@ public class WebClientOptions implements Serializable {
 
     private boolean isFetchPolyfillEnabled_;
 
+    private boolean sharedJavaScriptExecutorEnabled_;
+
+    private boolean virtualTimeEnabled_;
+    private long virtualTimeMaxAdvance_ = Long.MAX_VALUE;
+
+    private boolean lazyJavaScriptPrototypesEnabled_;
+
     /**
      * Sets the SSLContext; if this is set it is used and some other settings are ignored
      * (protocol, keyStore, keyStorePassword, trustStore, sslClientCertificateStore, sslClientCertificatePassword).
@@ -521,6 +534,100 @@ public class WebClientOptions implements Serializable {
         connectionTimeToLive_ = connectionTimeToLive;
     }
 
+    /**
+     * Returns whether the {@link HttpWebConnection} uses one HttpClient for all requests.
+     * Default is {@code false}.
+     *
+     * @return whether the HttpClient is reused
+     */
+    public boolean isReuseHttpClient() {
+        return reuseHttpClient_;
+    }
+
+    /**
+     * Sets whether the {@link HttpWebConnection} uses one thread-safe HttpClient for all requests
+     * and all threads instead of configuring and building a new one for every request.
+     * The client is only built again if the SSL, proxy, timeout, connection time to live
+     * or connection limit settings have changed; the request specific parts (e.g. the headers) are passed along
+     * with every request.
+     * Use this to reduce the overhead of each request, especially if many threads are in use.
+     *
+     * @param reuseHttpClient whether to reuse the HttpClient or not
+     */
+    public void setReuseHttpClient(final boolean reuseHttpClient) {
+        reuseHttpClient_ = reuseHttpClient;
+    }
+
+    /**
+     * Returns the max number of parallel connections the {@link HttpWebConnection} opens
+     * to one host (route). Default is 6.
+     *
+     * @return the max number of connections per route
+     */
+    public int getMaxConnectionsPerRoute() {
+        return maxConnectionsPerRoute_;
+    }
+
+    /**
+     * Sets the max number of parallel connections the {@link HttpWebConnection} opens
+     * to one host (route); the connection pool holds up to three times this number
+     * (at least 20) for all hosts together.
+     * Browsers are using 6 connections for HTTP/1.1, but pages with many resources served
+     * from one host are loaded faster (e.g. with {@link #setPrefetchSubresources(boolean)})
+     * if more connections are allowed.
+     *
+     * @param maxConnectionsPerRoute the max number of connections per route
+     */
+    public void setMaxConnectionsPerRoute(final int maxConnectionsPerRoute) {
+        if (maxConnectionsPerRoute < 1) {
+            throw new IllegalArgumentException("maxConnectionsPerRoute must be greater than 0");
+        }
+        maxConnectionsPerRoute_ = maxConnectionsPerRoute;
+    }
+
+    /**
+     * Returns whether the {@link HttpWebConnection} passes the requests to an {@link Http2WebConnection}.
+     * Default is {@code false}.
+     *
+     * @return whether HTTP/2 is enabled
+     */
+    public boolean isHttp2Enabled() {
+        return http2Enabled_;
+    }
+
+    /**
+     * Sets whether the {@link HttpWebConnection} passes the requests to an {@link Http2WebConnection}.
+     * HTTP/2 is negotiated (ALPN) for https connections, all requests to one host are multiplexed
+     * over one connection. Servers not supporting HTTP/2 are still served using HTTP/1.1.
+     * This requires the optional org.apache.httpcomponents.client5:httpclient5 dependency.
+     *
+     * @param http2Enabled whether to enable HTTP/2 or not
+     */
+    public void setHttp2Enabled(final boolean http2Enabled) {
+        http2Enabled_ = http2Enabled;
+    }
+
+    /**
+     * Returns whether the {@link Http2WebConnection} talks HTTP/2 to all servers without negotiation.
+     * Default is {@code false}.
+     *
+     * @return whether the servers are known to support HTTP/2
+     */
+    public boolean isHttp2PriorKnowledge() {
+        return http2PriorKnowledge_;
+    }
+
+    /**
+     * Sets whether the {@link Http2WebConnection} talks HTTP/2 to all servers without negotiation;
+     * this enables HTTP/2 over plain http (h2c), e.g. for local test servers. Requests to
+     * servers not supporting HTTP/2 will fail.
+     *
+     * @param http2PriorKnowledge whether the servers are known to support HTTP/2
+     */
+    public void setHttp2PriorKnowledge(final boolean http2PriorKnowledge) {
+        http2PriorKnowledge_ = http2PriorKnowledge;
+    }
+
     /**
      * Sets the SSL protocol, used only when {@link #setUseInsecureSSL(boolean)} is set to {@code true}.
      * @param sslInsecureProtocol the SSL protocol for insecure SSL connections,
@@ -684,6 +791,27 @@ public class WebClientOptions implements Serializable {
         return downloadImages_;
     }
 
+    /**
+     * Sets whether the external scripts, style sheets and images (if {@link #isDownloadImages()})
+     * of a page are downloaded in parallel in the background while the page is parsed.
+     * The resources are found by a fast scan of the html source before the parsing starts;
+     * the scripts are still executed in document order. Resources added or modified by
+     * scripts are not affected.
+     * @param prefetchSubresources whether to prefetch the resources or not
+     */
+    public void setPrefetchSubresources(final boolean prefetchSubresources) {
+        prefetchSubresources_ = prefetchSubresources;
+    }
+
+    /**
+     * Returns whether the external scripts, style sheets and images of a page are
+     * downloaded in parallel in the background. Default is {@code false}.
+     * @return whether to prefetch the resources or not
+     */
+    public boolean isPrefetchSubresources() {
+        return prefetchSubresources_;
+    }
+
     /**
      * Sets the screen width.
      *
@@ -817,6 +945,89 @@ public class WebClientOptions implements Serializable {
         return isFetchPolyfillEnabled_;
     }
 
+    /**
+     * Enables/disables the shared JavaScript executor. If enabled, the background JavaScript
+     * of this client is not driven by a polling thread of its own; instead one timer shared
+     * by all clients wakes up the client exactly when the next job is due and runs the jobs
+     * using a shared thread pool. By default, this property is disabled.
+     * This has to be set before the first page is loaded.
+     *
+     * @param enabled {@code true} to use the shared executor
+     * @see org.htmlunit.javascript.background.SharedJavaScriptExecutor
+     */
+    public void setSharedJavaScriptExecutorEnabled(final boolean enabled) {
+        sharedJavaScriptExecutorEnabled_ = enabled;
+    }
+
+    /**
+     * @return {@code true} if the shared JavaScript executor is used
+     */
+    public boolean isSharedJavaScriptExecutorEnabled() {
+        return sharedJavaScriptExecutorEnabled_;
+    }
+
+    /**
+     * Enables/disables the virtual time mode. If enabled, waiting for background JavaScript
+     * does not really sleep until the next job is due; instead the {@link VirtualClock} of the
+     * client is moved forward to the target execution time of the job. The execution order of
+     * the jobs is not changed. <code>Date</code> and <code>performance.now()</code> are reporting
+     * the virtual time to the scripts. By default, this property is disabled.
+     * This has to be set before the first page is loaded.
+     *
+     * @param enabled {@code true} to enable the virtual time mode
+     * @see WebClient#getVirtualClock()
+     */
+    public void setVirtualTimeEnabled(final boolean enabled) {
+        virtualTimeEnabled_ = enabled;
+    }
+
+    /**
+     * @return {@code true} if the virtual time mode is enabled
+     */
+    public boolean isVirtualTimeEnabled() {
+        return virtualTimeEnabled_;
+    }
+
+    /**
+     * Sets the maximum number of milliseconds the virtual time is allowed to skip
+     * during a single wait for the background JavaScript jobs of a window.
+     * By default, there is no limit (beside the timeout of the wait).
+     *
+     * @param maxAdvance the maximum in milliseconds
+     */
+    public void setVirtualTimeMaxAdvance(final long maxAdvance) {
+        virtualTimeMaxAdvance_ = maxAdvance;
+    }
+
+    /**
+     * @return the maximum number of milliseconds the virtual time is allowed to skip
+     *         during a single wait
+     */
+    public long getVirtualTimeMaxAdvance() {
+        return virtualTimeMaxAdvance_;
+    }
+
+    /**
+     * Enables/disables the lazy setup of the JavaScript host prototypes. If enabled, the
+     * properties and functions of a host prototype (e.g. <code>HTMLDivElement.prototype</code>)
+     * are only created when the prototype is used the first time instead of doing this for all
+     * the host classes whenever a window scope is initialized. This speeds up the loading of
+     * pages (and frames) that are using only a few of the host classes.
+     * By default, this property is disabled.
+     *
+     * @param enabled {@code true} to set up the prototypes lazily
+     */
+    public void setLazyJavaScriptPrototypesEnabled(final boolean enabled) {
+        lazyJavaScriptPrototypesEnabled_ = enabled;
+    }
+
+    /**
+     * @return {@code true} if the JavaScript host prototypes are set up lazily
+     */
+    public boolean isLazyJavaScriptPrototypesEnabled() {
+        return lazyJavaScriptPrototypesEnabled_;
+    }
+
     /**
      * Enables/disables Geolocation support. By default, this property is disabled.
      *
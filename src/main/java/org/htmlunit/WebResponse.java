@@ -22,12 +22,15 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.Serializable;
 import java.net.URL;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.util.List;
 
 import org.apache.commons.io.ByteOrderMark;
+import org.apache.commons.io.Charsets;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.io.input.BOMInputStream;
+import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -283,6 +286,17 @@ public class WebResponse implements Serializable {
      */
     public String getContentAsString(final Charset encoding) {
         if (responseData_ != null) {
+            // decode the buffer only if it is a view; otherwise streaming avoids a copy of the content
+            if (responseData_.hasBodyByteBuffer()) {
+                try {
+                    return decode(responseData_.getBodyAsByteBuffer(), encoding);
+                }
+                catch (final IOException e) {
+                    LOG.warn(e.getMessage(), e);
+                    return null;
+                }
+            }
+
             try (InputStream in = responseData_.getInputStreamWithBomIfApplicable(BOM_HEADERS)) {
                 if (in instanceof BOMInputStream) {
                     try (BOMInputStream bomIn = (BOMInputStream) in) {
@@ -312,6 +326,53 @@ public class WebResponse implements Serializable {
         return null;
     }
 
+    private static String decode(final ByteBuffer buffer, final Charset encoding) {
+        Charset charset = Charsets.toCharset(encoding);
+        for (final ByteOrderMark bom : BOM_HEADERS) {
+            if (startsWith(buffer, bom.getBytes())) {
+                buffer.position(buffer.position() + bom.length());
+                charset = Charset.forName(bom.getCharsetName());
+                break;
+            }
+        }
+        return charset.decode(buffer).toString();
+    }
+
+    private static boolean startsWith(final ByteBuffer buffer, final byte[] prefix) {
+        if (buffer.remaining() < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (buffer.get(buffer.position() + i) != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the response content as a read-only {@link ByteBuffer}.
+     * If the content is not encoded, the buffer is a view of the downloaded content
+     * (e.g. a memory-mapped file) and nothing is copied.
+     * @return the response content as a buffer
+     * @throws IOException in case of IOProblems
+     */
+    public ByteBuffer getContentAsByteBuffer() throws IOException {
+        if (responseData_ != null) {
+            final ByteBuffer buffer = responseData_.getBodyAsByteBuffer();
+            if (buffer != null) {
+                return buffer;
+            }
+        }
+
+        try (InputStream is = getContentAsStream()) {
+            if (is == null) {
+                return ByteBuffer.wrap(ArrayUtils.EMPTY_BYTE_ARRAY).asReadOnlyBuffer();
+            }
+            return ByteBuffer.wrap(IOUtils.toByteArray(is)).asReadOnlyBuffer();
+        }
+    }
+
     /**
      * Returns length of the content data.
      * @return the length
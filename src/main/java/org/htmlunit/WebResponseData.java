@@ -19,6 +19,7 @@ import static java.nio.charset.StandardCharsets.ISO_8859_1;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
 import java.util.Collections;
 import java.util.List;
 import java.util.zip.GZIPInputStream;
@@ -218,6 +219,34 @@ public class WebResponseData implements Serializable {
         return getStream(bomHeaders);
     }
 
+    /**
+     * <span style="color:red">INTERNAL API - SUBJECT TO CHANGE AT ANY TIME - USE AT YOUR OWN RISK.</span><br>
+     *
+     * Returns a read-only view of the response body. The view shares the memory of the
+     * downloaded content, therefore this is only supported if the body is not encoded.
+     * @return the body or null if the body has to be decoded
+     * @throws IOException in case of IO problems
+     */
+    public ByteBuffer getBodyAsByteBuffer() throws IOException {
+        if (isBodyEncoded()) {
+            return null;
+        }
+        return downloadedContent_.getByteBuffer();
+    }
+
+    /**
+     * <span style="color:red">INTERNAL API - SUBJECT TO CHANGE AT ANY TIME - USE AT YOUR OWN RISK.</span><br>
+     *
+     * @return true if {@link #getBodyAsByteBuffer()} returns a view of the body without copying it
+     */
+    public boolean hasBodyByteBuffer() {
+        return downloadedContent_.hasByteBuffer() && !isBodyEncoded();
+    }
+
+    private boolean isBodyEncoded() {
+        return !downloadedContent_.isEmpty() && getHeader(getResponseHeaders(), "content-encoding") != null;
+    }
+
     /**
      * @return response headers
      */
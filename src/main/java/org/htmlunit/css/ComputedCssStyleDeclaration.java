@@ -30,12 +30,13 @@ import static org.htmlunit.css.CssStyleSheet.RELATIVE;
 import static org.htmlunit.css.CssStyleSheet.SCROLL;
 import static org.htmlunit.css.CssStyleSheet.STATIC;
 
+import java.util.Arrays;
 import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
-import java.util.SortedMap;
-import java.util.TreeMap;
+import java.util.function.Supplier;
 
 import org.apache.commons.lang3.StringUtils;
 import org.htmlunit.BrowserVersion;
@@ -102,6 +103,7 @@ import org.htmlunit.html.HtmlNoFrames;
 import org.htmlunit.html.HtmlNoLayer;
 import org.htmlunit.html.HtmlNoScript;
 import org.htmlunit.html.HtmlOutput;
+import org.htmlunit.html.HtmlPage;
 import org.htmlunit.html.HtmlPasswordInput;
 import org.htmlunit.html.HtmlPlainText;
 import org.htmlunit.html.HtmlRadioButtonInput;
@@ -187,6 +189,42 @@ public class ComputedCssStyleDeclaration extends AbstractCssStyleDeclaration {
     /** Denotes a value which should be returned as is. */
     public static final String EMPTY_FINAL = new String("");
 
+    /** Maps the attribute names to the definitions used as keys of the {@link #localModificationKeys_}. */
+    private static final Map<String, Definition> DEFINITIONS_BY_ATTRIBUTE_NAME = new HashMap<>();
+
+    /** The lengths stored already parsed as pixel values; the position is the index into {@link #pixelValues_}. */
+    private static final Definition[] PIXEL_DEFINITIONS = {
+        Definition.MARGIN_TOP, Definition.MARGIN_RIGHT, Definition.MARGIN_BOTTOM, Definition.MARGIN_LEFT,
+        Definition.PADDING_TOP, Definition.PADDING_RIGHT, Definition.PADDING_BOTTOM, Definition.PADDING_LEFT,
+        Definition.BORDER_TOP_WIDTH, Definition.BORDER_RIGHT_WIDTH,
+        Definition.BORDER_BOTTOM_WIDTH, Definition.BORDER_LEFT_WIDTH};
+
+    /** The keywords and colors stored already resolved; the position is the index into {@link #keywordValues_}. */
+    private static final Definition[] KEYWORD_DEFINITIONS = {
+        Definition.DISPLAY, Definition.COLOR, Definition.BACKGROUND_COLOR};
+
+    /** Maps the definition ordinal to the index into {@link #pixelValues_} or {@link #keywordValues_}. */
+    private static final int[] VALUE_INDEX = new int[Definition.values().length];
+
+    private static final int NOT_PARSED = Integer.MIN_VALUE;
+
+    /** The initial capacity of the {@link #localModificationKeys_}. */
+    private static final int INITIAL_LOCAL_MODIFICATIONS = 8;
+
+    static {
+        for (final Definition definition : Definition.values()) {
+            DEFINITIONS_BY_ATTRIBUTE_NAME.putIfAbsent(definition.getAttributeName(), definition);
+        }
+
+        Arrays.fill(VALUE_INDEX, -1);
+        for (int i = 0; i < PIXEL_DEFINITIONS.length; i++) {
+            VALUE_INDEX[PIXEL_DEFINITIONS[i].ordinal()] = i;
+        }
+        for (int i = 0; i < KEYWORD_DEFINITIONS.length; i++) {
+            VALUE_INDEX[KEYWORD_DEFINITIONS[i].ordinal()] = i;
+        }
+    }
+
     /** The computed, cached width of the element to which this computed style belongs (no padding, borders, etc.). */
     private Integer width_;
 
@@ -218,10 +256,25 @@ public class ComputedCssStyleDeclaration extends AbstractCssStyleDeclaration {
     private Integer top_;
 
     /**
-     * Local modifications maintained here rather than in the element. We use a sorted
-     * map so that results are deterministic and thus easily testable.
+     * Local modifications maintained here rather than in the element: the (sorted) ordinals
+     * of the {@link Definition}s of the attribute names and the modifications at the same position.
+     * Created on demand and grown as needed, most elements have only a few modifications.
      */
-    private final SortedMap<String, StyleElement> localModifications_ = new TreeMap<>();
+    private int[] localModificationKeys_;
+    private StyleElement[] localModificationValues_;
+    private int localModificationCount_;
+
+    /** Local modifications of attributes without a {@link Definition}; created on demand. */
+    private Map<String, StyleElement> otherLocalModifications_;
+
+    /** The parsed pixel values of the {@link #PIXEL_DEFINITIONS}; created on demand. */
+    private int[] pixelValues_;
+
+    /** The resolved values of the {@link #KEYWORD_DEFINITIONS}; created on demand. */
+    private String[] keywordValues_;
+
+    /** The {@link HtmlPage#getStyleModificationCount()} the parsed and resolved values are based on. */
+    private int valuesStyleModificationCount_;
 
     /** The wrapped CSSStyleDeclaration */
     private final ElementCssStyleDeclaration elementStyleDeclaration_;
@@ -452,12 +505,8 @@ public class ComputedCssStyleDeclaration extends AbstractCssStyleDeclaration {
     public StyleElement getStyleElement(final String name) {
         final StyleElement existent = elementStyleDeclaration_.getStyleElement(name);
 
-        if (localModifications_ != null) {
-            final StyleElement localStyleMod = localModifications_.get(name);
-            if (localStyleMod == null) {
-                return existent;
-            }
-
+        final StyleElement localStyleMod = getLocalModification(name);
+        if (localStyleMod != null) {
             if (existent == null) {
                 // Local modifications represent either default style elements or style elements
                 // defined in stylesheets; either way, they shouldn't overwrite any style
@@ -517,6 +566,10 @@ public class ComputedCssStyleDeclaration extends AbstractCssStyleDeclaration {
      */
     @Override
     public String getBackgroundColor() {
+        return getKeywordValue(Definition.BACKGROUND_COLOR, this::getBackgroundColorValue);
+    }
+
+    private String getBackgroundColorValue() {
         final String value = super.getBackgroundColor();
         if (StringUtils.isEmpty(value)) {
             return Definition.BACKGROUND_COLOR.getDefaultComputedValue(getBrowserVersion());
@@ -658,6 +711,10 @@ public class ComputedCssStyleDeclaration extends AbstractCssStyleDeclaration {
      */
     @Override
     public String getColor() {
+        return getKeywordValue(Definition.COLOR, this::getColorValue);
+    }
+
+    private String getColorValue() {
         final String value = getStyleAttribute(Definition.COLOR, "rgb(0, 0, 0)", null);
         return CssColors.toRGBColor(value);
     }
@@ -680,6 +737,11 @@ public class ComputedCssStyleDeclaration extends AbstractCssStyleDeclaration {
             return "";
         }
 
+        return getKeywordValue(Definition.DISPLAY, this::getDisplayValue);
+    }
+
+    private String getDisplayValue() {
+        final DomElement domElem = getDomElement();
         if (domElem instanceof HtmlElement) {
             if (((HtmlElement) domElem).isHidden()) {
                 return DisplayStyle.NONE.value();
@@ -1042,7 +1104,7 @@ public class ComputedCssStyleDeclaration extends AbstractCssStyleDeclaration {
                                 prevTop += eCachedTop.intValue();
                             }
                             prevTop += style.getCalculatedHeight(true, true);
-                            final int margin = CssPixelValueConverter.pixelValue(style.getMarginTop());
+                            final int margin = style.getMarginTopValue();
                             prevTop += margin;
                             top += prevTop;
                         }
@@ -1063,12 +1125,12 @@ public class ComputedCssStyleDeclaration extends AbstractCssStyleDeclaration {
         }
 
         if (includeMargin) {
-            final int margin = CssPixelValueConverter.pixelValue(getMarginTop());
+            final int margin = getMarginTopValue();
             top += margin;
         }
 
         if (includeBorder) {
-            final int border = CssPixelValueConverter.pixelValue(getBorderTopWidth());
+            final int border = getBorderTopValue();
             top += border;
         }
 
@@ -1167,7 +1229,7 @@ public class ComputedCssStyleDeclaration extends AbstractCssStyleDeclaration {
      * @return the value in pixels
      */
     public int getMarginLeftValue() {
-        return CssPixelValueConverter.pixelValue(getMarginLeft());
+        return getPixelValue(Definition.MARGIN_LEFT, this::getMarginLeft);
     }
 
     /**
@@ -1175,7 +1237,7 @@ public class ComputedCssStyleDeclaration extends AbstractCssStyleDeclaration {
      * @return the value in pixels
      */
     public int getMarginRightValue() {
-        return CssPixelValueConverter.pixelValue(getMarginRight());
+        return getPixelValue(Definition.MARGIN_RIGHT, this::getMarginRight);
     }
 
     /**
@@ -1183,7 +1245,7 @@ public class ComputedCssStyleDeclaration extends AbstractCssStyleDeclaration {
      * @return the value in pixels
      */
     public int getMarginTopValue() {
-        return CssPixelValueConverter.pixelValue(getMarginTop());
+        return getPixelValue(Definition.MARGIN_TOP, this::getMarginTop);
     }
 
     /**
@@ -1191,7 +1253,7 @@ public class ComputedCssStyleDeclaration extends AbstractCssStyleDeclaration {
      * @return the value in pixels
      */
     public int getMarginBottomValue() {
-        return CssPixelValueConverter.pixelValue(getMarginBottom());
+        return getPixelValue(Definition.MARGIN_BOTTOM, this::getMarginBottom);
     }
 
     /**
@@ -1294,7 +1356,7 @@ public class ComputedCssStyleDeclaration extends AbstractCssStyleDeclaration {
         }
 
         if (includeBorder) {
-            final int border = CssPixelValueConverter.pixelValue(getBorderLeftWidth());
+            final int border = getBorderLeftValue();
             left += border;
         }
 
@@ -1962,7 +2024,7 @@ public class ComputedCssStyleDeclaration extends AbstractCssStyleDeclaration {
      * @return the value in pixels
      */
     public int getBorderLeftValue() {
-        return CssPixelValueConverter.pixelValue(getBorderLeftWidth());
+        return getPixelValue(Definition.BORDER_LEFT_WIDTH, this::getBorderLeftWidth);
     }
 
     /**
@@ -1970,7 +2032,7 @@ public class ComputedCssStyleDeclaration extends AbstractCssStyleDeclaration {
      * @return the value in pixels
      */
     public int getBorderRightValue() {
-        return CssPixelValueConverter.pixelValue(getBorderRightWidth());
+        return getPixelValue(Definition.BORDER_RIGHT_WIDTH, this::getBorderRightWidth);
     }
 
     /**
@@ -1978,7 +2040,7 @@ public class ComputedCssStyleDeclaration extends AbstractCssStyleDeclaration {
      * @return the value in pixels
      */
     public int getBorderTopValue() {
-        return CssPixelValueConverter.pixelValue(getBorderTopWidth());
+        return getPixelValue(Definition.BORDER_TOP_WIDTH, this::getBorderTopWidth);
     }
 
     /**
@@ -1986,7 +2048,7 @@ public class ComputedCssStyleDeclaration extends AbstractCssStyleDeclaration {
      * @return the value in pixels
      */
     public int getBorderBottomValue() {
-        return CssPixelValueConverter.pixelValue(getBorderBottomWidth());
+        return getPixelValue(Definition.BORDER_BOTTOM_WIDTH, this::getBorderBottomWidth);
     }
 
     private int getPaddingHorizontal() {
@@ -2014,7 +2076,7 @@ public class ComputedCssStyleDeclaration extends AbstractCssStyleDeclaration {
      * @return the value in pixels
      */
     public int getPaddingLeftValue() {
-        return CssPixelValueConverter.pixelValue(getPaddingLeft());
+        return getPixelValue(Definition.PADDING_LEFT, this::getPaddingLeft);
     }
 
     /**
@@ -2022,7 +2084,7 @@ public class ComputedCssStyleDeclaration extends AbstractCssStyleDeclaration {
      * @return the value in pixels
      */
     public int getPaddingRightValue() {
-        return CssPixelValueConverter.pixelValue(getPaddingRight());
+        return getPixelValue(Definition.PADDING_RIGHT, this::getPaddingRight);
     }
 
     /**
@@ -2030,7 +2092,7 @@ public class ComputedCssStyleDeclaration extends AbstractCssStyleDeclaration {
      * @return the value in pixels
      */
     public int getPaddingTopValue() {
-        return CssPixelValueConverter.pixelValue(getPaddingTop());
+        return getPixelValue(Definition.PADDING_TOP, this::getPaddingTop);
     }
 
     /**
@@ -2038,7 +2100,7 @@ public class ComputedCssStyleDeclaration extends AbstractCssStyleDeclaration {
      * @return the value in pixels
      */
     public int getPaddingBottomValue() {
-        return CssPixelValueConverter.pixelValue(getPaddingBottom());
+        return getPixelValue(Definition.PADDING_BOTTOM, this::getPaddingBottom);
     }
 
     /**
@@ -2202,7 +2264,7 @@ public class ComputedCssStyleDeclaration extends AbstractCssStyleDeclaration {
     private void applyLocalStyleAttribute(final String name, final String newValue, final String priority,
             final SelectorSpecificity specificity) {
         if (!StyleElement.PRIORITY_IMPORTANT.equals(priority)) {
-            final StyleElement existingElement = localModifications_.get(name);
+            final StyleElement existingElement = getLocalModification(name);
             if (existingElement != null) {
                 if (existingElement.isImportant()) {
                     return; // can't override a !important rule by a normal rule. Ignore it!
@@ -2213,7 +2275,7 @@ public class ComputedCssStyleDeclaration extends AbstractCssStyleDeclaration {
             }
         }
         final StyleElement element = new StyleElement(name, newValue, priority, specificity);
-        localModifications_.put(name, element);
+        putLocalModification(name, element);
     }
 
     /**
@@ -2226,7 +2288,137 @@ public class ComputedCssStyleDeclaration extends AbstractCssStyleDeclaration {
      */
     public void setDefaultLocalStyleAttribute(final String name, final String newValue) {
         final StyleElement element = new StyleElement(name, newValue, "", SelectorSpecificity.DEFAULT_STYLE_ATTRIBUTE);
-        localModifications_.put(name, element);
+        putLocalModification(name, element);
+    }
+
+    private StyleElement getLocalModification(final String name) {
+        final Definition definition = DEFINITIONS_BY_ATTRIBUTE_NAME.get(name);
+        if (definition != null) {
+            if (localModificationCount_ == 0) {
+                return null;
+            }
+            final int index = Arrays.binarySearch(localModificationKeys_, 0, localModificationCount_,
+                    definition.ordinal());
+            return index < 0 ? null : localModificationValues_[index];
+        }
+        if (otherLocalModifications_ == null) {
+            return null;
+        }
+        return otherLocalModifications_.get(name);
+    }
+
+    private void putLocalModification(final String name, final StyleElement element) {
+        final Definition definition = DEFINITIONS_BY_ATTRIBUTE_NAME.get(name);
+        if (definition != null) {
+            putLocalModification(definition.ordinal(), element);
+        }
+        else {
+            if (otherLocalModifications_ == null) {
+                otherLocalModifications_ = new HashMap<>();
+            }
+            otherLocalModifications_.put(name, element);
+        }
+
+        // the parsed values might depend on this
+        pixelValues_ = null;
+        keywordValues_ = null;
+    }
+
+    private void putLocalModification(final int ordinal, final StyleElement element) {
+        if (localModificationKeys_ == null) {
+            localModificationKeys_ = new int[INITIAL_LOCAL_MODIFICATIONS];
+            localModificationValues_ = new StyleElement[INITIAL_LOCAL_MODIFICATIONS];
+        }
+
+        int index = Arrays.binarySearch(localModificationKeys_, 0, localModificationCount_, ordinal);
+        if (index >= 0) {
+            localModificationValues_[index] = element;
+            return;
+        }
+
+        index = -index - 1;
+        if (localModificationCount_ == localModificationKeys_.length) {
+            final int newLength = 2 * localModificationCount_;
+            localModificationKeys_ = Arrays.copyOf(localModificationKeys_, newLength);
+            localModificationValues_ = Arrays.copyOf(localModificationValues_, newLength);
+        }
+        final int moved = localModificationCount_ - index;
+        System.arraycopy(localModificationKeys_, index, localModificationKeys_, index + 1, moved);
+        System.arraycopy(localModificationValues_, index, localModificationValues_, index + 1, moved);
+        localModificationKeys_[index] = ordinal;
+        localModificationValues_[index] = element;
+        localModificationCount_++;
+    }
+
+    /**
+     * Checks if the parsed and resolved values can be used; drops them if the styles
+     * of the page were modified since they were stored.
+     * @return false if nothing should be cached
+     */
+    private boolean prepareCachedValues() {
+        final DomElement element = getDomElement();
+        if (!element.isAttachedToPage() || !(element.getPage() instanceof HtmlPage)) {
+            return false;
+        }
+
+        final int styleModificationCount = ((HtmlPage) element.getPage()).getStyleModificationCount();
+        if (styleModificationCount != valuesStyleModificationCount_) {
+            pixelValues_ = null;
+            keywordValues_ = null;
+            valuesStyleModificationCount_ = styleModificationCount;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the pixel value of one of the {@link #PIXEL_DEFINITIONS}; the value is parsed
+     * only once as long as the element is attached to the page and the styles are not modified.
+     * @param definition the definition
+     * @param value provides the string value if not parsed so far
+     * @return the value in pixels
+     */
+    private int getPixelValue(final Definition definition, final Supplier<String> value) {
+        if (!prepareCachedValues()) {
+            return CssPixelValueConverter.pixelValue(value.get());
+        }
+
+        if (pixelValues_ == null) {
+            pixelValues_ = new int[PIXEL_DEFINITIONS.length];
+            Arrays.fill(pixelValues_, NOT_PARSED);
+        }
+
+        final int index = VALUE_INDEX[definition.ordinal()];
+        int pixelValue = pixelValues_[index];
+        if (pixelValue == NOT_PARSED) {
+            pixelValue = CssPixelValueConverter.pixelValue(value.get());
+            pixelValues_[index] = pixelValue;
+        }
+        return pixelValue;
+    }
+
+    /**
+     * Returns the value of one of the {@link #KEYWORD_DEFINITIONS}; the value is resolved
+     * only once as long as the element is attached to the page and the styles are not modified.
+     * @param definition the definition
+     * @param value provides the value if not resolved so far
+     * @return the value
+     */
+    private String getKeywordValue(final Definition definition, final Supplier<String> value) {
+        if (!prepareCachedValues()) {
+            return value.get();
+        }
+
+        if (keywordValues_ == null) {
+            keywordValues_ = new String[KEYWORD_DEFINITIONS.length];
+        }
+
+        final int index = VALUE_INDEX[definition.ordinal()];
+        String keywordValue = keywordValues_[index];
+        if (keywordValue == null) {
+            keywordValue = value.get();
+            keywordValues_[index] = keywordValue;
+        }
+        return keywordValue;
     }
 
     /**
@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2002-2024 Gargoyle Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.htmlunit.css;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.function.IntSupplier;
+
+import org.htmlunit.WebWindow;
+import org.htmlunit.html.DomNode;
+
+/**
+ * <span style="color:red">INTERNAL API - SUBJECT TO CHANGE AT ANY TIME - USE AT YOUR OWN RISK.</span><br>
+ *
+ * Caches the layout values (offset position and size) of the elements of a page.
+ * The layout of an element depends on its ancestors, siblings and descendants;
+ * therefore all values are marked as dirty together whenever the page changes in a way
+ * that might affect the layout (DOM, style, window size).
+ *
+ * @author agent <agent@local>
+ */
+public class LayoutBoxCache implements Serializable {
+
+    /** Index of the offsetTop value. */
+    public static final int OFFSET_TOP = 0;
+    /** Index of the offsetLeft value. */
+    public static final int OFFSET_LEFT = 1;
+    /** Index of the offsetWidth value. */
+    public static final int OFFSET_WIDTH = 2;
+    /** Index of the offsetHeight value. */
+    public static final int OFFSET_HEIGHT = 3;
+    /** Index of the display none state (1 if the element or one of its ancestors is not displayed). */
+    public static final int DISPLAY_NONE = 4;
+
+    private static final int VALUE_COUNT = 5;
+    private static final int NOT_CALCULATED = Integer.MIN_VALUE;
+
+    private transient Map<DomNode, int[]> boxes_ = new WeakHashMap<>();
+    private boolean dirty_;
+    private int windowWidth_;
+    private int windowHeight_;
+
+    // only modified while holding the lock
+    private volatile long hitCount_;
+    private volatile long invalidationCount_;
+
+    /**
+     * Returns the cached value or calculates and caches it.
+     * @param node the node
+     * @param index the index of the value ({@link #OFFSET_TOP}, {@link #OFFSET_LEFT}...)
+     * @param calculation calculates the value if not cached
+     * @return the value
+     */
+    public synchronized int get(final DomNode node, final int index, final IntSupplier calculation) {
+        final WebWindow window = node.getPage().getEnclosingWindow();
+        if (window.getInnerWidth() != windowWidth_ || window.getInnerHeight() != windowHeight_) {
+            dirty_ = true;
+            windowWidth_ = window.getInnerWidth();
+            windowHeight_ = window.getInnerHeight();
+        }
+        if (dirty_) {
+            boxes_.clear();
+            dirty_ = false;
+        }
+
+        int[] box = boxes_.get(node);
+        if (box == null) {
+            box = new int[VALUE_COUNT];
+            Arrays.fill(box, NOT_CALCULATED);
+            boxes_.put(node, box);
+        }
+        else if (box[index] != NOT_CALCULATED) {
+            hitCount_++;
+            return box[index];
+        }
+
+        // the calculation might use cached values of other nodes
+        final int value = calculation.getAsInt();
+        if (!dirty_) {
+            box[index] = value;
+        }
+        return value;
+    }
+
+    /**
+     * Marks all cached values as dirty.
+     */
+    public synchronized void invalidate() {
+        if (!dirty_) {
+            dirty_ = true;
+            invalidationCount_++;
+        }
+    }
+
+    /**
+     * @return the number of values served from the cache
+     */
+    public long getHitCount() {
+        return hitCount_;
+    }
+
+    /**
+     * @return the number of times the cached values were marked as dirty
+     */
+    public long getInvalidationCount() {
+        return invalidationCount_;
+    }
+
+    private void readObject(final ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        boxes_ = new WeakHashMap<>();
+    }
+}
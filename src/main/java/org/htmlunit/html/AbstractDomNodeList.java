@@ -15,7 +15,6 @@
 package org.htmlunit.html;
 
 import java.io.Serializable;
-import java.lang.ref.WeakReference;
 import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.List;
@@ -40,6 +39,10 @@ public abstract class AbstractDomNodeList<E extends DomNode> extends AbstractLis
     /** Element cache, used to avoid XPath expression evaluation as much as possible. */
     private List<E> cachedElements_;
 
+    /** The modification counts of the root node at the time the cache was filled. */
+    private int cachedModificationCount_;
+    private int cachedAttributeModificationCount_;
+
     /**
      * Creates a new node list. The elements will be "calculated" using the specified XPath
      * expression applied on the specified node.
@@ -47,15 +50,7 @@ public abstract class AbstractDomNodeList<E extends DomNode> extends AbstractLis
      */
     public AbstractDomNodeList(final DomNode node) {
         super();
-        if (node != null) {
-            node_ = node;
-            final DomHtmlAttributeChangeListenerImpl listener = new DomHtmlAttributeChangeListenerImpl(this);
-            node_.addDomChangeListener(listener);
-            if (node_ instanceof HtmlElement) {
-                ((HtmlElement) node_).addHtmlAttributeChangeListener(listener);
-                cachedElements_ = null;
-            }
-        }
+        node_ = node;
     }
 
     /**
@@ -74,20 +69,37 @@ public abstract class AbstractDomNodeList<E extends DomNode> extends AbstractLis
 
     /**
      * Returns the nodes in this node list, caching as necessary.
+     * The cache is invalidated lazily by comparing the modification counts of the root node.
      * @return the nodes in this node list
      */
     private List<E> getNodes() {
-        if (cachedElements_ == null) {
-            if (node_ == null) {
+        if (node_ == null) {
+            if (cachedElements_ == null) {
                 cachedElements_ = new ArrayList<>();
             }
-            else {
-                cachedElements_ = provideElements();
-            }
+            return cachedElements_;
+        }
+
+        final int modificationCount = node_.getSubtreeModificationCount();
+        final int attributeModificationCount = getAttributeModificationCount();
+        if (cachedElements_ == null
+                || cachedModificationCount_ != modificationCount
+                || cachedAttributeModificationCount_ != attributeModificationCount) {
+            cachedElements_ = provideElements();
+            cachedModificationCount_ = modificationCount;
+            cachedAttributeModificationCount_ = attributeModificationCount;
         }
         return cachedElements_;
     }
 
+    private int getAttributeModificationCount() {
+        // only attribute changes below an element root are relevant
+        if (node_ instanceof HtmlElement) {
+            return node_.getSubtreeAttributeModificationCount();
+        }
+        return 0;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -119,69 +131,4 @@ public abstract class AbstractDomNodeList<E extends DomNode> extends AbstractLis
     public E get(final int index) {
         return getNodes().get(index);
     }
-
-    /**
-     * DOM change listener which clears the node cache when necessary.
-     */
-    private static final class DomHtmlAttributeChangeListenerImpl
-                                    implements DomChangeListener, HtmlAttributeChangeListener {
-
-        private final transient WeakReference<AbstractDomNodeList<?>> nodeList_;
-
-        DomHtmlAttributeChangeListenerImpl(final AbstractDomNodeList<?> nodeList) {
-            super();
-
-            nodeList_ = new WeakReference<>(nodeList);
-        }
-
-        /**
-         * {@inheritDoc}
-         */
-        @Override
-        public void nodeAdded(final DomChangeEvent event) {
-            clearCache();
-        }
-
-        /**
-         * {@inheritDoc}
-         */
-        @Override
-        public void nodeDeleted(final DomChangeEvent event) {
-            clearCache();
-        }
-
-        /**
-         * {@inheritDoc}
-         */
-        @Override
-        public void attributeAdded(final HtmlAttributeChangeEvent event) {
-            clearCache();
-        }
-
-        /**
-         * {@inheritDoc}
-         */
-        @Override
-        public void attributeRemoved(final HtmlAttributeChangeEvent event) {
-            clearCache();
-        }
-
-        /**
-         * {@inheritDoc}
-         */
-        @Override
-        public void attributeReplaced(final HtmlAttributeChangeEvent event) {
-            clearCache();
-        }
-
-        private void clearCache() {
-            if (nodeList_ != null) {
-                final AbstractDomNodeList<?> nodes = nodeList_.get();
-                if (nodes != null) {
-                    nodes.cachedElements_ = null;
-                }
-            }
-        }
-    }
-
 }
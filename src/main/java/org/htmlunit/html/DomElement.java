@@ -438,7 +438,9 @@ public class DomElement extends DomNamespaceNode implements Element {
      */
     @Override
     public void removeAttribute(final String attributeName) {
-        attributes_.remove(attributeName);
+        if (attributes_.remove(attributeName) != null) {
+            incrementSubtreeAttributeModificationCount();
+        }
     }
 
     /**
@@ -535,6 +537,7 @@ public class DomElement extends DomNamespaceNode implements Element {
         final DomAttr newAttr = new DomAttr(getPage(), namespaceURI, qualifiedName, attributeValue, true);
         newAttr.setParentNode(this);
         attributes_.put(qualifiedName, newAttr);
+        incrementSubtreeAttributeModificationCount();
 
         if (namespaceURI != null) {
             if (namespaces_ == null) {
@@ -688,6 +691,7 @@ public class DomElement extends DomNamespaceNode implements Element {
     @Override
     public Attr setAttributeNode(final Attr attribute) {
         attributes_.setNamedItem(attribute);
+        incrementSubtreeAttributeModificationCount();
         return null;
     }
 
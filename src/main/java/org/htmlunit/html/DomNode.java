@@ -20,12 +20,15 @@ import java.io.Serializable;
 import java.io.StringWriter;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.stream.Stream;
 
+import org.htmlunit.BrowserVersion;
 import org.htmlunit.BrowserVersionFeatures;
 import org.htmlunit.IncorrectnessListener;
 import org.htmlunit.Page;
@@ -41,6 +44,12 @@ import org.htmlunit.cssparser.parser.CSSErrorHandler;
 import org.htmlunit.cssparser.parser.CSSException;
 import org.htmlunit.cssparser.parser.CSSOMParser;
 import org.htmlunit.cssparser.parser.CSSParseException;
+import org.htmlunit.cssparser.parser.condition.Condition;
+import org.htmlunit.cssparser.parser.selector.ChildSelector;
+import org.htmlunit.cssparser.parser.selector.DescendantSelector;
+import org.htmlunit.cssparser.parser.selector.DirectAdjacentSelector;
+import org.htmlunit.cssparser.parser.selector.ElementSelector;
+import org.htmlunit.cssparser.parser.selector.GeneralAdjacentSelector;
 import org.htmlunit.cssparser.parser.selector.Selector;
 import org.htmlunit.cssparser.parser.selector.SelectorList;
 import org.htmlunit.html.HtmlElement.DisplayStyle;
@@ -50,6 +59,7 @@ import org.htmlunit.html.xpath.XPathHelper;
 import org.htmlunit.javascript.HtmlUnitScriptable;
 import org.htmlunit.javascript.JavaScriptEngine;
 import org.htmlunit.javascript.host.event.Event;
+import org.htmlunit.util.LruCache;
 import org.htmlunit.xpath.xml.utils.PrefixResolver;
 import org.w3c.dom.DOMException;
 import org.w3c.dom.Document;
@@ -152,6 +162,12 @@ public abstract class DomNode implements Cloneable, Serializable, Node {
 
     private boolean attachedToPage_;
 
+    /** Changed whenever a node is added to or removed from the subtree of this node. */
+    private int subtreeModificationCount_;
+
+    /** Changed whenever an attribute of an element in the subtree of this node (including itself) changes. */
+    private int subtreeAttributeModificationCount_;
+
     /** The listeners which are to be notified of characterData change. */
     private List<CharacterDataChangeListener> characterDataListeners_;
     private List<DomChangeListener> domListeners_;
@@ -290,6 +306,45 @@ public abstract class DomNode implements Cloneable, Serializable, Node {
         parent_ = parent;
     }
 
+    /**
+     * <span style="color:red">INTERNAL API - SUBJECT TO CHANGE AT ANY TIME - USE AT YOUR OWN RISK.</span><br>
+     *
+     * Returns a counter that changes whenever a node is added to or removed from the subtree of this node.
+     * Caches of live collections compare this value on access to find out if they are stale.
+     *
+     * @return the modification count of the subtree
+     */
+    public int getSubtreeModificationCount() {
+        return subtreeModificationCount_;
+    }
+
+    /**
+     * <span style="color:red">INTERNAL API - SUBJECT TO CHANGE AT ANY TIME - USE AT YOUR OWN RISK.</span><br>
+     *
+     * Returns a counter that changes whenever an attribute of an element in the subtree
+     * of this node (including the node itself) is added, replaced or removed.
+     *
+     * @return the attribute modification count of the subtree
+     */
+    public int getSubtreeAttributeModificationCount() {
+        return subtreeAttributeModificationCount_;
+    }
+
+    private void incrementSubtreeModificationCount() {
+        for (DomNode node = this; node != null; node = node.parent_) {
+            node.subtreeModificationCount_++;
+        }
+    }
+
+    /**
+     * Marks the attributes of the subtree of this node and of all its ancestors as modified.
+     */
+    void incrementSubtreeAttributeModificationCount() {
+        for (DomNode node = this; node != null; node = node.parent_) {
+            node.subtreeAttributeModificationCount_++;
+        }
+    }
+
     /**
      * Returns this node's index within its parent's child nodes (zero-based).
      * @return this node's index within its parent's child nodes (zero-based)
@@ -946,6 +1001,7 @@ public abstract class DomNode implements Cloneable, Serializable, Node {
         // before the node is reachable
         node.setPage(getPage());
         node.parent_ = this;
+        incrementSubtreeModificationCount();
 
         if (firstChild_ == null) {
             firstChild_ = node;
@@ -1022,6 +1078,7 @@ public abstract class DomNode implements Cloneable, Serializable, Node {
         // before the node is reachable
         node.setPage(page_);
         node.parent_ = parent_;
+        parent_.incrementSubtreeModificationCount();
         node.previousSibling_ = previousSibling_;
         node.nextSibling_ = this;
 
@@ -1144,6 +1201,9 @@ public abstract class DomNode implements Cloneable, Serializable, Node {
      * Cuts off all relationships this node has with siblings and parents.
      */
     protected void basicRemove() {
+        if (parent_ != null) {
+            parent_.incrementSubtreeModificationCount();
+        }
         if (parent_ != null && parent_.firstChild_ == this) {
             parent_.firstChild_ = nextSibling_;
         }
@@ -1562,11 +1622,37 @@ public abstract class DomNode implements Cloneable, Serializable, Node {
      */
     @SuppressWarnings("unchecked")
     public <X> X getFirstByXPath(final String xpathExpr, final PrefixResolver resolver) {
-        final List<?> results = getByXPath(xpathExpr, resolver);
-        if (results.isEmpty()) {
-            return null;
+        try (Stream<?> results = streamByXPath(xpathExpr, resolver)) {
+            return (X) results.findFirst().orElse(null);
         }
-        return (X) results.get(0);
+    }
+
+    /**
+     * Evaluates the specified XPath expression from this node, returning the matching elements
+     * as a stream. The matches are searched while the stream is consumed; e.g. {@code findFirst()}
+     * stops the search at the first match. The DOM must not be modified while the stream is consumed
+     * and the stream should be closed if not consumed completely.
+     *
+     * @param <T> the expected type
+     * @param xpathExpr the XPath expression to evaluate
+     * @return the elements which match the specified XPath expression
+     * @see #getByXPath(String)
+     */
+    public <T> Stream<T> streamByXPath(final String xpathExpr) {
+        return XPathHelper.streamByXPath(this, xpathExpr, null);
+    }
+
+    /**
+     * Evaluates the specified XPath expression from this node, returning the matching elements
+     * as a stream.
+     *
+     * @param xpathExpr the XPath expression to evaluate
+     * @param resolver the prefix resolver to use for resolving namespace prefixes, or null
+     * @return the elements which match the specified XPath expression
+     * @see #streamByXPath(String)
+     */
+    public Stream<?> streamByXPath(final String xpathExpr, final PrefixResolver resolver) {
+        return XPathHelper.streamByXPath(this, xpathExpr, resolver);
     }
 
     /**
@@ -1746,28 +1832,168 @@ public abstract class DomNode implements Cloneable, Serializable, Node {
      * @return list of all found nodes
      */
     public DomNodeList<DomNode> querySelectorAll(final String selectors) {
+        final List<DomNode> elements = new ArrayList<>();
+        final Iterator<DomNode> iterator = querySelectorIterator(selectors);
+        while (iterator.hasNext()) {
+            elements.add(iterator.next());
+        }
+        return new StaticDomNodeList(elements);
+    }
+
+    /**
+     * Returns an iterator over the descendants that match the specified group of selectors,
+     * in document order. The matches are searched while iterating; stopping the iteration
+     * early saves the work for the rest of the subtree. The DOM must not be modified during
+     * the iteration.
+     * @param selectors one or more CSS selectors separated by commas
+     * @return the iterator over the matching elements
+     */
+    public Iterator<DomNode> querySelectorIterator(final String selectors) {
+        return querySelectorIterator(selectors, false);
+    }
+
+    /**
+     * @param selectors one or more CSS selectors separated by commas
+     * @param firstOnly true if only the first match is used; the id index of the page is used in this case
+     * @return the iterator over the matching elements
+     */
+    private Iterator<DomNode> querySelectorIterator(final String selectors, final boolean firstOnly) {
         try {
             final WebClient webClient = getPage().getWebClient();
             final SelectorList selectorList = getSelectorList(selectors, webClient);
-
-            final List<DomNode> elements = new ArrayList<>();
-            if (selectorList != null) {
-                for (final DomElement child : getDomElementDescendants()) {
-                    for (final Selector selector : selectorList) {
-                        if (CssStyleSheet.selects(webClient.getBrowserVersion(), selector, child, null, true, true)) {
-                            elements.add(child);
-                            break;
-                        }
-                    }
+            if (selectorList == null) {
+                return Collections.emptyIterator();
+            }
+            final BrowserVersion browserVersion = webClient.getBrowserVersion();
+
+            // the page maintains an id index; use it to find the first match if the right most part
+            // of the selector has an id
+            // the index is not complete (e.g. svg elements, ids changed using the attribute node),
+            // therefore the whole subtree is searched if the index provides no match and all matches
+            // are always searched in the whole subtree
+            final String id = firstOnly ? getIdCondition(selectorList) : null;
+            if (id != null) {
+                final SgmlPage page = getPage();
+                if (page instanceof HtmlPage && (this == page || page.isAncestorOf(this))) {
+                    return new SelectorIterator(((HtmlPage) page).getElementsById(id).iterator(),
+                            selectorList, browserVersion, true);
                 }
             }
-            return new StaticDomNodeList(elements);
+
+            return new SelectorIterator(getDomElementDescendants().iterator(), selectorList, browserVersion, false);
         }
         catch (final IOException e) {
             throw new CSSException("Error parsing CSS selectors from '" + selectors + "': " + e.getMessage(), e);
         }
     }
 
+    /**
+     * Iterates over the candidates that match one of the selectors.
+     */
+    private final class SelectorIterator implements Iterator<DomNode> {
+        private Iterator<DomElement> candidates_;
+        private final SelectorList selectorList_;
+        private final BrowserVersion browserVersion_;
+        private boolean fromIndex_;
+        private boolean found_;
+        private DomElement next_;
+
+        /**
+         * @param candidates the elements to check
+         * @param selectorList the selectors
+         * @param browserVersion the browser version
+         * @param fromIndex true if the candidates are taken from the id index of the page; such
+         *        candidates might not be descendants of this node and the subtree is searched
+         *        if none of them matches; only the first match is reliable in this case
+         */
+        SelectorIterator(final Iterator<DomElement> candidates, final SelectorList selectorList,
+                final BrowserVersion browserVersion, final boolean fromIndex) {
+            candidates_ = candidates;
+            selectorList_ = selectorList;
+            browserVersion_ = browserVersion;
+            fromIndex_ = fromIndex;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next_ == null) {
+                if (!candidates_.hasNext()) {
+                    if (!fromIndex_ || found_) {
+                        break;
+                    }
+                    candidates_ = getDomElementDescendants().iterator();
+                    fromIndex_ = false;
+                    continue;
+                }
+
+                final DomElement candidate = candidates_.next();
+                if (fromIndex_ && (candidate == DomNode.this || !isAncestorOf(candidate))) {
+                    continue;
+                }
+                // the selector checks the current value of the id attribute
+                for (final Selector selector : selectorList_) {
+                    if (CssStyleSheet.selects(browserVersion_, selector, candidate, null, true, true)) {
+                        next_ = candidate;
+                        found_ = true;
+                        break;
+                    }
+                }
+            }
+            return next_ != null;
+        }
+
+        @Override
+        public DomNode next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            final DomElement next = next_;
+            next_ = null;
+            return next;
+        }
+    }
+
+    /**
+     * @param selectorList the selectors
+     * @return the value of the id condition of the right most simple selector
+     *         if the list contains only one selector; {@code null} otherwise
+     */
+    private static String getIdCondition(final SelectorList selectorList) {
+        if (selectorList.size() != 1) {
+            return null;
+        }
+
+        Selector selector = selectorList.get(0);
+        while (true) {
+            switch (selector.getSelectorType()) {
+                case DESCENDANT_SELECTOR:
+                    selector = ((DescendantSelector) selector).getSimpleSelector();
+                    break;
+                case CHILD_SELECTOR:
+                    selector = ((ChildSelector) selector).getSimpleSelector();
+                    break;
+                case DIRECT_ADJACENT_SELECTOR:
+                    selector = ((DirectAdjacentSelector) selector).getSimpleSelector();
+                    break;
+                case GENERAL_ADJACENT_SELECTOR:
+                    selector = ((GeneralAdjacentSelector) selector).getSimpleSelector();
+                    break;
+                case ELEMENT_NODE_SELECTOR:
+                    final List<Condition> conditions = ((ElementSelector) selector).getConditions();
+                    if (conditions != null) {
+                        for (final Condition condition : conditions) {
+                            if (condition.getConditionType() == Condition.ConditionType.ID_CONDITION) {
+                                return condition.getValue();
+                            }
+                        }
+                    }
+                    return null;
+                default:
+                    return null;
+            }
+        }
+    }
+
     /**
      * Returns the {@link SelectorList}.
      * @param selectors the selectors
@@ -1778,6 +2004,13 @@ public abstract class DomNode implements Cloneable, Serializable, Node {
     protected SelectorList getSelectorList(final String selectors, final WebClient webClient)
             throws IOException {
 
+        // the validation does not depend on the node; valid lists are shared
+        final LruCache<String, SelectorList> selectorCache = webClient.getSelectorCache();
+        final SelectorList cached = selectorCache.get(selectors);
+        if (cached != null) {
+            return cached;
+        }
+
         // get us a CSS3Parser from the pool so the chance of reusing it are high
         try (PooledCSS3Parser pooledParser = webClient.getCSS3Parser()) {
             final CSSOMParser parser = new CSSOMParser(pooledParser);
@@ -1792,7 +2025,7 @@ public abstract class DomNode implements Cloneable, Serializable, Node {
 
             if (selectorList != null) {
                 CssStyleSheet.validateSelectors(selectorList, this);
-
+                selectorCache.put(selectors, selectorList);
             }
             return selectorList;
         }
@@ -1806,9 +2039,9 @@ public abstract class DomNode implements Cloneable, Serializable, Node {
      */
     @SuppressWarnings("unchecked")
     public <N extends DomNode> N querySelector(final String selectors) {
-        final DomNodeList<DomNode> list = querySelectorAll(selectors);
-        if (!list.isEmpty()) {
-            return (N) list.get(0);
+        final Iterator<DomNode> iterator = querySelectorIterator(selectors, true);
+        if (iterator.hasNext()) {
+            return (N) iterator.next();
         }
         return null;
     }
@@ -677,11 +677,7 @@ public class HtmlImage extends HtmlElement {
                 if (!(browser.hasFeature(HTMLIMAGE_BLANK_SRC_AS_EMPTY)
                         && StringUtils.isBlank(src))) {
                     final URL url = page.getFullyQualifiedUrl(src);
-                    final WebRequest request = new WebRequest(url, browser.getImgAcceptHeader(),
-                                                                    browser.getAcceptEncodingHeader());
-                    request.setCharset(page.getCharset());
-                    request.setRefererHeader(page.getUrl());
-                    imageWebResponse_ = webClient.loadWebResponse(request);
+                    imageWebResponse_ = webClient.loadWebResponse(createWebRequest(page, url));
                 }
             }
 
@@ -695,13 +691,28 @@ public class HtmlImage extends HtmlElement {
         }
     }
 
+    /**
+     * Creates the request used to download an image.
+     * @param page the page
+     * @param url the url of the image
+     * @return the request
+     */
+    static WebRequest createWebRequest(final HtmlPage page, final URL url) {
+        final BrowserVersion browser = page.getWebClient().getBrowserVersion();
+        final WebRequest request = new WebRequest(url, browser.getImgAcceptHeader(),
+                                                        browser.getAcceptEncodingHeader());
+        request.setCharset(page.getCharset());
+        request.setRefererHeader(page.getUrl());
+        return request;
+    }
+
     private void readImageIfNeeded() throws IOException {
         downloadImageIfNeeded();
         if (imageData_ == null) {
             if (null == imageWebResponse_) {
                 throw new IOException("No image response available (src='" + getSrcAttribute() + "')");
             }
-            imageData_ = Platform.buildImageData(imageWebResponse_.getContentAsStream());
+            imageData_ = Platform.buildImageData(imageWebResponse_.getContentAsByteBuffer());
         }
     }
 
@@ -230,7 +230,16 @@ public class HtmlLink extends HtmlElement {
     public WebRequest getWebRequest() throws MalformedURLException {
         final HtmlPage page = (HtmlPage) getPage();
         final URL url = page.getFullyQualifiedUrl(getHrefAttribute());
+        return createWebRequest(page, url);
+    }
 
+    /**
+     * Creates the request used to download a linked style sheet.
+     * @param page the page
+     * @param url the url of the style sheet
+     * @return the request
+     */
+    static WebRequest createWebRequest(final HtmlPage page, final URL url) {
         final BrowserVersion browser = page.getWebClient().getBrowserVersion();
         final WebRequest request = new WebRequest(url, browser.getCssAcceptHeader(), browser.getAcceptEncodingHeader());
         // use the page encoding even if this is a GET requests
@@ -69,9 +69,12 @@ import org.htmlunit.corejs.javascript.Script;
 import org.htmlunit.corejs.javascript.Scriptable;
 import org.htmlunit.css.ComputedCssStyleDeclaration;
 import org.htmlunit.css.CssStyleSheet;
+import org.htmlunit.css.LayoutBoxCache;
 import org.htmlunit.html.FrameWindow.PageDenied;
 import org.htmlunit.html.impl.SimpleRange;
 import org.htmlunit.html.parser.HTMLParserDOMBuilder;
+import org.htmlunit.html.xpath.TagNameIndex;
+import org.htmlunit.html.xpath.XPathContextCache;
 import org.htmlunit.http.HttpStatus;
 import org.htmlunit.javascript.AbstractJavaScriptEngine;
 import org.htmlunit.javascript.HtmlUnitScriptable;
@@ -83,6 +86,7 @@ import org.htmlunit.javascript.host.event.Event;
 import org.htmlunit.javascript.host.event.EventTarget;
 import org.htmlunit.javascript.host.html.HTMLDocument;
 import org.htmlunit.protocol.javascript.JavaScriptURLConnection;
+import org.htmlunit.util.EncodingSniffer;
 import org.htmlunit.util.MimeType;
 import org.htmlunit.util.SerializableLock;
 import org.htmlunit.util.UrlUtils;
@@ -148,6 +152,7 @@ public class HtmlPage extends SgmlPage {
     private static final Log LOG = LogFactory.getLog(HtmlPage.class);
 
     private static final Comparator<DomElement> DOCUMENT_POSITION_COMPERATOR = new DocumentPositionComparator();
+    private static final int ATTRIBUTE_CHANGES_LOG_SIZE = 32;
 
     private HTMLParserDOMBuilder domBuilder_;
     private transient Charset originalCharset_;
@@ -157,6 +162,11 @@ public class HtmlPage extends SgmlPage {
     private Map<String, SortedSet<DomElement>> nameMap_ = new ConcurrentHashMap<>();
 
     private SortedSet<BaseFrameElement> frameElements_ = new TreeSet<>(DOCUMENT_POSITION_COMPERATOR);
+    // all style and link elements of this page; the links are filtered when used
+    // because the rel attribute might change
+    private Set<HtmlElement> styleSheetOwners_ = new HashSet<>();
+    // styleSheetOwners_ in document order, null if outdated
+    private List<HtmlElement> sortedStyleSheetOwners_;
     private int parserCount_;
     private int snippetParserCount_;
     private int inlineSnippetParserCount_;
@@ -171,6 +181,14 @@ public class HtmlPage extends SgmlPage {
     private List<SimpleRange> selectionRanges_ = new ArrayList<>(3);
 
     private transient ComputedStylesCache computedStylesCache_;
+    private transient LayoutBoxCache layoutBoxCache_;
+    private transient int styleModificationCount_;
+    private transient XPathContextCache xpathContextCache_;
+    private transient TagNameIndex tagNameIndex_;
+
+    // the latest attribute changes, used by live collections to decide if their cache is still valid
+    private transient HtmlAttributeChangeEvent[] attributeChangesLog_;
+    private long attributeChangesCount_;
 
     private static final HashSet<String> TABBABLE_TAGS =
             new HashSet<>(Arrays.asList(HtmlAnchor.TAG_NAME, HtmlArea.TAG_NAME,
@@ -1037,20 +1055,13 @@ public class HtmlPage extends SgmlPage {
     }
 
     /**
-     * Loads JavaScript from the specified URL. This method may return {@code null} if
-     * there is a problem loading the code from the specified URL.
+     * Creates the request used to download an external script.
      *
      * @param url the URL of the script
      * @param scriptCharset the charset from the script tag
-     * @return the content of the file, or {@code null} if we ran into a compile error
-     * @throws IOException if there is a problem downloading the JavaScript file
-     * @throws FailingHttpStatusCodeException if the request's status code indicates a request
-     *         failure and the {@link WebClient} was configured to throw exceptions on failing
-     *         HTTP status codes
+     * @return the request
      */
-    private Object loadJavaScriptFromUrl(final URL url, final Charset scriptCharset) throws IOException,
-        FailingHttpStatusCodeException {
-
+    private WebRequest createScriptRequest(final URL url, final Charset scriptCharset) {
         final WebRequest referringRequest = getWebResponse().getWebRequest();
 
         final WebClient client = getWebClient();
@@ -1075,6 +1086,26 @@ public class HtmlPage extends SgmlPage {
         else {
             request.setDefaultResponseContentCharset(StandardCharsets.UTF_8);
         }
+        return request;
+    }
+
+    /**
+     * Loads JavaScript from the specified URL. This method may return {@code null} if
+     * there is a problem loading the code from the specified URL.
+     *
+     * @param url the URL of the script
+     * @param scriptCharset the charset from the script tag
+     * @return the content of the file, or {@code null} if we ran into a compile error
+     * @throws IOException if there is a problem downloading the JavaScript file
+     * @throws FailingHttpStatusCodeException if the request's status code indicates a request
+     *         failure and the {@link WebClient} was configured to throw exceptions on failing
+     *         HTTP status codes
+     */
+    private Object loadJavaScriptFromUrl(final URL url, final Charset scriptCharset) throws IOException,
+        FailingHttpStatusCodeException {
+
+        final WebClient client = getWebClient();
+        final WebRequest request = createScriptRequest(url, scriptCharset);
 
         // our cache is a bit strange;
         // loadWebResponse check the cache for the web response
@@ -1742,16 +1773,25 @@ public class HtmlPage extends SgmlPage {
             if (node instanceof BaseFrameElement) {
                 frameElements_.add((BaseFrameElement) node);
             }
-            for (final HtmlElement child : node.getHtmlElementDescendants()) {
-                if (child instanceof BaseFrameElement) {
-                    frameElements_.add((BaseFrameElement) child);
-                }
+            else if (node instanceof HtmlStyle || node instanceof HtmlLink) {
+                addStyleSheetOwner((HtmlElement) node);
             }
 
             if ("base".equals(node.getNodeName())) {
                 calculateBase();
             }
         }
+
+        // the added node might be no element (e.g. a non html element or a fragment)
+        // but still contain frames or style sheets
+        for (final HtmlElement child : node.getHtmlElementDescendants()) {
+            if (child instanceof BaseFrameElement) {
+                frameElements_.add((BaseFrameElement) child);
+            }
+            else if (child instanceof HtmlStyle || child instanceof HtmlLink) {
+                addStyleSheetOwner(child);
+            }
+        }
         node.onAddedToPage();
     }
 
@@ -1767,16 +1807,40 @@ public class HtmlPage extends SgmlPage {
             if (node instanceof BaseFrameElement) {
                 frameElements_.remove(node);
             }
-            for (final HtmlElement child : node.getHtmlElementDescendants()) {
-                if (child instanceof BaseFrameElement) {
-                    frameElements_.remove(child);
-                }
+            else if (node instanceof HtmlStyle || node instanceof HtmlLink) {
+                removeStyleSheetOwner((HtmlElement) node);
             }
 
             if ("base".equals(node.getNodeName())) {
                 calculateBase();
             }
         }
+
+        // same as in notifyNodeAdded()
+        for (final HtmlElement child : node.getHtmlElementDescendants()) {
+            if (child instanceof BaseFrameElement) {
+                frameElements_.remove(child);
+            }
+            else if (child instanceof HtmlStyle || child instanceof HtmlLink) {
+                removeStyleSheetOwner(child);
+            }
+        }
+    }
+
+    private void addStyleSheetOwner(final HtmlElement element) {
+        if (styleSheetOwners_.add(element)) {
+            sortedStyleSheetOwners_ = null;
+            // the style might be a descendant of the added node
+            clearComputedStyles();
+        }
+    }
+
+    private void removeStyleSheetOwner(final HtmlElement element) {
+        if (styleSheetOwners_.remove(element)) {
+            sortedStyleSheetOwners_ = null;
+            // the style might be a descendant of the removed node
+            clearComputedStyles();
+        }
     }
 
     /**
@@ -1963,6 +2027,8 @@ public class HtmlPage extends SgmlPage {
     public HtmlPage cloneNode(final boolean deep) {
         // we need the ScriptObject clone before cloning the kids.
         final HtmlPage result = (HtmlPage) super.cloneNode(false);
+        result.xpathContextCache_ = null;
+        result.tagNameIndex_ = null;
         if (getWebClient().isJavaScriptEnabled()) {
             final HtmlUnitScriptable jsObjClone = getScriptableObject().clone();
             jsObjClone.setDomNode(result);
@@ -1979,6 +2045,8 @@ public class HtmlPage extends SgmlPage {
             // the original one is synchronized so we should do that here too, shouldn't we?
             result.afterLoadActions_ = Collections.synchronizedList(new ArrayList<>());
             result.frameElements_ = new TreeSet<>(DOCUMENT_POSITION_COMPERATOR);
+            result.styleSheetOwners_ = new HashSet<>();
+            result.sortedStyleSheetOwners_ = null;
             for (DomNode child = getFirstChild(); child != null; child = child.getNextSibling()) {
                 result.appendChild(child.cloneNode(true));
             }
@@ -2025,6 +2093,8 @@ public class HtmlPage extends SgmlPage {
      * @param event the event to fire
      */
     void fireHtmlAttributeAdded(final HtmlAttributeChangeEvent event) {
+        logAttributeChange(event);
+
         final List<HtmlAttributeChangeListener> listeners = safeGetAttributeListeners();
         if (listeners != null) {
             for (final HtmlAttributeChangeListener listener : listeners) {
@@ -2038,6 +2108,8 @@ public class HtmlPage extends SgmlPage {
      * @param event the event to fire
      */
     void fireHtmlAttributeReplaced(final HtmlAttributeChangeEvent event) {
+        logAttributeChange(event);
+
         final List<HtmlAttributeChangeListener> listeners = safeGetAttributeListeners();
         if (listeners != null) {
             for (final HtmlAttributeChangeListener listener : listeners) {
@@ -2051,6 +2123,8 @@ public class HtmlPage extends SgmlPage {
      * @param event the event to fire
      */
     void fireHtmlAttributeRemoved(final HtmlAttributeChangeEvent event) {
+        logAttributeChange(event);
+
         final List<HtmlAttributeChangeListener> listeners = safeGetAttributeListeners();
         if (listeners != null) {
             for (final HtmlAttributeChangeListener listener : listeners) {
@@ -2059,6 +2133,54 @@ public class HtmlPage extends SgmlPage {
         }
     }
 
+    private void logAttributeChange(final HtmlAttributeChangeEvent event) {
+        synchronized (lock_) {
+            if (attributeChangesLog_ == null) {
+                attributeChangesLog_ = new HtmlAttributeChangeEvent[ATTRIBUTE_CHANGES_LOG_SIZE];
+            }
+            attributeChangesLog_[(int) (attributeChangesCount_ % ATTRIBUTE_CHANGES_LOG_SIZE)] = event;
+            attributeChangesCount_++;
+        }
+    }
+
+    /**
+     * <span style="color:red">INTERNAL API - SUBJECT TO CHANGE AT ANY TIME - USE AT YOUR OWN RISK.</span><br>
+     *
+     * @return the number of attribute changes of the elements of this page so far
+     */
+    public long getAttributeChangesCount() {
+        synchronized (lock_) {
+            return attributeChangesCount_;
+        }
+    }
+
+    /**
+     * <span style="color:red">INTERNAL API - SUBJECT TO CHANGE AT ANY TIME - USE AT YOUR OWN RISK.</span><br>
+     *
+     * Returns the attribute changes done after the specified one. Only the latest changes are kept;
+     * if some of the requested changes are not available anymore {@code null} is returned.
+     *
+     * @param attributeChangesCount the value of {@link #getAttributeChangesCount()} to start with
+     * @return the attribute change events (in the order they happened) or {@code null}
+     */
+    public List<HtmlAttributeChangeEvent> getAttributeChangesSince(final long attributeChangesCount) {
+        synchronized (lock_) {
+            if (attributeChangesCount == attributeChangesCount_) {
+                return Collections.emptyList();
+            }
+            if (attributeChangesLog_ == null
+                    || attributeChangesCount < attributeChangesCount_ - ATTRIBUTE_CHANGES_LOG_SIZE) {
+                return null;
+            }
+            final List<HtmlAttributeChangeEvent> events =
+                    new ArrayList<>((int) (attributeChangesCount_ - attributeChangesCount));
+            for (long i = attributeChangesCount; i < attributeChangesCount_; i++) {
+                events.add(attributeChangesLog_[(int) (i % ATTRIBUTE_CHANGES_LOG_SIZE)]);
+            }
+            return events;
+        }
+    }
+
     private List<HtmlAttributeChangeListener> safeGetAttributeListeners() {
         synchronized (lock_) {
             if (attributeListeners_ != null) {
@@ -2100,6 +2222,88 @@ public class HtmlPage extends SgmlPage {
         return parserCount_ > 0;
     }
 
+    /**
+     * <span style="color:red">INTERNAL API - SUBJECT TO CHANGE AT ANY TIME - USE AT YOUR OWN RISK.</span><br>
+     *
+     * Called by the HTML parser before the parsing starts. Scans the source for external scripts,
+     * style sheets and images and starts downloading them in the background; the responses are
+     * picked up (in document order) when the parser reaches the elements.
+     *
+     * @param source the html source of this page
+     * @see WebClientOptions#setPrefetchSubresources(boolean)
+     */
+    public void prefetchSubresources(final String source) {
+        final WebClient client = getWebClient();
+        final WebClientOptions options = client.getOptions();
+        final boolean scripts = client.isJavaScriptEnabled();
+        final boolean styleSheets = options.isCssEnabled() && client.isJavaScriptEngineEnabled();
+        final boolean images = options.isDownloadImages();
+        if (!scripts && !styleSheets && !images) {
+            return;
+        }
+
+        final PreloadScanner scanner = new PreloadScanner(source);
+        final List<PreloadScanner.Resource> resources = scanner.scan();
+        if (resources.isEmpty()) {
+            return;
+        }
+
+        URL baseUrl = getUrl();
+        if (scanner.getBaseHref() != null) {
+            try {
+                baseUrl = WebClient.expandUrl(baseUrl, scanner.getBaseHref());
+            }
+            catch (final MalformedURLException e) {
+                // the parser will report this
+                return;
+            }
+        }
+
+        for (final PreloadScanner.Resource resource : resources) {
+            try {
+                final URL url = WebClient.expandUrl(baseUrl, resource.getUrl());
+                final String type = StringUtils.trimToEmpty(resource.getAttribute("type")).toLowerCase(Locale.ROOT);
+                final WebRequest request;
+                switch (resource.getType()) {
+                    case SCRIPT:
+                        if (!scripts || !(type.isEmpty() || MimeType.isJavascriptMimeType(type))) {
+                            continue;
+                        }
+                        Charset charset = EncodingSniffer.toCharset(resource.getAttribute("charset"));
+                        if (charset == null) {
+                            charset = getCharset();
+                        }
+                        request = createScriptRequest(url, charset);
+                        break;
+
+                    case STYLESHEET:
+                        if (!styleSheets || !(type.isEmpty() || MimeType.TEXT_CSS.equals(type))) {
+                            continue;
+                        }
+                        // has to be in sync with CssStyleSheet.loadStylesheet()
+                        request = HtmlLink.createWebRequest(this, url);
+                        if (request.getCharset() != null) {
+                            request.setDefaultResponseContentCharset(request.getCharset());
+                        }
+                        else {
+                            request.setDefaultResponseContentCharset(StandardCharsets.UTF_8);
+                        }
+                        break;
+
+                    default:
+                        if (!images) {
+                            continue;
+                        }
+                        request = HtmlImage.createWebRequest(this, url);
+                }
+                client.prefetchWebResponse(request);
+            }
+            catch (final MalformedURLException e) {
+                // the parser will report this
+            }
+        }
+    }
+
     /**
      * <span style="color:red">INTERNAL API - SUBJECT TO CHANGE AT ANY TIME - USE AT YOUR OWN RISK.</span><br>
      *
@@ -2591,6 +2795,7 @@ public class HtmlPage extends SgmlPage {
         if (computedStylesCache_ != null) {
             computedStylesCache_.clear();
         }
+        invalidateLayout();
     }
 
     /**
@@ -2601,6 +2806,7 @@ public class HtmlPage extends SgmlPage {
         if (computedStylesCache_ != null) {
             computedStylesCache_.remove(element);
         }
+        invalidateLayout();
     }
 
     /**
@@ -2617,6 +2823,67 @@ public class HtmlPage extends SgmlPage {
                 parent = parent.getParentNode();
             }
         }
+        invalidateLayout();
+    }
+
+    /**
+     * <span style="color:red">INTERNAL API - SUBJECT TO CHANGE AT ANY TIME - USE AT YOUR OWN RISK.</span><br>
+     *
+     * @return the cache for the layout values of the elements of this page
+     */
+    public LayoutBoxCache getLayoutBoxCache() {
+        if (layoutBoxCache_ == null) {
+            // make sure the listener for DOM changes is in place
+            getCssPropertiesCache();
+
+            layoutBoxCache_ = new LayoutBoxCache();
+            addCharacterDataChangeListener(event -> invalidateLayout());
+        }
+        return layoutBoxCache_;
+    }
+
+    /**
+     * <span style="color:red">INTERNAL API - SUBJECT TO CHANGE AT ANY TIME - USE AT YOUR OWN RISK.</span><br>
+     *
+     * @return the XPath context shared by the XPath evaluations on this page
+     */
+    public XPathContextCache getXPathContextCache() {
+        if (xpathContextCache_ == null) {
+            xpathContextCache_ = new XPathContextCache(this);
+        }
+        return xpathContextCache_;
+    }
+
+    /**
+     * <span style="color:red">INTERNAL API - SUBJECT TO CHANGE AT ANY TIME - USE AT YOUR OWN RISK.</span><br>
+     *
+     * @return the index of the elements of this page by tag name
+     */
+    public TagNameIndex getTagNameIndex() {
+        if (tagNameIndex_ == null) {
+            tagNameIndex_ = new TagNameIndex(this);
+        }
+        return tagNameIndex_;
+    }
+
+    private void invalidateLayout() {
+        styleModificationCount_++;
+        if (layoutBoxCache_ != null) {
+            layoutBoxCache_.invalidate();
+        }
+    }
+
+    /**
+     * <span style="color:red">INTERNAL API - SUBJECT TO CHANGE AT ANY TIME - USE AT YOUR OWN RISK.</span><br>
+     *
+     * Returns a counter that changes whenever the computed styles or the layout of the page
+     * might have changed. Computed styles held outside of the page cache (e.g. by scripts)
+     * compare this value to find out if their cached values are stale.
+     *
+     * @return the style modification count
+     */
+    public int getStyleModificationCount() {
+        return styleModificationCount_;
     }
 
     /**
@@ -2644,6 +2911,46 @@ public class HtmlPage extends SgmlPage {
         getCssPropertiesCache().put(element, normalizedPseudo, style);
     }
 
+    /**
+     * <span style="color:red">INTERNAL API - SUBJECT TO CHANGE AT ANY TIME - USE AT YOUR OWN RISK.</span><br>
+     *
+     * @return the number of DOM changes processed by the computed styles cache
+     */
+    public long getComputedStylesInvalidationCount() {
+        final ComputedStylesCache cache = computedStylesCache_;
+        return cache == null ? 0 : cache.invalidationCount_;
+    }
+
+    /**
+     * <span style="color:red">INTERNAL API - SUBJECT TO CHANGE AT ANY TIME - USE AT YOUR OWN RISK.</span><br>
+     *
+     * @return the number of computed styles removed from the cache because of DOM changes
+     */
+    public long getComputedStylesEvictionCount() {
+        final ComputedStylesCache cache = computedStylesCache_;
+        return cache == null ? 0 : cache.evictionCount_;
+    }
+
+    /**
+     * <span style="color:red">INTERNAL API - SUBJECT TO CHANGE AT ANY TIME - USE AT YOUR OWN RISK.</span><br>
+     *
+     * @return the number of times all computed styles were removed from the cache
+     */
+    public long getComputedStylesClearCount() {
+        final ComputedStylesCache cache = computedStylesCache_;
+        return cache == null ? 0 : cache.clearCount_;
+    }
+
+    /**
+     * <span style="color:red">INTERNAL API - SUBJECT TO CHANGE AT ANY TIME - USE AT YOUR OWN RISK.</span><br>
+     *
+     * @return the number of computed styles calculated and stored in the cache
+     */
+    public long getComputedStylesRebuildCount() {
+        final ComputedStylesCache cache = computedStylesCache_;
+        return cache == null ? 0 : cache.rebuildCount_;
+    }
+
     /**
      * <span style="color:red">INTERNAL API - SUBJECT TO CHANGE AT ANY TIME - USE AT YOUR OWN RISK.</span><br>
      *
@@ -2653,7 +2960,14 @@ public class HtmlPage extends SgmlPage {
     public List<CssStyleSheet> getStyleSheets() {
         final List<CssStyleSheet> styles = new ArrayList<>();
         if (getWebClient().getOptions().isCssEnabled()) {
-            for (final HtmlElement htmlElement : getHtmlElementDescendants()) {
+            List<HtmlElement> owners = sortedStyleSheetOwners_;
+            if (owners == null) {
+                owners = new ArrayList<>(styleSheetOwners_);
+                owners.sort(DOCUMENT_POSITION_COMPERATOR);
+                sortedStyleSheetOwners_ = owners;
+            }
+
+            for (final HtmlElement htmlElement : owners) {
                 if (htmlElement instanceof HtmlStyle) {
                     styles.add(((HtmlStyle) htmlElement).getSheet());
                     continue;
@@ -2733,7 +3047,7 @@ public class HtmlPage extends SgmlPage {
          */
         @Override
         public void nodeAdded(final DomChangeEvent event) {
-            nodeChanged(event.getChangedNode(), null);
+            nodeChanged(event.getChangedNode(), event.getParentNode(), null);
         }
 
         /**
@@ -2741,7 +3055,8 @@ public class HtmlPage extends SgmlPage {
          */
         @Override
         public void nodeDeleted(final DomChangeEvent event) {
-            nodeChanged(event.getChangedNode(), null);
+            // the node is already detached, the event knows the former parent
+            nodeChanged(event.getChangedNode(), event.getParentNode(), null);
         }
 
         /**
@@ -2749,7 +3064,8 @@ public class HtmlPage extends SgmlPage {
          */
         @Override
         public void attributeAdded(final HtmlAttributeChangeEvent event) {
-            nodeChanged(event.getHtmlElement(), event.getName());
+            final HtmlElement element = event.getHtmlElement();
+            nodeChanged(element, element.getParentNode(), event.getName());
         }
 
         /**
@@ -2757,7 +3073,8 @@ public class HtmlPage extends SgmlPage {
          */
         @Override
         public void attributeRemoved(final HtmlAttributeChangeEvent event) {
-            nodeChanged(event.getHtmlElement(), event.getName());
+            final HtmlElement element = event.getHtmlElement();
+            nodeChanged(element, element.getParentNode(), event.getName());
         }
 
         /**
@@ -2765,10 +3082,14 @@ public class HtmlPage extends SgmlPage {
          */
         @Override
         public void attributeReplaced(final HtmlAttributeChangeEvent event) {
-            nodeChanged(event.getHtmlElement(), event.getName());
+            final HtmlElement element = event.getHtmlElement();
+            nodeChanged(element, element.getParentNode(), event.getName());
         }
 
-        private void nodeChanged(final DomNode changedNode, final String attribName) {
+        private void nodeChanged(final DomNode changedNode, final DomNode parent, final String attribName) {
+            // the layout of all nodes might depend on this node
+            invalidateLayout();
+
             // If a stylesheet was changed, all of our calculations could be off; clear the cache.
             if (changedNode instanceof HtmlStyle) {
                 clearComputedStyles();
@@ -2784,7 +3105,7 @@ public class HtmlPage extends SgmlPage {
             // Apparently it wasn't a stylesheet that changed; be semi-smart about what we evict and when.
             final boolean clearParents = ATTRIBUTES_AFFECTING_PARENT.contains(attribName);
             if (computedStylesCache_ != null) {
-                computedStylesCache_.nodeChanged(changedNode, clearParents);
+                computedStylesCache_.nodeChanged(changedNode, parent, attribName != null, clearParents);
             }
         }
     }
@@ -2798,6 +3119,12 @@ public class HtmlPage extends SgmlPage {
         private transient WeakHashMap<DomElement, Map<String, ComputedCssStyleDeclaration>>
                     computedStyles_ = new WeakHashMap<>();
 
+        // only modified while holding the lock
+        private volatile long invalidationCount_;
+        private volatile long evictionCount_;
+        private volatile long clearCount_;
+        private volatile long rebuildCount_;
+
         /**
          * Ctor.
          */
@@ -2819,53 +3146,79 @@ public class HtmlPage extends SgmlPage {
             final Map<String, ComputedCssStyleDeclaration>
                     elementMap = computedStyles_.computeIfAbsent(element, k -> new WeakHashMap<>());
             elementMap.put(normalizedPseudo, style);
+            rebuildCount_++;
         }
 
-        public synchronized void nodeChanged(final DomNode changed, final boolean clearParents) {
-            final Iterator<Map.Entry<DomElement, Map<String, ComputedCssStyleDeclaration>>>
-                    i = computedStyles_.entrySet().iterator();
-            while (i.hasNext()) {
-                final Map.Entry<DomElement, Map<String, ComputedCssStyleDeclaration>> entry = i.next();
-                final DomElement node = entry.getKey();
-                if (changed == node
-                    || changed.getParentNode() == node.getParentNode()
-                    || changed.isAncestorOf(node)
-                    || clearParents && node.isAncestorOf(changed)) {
-                    i.remove();
+        /**
+         * Removes the styles that might be affected by a change of the given node.
+         * These are the styles of the node itself, of its descendants, of its siblings
+         * (only the following ones if only an attribute was changed, because sibling
+         * combinators look backwards only), of its parent if the structure was changed
+         * and - if requested - of its ancestors.
+         * Only these nodes are looked up; the cache is only scanned as a whole if the
+         * subtree of the node is larger than the cache.
+         *
+         * @param changed the changed node
+         * @param parent the parent of the node (the former one if the node was removed)
+         * @param attributeChanged true if only an attribute of the node was changed
+         * @param clearParents whether to remove the styles of the ancestors also
+         */
+        public synchronized void nodeChanged(final DomNode changed, final DomNode parent,
+                final boolean attributeChanged, final boolean clearParents) {
+            invalidationCount_++;
+            if (computedStyles_.isEmpty()) {
+                return;
+            }
+
+            evict(changed);
+
+            final int limit = computedStyles_.size();
+            int visited = 0;
+            for (final DomNode descendant : changed.getDescendants()) {
+                visited++;
+                if (visited > limit) {
+                    final Iterator<DomElement> i = computedStyles_.keySet().iterator();
+                    while (i.hasNext()) {
+                        if (changed.isAncestorOf(i.next())) {
+                            i.remove();
+                            evictionCount_++;
+                        }
+                    }
+                    break;
                 }
+                evict(descendant);
             }
 
-            // maybe this is a better solution but i have to think a bit more about this
-            //
-            //            if (computedStyles_.isEmpty()) {
-            //                return;
-            //            }
-            //
-            //            // remove all siblings
-            //            DomNode parent = changed.getParentNode();
-            //            if (parent != null) {
-            //                for (DomNode sibling : parent.getChildNodes()) {
-            //                    computedStyles_.remove(sibling.getScriptableObject());
-            //                }
-            //
-            //                if (clearParents) {
-            //                    // remove all parents
-            //                    while (parent != null) {
-            //                        computedStyles_.remove(parent.getScriptableObject());
-            //                        parent = parent.getParentNode();
-            //                    }
-            //                }
-            //            }
-            //
-            //            // remove changed itself and all descendants
-            //            computedStyles_.remove(changed.getScriptableObject());
-            //            for (DomNode descendant : changed.getDescendants()) {
-            //                computedStyles_.remove(descendant.getScriptableObject());
-            //            }
+            if (parent != null) {
+                DomNode sibling = attributeChanged ? changed.getNextSibling() : parent.getFirstChild();
+                while (sibling != null) {
+                    evict(sibling);
+                    sibling = sibling.getNextSibling();
+                }
+
+                if (!attributeChanged) {
+                    // e.g. :empty
+                    evict(parent);
+                }
+                if (clearParents) {
+                    for (DomNode ancestor = parent; ancestor != null; ancestor = ancestor.getParentNode()) {
+                        evict(ancestor);
+                    }
+                }
+            }
+        }
+
+        private void evict(final DomNode node) {
+            if (computedStyles_.remove(node) != null) {
+                evictionCount_++;
+            }
         }
 
         public synchronized void clear() {
-            computedStyles_.clear();
+            if (!computedStyles_.isEmpty()) {
+                clearCount_++;
+                computedStyles_.clear();
+            }
         }
 
         public synchronized Map<String, ComputedCssStyleDeclaration> remove(
@@ -0,0 +1,290 @@
+/*
+ * Copyright (c) 2002-2024 Gargoyle Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.htmlunit.html;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.apache.commons.text.StringEscapeUtils;
+
+/**
+ * A simple and fast scanner that looks for the external resources
+ * (scripts, style sheets and images) referenced by a html source.
+ * This is only a speculation, the parser has the final word; resources
+ * found here might not be used at all (e.g. inside a conditional comment)
+ * and resources added by scripts are not found.
+ *
+ * @author agent <agent@local>
+ */
+final class PreloadScanner {
+
+    /** The type of a resource. */
+    enum ResourceType {
+        /** Script. */
+        SCRIPT,
+        /** Style sheet. */
+        STYLESHEET,
+        /** Image. */
+        IMAGE
+    }
+
+    /**
+     * A resource found by the scanner.
+     */
+    static final class Resource {
+        private final ResourceType type_;
+        private final String url_;
+        private final Map<String, String> attributes_;
+
+        Resource(final ResourceType type, final String url, final Map<String, String> attributes) {
+            type_ = type;
+            url_ = url;
+            attributes_ = attributes;
+        }
+
+        /**
+         * @return the type
+         */
+        ResourceType getType() {
+            return type_;
+        }
+
+        /**
+         * @return the (not resolved) url
+         */
+        String getUrl() {
+            return url_;
+        }
+
+        /**
+         * @param name the lower case attribute name
+         * @return the attribute value or {@code null}
+         */
+        String getAttribute(final String name) {
+            return attributes_.get(name);
+        }
+    }
+
+    private final String source_;
+    private int pos_;
+    private String baseHref_;
+
+    /**
+     * Ctor.
+     * @param source the html source
+     */
+    PreloadScanner(final String source) {
+        source_ = source;
+    }
+
+    /**
+     * Scans the source.
+     * @return the resources in document order
+     */
+    List<Resource> scan() {
+        final List<Resource> resources = new ArrayList<>();
+        pos_ = 0;
+        scan(resources);
+        return resources;
+    }
+
+    /**
+     * @return the href of the first base tag or {@code null}
+     */
+    String getBaseHref() {
+        return baseHref_;
+    }
+
+    private void scan(final List<Resource> resources) {
+        final int length = source_.length();
+        while (pos_ < length) {
+            final int lt = source_.indexOf('<', pos_);
+            if (lt == -1) {
+                return;
+            }
+
+            if (source_.startsWith("<!--", lt)) {
+                final int end = source_.indexOf("-->", lt + 4);
+                if (end == -1) {
+                    return;
+                }
+                pos_ = end + 3;
+                continue;
+            }
+
+            pos_ = lt + 1;
+            final String tagName = readName();
+            if (tagName.isEmpty()) {
+                continue;
+            }
+            final Map<String, String> attributes = readAttributes();
+            if (attributes == null) {
+                // unclosed tag at the end
+                return;
+            }
+
+            switch (tagName) {
+                case "base":
+                    if (baseHref_ == null) {
+                        baseHref_ = attributes.get("href");
+                    }
+                    break;
+
+                case "script":
+                    addResource(resources, ResourceType.SCRIPT, attributes.get("src"), attributes);
+                    skipRawText(tagName);
+                    break;
+
+                case "link":
+                    final String rel = attributes.get("rel");
+                    if (rel != null
+                            && (" " + rel.toLowerCase(Locale.ROOT).replaceAll("\\s+", " ") + " ")
+                                    .contains(" stylesheet ")) {
+                        addResource(resources, ResourceType.STYLESHEET, attributes.get("href"), attributes);
+                    }
+                    break;
+
+                case "img":
+                    addResource(resources, ResourceType.IMAGE, attributes.get("src"), attributes);
+                    break;
+
+                case "style":
+                case "textarea":
+                case "title":
+                case "xmp":
+                case "noscript":
+                case "template":
+                    skipRawText(tagName);
+                    break;
+
+                default:
+            }
+        }
+    }
+
+    private static void addResource(final List<Resource> resources, final ResourceType type,
+            final String url, final Map<String, String> attributes) {
+        if (url != null && !url.trim().isEmpty()) {
+            resources.add(new Resource(type, url.trim(), attributes));
+        }
+    }
+
+    private String readName() {
+        final int start = pos_;
+        final int length = source_.length();
+        while (pos_ < length) {
+            final char c = source_.charAt(pos_);
+            if (Character.isWhitespace(c) || c == '>' || c == '/' || c == '=' || c == '<') {
+                break;
+            }
+            pos_++;
+        }
+        return source_.substring(start, pos_).toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Reads the attributes up to the end of the tag.
+     * @return the attributes or {@code null} if the end of the source is reached
+     */
+    private Map<String, String> readAttributes() {
+        final Map<String, String> attributes = new HashMap<>();
+        final int length = source_.length();
+        while (pos_ < length) {
+            final char c = source_.charAt(pos_);
+            if (c == '>') {
+                pos_++;
+                return attributes;
+            }
+            if (Character.isWhitespace(c) || c == '/') {
+                pos_++;
+                continue;
+            }
+
+            final String name = readName();
+            if (name.isEmpty()) {
+                // something like '<' or '='
+                pos_++;
+                continue;
+            }
+            skipWhitespace();
+
+            String value = "";
+            if (pos_ < length && source_.charAt(pos_) == '=') {
+                pos_++;
+                skipWhitespace();
+                value = readValue();
+            }
+            attributes.putIfAbsent(name, value);
+        }
+        return null;
+    }
+
+    private String readValue() {
+        final int length = source_.length();
+        if (pos_ >= length) {
+            return "";
+        }
+
+        final char quote = source_.charAt(pos_);
+        final int start;
+        final int end;
+        if (quote == '"' || quote == '\'') {
+            start = pos_ + 1;
+            final int close = source_.indexOf(quote, start);
+            end = close == -1 ? length : close;
+            pos_ = close == -1 ? length : close + 1;
+        }
+        else {
+            start = pos_;
+            while (pos_ < length) {
+                final char c = source_.charAt(pos_);
+                if (Character.isWhitespace(c) || c == '>') {
+                    break;
+                }
+                pos_++;
+            }
+            end = pos_;
+        }
+
+        final String value = source_.substring(start, end);
+        if (value.indexOf('&') == -1) {
+            return value;
+        }
+        return StringEscapeUtils.unescapeHtml4(value);
+    }
+
+    private void skipWhitespace() {
+        final int length = source_.length();
+        while (pos_ < length && Character.isWhitespace(source_.charAt(pos_))) {
+            pos_++;
+        }
+    }
+
+    private void skipRawText(final String tagName) {
+        final String endTag = "</" + tagName;
+        final int length = source_.length();
+        final int endLength = endTag.length();
+        for (int i = pos_; i + endLength <= length; i++) {
+            if (source_.charAt(i) == '<' && source_.regionMatches(true, i, endTag, 0, endLength)) {
+                pos_ = i;
+                return;
+            }
+        }
+        pos_ = length;
+    }
+}
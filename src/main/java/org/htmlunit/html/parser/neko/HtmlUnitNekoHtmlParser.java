@@ -186,6 +186,10 @@ public final class HtmlUnitNekoHtmlParser implements HTMLParser {
             throw new ObjectInstantiationException("Error setting HTML parser feature", e);
         }
 
+        if (!xhtml && !createdByJavascript && page.getWebClient().getOptions().isPrefetchSubresources()) {
+            page.prefetchSubresources(webResponse.getContentAsString(charset));
+        }
+
         try (InputStream content = webResponse.getContentAsStream()) {
             final String encoding = charset.name();
             final XMLInputSource in = new XMLInputSource(null, url.toString(), null, content, encoding);
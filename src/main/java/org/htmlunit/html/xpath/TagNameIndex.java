@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2002-2024 Gargoyle Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.htmlunit.html.xpath;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.htmlunit.html.DomElement;
+import org.htmlunit.html.DomNode;
+import org.htmlunit.html.Html;
+
+/**
+ * <span style="color:red">INTERNAL API - SUBJECT TO CHANGE AT ANY TIME - USE AT YOUR OWN RISK.</span><br>
+ *
+ * Index of the elements of a page by their lowercase tag name; every list is in document order.
+ * Only elements of the HTML namespace (or without namespace) are indexed by name.
+ *
+ * Keeping the lists in document order while the DOM is modified is expensive; therefore
+ * the index is rebuilt (with one walk over the DOM) on first access after a structural change.
+ *
+ * @author agent <agent@local>
+ */
+public final class TagNameIndex {
+
+    private final DomNode root_;
+    private int modificationCount_;
+    private List<DomElement> elements_;
+    private Map<String, List<DomElement>> elementsByName_;
+    private boolean foreignElements_;
+
+    /**
+     * Ctor.
+     * @param root the root of the indexed subtree
+     */
+    public TagNameIndex(final DomNode root) {
+        root_ = root;
+    }
+
+    /**
+     * @return all elements; the list must not be modified
+     */
+    public synchronized List<DomElement> getElements() {
+        update();
+        return elements_;
+    }
+
+    /**
+     * @param lowercaseName the lowercase tag name
+     * @return the elements of the HTML namespace with the given name; the list must not be modified
+     */
+    public synchronized List<DomElement> getElementsByName(final String lowercaseName) {
+        update();
+        final List<DomElement> elements = elementsByName_.get(lowercaseName);
+        if (elements == null) {
+            return Collections.emptyList();
+        }
+        return elements;
+    }
+
+    /**
+     * @return true if the subtree contains elements that are not part of the HTML namespace (e.g. SVG)
+     */
+    public synchronized boolean hasForeignElements() {
+        update();
+        return foreignElements_;
+    }
+
+    /**
+     * @param element the element
+     * @return true if the element is part of the HTML namespace (or has no namespace)
+     */
+    static boolean isHtmlNamespace(final DomElement element) {
+        final String namespace = element.getNamespaceURI();
+        return namespace == null || Html.XHTML_NAMESPACE.equals(namespace);
+    }
+
+    private void update() {
+        final int modificationCount = root_.getSubtreeModificationCount();
+        if (elements_ != null && modificationCount == modificationCount_) {
+            return;
+        }
+
+        final List<DomElement> elements = new ArrayList<>();
+        final Map<String, List<DomElement>> elementsByName = new HashMap<>();
+        boolean foreignElements = false;
+        for (final DomElement element : root_.getDomElementDescendants()) {
+            elements.add(element);
+            if (isHtmlNamespace(element)) {
+                elementsByName.computeIfAbsent(element.getLowercaseName(), k -> new ArrayList<>()).add(element);
+            }
+            else {
+                foreignElements = true;
+            }
+        }
+
+        for (final Map.Entry<String, List<DomElement>> entry : elementsByName.entrySet()) {
+            entry.setValue(Collections.unmodifiableList(entry.getValue()));
+        }
+        elements_ = Collections.unmodifiableList(elements);
+        elementsByName_ = elementsByName;
+        foreignElements_ = foreignElements;
+        modificationCount_ = modificationCount;
+    }
+}
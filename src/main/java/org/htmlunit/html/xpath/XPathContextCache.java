@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2002-2024 Gargoyle Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.htmlunit.html.xpath;
+
+import org.htmlunit.html.DomNode;
+import org.htmlunit.xpath.XPathContext;
+
+/**
+ * <span style="color:red">INTERNAL API - SUBJECT TO CHANGE AT ANY TIME - USE AT YOUR OWN RISK.</span><br>
+ *
+ * Holds the {@link XPathContext} of a page. The context maps the DOM to the internal
+ * node tables (DTM) of the XPath engine; this mapping is built incrementally and can be
+ * reused by all the XPath evaluations on the page as long as the DOM is not modified.
+ * Any change of the structure or of an attribute discards the context.
+ *
+ * @author agent <agent@local>
+ */
+public final class XPathContextCache {
+
+    private final DomNode root_;
+    private XPathContext xpathContext_;
+    private int modificationCount_;
+    private int attributeModificationCount_;
+    private boolean inUse_;
+
+    /**
+     * Ctor.
+     * @param root the root of all nodes evaluated with this context
+     */
+    public XPathContextCache(final DomNode root) {
+        root_ = root;
+    }
+
+    /**
+     * Returns the context for exclusive use; has to be passed back by calling {@link #release(boolean)}.
+     * @return the context or {@code null} if the context is already in use
+     */
+    synchronized XPathContext acquire() {
+        if (inUse_) {
+            // nested or concurrent evaluation
+            return null;
+        }
+
+        final int modificationCount = root_.getSubtreeModificationCount();
+        final int attributeModificationCount = root_.getSubtreeAttributeModificationCount();
+        if (xpathContext_ == null
+                || modificationCount != modificationCount_
+                || attributeModificationCount != attributeModificationCount_) {
+            xpathContext_ = XPathHelper.createXPathContext();
+            modificationCount_ = modificationCount;
+            attributeModificationCount_ = attributeModificationCount;
+        }
+
+        inUse_ = true;
+        return xpathContext_;
+    }
+
+    /**
+     * Releases the context.
+     * @param reusable false if the context might be in an inconsistent state
+     */
+    synchronized void release(final boolean reusable) {
+        inUse_ = false;
+        if (!reusable) {
+            xpathContext_ = null;
+        }
+    }
+}
@@ -15,17 +15,31 @@
 package org.htmlunit.html.xpath;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import javax.xml.transform.TransformerException;
 
+import org.htmlunit.html.DomElement;
 import org.htmlunit.html.DomNode;
+import org.htmlunit.html.HtmlPage;
+import org.htmlunit.util.LruCache;
 import org.htmlunit.xpath.XPathContext;
 import org.htmlunit.xpath.objects.XBoolean;
 import org.htmlunit.xpath.objects.XNodeSet;
 import org.htmlunit.xpath.objects.XNumber;
 import org.htmlunit.xpath.objects.XObject;
 import org.htmlunit.xpath.objects.XString;
+import org.htmlunit.xpath.xml.dtm.DTM;
 import org.htmlunit.xpath.xml.utils.PrefixResolver;
 import org.w3c.dom.Document;
 import org.w3c.dom.Node;
@@ -40,6 +54,16 @@ import org.w3c.dom.NodeList;
  */
 public final class XPathHelper {
 
+    /** The default max number of cached compiled expressions. */
+    public static final int DEFAULT_CACHE_SIZE = 500;
+
+    /** Compiled expressions. */
+    private static final LruCache<ExpressionKey, CompiledExpression> EXPRESSIONS =
+            new LruCache<>(DEFAULT_CACHE_SIZE);
+    private static final LongAdder COMPILE_COUNT = new LongAdder();
+    private static final LongAdder DTM_BUILD_COUNT = new LongAdder();
+    private static final LongAdder INDEX_QUERY_COUNT = new LongAdder();
+
     private static final ThreadLocal<Boolean> PROCESS_XPATH_ = new ThreadLocal<Boolean>() {
         @Override
         protected synchronized Boolean initialValue() {
@@ -69,6 +93,101 @@ public final class XPathHelper {
             throw new IllegalArgumentException("Null is not a valid XPath expression");
         }
 
+        if (prefixResolver == null) {
+            final List<DomElement> indexed = XPathQueryPlanner.execute(contextNode, xpathExpr);
+            if (indexed != null) {
+                INDEX_QUERY_COUNT.increment();
+                return (List<T>) (List<?>) indexed;
+            }
+        }
+
+        try {
+            final XPathAdapter xpath = getXPathAdapter(contextNode, xpathExpr, prefixResolver);
+            return getByXPath(contextNode, xpath, prefixResolver);
+        }
+        catch (final Exception e) {
+            throw new RuntimeException("Could not retrieve XPath >" + xpathExpr + "< on " + contextNode, e);
+        }
+    }
+
+    /**
+     * Evaluates an XPath expression from the specified node, returning the resultant nodes as
+     * a stream. The nodes are searched while the stream is consumed; short-circuiting operations
+     * like {@code findFirst()} or {@code anyMatch()} save the work for the rest of the document.
+     * The DOM must not be modified while the stream is consumed. The stream should be closed
+     * if not consumed completely (e.g. using try-with-resources), otherwise following
+     * evaluations on the page can't reuse its XPath context.
+     *
+     * @param <T> the type class
+     * @param contextNode the node to start searching from
+     * @param xpathExpr the XPath expression
+     * @param prefixResolver the prefix resolver to use for resolving namespace prefixes, or null
+     * @return the stream of objects found
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> Stream<T> streamByXPath(final DomNode contextNode, final String xpathExpr,
+            final PrefixResolver prefixResolver) {
+        if (xpathExpr == null) {
+            throw new IllegalArgumentException("Null is not a valid XPath expression");
+        }
+
+        if (prefixResolver == null) {
+            final List<DomElement> indexed = XPathQueryPlanner.execute(contextNode, xpathExpr);
+            if (indexed != null) {
+                INDEX_QUERY_COUNT.increment();
+                return (Stream<T>) (Stream<?>) indexed.stream();
+            }
+        }
+
+        final XPathAdapter xpath;
+        try {
+            xpath = getXPathAdapter(contextNode, xpathExpr, prefixResolver);
+        }
+        catch (final Exception e) {
+            throw new RuntimeException("Could not retrieve XPath >" + xpathExpr + "< on " + contextNode, e);
+        }
+
+        XPathContextCache contextCache = getXPathContextCache(contextNode);
+        XPathContext xpathSupport = null;
+        if (contextCache != null) {
+            xpathSupport = contextCache.acquire();
+        }
+        if (xpathSupport == null) {
+            contextCache = null;
+            xpathSupport = createXPathContext();
+        }
+
+        boolean success = false;
+        PROCESS_XPATH_.set(Boolean.TRUE);
+        try {
+            final int ctxtNode = xpathSupport.getDTMHandleFromNode(contextNode);
+            final XObject result = xpath.execute(xpathSupport, ctxtNode, prefixResolver);
+            success = true;
+
+            if (result instanceof XNodeSet) {
+                // from now on the iterator is responsible for releasing the context
+                final NodeSetIterator<T> iterator =
+                        new NodeSetIterator<>((XNodeSet) result, xpathSupport, contextCache);
+                contextCache = null;
+                return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator,
+                                Spliterator.ORDERED | Spliterator.NONNULL), false)
+                        .onClose(iterator::close);
+            }
+            return Stream.of((T) toValue(result));
+        }
+        catch (final Exception e) {
+            throw new RuntimeException("Could not retrieve XPath >" + xpathExpr + "< on " + contextNode, e);
+        }
+        finally {
+            PROCESS_XPATH_.set(Boolean.FALSE);
+            if (contextCache != null) {
+                contextCache.release(success);
+            }
+        }
+    }
+
+    private static XPathAdapter getXPathAdapter(final DomNode contextNode, final String xpathExpr,
+            final PrefixResolver prefixResolver) throws TransformerException {
         PrefixResolver resolver = prefixResolver;
         if (resolver == null) {
             final Node xpathExpressionContext;
@@ -82,23 +201,68 @@ public final class XPathHelper {
             resolver = new HtmlUnitPrefixResolver(xpathExpressionContext);
         }
 
-        try {
-            final boolean caseSensitive = contextNode.getPage().hasCaseSensitiveTagNames();
-            final XPathAdapter xpath = new XPathAdapter(xpathExpr, resolver, caseSensitive);
-            return getByXPath(contextNode, xpath, prefixResolver);
+        final boolean caseSensitive = contextNode.getPage().hasCaseSensitiveTagNames();
+        return getXPathAdapter(xpathExpr, resolver, caseSensitive);
+    }
+
+    /**
+     * Returns the compiled form of the given expression. Compiled expressions are cached; a cached
+     * expression is only reused if the namespace prefixes used by the expression are resolved
+     * to the same namespaces by the given prefix resolver.
+     *
+     * @param xpathExpr the XPath expression
+     * @param prefixResolver the prefix resolver to use for resolving namespace prefixes
+     * @param caseSensitive whether the attributes should be case-sensitive
+     * @return the compiled expression
+     * @throws TransformerException if a syntax or other error occurs
+     */
+    public static XPathAdapter getXPathAdapter(final String xpathExpr, final PrefixResolver prefixResolver,
+            final boolean caseSensitive) throws TransformerException {
+        final ExpressionKey key = new ExpressionKey(xpathExpr, caseSensitive);
+        final CompiledExpression cached = EXPRESSIONS.get(key);
+        if (cached != null && cached.isValidFor(prefixResolver)) {
+            return cached.xpath_;
         }
-        catch (final Exception e) {
-            throw new RuntimeException("Could not retrieve XPath >" + xpathExpr + "< on " + contextNode, e);
+
+        final RecordingPrefixResolver recorder = new RecordingPrefixResolver(prefixResolver);
+        final XPathAdapter xpath = new XPathAdapter(xpathExpr, recorder, caseSensitive);
+        COMPILE_COUNT.increment();
+
+        // don't hold the resolver (and the dom behind) in the static cache
+        recorder.detach();
+        if (recorder.cacheable_) {
+            EXPRESSIONS.put(key, new CompiledExpression(xpath, recorder));
         }
+        return xpath;
     }
 
+    /**
+     * Evaluates an XPath expression from the specified node, returning the resultant nodes.
+     *
+     * @param <T> the type class
+     * @param node the node to start searching from
+     * @param xpath the compiled XPath expression
+     * @param prefixResolver the prefix resolver to use for resolving namespace prefixes, or null
+     * @return the list of objects found
+     * @throws TransformerException if the evaluation fails
+     */
     public static <T> List<T> getByXPath(final Node node, final XPathAdapter xpath,
             final PrefixResolver prefixResolver) throws TransformerException {
         final List<T> list = new ArrayList<>();
 
+        XPathContextCache contextCache = getXPathContextCache(node);
+        XPathContext xpathSupport = null;
+        if (contextCache != null) {
+            xpathSupport = contextCache.acquire();
+        }
+        if (xpathSupport == null) {
+            contextCache = null;
+            xpathSupport = createXPathContext();
+        }
+
+        boolean success = false;
         PROCESS_XPATH_.set(Boolean.TRUE);
         try {
-            final XPathContext xpathSupport = new XPathContext();
             final int ctxtNode = xpathSupport.getDTMHandleFromNode(node);
             final XObject result = xpath.execute(xpathSupport, ctxtNode, prefixResolver);
 
@@ -108,26 +272,56 @@ public final class XPathHelper {
                     list.add((T) nodelist.item(i));
                 }
             }
-            else if (result instanceof XNumber) {
-                list.add((T) Double.valueOf(result.num()));
-            }
-            else if (result instanceof XBoolean) {
-                list.add((T) Boolean.valueOf(result.bool()));
-            }
-            else if (result instanceof XString) {
-                list.add((T) result.str());
-            }
             else {
-                throw new RuntimeException("Unproccessed " + result.getClass().getName());
+                list.add((T) toValue(result));
             }
+            success = true;
         }
         finally {
             PROCESS_XPATH_.set(Boolean.FALSE);
+            if (contextCache != null) {
+                contextCache.release(success);
+            }
         }
 
         return list;
     }
 
+    /**
+     * Nodes of the page share the DTM as long as the page is not modified.
+     * @param node the context node
+     * @return the {@link XPathContextCache} of the page or {@code null}
+     */
+    private static XPathContextCache getXPathContextCache(final Node node) {
+        if (node instanceof DomNode && ((DomNode) node).isAttachedToPage()
+                && ((DomNode) node).getPage() instanceof HtmlPage) {
+            return ((HtmlPage) ((DomNode) node).getPage()).getXPathContextCache();
+        }
+        return null;
+    }
+
+    private static Object toValue(final XObject result) {
+        if (result instanceof XNumber) {
+            return Double.valueOf(result.num());
+        }
+        if (result instanceof XBoolean) {
+            return Boolean.valueOf(result.bool());
+        }
+        if (result instanceof XString) {
+            return result.str();
+        }
+        throw new RuntimeException("Unproccessed " + result.getClass().getName());
+    }
+
+    /**
+     * Creates a new (empty) {@link XPathContext}; the DTM is built on first usage.
+     * @return the new context
+     */
+    static XPathContext createXPathContext() {
+        DTM_BUILD_COUNT.increment();
+        return new XPathContext();
+    }
+
     /**
      * Returns whether the thread is currently evaluating XPath expression or no.
      * @return whether the thread is currently evaluating XPath expression or no
@@ -136,4 +330,211 @@ public final class XPathHelper {
         return PROCESS_XPATH_.get().booleanValue();
     }
 
+    /**
+     * Sets the max number of cached compiled expressions.
+     * The cache is shared by all {@link org.htmlunit.WebClient}s; the least recently used
+     * expressions are dropped first.
+     * @param cacheSize the new size, 0 disables the caching
+     */
+    public static void setCacheSize(final int cacheSize) {
+        EXPRESSIONS.setMaxSize(cacheSize);
+    }
+
+    /**
+     * @return the max number of cached compiled expressions
+     */
+    public static int getCacheSize() {
+        return EXPRESSIONS.getMaxSize();
+    }
+
+    /**
+     * @return the number of expressions compiled so far
+     */
+    public static long getCompileCount() {
+        return COMPILE_COUNT.sum();
+    }
+
+    /**
+     * @return the number of {@link XPathContext}s (and therefore DTMs) built so far
+     */
+    public static long getDtmBuildCount() {
+        return DTM_BUILD_COUNT.sum();
+    }
+
+    /**
+     * @return the number of expressions answered from the indexes of the page
+     */
+    public static long getIndexQueryCount() {
+        return INDEX_QUERY_COUNT.sum();
+    }
+
+    /**
+     * Iterates over the nodes of a node set; the nodes are searched on demand.
+     * @param <T> the type class
+     */
+    private static final class NodeSetIterator<T> implements Iterator<T> {
+        private final XNodeSet nodeSet_;
+        private final XPathContext xpathContext_;
+        private XPathContextCache contextCache_;
+        private T next_;
+        private boolean done_;
+
+        NodeSetIterator(final XNodeSet nodeSet, final XPathContext xpathContext,
+                final XPathContextCache contextCache) {
+            nodeSet_ = nodeSet;
+            xpathContext_ = xpathContext;
+            contextCache_ = contextCache;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public boolean hasNext() {
+            if (next_ == null && !done_) {
+                boolean success = false;
+                PROCESS_XPATH_.set(Boolean.TRUE);
+                try {
+                    final int handle = nodeSet_.nextNode();
+                    if (handle == DTM.NULL) {
+                        done_ = true;
+                    }
+                    else {
+                        next_ = (T) xpathContext_.getDTM(handle).getNode(handle);
+                    }
+                    success = true;
+                }
+                finally {
+                    PROCESS_XPATH_.set(Boolean.FALSE);
+                    if (!success) {
+                        done_ = true;
+                    }
+                    if (done_) {
+                        release(success);
+                    }
+                }
+            }
+            return next_ != null;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            final T next = next_;
+            next_ = null;
+            return next;
+        }
+
+        void close() {
+            done_ = true;
+            next_ = null;
+            release(true);
+        }
+
+        private void release(final boolean reusable) {
+            if (contextCache_ != null) {
+                contextCache_.release(reusable);
+                contextCache_ = null;
+            }
+        }
+    }
+
+    /**
+     * The key of the expression cache; expression and case sensitivity.
+     */
+    private static final class ExpressionKey {
+        private final String expression_;
+        private final boolean caseSensitive_;
+
+        ExpressionKey(final String expression, final boolean caseSensitive) {
+            expression_ = expression;
+            caseSensitive_ = caseSensitive;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * expression_.hashCode() + (caseSensitive_ ? 1 : 0);
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (!(obj instanceof ExpressionKey)) {
+                return false;
+            }
+            final ExpressionKey other = (ExpressionKey) obj;
+            return caseSensitive_ == other.caseSensitive_ && expression_.equals(other.expression_);
+        }
+    }
+
+    /**
+     * A cached compiled expression together with the namespace context used for compiling.
+     */
+    private static final class CompiledExpression {
+        private final XPathAdapter xpath_;
+        private final Map<String, String> namespaces_;
+        private final boolean handlesNullPrefixes_;
+
+        CompiledExpression(final XPathAdapter xpath, final RecordingPrefixResolver recorder) {
+            xpath_ = xpath;
+            namespaces_ = recorder.namespaces_;
+            handlesNullPrefixes_ = recorder.handlesNullPrefixes_;
+        }
+
+        boolean isValidFor(final PrefixResolver prefixResolver) {
+            if (prefixResolver.handlesNullPrefixes() != handlesNullPrefixes_) {
+                return false;
+            }
+            for (final Map.Entry<String, String> entry : namespaces_.entrySet()) {
+                if (!Objects.equals(entry.getValue(), prefixResolver.getNamespaceForPrefix(entry.getKey()))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Records the prefixes resolved while compiling an expression; after compiling
+     * the recorded namespaces are the only ones this resolver knows.
+     */
+    private static final class RecordingPrefixResolver implements PrefixResolver {
+        private PrefixResolver prefixResolver_;
+        private final Map<String, String> namespaces_ = new HashMap<>();
+        private final boolean handlesNullPrefixes_;
+        private boolean cacheable_ = true;
+
+        RecordingPrefixResolver(final PrefixResolver prefixResolver) {
+            prefixResolver_ = prefixResolver;
+            handlesNullPrefixes_ = prefixResolver.handlesNullPrefixes();
+        }
+
+        void detach() {
+            prefixResolver_ = null;
+        }
+
+        @Override
+        public String getNamespaceForPrefix(final String prefix) {
+            if (prefixResolver_ == null) {
+                return namespaces_.get(prefix);
+            }
+            final String namespace = prefixResolver_.getNamespaceForPrefix(prefix);
+            namespaces_.put(prefix, namespace);
+            return namespace;
+        }
+
+        @Override
+        public String getNamespaceForPrefix(final String prefix, final Node context) {
+            if (prefixResolver_ == null) {
+                return namespaces_.get(prefix);
+            }
+            // depends on the context node
+            cacheable_ = false;
+            return prefixResolver_.getNamespaceForPrefix(prefix, context);
+        }
+
+        @Override
+        public boolean handlesNullPrefixes() {
+            return handlesNullPrefixes_;
+        }
+    }
 }
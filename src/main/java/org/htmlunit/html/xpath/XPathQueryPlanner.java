@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2002-2024 Gargoyle Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.htmlunit.html.xpath;
+
+import static org.htmlunit.html.DomElement.ATTRIBUTE_NOT_DEFINED;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.htmlunit.SgmlPage;
+import org.htmlunit.html.DomElement;
+import org.htmlunit.html.DomNode;
+import org.htmlunit.html.HtmlPage;
+import org.htmlunit.html.XHtmlPage;
+
+/**
+ * Answers some common XPath expressions from the indexes of the page instead of
+ * walking the whole document.
+ * Supported are
+ * <ul>
+ *   <li>{@code //tag} and {@code //*}</li>
+ *   <li>{@code //tag//tag}</li>
+ *   <li>{@code //tag[@attribute='value']}; the attribute values are always read from the
+ *      elements, the id and name maps of the page do not reflect all changes of the attributes</li>
+ * </ul>
+ * The results are in document order, exactly like the ones of the XPath engine.
+ * Only (non XHTML) HTML pages without foreign (e.g. SVG) elements are supported;
+ * everything else is left to the engine.
+ *
+ * @author agent <agent@local>
+ */
+final class XPathQueryPlanner {
+
+    private static final String NAME = "[A-Za-z_][\\w.\\-]*";
+    private static final Pattern QUERY = Pattern.compile(
+            "//(\\*|" + NAME + ")"
+            + "(?:\\[@(" + NAME + ")\\s*=\\s*(?:'([^']*)'|\"([^\"]*)\")\\]"
+            + "|//(\\*|" + NAME + "))?");
+
+    private static final String ANY = "*";
+
+    private XPathQueryPlanner() {
+        // util class
+    }
+
+    /**
+     * Evaluates the expression using the indexes of the page.
+     * @param contextNode the context node
+     * @param xpathExpr the XPath expression
+     * @return the found elements or {@code null} if the expression is not supported
+     */
+    static List<DomElement> execute(final DomNode contextNode, final String xpathExpr) {
+        final SgmlPage sgmlPage = contextNode.getPage();
+        if (!(sgmlPage instanceof HtmlPage)
+                || sgmlPage instanceof XHtmlPage
+                || sgmlPage.hasCaseSensitiveTagNames()
+                || !contextNode.isAttachedToPage()) {
+            return null;
+        }
+
+        final Matcher matcher = QUERY.matcher(xpathExpr.trim());
+        if (!matcher.matches()) {
+            return null;
+        }
+
+        final HtmlPage page = (HtmlPage) sgmlPage;
+        if (page.getTagNameIndex().hasForeignElements()) {
+            return null;
+        }
+
+        // the engine lower cases all names for html pages
+        final String tagName = matcher.group(1).toLowerCase(Locale.ROOT);
+        final String attributeName = matcher.group(2);
+        final String descendantName = matcher.group(5);
+
+        if (attributeName != null) {
+            final String value = matcher.group(3) != null ? matcher.group(3) : matcher.group(4);
+            return elementsWithAttribute(page, tagName, attributeName.toLowerCase(Locale.ROOT), value);
+        }
+        if (descendantName != null) {
+            return descendants(page, tagName, descendantName.toLowerCase(Locale.ROOT));
+        }
+        return new ArrayList<>(elements(page, tagName));
+    }
+
+    private static List<DomElement> elements(final HtmlPage page, final String tagName) {
+        if (ANY.equals(tagName)) {
+            return page.getTagNameIndex().getElements();
+        }
+        return page.getTagNameIndex().getElementsByName(tagName);
+    }
+
+    private static List<DomElement> elementsWithAttribute(final HtmlPage page, final String tagName,
+            final String attributeName, final String value) {
+        final List<DomElement> result = new ArrayList<>();
+        for (final DomElement candidate : elements(page, tagName)) {
+            final String attributeValue = candidate.getAttribute(attributeName);
+            if (ATTRIBUTE_NOT_DEFINED != attributeValue && attributeValue.equals(value)) {
+                result.add(candidate);
+            }
+        }
+        return result;
+    }
+
+    private static List<DomElement> descendants(final HtmlPage page, final String ancestorName,
+            final String tagName) {
+        final List<DomElement> result = new ArrayList<>();
+        for (final DomElement candidate : elements(page, tagName)) {
+            for (DomNode ancestor = candidate.getParentNode(); ancestor instanceof DomElement;
+                    ancestor = ancestor.getParentNode()) {
+                if (matches((DomElement) ancestor, ancestorName)) {
+                    result.add(candidate);
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    private static boolean matches(final DomElement element, final String tagName) {
+        if (ANY.equals(tagName)) {
+            return true;
+        }
+        return TagNameIndex.isHtmlNamespace(element) && tagName.equals(element.getLowercaseName());
+    }
+}
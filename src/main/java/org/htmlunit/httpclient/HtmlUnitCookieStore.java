@@ -32,6 +32,7 @@ import org.htmlunit.CookieManager;
  */
 public final class HtmlUnitCookieStore implements CookieStore, Serializable {
     private final CookieManager manager_;
+    private final String host_;
 
     /**
      * Constructor.
@@ -39,7 +40,19 @@ public final class HtmlUnitCookieStore implements CookieStore, Serializable {
      * @param manager the CookieManager
      */
     public HtmlUnitCookieStore(final CookieManager manager) {
+        this(manager, null);
+    }
+
+    /**
+     * Constructor for a store used for requests to the given host only;
+     * {@link #getCookies()} returns only the cookies of the domains the host belongs to.
+     *
+     * @param manager the CookieManager
+     * @param host the host or {@code null} to get all cookies
+     */
+    public HtmlUnitCookieStore(final CookieManager manager, final String host) {
         manager_ = manager;
+        host_ = host;
     }
 
     /**
@@ -55,7 +68,10 @@ public final class HtmlUnitCookieStore implements CookieStore, Serializable {
      */
     @Override
     public synchronized List<Cookie> getCookies() {
-        return HttpClientConverter.toHttpClient(manager_.getCookies());
+        if (host_ == null) {
+            return HttpClientConverter.toHttpClient(manager_.getCookies());
+        }
+        return HttpClientConverter.toHttpClient(manager_.getCookiesForHost(host_));
     }
 
     /**
@@ -80,39 +80,51 @@ public final class HtmlUnitSSLConnectionSocketFactory extends SSLConnectionSocke
      * @return the SSLConnectionSocketFactory
      */
     public static SSLConnectionSocketFactory buildSSLSocketFactory(final WebClientOptions options) {
-        try {
-            final String[] sslClientProtocols = options.getSSLClientProtocols();
-            final String[] sslClientCipherSuites = options.getSSLClientCipherSuites();
+        final String[] sslClientProtocols = options.getSSLClientProtocols();
+        final String[] sslClientCipherSuites = options.getSSLClientCipherSuites();
+        final SSLContext sslContext = buildSSLContext(options);
+
+        if (options.isUseInsecureSSL()) {
+            // we need insecure SSL + SOCKS awareness
+            return new HtmlUnitSSLConnectionSocketFactory(sslContext, NoopHostnameVerifier.INSTANCE,
+                            true, sslClientProtocols, sslClientCipherSuites);
+        }
 
-            SSLContext sslContext = options.getSSLContext();
-            final boolean useInsecureSSL = options.isUseInsecureSSL();
+        return new HtmlUnitSSLConnectionSocketFactory(sslContext, new DefaultHostnameVerifier(),
+                        false, sslClientProtocols, sslClientCipherSuites);
+    }
 
-            if (useInsecureSSL) {
-                // we need insecure SSL + SOCKS awareness
+    /**
+     * Factory method that builds the SSLContext for the current WebClientOptions; this is
+     * the one provided by {@link WebClientOptions#getSSLContext()} or a new one respecting
+     * the insecure SSL, key store and trust store settings.
+     * @param options the current WebClientOptions
+     * @return the SSLContext
+     */
+    public static SSLContext buildSSLContext(final WebClientOptions options) {
+        final SSLContext sslContext = options.getSSLContext();
+        if (sslContext != null) {
+            return sslContext;
+        }
+
+        try {
+            if (options.isUseInsecureSSL()) {
                 String protocol = options.getSSLInsecureProtocol();
                 if (protocol == null) {
                     protocol = "SSL";
                 }
-                if (sslContext == null) {
-                    sslContext = SSLContext.getInstance(protocol);
-                    sslContext.init(getKeyManagers(options),
-                            new X509ExtendedTrustManager[] {new InsecureTrustManager()}, null);
-                }
-
-                return new HtmlUnitSSLConnectionSocketFactory(sslContext, NoopHostnameVerifier.INSTANCE,
-                                true, sslClientProtocols, sslClientCipherSuites);
+                final SSLContext insecureContext = SSLContext.getInstance(protocol);
+                insecureContext.init(getKeyManagers(options),
+                        new X509ExtendedTrustManager[] {new InsecureTrustManager()}, null);
+                return insecureContext;
             }
 
             final KeyStore keyStore = options.getSSLClientCertificateStore();
             final char[] keyStorePassword = keyStore == null ? null : options.getSSLClientCertificatePassword();
             final KeyStore trustStore = options.getSSLTrustStore();
 
-            if (sslContext == null) {
-                sslContext = SSLContexts.custom()
-                        .loadKeyMaterial(keyStore, keyStorePassword).loadTrustMaterial(trustStore, null).build();
-            }
-            return new HtmlUnitSSLConnectionSocketFactory(sslContext, new DefaultHostnameVerifier(),
-                            false, sslClientProtocols, sslClientCipherSuites);
+            return SSLContexts.custom()
+                    .loadKeyMaterial(keyStore, keyStorePassword).loadTrustMaterial(trustStore, null).build();
         }
         catch (final GeneralSecurityException e) {
             throw new RuntimeException(e);
@@ -0,0 +1,261 @@
+/*
+ * Copyright (c) 2002-2024 Gargoyle Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.htmlunit.javascript;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.Objects;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.htmlunit.BrowserVersion;
+import org.htmlunit.WebClient;
+import org.htmlunit.corejs.javascript.Script;
+import org.htmlunit.util.LruCache;
+
+/**
+ * Cache for compiled scripts, independent of the http caching rules.
+ * The scripts are identified by the hash of the source code, the browser
+ * version and - depending on the source name policy - the source name and
+ * start line. This way inline scripts repeated on every page of a site
+ * and external scripts served without caching headers are compiled only once.
+ * One instance might be shared by many {@link WebClient}s.
+ *
+ * The cache of a new {@link WebClient} is disabled (max size 0); computing the
+ * key requires hashing the whole source of every script and the compiled scripts
+ * are kept in memory - this only pays off if the same scripts are compiled again
+ * and again. Use {@link #setMaxSize(int)} or a shared instance to enable it.
+ *
+ * @see WebClient#setCompiledScriptCache(CompiledScriptCache)
+ * @author agent <agent@local>
+ */
+public class CompiledScriptCache implements Serializable {
+
+    /** The default max number of scripts. */
+    public static final int DEFAULT_MAX_SIZE = 1_000;
+
+    /** The default max source code length of a script to be cached. */
+    public static final int DEFAULT_MAX_SCRIPT_LENGTH = 1_000_000;
+
+    private transient LruCache<Key, Script> scripts_;
+    private int maxSize_;
+    private int maxScriptLength_ = DEFAULT_MAX_SCRIPT_LENGTH;
+    private boolean ignoreSourceName_;
+
+    /**
+     * The identity of a compiled script.
+     */
+    static final class Key {
+        private final String sourceHash_;
+        private final String browser_;
+        private final String sourceName_;
+        private final int startLine_;
+
+        Key(final String sourceHash, final String browser, final String sourceName, final int startLine) {
+            sourceHash_ = sourceHash;
+            browser_ = browser;
+            sourceName_ = sourceName;
+            startLine_ = startLine;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(sourceHash_, browser_, sourceName_, startLine_);
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key) obj;
+            return startLine_ == other.startLine_
+                    && sourceHash_.equals(other.sourceHash_)
+                    && browser_.equals(other.browser_)
+                    && Objects.equals(sourceName_, other.sourceName_);
+        }
+    }
+
+    /**
+     * Creates a cache holding up to {@link #DEFAULT_MAX_SIZE} scripts.
+     */
+    public CompiledScriptCache() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * Creates a cache.
+     * @param maxSize the maximum number of scripts to cache; 0 disables the cache
+     */
+    public CompiledScriptCache(final int maxSize) {
+        maxSize_ = maxSize;
+        scripts_ = new LruCache<>(maxSize);
+    }
+
+    /**
+     * @return whether scripts are cached at all
+     */
+    boolean isEnabled() {
+        return maxSize_ > 0;
+    }
+
+    /**
+     * Creates the key for the given script.
+     *
+     * @param sourceCode the source code
+     * @param browserVersion the browser version the script is compiled for
+     * @param sourceName the source name (used in error messages and stack traces)
+     * @param startLine the line number of the first line of the source
+     * @return the key or {@code null} if the script is too large to be cached
+     */
+    Key createKey(final String sourceCode, final BrowserVersion browserVersion,
+            final String sourceName, final int startLine) {
+        if (sourceCode.length() > maxScriptLength_) {
+            return null;
+        }
+
+        final String browser = browserVersion.getNickname() + browserVersion.getBrowserVersionNumeric();
+        if (ignoreSourceName_) {
+            return new Key(DigestUtils.sha256Hex(sourceCode), browser, null, 0);
+        }
+        return new Key(DigestUtils.sha256Hex(sourceCode), browser, sourceName, startLine);
+    }
+
+    /**
+     * Returns the compiled script for the given key.
+     *
+     * @param key the key
+     * @return the script or {@code null}
+     */
+    Script get(final Key key) {
+        return scripts_.get(key);
+    }
+
+    /**
+     * Stores the compiled script.
+     *
+     * @param key the key
+     * @param script the script
+     */
+    void put(final Key key, final Script script) {
+        scripts_.put(key, script);
+    }
+
+    /**
+     * Returns the maximum number of scripts to cache.
+     * @return the maximum number of scripts to cache
+     */
+    public int getMaxSize() {
+        return maxSize_;
+    }
+
+    /**
+     * Sets the maximum number of scripts to cache, the least recently used
+     * scripts are dropped first. Use 0 to disable the cache.
+     * @param maxSize the maximum number of scripts to cache
+     */
+    public void setMaxSize(final int maxSize) {
+        maxSize_ = maxSize;
+        scripts_.setMaxSize(maxSize);
+    }
+
+    /**
+     * Returns the max source code length of a script to be cached.
+     * @return the max length
+     */
+    public int getMaxScriptLength() {
+        return maxScriptLength_;
+    }
+
+    /**
+     * Sets the max source code length (in chars) of a script to be cached; larger
+     * scripts are always compiled. The memory used by a compiled script is roughly
+     * proportional to its source.
+     * @param maxScriptLength the max length
+     */
+    public void setMaxScriptLength(final int maxScriptLength) {
+        maxScriptLength_ = maxScriptLength;
+    }
+
+    /**
+     * @return whether the source name and start line are ignored when looking up a script
+     */
+    public boolean isIgnoreSourceName() {
+        return ignoreSourceName_;
+    }
+
+    /**
+     * If set to {@code true}, identical scripts are shared even if they have a different source name
+     * (e.g. the same inline script on different pages). The drawback: error messages and stack traces
+     * report the source name and line numbers of the first occurrence.
+     * Default is {@code false}.
+     * @param ignoreSourceName the new value
+     */
+    public void setIgnoreSourceName(final boolean ignoreSourceName) {
+        ignoreSourceName_ = ignoreSourceName;
+    }
+
+    /**
+     * @return the number of cached scripts
+     */
+    public int getSize() {
+        return scripts_.size();
+    }
+
+    /**
+     * @return the number of lookups answered by this cache
+     */
+    public long getHitCount() {
+        return scripts_.getHitCount();
+    }
+
+    /**
+     * @return the number of lookups that had to compile the script
+     */
+    public long getMissCount() {
+        return scripts_.getMissCount();
+    }
+
+    /**
+     * @return the number of scripts dropped because the limit was reached
+     */
+    public long getEvictionCount() {
+        return scripts_.getEvictionCount();
+    }
+
+    /**
+     * Resets the hit, miss and eviction counters.
+     */
+    public void resetStatistics() {
+        scripts_.resetStatistics();
+    }
+
+    /**
+     * Removes all scripts.
+     */
+    public void clear() {
+        scripts_.clear();
+    }
+
+    private void readObject(final ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+
+        // the compiled scripts are not serialized
+        scripts_ = new LruCache<>(maxSize_);
+    }
+}
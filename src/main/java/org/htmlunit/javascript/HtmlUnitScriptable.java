@@ -34,6 +34,8 @@ import org.htmlunit.corejs.javascript.Scriptable;
 import org.htmlunit.corejs.javascript.ScriptableObject;
 import org.htmlunit.html.DomNode;
 import org.htmlunit.html.HtmlImage;
+import org.htmlunit.javascript.configuration.ClassConfiguration;
+import org.htmlunit.javascript.configuration.JavaScriptConfiguration;
 import org.htmlunit.javascript.host.Window;
 import org.htmlunit.javascript.host.html.HTMLElement;
 import org.htmlunit.javascript.host.html.HTMLUnknownElement;
@@ -57,6 +59,9 @@ public class HtmlUnitScriptable extends ScriptableObject implements Cloneable {
     private DomNode domNode_;
     private String className_;
 
+    // set for prototypes whose members are not configured so far
+    private BrowserVersion lazyMembersBrowserVersion_;
+
     /**
      * Returns the JavaScript class name.
      * @return the JavaScript class name
@@ -122,6 +127,8 @@ public class HtmlUnitScriptable extends ScriptableObject implements Cloneable {
      */
     @Override
     public Object get(final String name, final Scriptable start) {
+        configureMembersIfLazy();
+
         // Try to get property configured on object itself.
         Object response = super.get(name, start);
         if (response != NOT_FOUND) {
@@ -150,6 +157,73 @@ public class HtmlUnitScriptable extends ScriptableObject implements Cloneable {
         return NOT_FOUND;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean has(final String name, final Scriptable start) {
+        configureMembersIfLazy();
+        return super.has(name, start);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object[] getIds() {
+        configureMembersIfLazy();
+        return super.getIds();
+    }
+
+    /**
+     * Returns the prototype; if the members of the prototype are set up lazily, this is done now
+     * because the prototype might be handed out to scripts.
+     * {@inheritDoc}
+     */
+    @Override
+    public Scriptable getPrototype() {
+        final Scriptable prototype = super.getPrototype();
+        if (prototype instanceof HtmlUnitScriptable) {
+            ((HtmlUnitScriptable) prototype).configureMembersIfLazy();
+        }
+        return prototype;
+    }
+
+    /**
+     * Marks this prototype to configure its constants, properties and functions
+     * not before it is used the first time.
+     * @param browserVersion the browser version to take the configuration from
+     */
+    void setMembersConfiguredLazily(final BrowserVersion browserVersion) {
+        lazyMembersBrowserVersion_ = browserVersion;
+    }
+
+    /**
+     * Configures the constants, properties and functions of this prototype
+     * if this was deferred by {@link #setMembersConfiguredLazily(BrowserVersion)}.
+     */
+    void configureMembersIfLazy() {
+        final BrowserVersion browserVersion = lazyMembersBrowserVersion_;
+        if (browserVersion == null) {
+            return;
+        }
+        lazyMembersBrowserVersion_ = null;
+
+        final ClassConfiguration config =
+                JavaScriptConfiguration.getInstance(browserVersion).getClassConfiguration(className_);
+
+        // configure the members the same way as the eager setup does, this is done
+        // before the prototype chain is build
+        final Scriptable prototype = super.getPrototype();
+        setPrototype(null);
+        try {
+            JavaScriptEngine.configureConstantsPropertiesAndFunctions(config, this);
+        }
+        finally {
+            setPrototype(prototype);
+        }
+    }
+
     @Override
     public boolean has(final int index, final Scriptable start) {
         final Object found = get(index, start);
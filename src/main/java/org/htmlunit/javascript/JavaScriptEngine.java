@@ -234,7 +234,8 @@ public class JavaScriptEngine implements AbstractJavaScriptEngine<Script> {
         prototypes.put(windowConfig.getHostClass(), windowPrototype);
         prototypesPerJSName.put(windowConfig.getClassName(), windowPrototype);
 
-        configureScope(jsWindowScope, windowConfig, functionObject, jsConfig_, browserVersion, prototypes, prototypesPerJSName);
+        configureScope(jsWindowScope, windowConfig, functionObject, jsConfig_, browserVersion,
+                prototypes, prototypesPerJSName, webClient.getOptions().isLazyJavaScriptPrototypesEnabled());
 
         URLSearchParams.NativeParamsIterator.init(jsWindowScope, "URLSearchParams Iterator");
         FormData.FormDataIterator.init(jsWindowScope, "FormData Iterator");
@@ -283,10 +284,42 @@ public class JavaScriptEngine implements AbstractJavaScriptEngine<Script> {
             final BrowserVersion browserVersion,
             final Map<Class<? extends Scriptable>, Scriptable> prototypes,
             final Map<String, Scriptable> prototypesPerJSName) throws Exception {
+        configureScope(jsScope, scopeConfig, scopeContructorFunctionObject, jsConfig, browserVersion,
+                prototypes, prototypesPerJSName, false);
+    }
+
+    /**
+     * <span style="color:red">INTERNAL API - SUBJECT TO CHANGE AT ANY TIME - USE AT YOUR OWN RISK.</span><br>
+     *
+     * @param jsScope the js scope to set up
+     * @param scopeConfig the {@link ClassConfiguration} that is used for the scope
+     * @param scopeContructorFunctionObject the (already registered) ctor
+     * @param jsConfig the complete jsConfig
+     * @param browserVersion the {@link BrowserVersion}
+     * @param prototypes map of prototypes
+     * @param prototypesPerJSName map of prototypes with the class name as key
+     * @param lazyPrototypes if true, the members of the prototypes are configured on first usage
+     */
+    public static void configureScope(final HtmlUnitScriptable jsScope,
+            final ClassConfiguration scopeConfig,
+            final FunctionObject scopeContructorFunctionObject,
+            final AbstractJavaScriptConfiguration jsConfig,
+            final BrowserVersion browserVersion,
+            final Map<Class<? extends Scriptable>, Scriptable> prototypes,
+            final Map<String, Scriptable> prototypesPerJSName,
+            final boolean lazyPrototypes) throws Exception {
         // setup the prototypes
         for (final ClassConfiguration config : jsConfig.getAll()) {
             if (config != scopeConfig) {
-                final HtmlUnitScriptable prototype = configureClass(config, jsScope);
+                // prototypes are reachable by scripts only through the prototype chain or the
+                // constructor function; both are configuring a lazy prototype on access
+                final HtmlUnitScriptable prototype;
+                if (lazyPrototypes && (!config.isJsObject() || config.getJsConstructor() != null)) {
+                    prototype = createLazyPrototype(config, jsScope, browserVersion);
+                }
+                else {
+                    prototype = configureClass(config, jsScope);
+                }
                 if (config.isJsObject()) {
                     // Place object with prototype property in Window scope
                     final HtmlUnitScriptable obj = config.getHostClass().getDeclaredConstructor().newInstance();
@@ -346,6 +379,15 @@ public class JavaScriptEngine implements AbstractJavaScriptEngine<Script> {
         }
     }
 
+    private static HtmlUnitScriptable createLazyPrototype(final ClassConfiguration config,
+            final Scriptable window, final BrowserVersion browserVersion) throws Exception {
+        final HtmlUnitScriptable prototype = config.getHostClass().getDeclaredConstructor().newInstance();
+        prototype.setParentScope(window);
+        prototype.setClassName(config.getClassName());
+        prototype.setMembersConfiguredLazily(browserVersion);
+        return prototype;
+    }
+
     private static void addAsConstructorAndAlias(final FunctionObject function,
             final Scriptable scope, final Scriptable prototype, final ClassConfiguration config) {
         try {
@@ -369,6 +411,11 @@ public class JavaScriptEngine implements AbstractJavaScriptEngine<Script> {
 
     private static void additionalCtor(final Window window, final Scriptable proto,
             final Method ctorMethod, final String prop, final String clazzName) throws Exception {
+        // the plain function does not know about lazy prototypes
+        if (proto instanceof HtmlUnitScriptable) {
+            ((HtmlUnitScriptable) proto).configureMembersIfLazy();
+        }
+
         final FunctionObject function = new FunctionObject(prop, ctorMethod, window);
         final Object prototypeProperty = ScriptableObject.getProperty(window, clazzName);
         try {
@@ -409,6 +456,9 @@ public class JavaScriptEngine implements AbstractJavaScriptEngine<Script> {
         deleteProperties(numberPrototype, "toSource");
         final ScriptableObject datePrototype = (ScriptableObject) ScriptableObject.getClassPrototype(scope, "Date");
         deleteProperties(datePrototype, "toSource");
+        if (webClient.getOptions().isVirtualTimeEnabled()) {
+            VirtualTimeDateFunction.install(scope, webClient.getVirtualClock());
+        }
 
         deleteProperties(scope, "uneval");
         removePrototypeProperties(scope, "Object", "toSource");
@@ -563,7 +613,7 @@ public class JavaScriptEngine implements AbstractJavaScriptEngine<Script> {
      * @param config the configuration for the object
      * @param scriptable the object to configure
      */
-    private static void configureConstantsPropertiesAndFunctions(final ClassConfiguration config,
+    static void configureConstantsPropertiesAndFunctions(final ClassConfiguration config,
             final ScriptableObject scriptable) {
         configureConstants(config, scriptable);
         configureProperties(config, scriptable);
@@ -722,6 +772,22 @@ public class JavaScriptEngine implements AbstractJavaScriptEngine<Script> {
             LOG.trace("Javascript compile " + sourceName + newline + sourceCode + newline);
         }
 
+        // scripts compiled with a debugger attached are not shared
+        final WebClient webClient = webClient_;
+        CompiledScriptCache scriptCache = null;
+        CompiledScriptCache.Key key = null;
+        if (webClient != null && webClient.getCompiledScriptCache().isEnabled()
+                && getContextFactory().getDebugger() == null) {
+            scriptCache = webClient.getCompiledScriptCache();
+            key = scriptCache.createKey(sourceCode, webClient.getBrowserVersion(), sourceName, startLine);
+            if (key != null) {
+                final Script cached = scriptCache.get(key);
+                if (cached != null) {
+                    return cached;
+                }
+            }
+        }
+
         final HtmlUnitContextAction action = new HtmlUnitContextAction(owningPage) {
             @Override
             public Object doRun(final Context cx) {
@@ -734,7 +800,11 @@ public class JavaScriptEngine implements AbstractJavaScriptEngine<Script> {
             }
         };
 
-        return (Script) getContextFactory().callSecured(action, owningPage);
+        final Script script = (Script) getContextFactory().callSecured(action, owningPage);
+        if (script != null && key != null) {
+            scriptCache.put(key, script);
+        }
+        return script;
     }
 
     /**
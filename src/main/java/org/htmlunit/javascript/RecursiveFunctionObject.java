@@ -118,6 +118,18 @@ public class RecursiveFunctionObject extends FunctionObject {
         return value;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected Object getPrototypeProperty() {
+        final Object prototype = super.getPrototypeProperty();
+        if (prototype instanceof HtmlUnitScriptable) {
+            ((HtmlUnitScriptable) prototype).configureMembersIfLazy();
+        }
+        return prototype;
+    }
+
     /**
      * Make this public.
      */
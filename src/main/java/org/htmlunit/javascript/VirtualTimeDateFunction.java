@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2002-2024 Gargoyle Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.htmlunit.javascript;
+
+import org.htmlunit.corejs.javascript.Context;
+import org.htmlunit.corejs.javascript.Function;
+import org.htmlunit.corejs.javascript.LambdaFunction;
+import org.htmlunit.corejs.javascript.ScriptRuntime;
+import org.htmlunit.corejs.javascript.Scriptable;
+import org.htmlunit.corejs.javascript.ScriptableObject;
+import org.htmlunit.javascript.background.VirtualClock;
+
+/**
+ * Wrapper for Rhino's native <code>Date</code> constructor using the {@link VirtualClock}
+ * of the web client as source of the current time.
+ * Rhino's <code>Date</code> reads the system time directly; only the calls
+ * without an explicit time are redirected, everything else (the prototype, the static
+ * functions, <code>instanceof</code>) is the one of the native constructor.
+ *
+ * @author agent <agent@local>
+ */
+final class VirtualTimeDateFunction extends FunctionWrapper {
+
+    private final VirtualClock clock_;
+
+    private VirtualTimeDateFunction(final Function wrapped, final VirtualClock clock) {
+        super(wrapped);
+        clock_ = clock;
+    }
+
+    /**
+     * Replaces the <code>Date</code> constructor of the given scope.
+     * @param scope the window or the DedicatedWorkerGlobalScope
+     * @param clock the clock of the web client
+     */
+    static void install(final ScriptableObject scope, final VirtualClock clock) {
+        final Function nativeDate = (Function) ScriptableObject.getProperty(scope, "Date");
+        final VirtualTimeDateFunction date = new VirtualTimeDateFunction(nativeDate, clock);
+
+        final LambdaFunction now = new LambdaFunction(scope, "now", 0,
+                (cx, s, thisObj, args) -> Double.valueOf(clock.currentTimeMillis()));
+        ScriptableObject.defineProperty((ScriptableObject) nativeDate, "now", now, ScriptableObject.DONTENUM);
+
+        final ScriptableObject datePrototype = (ScriptableObject) ScriptableObject.getClassPrototype(scope, "Date");
+        ScriptableObject.defineProperty(datePrototype, "constructor", date, ScriptableObject.DONTENUM);
+        ScriptableObject.defineProperty(scope, "Date", date, ScriptableObject.DONTENUM);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object call(final Context cx, final Scriptable scope, final Scriptable thisObj, final Object[] args) {
+        // Date() ignores all arguments and returns the current time as string
+        final Scriptable date = super.construct(cx, scope, currentTime());
+        return ScriptRuntime.toString(date);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Scriptable construct(final Context cx, final Scriptable scope, final Object[] args) {
+        if (args.length == 0) {
+            return super.construct(cx, scope, currentTime());
+        }
+        return super.construct(cx, scope, args);
+    }
+
+    private Object[] currentTime() {
+        return new Object[] {Double.valueOf(clock_.currentTimeMillis())};
+    }
+}
@@ -116,6 +116,9 @@ public class BackgroundJavaScriptFactory {
      * @return the executor.
      */
     public JavaScriptExecutor createJavaScriptExecutor(final WebClient webClient) {
+        if (webClient.getOptions().isSharedJavaScriptExecutorEnabled()) {
+            return new SharedJavaScriptExecutor(webClient);
+        }
         return new DefaultJavaScriptExecutor(webClient);
     }
 
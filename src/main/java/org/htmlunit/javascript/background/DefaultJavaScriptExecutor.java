@@ -38,6 +38,9 @@ public class DefaultJavaScriptExecutor implements JavaScriptExecutor {
 
     private final transient AtomicBoolean shutdown_;
 
+    /** The clock of the web client. */
+    private final transient VirtualClock virtualClock_;
+
     private transient Thread eventLoopThread_;
 
     /** Logging support. */
@@ -51,6 +54,7 @@ public class DefaultJavaScriptExecutor implements JavaScriptExecutor {
         webClient_ = new WeakReference<>(webClient);
         jobManagerList_ = new ArrayList<>();
         shutdown_ = new AtomicBoolean();
+        virtualClock_ = webClient.getVirtualClock();
     }
 
     /**
@@ -106,6 +110,14 @@ public class DefaultJavaScriptExecutor implements JavaScriptExecutor {
         }
     }
 
+    /**
+     * Returns the clock of the web client.
+     * @return the clock used for scheduling
+     */
+    protected VirtualClock getVirtualClock() {
+        return virtualClock_;
+    }
+
     /**
      * Returns the JobExecutor corresponding to the earliest job.
      * @return the JobExectuor with the earliest job.
@@ -143,7 +155,8 @@ public class DefaultJavaScriptExecutor implements JavaScriptExecutor {
             if (jobManager != null) {
                 final JavaScriptJob earliestJob = jobManager.getEarliestJob();
                 if (earliestJob != null) {
-                    final long waitTime = earliestJob.getTargetExecutionTime() - System.currentTimeMillis();
+                    final long waitTime = earliestJob.getTargetExecutionTime()
+                                                - getVirtualClock().currentTimeMillis();
 
                     // do we have to execute the earliest job
                     if (waitTime < 1) {
@@ -20,10 +20,12 @@ import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.PriorityQueue;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongConsumer;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.htmlunit.Page;
+import org.htmlunit.WebClient;
 import org.htmlunit.WebWindow;
 
 /**
@@ -57,6 +59,15 @@ class JavaScriptJobManagerImpl implements JavaScriptJobManager {
 
     private transient JavaScriptJob currentlyRunningJob_;
 
+    /**
+     * Informed about the target execution time of every added job that
+     * became the new head of the queue (maybe {@code null}).
+     */
+    private transient volatile LongConsumer earliestJobListener_;
+
+    /** The clock of the web client; shared by all the job managers of the client. */
+    private final VirtualClock virtualClock_;
+
     /** A counter used to generate the IDs assigned to {@link JavaScriptJob}s. */
     private static final AtomicInteger NEXT_JOB_ID_ = new AtomicInteger(1);
 
@@ -70,6 +81,9 @@ class JavaScriptJobManagerImpl implements JavaScriptJobManager {
      */
     JavaScriptJobManagerImpl(final WebWindow window) {
         window_ = new WeakReference<>(window);
+
+        final WebClient webClient = window.getWebClient();
+        virtualClock_ = webClient == null ? new VirtualClock() : webClient.getVirtualClock();
     }
 
     /** {@inheritDoc} */
@@ -118,8 +132,16 @@ class JavaScriptJobManagerImpl implements JavaScriptJobManager {
         final int id = NEXT_JOB_ID_.getAndIncrement();
         job.setId(Integer.valueOf(id));
 
+        // the jobs are created based on the real time
+        final long offset = getVirtualClock().getOffset();
+        if (offset != 0) {
+            job.setTargetExecutionTime(job.getTargetExecutionTime() + offset);
+        }
+
+        final boolean isEarliest;
         synchronized (this) {
             scheduledJobsQ_.add(job);
+            isEarliest = scheduledJobsQ_.peek() == job;
 
             if (LOG.isDebugEnabled()) {
                 LOG.debug("job added to queue");
@@ -132,9 +154,23 @@ class JavaScriptJobManagerImpl implements JavaScriptJobManager {
             notify();
         }
 
+        final LongConsumer earliestJobListener = earliestJobListener_;
+        if (isEarliest && earliestJobListener != null) {
+            earliestJobListener.accept(job.getTargetExecutionTime());
+        }
+
         return id;
     }
 
+    /**
+     * Sets the listener to be informed if an added job becomes the earliest one
+     * of this manager. The listener gets the target execution time of the job.
+     * @param earliestJobListener the listener or {@code null}
+     */
+    void setEarliestJobListener(final LongConsumer earliestJobListener) {
+        earliestJobListener_ = earliestJobListener;
+    }
+
     /** {@inheritDoc} */
     @Override
     public synchronized void removeJob(final int id) {
@@ -145,7 +181,7 @@ class JavaScriptJobManagerImpl implements JavaScriptJobManager {
                 break;
             }
         }
-        cancelledJobs_.add(Integer.valueOf(id));
+        cancelRunningJob(id);
         notify();
     }
 
@@ -160,18 +196,32 @@ class JavaScriptJobManagerImpl implements JavaScriptJobManager {
                 break;
             }
         }
-        cancelledJobs_.add(Integer.valueOf(id));
+        cancelRunningJob(id);
         notify();
     }
 
+    /**
+     * Remembers the cancellation of the currently running job; a periodic job
+     * must not be rescheduled after it has been cancelled.
+     * Cancellations of all other jobs are not stored, the job is simply gone.
+     * Has to be called while holding the lock.
+     *
+     * @param id the id of the cancelled job
+     */
+    private void cancelRunningJob(final int id) {
+        if (currentlyRunningJob_ != null && currentlyRunningJob_.getId().intValue() == id) {
+            final Integer jobId = currentlyRunningJob_.getId();
+            if (!cancelledJobs_.contains(jobId)) {
+                cancelledJobs_.add(jobId);
+            }
+        }
+    }
+
     /** {@inheritDoc} */
     @Override
     public synchronized void removeAllJobs() {
         if (currentlyRunningJob_ != null) {
-            cancelledJobs_.add(currentlyRunningJob_.getId());
-        }
-        for (final JavaScriptJob job : scheduledJobsQ_) {
-            cancelledJobs_.add(job.getId());
+            cancelRunningJob(currentlyRunningJob_.getId().intValue());
         }
         scheduledJobsQ_.clear();
         notify();
@@ -186,13 +236,17 @@ class JavaScriptJobManagerImpl implements JavaScriptJobManager {
             LOG.debug("Waiting for all jobs to finish (will wait max " + timeoutMillis + " millis).");
         }
         if (timeoutMillis > 0) {
-            long now = System.currentTimeMillis();
+            final VirtualClock clock = getVirtualClock();
+            long maxAdvance = getVirtualTimeMaxAdvance();
+            long now = clock.currentTimeMillis();
             final long end = now + timeoutMillis;
 
             synchronized (this) {
                 while (getJobCount() > 0 && now < end) {
+                    maxAdvance -= skipIdleTime(clock, end, maxAdvance);
+                    now = clock.currentTimeMillis();
                     try {
-                        wait(end - now);
+                        wait(Math.max(1, end - now));
                     }
                     catch (final InterruptedException e) {
                         LOG.error("InterruptedException while in waitForJobs", e);
@@ -202,7 +256,7 @@ class JavaScriptJobManagerImpl implements JavaScriptJobManager {
                     }
                     // maybe a change triggers the wakup; we have to recalculate the
                     // wait time
-                    now = System.currentTimeMillis();
+                    now = clock.currentTimeMillis();
                 }
             }
         }
@@ -225,7 +279,9 @@ class JavaScriptJobManagerImpl implements JavaScriptJobManager {
     public int waitForJobsStartingBefore(final long delayMillis, final JavaScriptJobFilter filter) {
         final boolean debug = LOG.isDebugEnabled();
 
-        final long latestExecutionTime = System.currentTimeMillis() + delayMillis;
+        final VirtualClock clock = getVirtualClock();
+        long maxAdvance = getVirtualTimeMaxAdvance();
+        final long latestExecutionTime = clock.currentTimeMillis() + delayMillis;
         if (debug) {
             LOG.debug("Waiting for all jobs that have execution time before "
                   + delayMillis + " (" + latestExecutionTime + ") to finish");
@@ -243,6 +299,7 @@ class JavaScriptJobManagerImpl implements JavaScriptJobManager {
                        );
 
             while (pending) {
+                maxAdvance -= skipIdleTime(clock, latestExecutionTime, maxAdvance);
                 try {
                     wait(interval);
                 }
@@ -290,6 +347,66 @@ class JavaScriptJobManagerImpl implements JavaScriptJobManager {
         return window_.get();
     }
 
+    /**
+     * @return the clock of the web client
+     */
+    private VirtualClock getVirtualClock() {
+        return virtualClock_;
+    }
+
+    /**
+     * @return the number of milliseconds the virtual time is allowed to skip
+     *         while waiting; 0 if the virtual time mode is disabled
+     */
+    private long getVirtualTimeMaxAdvance() {
+        final WebWindow window = getWindow();
+        if (window != null) {
+            final WebClient webClient = window.getWebClient();
+            if (webClient != null && webClient.getOptions().isVirtualTimeEnabled()) {
+                return webClient.getOptions().getVirtualTimeMaxAdvance();
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * If no job is running, moves the virtual time forward to the target execution time
+     * of the earliest job (but not beyond the limit).
+     * Has to be called while holding the lock.
+     *
+     * @param clock the clock
+     * @param limit the virtual time not to skip
+     * @param maxAdvance the max number of milliseconds to skip
+     * @return the number of milliseconds skipped
+     */
+    private long skipIdleTime(final VirtualClock clock, final long limit, final long maxAdvance) {
+        if (maxAdvance <= 0 || currentlyRunningJob_ != null) {
+            return 0;
+        }
+
+        final JavaScriptJob earliestJob = scheduledJobsQ_.peek();
+        if (earliestJob == null) {
+            return 0;
+        }
+
+        final long targetTime = earliestJob.getTargetExecutionTime();
+        final long gap = Math.min(Math.min(targetTime, limit) - clock.currentTimeMillis(), maxAdvance);
+        if (gap <= 0) {
+            return 0;
+        }
+
+        clock.advance(gap);
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Virtual time skipped " + gap + "ms (offset is now " + clock.getOffset() + "ms)");
+        }
+
+        final LongConsumer earliestJobListener = earliestJobListener_;
+        if (earliestJobListener != null) {
+            earliestJobListener.accept(targetTime);
+        }
+        return gap;
+    }
+
     /**
      * Utility method to print current queue.
      */
@@ -336,7 +453,7 @@ class JavaScriptJobManagerImpl implements JavaScriptJobManager {
         int count = 1;
         for (final JavaScriptJob job : scheduledJobsQ_) {
             if (filter == null || filter.passes(job)) {
-                final long now = System.currentTimeMillis();
+                final long now = getVirtualClock().currentTimeMillis();
                 final long execTime = job.getTargetExecutionTime();
                 status.append("  ").append(count).append(")  Job target execution time: ")
                         .append(execTime).append(" (should start in ")
@@ -396,14 +513,16 @@ class JavaScriptJobManagerImpl implements JavaScriptJobManager {
             return false;
         }
 
-        final long currentTime = System.currentTimeMillis();
+        final long currentTime = getVirtualClock().currentTimeMillis();
         if (job.getTargetExecutionTime() > currentTime) {
             return false;
         }
         synchronized (this) {
-            if (scheduledJobsQ_.remove(job)) {
-                currentlyRunningJob_ = job;
+            if (!scheduledJobsQ_.remove(job)) {
+                // removed in the meantime
+                return false;
             }
+            currentlyRunningJob_ = job;
             // no need to notify if processing is started
         }
 
@@ -443,6 +562,8 @@ class JavaScriptJobManagerImpl implements JavaScriptJobManager {
                 if (job == currentlyRunningJob_) {
                     currentlyRunningJob_ = null;
                 }
+                // the job is done, no need to remember the cancellation
+                cancelledJobs_.remove(job.getId());
                 notify();
             }
         }
@@ -0,0 +1,212 @@
+/*
+ * Copyright (c) 2002-2024 Gargoyle Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.htmlunit.javascript.background;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * The single timer shared by all {@link SharedJavaScriptExecutor}s.
+ * There is only one thread waiting on a {@link DelayQueue} of wakeup requests;
+ * the execution of the jobs itself is dispatched to an {@link Executor}.
+ * Every executor has at most one pending wakeup request.
+ *
+ * @author agent <agent@local>
+ */
+final class SharedJavaScriptEventLoop implements Runnable {
+
+    /** Logging support. */
+    private static final Log LOG = LogFactory.getLog(SharedJavaScriptEventLoop.class);
+
+    private static final SharedJavaScriptEventLoop INSTANCE = new SharedJavaScriptEventLoop();
+
+    private final DelayQueue<Wakeup> wakeups_ = new DelayQueue<>();
+    /** The pending wakeup request of every executor. */
+    private final ConcurrentMap<SharedJavaScriptExecutor, Wakeup> pendingWakeups_ = new ConcurrentHashMap<>();
+    private volatile Executor dispatcher_;
+    private Thread timerThread_;
+
+    private SharedJavaScriptEventLoop() {
+        super();
+    }
+
+    /**
+     * @return the singleton
+     */
+    static SharedJavaScriptEventLoop getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Requests a call of {@link SharedJavaScriptExecutor#signal()} at the given time.
+     * A pending later request of the executor is replaced; if the pending request
+     * is not later, it is kept (the executor arms the timer again after running its jobs).
+     * @param executor the executor to wake up
+     * @param targetTime the time (in millis) the executor has to be woken up
+     */
+    void schedule(final SharedJavaScriptExecutor executor, final long targetTime) {
+        startTimerIfNeeded();
+        pendingWakeups_.compute(executor, (key, pending) -> {
+            if (pending != null) {
+                if (pending.targetTime_ <= targetTime) {
+                    return pending;
+                }
+                wakeups_.remove(pending);
+            }
+            final Wakeup wakeup = new Wakeup(executor, targetTime);
+            wakeups_.add(wakeup);
+            return wakeup;
+        });
+    }
+
+    /**
+     * Removes the pending wakeup request of the given executor.
+     * @param executor the executor that has been shutdown
+     */
+    void cancel(final SharedJavaScriptExecutor executor) {
+        final Wakeup pending = pendingWakeups_.remove(executor);
+        if (pending != null) {
+            wakeups_.remove(pending);
+        }
+    }
+
+    /**
+     * @param executor the executor
+     * @return the number of wakeup requests of the given executor waiting in the queue
+     */
+    int getWakeupCount(final SharedJavaScriptExecutor executor) {
+        int count = 0;
+        for (final Wakeup wakeup : wakeups_) {
+            if (wakeup.executor_ == executor) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Runs the given task using the dispatcher.
+     * @param task the task
+     */
+    void dispatch(final Runnable task) {
+        getDispatcher().execute(task);
+    }
+
+    /**
+     * @return the executor used to run the jobs
+     */
+    Executor getDispatcher() {
+        Executor dispatcher = dispatcher_;
+        if (dispatcher == null) {
+            synchronized (this) {
+                dispatcher = dispatcher_;
+                if (dispatcher == null) {
+                    final int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+                    dispatcher = Executors.newFixedThreadPool(threads, new DaemonThreadFactory());
+                    dispatcher_ = dispatcher;
+                }
+            }
+        }
+        return dispatcher;
+    }
+
+    /**
+     * Replaces the executor used to run the jobs.
+     * @param dispatcher the new executor or {@code null} to use the default pool
+     */
+    void setDispatcher(final Executor dispatcher) {
+        synchronized (this) {
+            dispatcher_ = dispatcher;
+        }
+    }
+
+    private synchronized void startTimerIfNeeded() {
+        if (timerThread_ == null || !timerThread_.isAlive()) {
+            timerThread_ = new Thread(this, "HtmlUnit shared JS event loop");
+            timerThread_.setDaemon(true);
+            timerThread_.start();
+        }
+    }
+
+    /** Waits for due wakeup requests and signals the executors. */
+    @Override
+    public void run() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                final Wakeup wakeup = wakeups_.take();
+                pendingWakeups_.remove(wakeup.executor_, wakeup);
+                wakeup.executor_.signal();
+            }
+            catch (final InterruptedException e) {
+                // restore interrupted status
+                Thread.currentThread().interrupt();
+            }
+            catch (final RuntimeException e) {
+                LOG.error("Signaling the JS executor failed: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    private static final class Wakeup implements Delayed {
+        private final SharedJavaScriptExecutor executor_;
+        private final long targetTime_;
+
+        Wakeup(final SharedJavaScriptExecutor executor, final long targetTime) {
+            executor_ = executor;
+            targetTime_ = targetTime;
+        }
+
+        @Override
+        public long getDelay(final TimeUnit unit) {
+            return unit.convert(targetTime_ - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(final Delayed other) {
+            return Long.compare(targetTime_, ((Wakeup) other).targetTime_);
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            return this == obj;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(this);
+        }
+    }
+
+    private static final class DaemonThreadFactory implements ThreadFactory {
+        private final AtomicInteger count_ = new AtomicInteger();
+
+        @Override
+        public Thread newThread(final Runnable runnable) {
+            final Thread thread = new Thread(runnable, "HtmlUnit shared JS executor " + count_.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,239 @@
+/*
+ * Copyright (c) 2002-2024 Gargoyle Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.htmlunit.javascript.background;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.htmlunit.WebClient;
+import org.htmlunit.WebClientOptions;
+import org.htmlunit.WebWindow;
+
+/**
+ * An event loop without a thread of its own. All instances share one timer
+ * thread that wakes up an executor exactly at the target execution time of its
+ * earliest job; the jobs are then executed by a shared (bounded) pool.
+ * The jobs of one {@link WebClient} are still executed one after the other,
+ * in the order of their target execution times.
+ *
+ * @see WebClientOptions#setSharedJavaScriptExecutorEnabled(boolean)
+ * @author agent <agent@local>
+ */
+public class SharedJavaScriptExecutor extends DefaultJavaScriptExecutor {
+
+    /** Logging support. */
+    private static final Log LOG = LogFactory.getLog(SharedJavaScriptExecutor.class);
+
+    /** Fallback poll interval for job managers not reporting new jobs. */
+    private static final long POLL_INTERVAL = 10;
+
+    /** The max number of jobs executed before other executors get a chance. */
+    private static final int MAX_JOBS_PER_DRAIN = 64;
+
+    private final transient AtomicInteger pendingSignals_ = new AtomicInteger();
+    private final transient AtomicLong armedTime_ = new AtomicLong(Long.MAX_VALUE);
+    private final transient ReentrantLock drainLock_ = new ReentrantLock();
+    private volatile boolean shutdown_;
+    private volatile boolean polling_;
+
+    /**
+     * Creates an event loop for the webClient.
+     *
+     * @param webClient the provided webClient
+     */
+    public SharedJavaScriptExecutor(final WebClient webClient) {
+        super(webClient);
+    }
+
+    /**
+     * Replaces the executor running the jobs of all {@link SharedJavaScriptExecutor}s.
+     * By default, a fixed pool of daemon threads (one per processor) is used;
+     * when running on a recent JVM a virtual thread executor might be a good choice.
+     *
+     * @param dispatcher the new executor or {@code null} to restore the default
+     */
+    public static void setDispatcher(final Executor dispatcher) {
+        SharedJavaScriptEventLoop.getInstance().setDispatcher(dispatcher);
+    }
+
+    /**
+     * No thread needed, we are using the shared one.
+     */
+    @Override
+    protected void startThreadIfNeeded() {
+        // nothing
+    }
+
+    /**
+     * Register a window with the eventLoop.
+     * @param newWindow the new web window
+     */
+    @Override
+    public void addWindow(final WebWindow newWindow) {
+        super.addWindow(newWindow);
+
+        final JavaScriptJobManager jobManager = newWindow.getJobManager();
+        if (jobManager instanceof JavaScriptJobManagerImpl) {
+            ((JavaScriptJobManagerImpl) jobManager).setEarliestJobListener(this::jobScheduled);
+        }
+        else if (jobManager != null) {
+            polling_ = true;
+        }
+        arm();
+    }
+
+    /**
+     * Makes sure we are woken up at the given time.
+     * @param targetTime the target execution time of a new job (virtual time)
+     */
+    private void jobScheduled(final long targetTime) {
+        if (shutdown_) {
+            return;
+        }
+
+        // the timer works with the real time
+        final long realTime = getVirtualClock().toRealTime(targetTime);
+        final long armed = armedTime_.getAndAccumulate(realTime, Math::min);
+        if (realTime < armed) {
+            SharedJavaScriptEventLoop.getInstance().schedule(this, realTime);
+        }
+    }
+
+    /**
+     * Called by the timer if this executor has (maybe) some work to do.
+     */
+    void signal() {
+        if (shutdown_) {
+            return;
+        }
+
+        if (pendingSignals_.getAndIncrement() == 0) {
+            try {
+                SharedJavaScriptEventLoop.getInstance().dispatch(this);
+            }
+            catch (final RejectedExecutionException e) {
+                pendingSignals_.set(0);
+                LOG.error("JS executor rejected the jobs of " + getThreadName(), e);
+            }
+        }
+    }
+
+    /**
+     * Runs all the jobs that are due; at the end the timer is armed for the next one.
+     */
+    @Override
+    public void run() {
+        int missed = 1;
+        while (true) {
+            armedTime_.set(Long.MAX_VALUE);
+            runDueJobs();
+
+            missed = pendingSignals_.addAndGet(-missed);
+            if (missed == 0) {
+                break;
+            }
+        }
+        arm();
+    }
+
+    private void runDueJobs() {
+        final boolean trace = LOG.isTraceEnabled();
+
+        drainLock_.lock();
+        try {
+            final long drainStart = getVirtualClock().currentTimeMillis();
+            int count = 0;
+            while (!shutdown_ && count < MAX_JOBS_PER_DRAIN) {
+                final JavaScriptJobManager jobManager = getJobManagerWithEarliestJob();
+                if (jobManager == null) {
+                    return;
+                }
+
+                final JavaScriptJob earliestJob = jobManager.getEarliestJob();
+                if (earliestJob == null || earliestJob.getTargetExecutionTime() > drainStart) {
+                    return;
+                }
+
+                if (trace) {
+                    LOG.trace("started executing job at " + System.currentTimeMillis());
+                }
+                jobManager.runSingleJob(earliestJob);
+                if (trace) {
+                    LOG.trace("stopped executing job at " + System.currentTimeMillis());
+                }
+                count++;
+            }
+        }
+        finally {
+            drainLock_.unlock();
+        }
+    }
+
+    /**
+     * Schedules the wakeup for the earliest job of all our job managers.
+     */
+    private void arm() {
+        if (shutdown_) {
+            return;
+        }
+
+        long next = Long.MAX_VALUE;
+        final JavaScriptJobManager jobManager = getJobManagerWithEarliestJob();
+        if (jobManager != null) {
+            final JavaScriptJob earliestJob = jobManager.getEarliestJob();
+            if (earliestJob != null) {
+                next = earliestJob.getTargetExecutionTime();
+            }
+        }
+        if (polling_) {
+            next = Math.min(next, getVirtualClock().currentTimeMillis() + POLL_INTERVAL);
+        }
+
+        if (next != Long.MAX_VALUE) {
+            jobScheduled(next);
+        }
+    }
+
+    /** Notes that this executor has been shutdown. */
+    @Override
+    public void shutdown() {
+        shutdown_ = true;
+        SharedJavaScriptEventLoop.getInstance().cancel(this);
+
+        // wait for the running job like the default executor does
+        try {
+            if (drainLock_.tryLock(10, TimeUnit.SECONDS)) {
+                drainLock_.unlock();
+            }
+            else {
+                LOG.warn("Job of " + getThreadName() + " still running at " + System.currentTimeMillis());
+            }
+        }
+        catch (final InterruptedException e) {
+            LOG.warn("InterruptedException while waiting for the running job", e);
+
+            // restore interrupted status
+            Thread.currentThread().interrupt();
+        }
+
+        super.shutdown();
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2002-2024 Gargoyle Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.htmlunit.javascript.background;
+
+import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.htmlunit.WebClientOptions;
+
+/**
+ * The clock used for the scheduling of background JavaScript and for
+ * the time reported to the scripts (<code>Date.now()</code>, <code>performance.now()</code>).
+ * The virtual time is the real time plus an offset; the offset is only
+ * increased if the virtual time mode is enabled and the job manager is
+ * waiting for a job scheduled in the future - this way idle gaps are skipped
+ * without changing the order of the jobs.
+ *
+ * @see WebClientOptions#setVirtualTimeEnabled(boolean)
+ * @author agent <agent@local>
+ */
+public class VirtualClock implements Serializable {
+
+    private final AtomicLong offset_ = new AtomicLong();
+
+    /**
+     * @return the current virtual time in milliseconds (like {@link System#currentTimeMillis()})
+     */
+    public long currentTimeMillis() {
+        return System.currentTimeMillis() + offset_.get();
+    }
+
+    /**
+     * @return the current virtual value of the high resolution timer in milliseconds
+     *         (based on {@link System#nanoTime()})
+     */
+    public double highResolutionMillis() {
+        return System.nanoTime() / 1_000_000d + offset_.get();
+    }
+
+    /**
+     * @return the difference between the virtual and the real time in milliseconds
+     */
+    public long getOffset() {
+        return offset_.get();
+    }
+
+    /**
+     * Moves the virtual time forward.
+     * @param millis the number of milliseconds to skip; negative values are ignored
+     */
+    public void advance(final long millis) {
+        if (millis > 0) {
+            offset_.addAndGet(millis);
+        }
+    }
+
+    /**
+     * Converts the given virtual time into the corresponding real time.
+     * @param virtualTimeMillis the virtual time
+     * @return the real time
+     */
+    public long toRealTime(final long virtualTimeMillis) {
+        return virtualTimeMillis - offset_.get();
+    }
+}
@@ -59,14 +59,40 @@ public abstract class AbstractJavaScriptConfiguration {
     protected AbstractJavaScriptConfiguration(final BrowserVersion browser) {
         configuration_ = new ConcurrentHashMap<>(getClasses().length);
 
+        // the table generated at build time saves the scanning of the annotations
+        ClassConfigurationTable table = null;
+        if (browser != null) {
+            table = ClassConfigurationTable.load(getSupportedBrowser(browser));
+        }
+
         for (final Class<? extends HtmlUnitScriptable> klass : getClasses()) {
-            final ClassConfiguration config = getClassConfiguration(klass, browser);
+            final ClassConfiguration config;
+            if (table != null && table.contains(klass)) {
+                config = getClassConfiguration(klass, browser, table);
+            }
+            else {
+                config = getClassConfiguration(klass, browser);
+            }
             if (config != null) {
                 configuration_.put(config.getClassName(), config);
             }
         }
     }
 
+    private static ClassConfiguration getClassConfiguration(final Class<? extends HtmlUnitScriptable> klass,
+            final BrowserVersion browserVersion, final ClassConfigurationTable table) {
+        try {
+            return table.createClassConfiguration(klass);
+        }
+        catch (final Exception e) {
+            if (LOG.isWarnEnabled()) {
+                LOG.warn("Generated configuration of '" + klass.getName()
+                        + "' is not usable, processing the annotations instead. Reason: " + e);
+            }
+            return getClassConfiguration(klass, browserVersion);
+        }
+    }
+
     /**
      * @return the classes configured by this configuration
      */
@@ -90,22 +116,7 @@ public abstract class AbstractJavaScriptConfiguration {
     public static ClassConfiguration getClassConfiguration(final Class<? extends HtmlUnitScriptable> klass,
         final BrowserVersion browserVersion) {
         if (browserVersion != null) {
-            final SupportedBrowser expectedBrowser;
-            if (browserVersion.isChrome()) {
-                expectedBrowser = CHROME;
-            }
-            else if (browserVersion.isEdge()) {
-                expectedBrowser = EDGE;
-            }
-            else if (browserVersion.isFirefoxESR()) {
-                expectedBrowser = FF_ESR;
-            }
-            else if (browserVersion.isFirefox()) {
-                expectedBrowser = FF;
-            }
-            else {
-                expectedBrowser = CHROME;  // our current fallback
-            }
+            final SupportedBrowser expectedBrowser = getSupportedBrowser(browserVersion);
 
             final String hostClassName = klass.getName();
             final JsxClasses jsxClasses = klass.getAnnotation(JsxClasses.class);
@@ -190,6 +201,28 @@ public abstract class AbstractJavaScriptConfiguration {
         return null;
     }
 
+    /**
+     * Returns the {@link SupportedBrowser} used to evaluate the annotations for the given browser version.
+     *
+     * @param browserVersion the browser version
+     * @return the supported browser
+     */
+    static SupportedBrowser getSupportedBrowser(final BrowserVersion browserVersion) {
+        if (browserVersion.isChrome()) {
+            return CHROME;
+        }
+        if (browserVersion.isEdge()) {
+            return EDGE;
+        }
+        if (browserVersion.isFirefoxESR()) {
+            return FF_ESR;
+        }
+        if (browserVersion.isFirefox()) {
+            return FF;
+        }
+        return CHROME;  // our current fallback
+    }
+
     private static void process(final ClassConfiguration classConfiguration, final SupportedBrowser expectedBrowser) {
         final Map<String, Method> allGetters = new ConcurrentHashMap<>();
         final Map<String, Method> allSetters = new ConcurrentHashMap<>();
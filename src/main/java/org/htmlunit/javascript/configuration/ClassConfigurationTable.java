@@ -0,0 +1,371 @@
+/*
+ * Copyright (c) 2002-2024 Gargoyle Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.htmlunit.javascript.configuration;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.lang.reflect.Method;
+import java.net.JarURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+import org.htmlunit.corejs.javascript.Symbol;
+import org.htmlunit.corejs.javascript.SymbolKey;
+import org.htmlunit.javascript.HtmlUnitScriptable;
+
+/**
+ * <span style="color:red">INTERNAL API - SUBJECT TO CHANGE AT ANY TIME - USE AT YOUR OWN RISK.</span><br>
+ *
+ * The {@link ClassConfiguration}s of all host classes for one {@link SupportedBrowser}, generated
+ * during the build (see {@link ClassConfigurationTableGenerator}) from the annotations.
+ * Creating the configurations from this table only looks up the referenced methods and
+ * fields; the (expensive) scanning of all the annotations of all the host classes is not needed.
+ *
+ * <p>The table is a simple text file; every line is one tab separated entry. The first entry is
+ * the stamp of the host classes the table was generated from. The first entry of every host class
+ * is either the class itself or a marker for classes not supported by the browser; all following
+ * entries up to the next class are the members of the class.</p>
+ *
+ * <p>A table packaged in the same jar as the classes is used as is. Otherwise (e.g. classes compiled
+ * by an IDE into a directory) the stamp is compared once with the stamp of the host classes found
+ * at runtime; the table is not used at all if they differ.</p>
+ *
+ * @author agent <agent@local>
+ */
+public final class ClassConfigurationTable {
+
+    static final String STAMP = "V";
+    static final String CLASS = "C";
+    static final String NOT_SUPPORTED = "-";
+    static final String CONSTRUCTOR = "K";
+    static final String CONSTRUCTOR_ALIAS = "A";
+    static final String PROPERTY = "P";
+    static final String STATIC_PROPERTY = "SP";
+    static final String FUNCTION = "F";
+    static final String STATIC_FUNCTION = "SF";
+    static final String SYMBOL = "S";
+    static final String SYMBOL_CONSTANT = "SC";
+    static final String CONSTANT = "N";
+
+    private static final Map<String, Class<?>> PRIMITIVES = new HashMap<>();
+
+    /** The stamp of the host classes found at runtime; computed on demand. */
+    private static volatile String RuntimeStamp_;
+
+    static {
+        for (final Class<?> c : Arrays.asList(boolean.class, byte.class, char.class, short.class,
+                int.class, long.class, float.class, double.class, void.class)) {
+            PRIMITIVES.put(c.getName(), c);
+        }
+    }
+
+    private final Map<String, List<String[]>> entries_ = new HashMap<>();
+    private String stamp_;
+    private final Map<String, Class<?>> types_ = new HashMap<>(PRIMITIVES);
+
+    private ClassConfigurationTable() {
+        // use the factory methods
+    }
+
+    /**
+     * Loads the table generated for the given browser.
+     *
+     * @param browser the browser
+     * @return the table or {@code null} if there is no (up to date) generated table available
+     */
+    public static ClassConfigurationTable load(final SupportedBrowser browser) {
+        final URL url = ClassConfigurationTable.class.getResource(getResourceName(browser));
+        if (url == null) {
+            return null;
+        }
+
+        try (InputStream is = url.openStream()) {
+            final ClassConfigurationTable table = read(new InputStreamReader(is, StandardCharsets.UTF_8));
+            if (isPackagedWithClasses(url) || table.isUpToDate()) {
+                return table;
+            }
+            return null;
+        }
+        catch (final IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return whether the table at the given url is part of the same jar as the classes
+     */
+    private static boolean isPackagedWithClasses(final URL url) {
+        final URL classUrl = ClassConfigurationTable.class.getResource(
+                ClassConfigurationTable.class.getSimpleName() + ".class");
+        if (classUrl == null || !"jar".equals(url.getProtocol()) || !"jar".equals(classUrl.getProtocol())) {
+            return false;
+        }
+        final String table = url.toExternalForm();
+        final String klass = classUrl.toExternalForm();
+        final int separator = table.indexOf("!/");
+        return separator != -1 && table.regionMatches(0, klass, 0, separator + 2);
+    }
+
+    /**
+     * Reads a table.
+     *
+     * @param reader the reader to read from
+     * @return the table
+     * @throws IOException in case of problems
+     */
+    public static ClassConfigurationTable read(final Reader reader) throws IOException {
+        final ClassConfigurationTable table = new ClassConfigurationTable();
+
+        final BufferedReader bufferedReader = new BufferedReader(reader);
+        List<String[]> current = null;
+        String line;
+        while ((line = bufferedReader.readLine()) != null) {
+            if (line.isEmpty() || line.charAt(0) == '#') {
+                continue;
+            }
+            final String[] entry = line.split("\t", -1);
+            if (STAMP.equals(entry[0])) {
+                table.stamp_ = entry[1];
+                continue;
+            }
+            if (CLASS.equals(entry[0]) || NOT_SUPPORTED.equals(entry[0])) {
+                current = new ArrayList<>();
+                table.entries_.put(entry[1], current);
+            }
+            else if (current == null) {
+                throw new IOException("Invalid table, member without class: " + line);
+            }
+            current.add(entry);
+        }
+        return table;
+    }
+
+    /**
+     * @param klass the host class
+     * @return whether this table contains the configuration of the given class
+     */
+    public boolean contains(final Class<? extends HtmlUnitScriptable> klass) {
+        return entries_.containsKey(klass.getName());
+    }
+
+    /**
+     * @return whether the stamp of this table is the stamp of the host classes found at runtime
+     */
+    boolean isUpToDate() {
+        if (stamp_ == null) {
+            return false;
+        }
+
+        String runtimeStamp = RuntimeStamp_;
+        if (runtimeStamp == null) {
+            try {
+                runtimeStamp = computeStamp();
+            }
+            catch (final IOException e) {
+                return false;
+            }
+            RuntimeStamp_ = runtimeStamp;
+        }
+        return stamp_.equals(runtimeStamp);
+    }
+
+    /**
+     * @return all the host classes configured by the tables
+     */
+    static Set<Class<? extends HtmlUnitScriptable>> getHostClasses() {
+        final Set<Class<? extends HtmlUnitScriptable>> classes = new LinkedHashSet<>();
+        classes.addAll(Arrays.asList(JavaScriptConfiguration.CLASSES_));
+        classes.addAll(Arrays.asList(WorkerJavaScriptConfiguration.CLASSES_));
+        classes.addAll(Arrays.asList(ProxyAutoConfigJavaScriptConfiguration.CLASSES_));
+        return classes;
+    }
+
+    /**
+     * Returns the stamp of all the host classes: a checksum of the class files of all of them.
+     *
+     * @return the stamp
+     * @throws IOException in case of problems reading the class files
+     */
+    static String computeStamp() throws IOException {
+        final CRC32 crc = new CRC32();
+        for (final Class<?> klass : getHostClasses()) {
+            crc.update(klass.getName().getBytes(StandardCharsets.UTF_8));
+            crc.update(getChecksum(klass).getBytes(StandardCharsets.UTF_8));
+        }
+        return Long.toHexString(crc.getValue());
+    }
+
+    /**
+     * Returns the checksum of the class file of the given class. For classes loaded from
+     * a jar file, this is the CRC stored in the jar; reading the class file is not required.
+     *
+     * @param klass the class
+     * @return the checksum
+     * @throws IOException in case of problems reading the class file
+     */
+    private static String getChecksum(final Class<?> klass) throws IOException {
+        final ClassLoader loader = klass.getClassLoader();
+        final URL url = loader == null ? null : loader.getResource(klass.getName().replace('.', '/') + ".class");
+        if (url == null) {
+            throw new IOException("No class file found for " + klass.getName());
+        }
+
+        final URLConnection connection = url.openConnection();
+        if (connection instanceof JarURLConnection) {
+            final long crc = ((JarURLConnection) connection).getJarEntry().getCrc();
+            if (crc != -1) {
+                return Long.toHexString(crc);
+            }
+        }
+
+        final CRC32 crc = new CRC32();
+        try (InputStream is = connection.getInputStream()) {
+            final byte[] buffer = new byte[8192];
+            int read;
+            while ((read = is.read(buffer)) != -1) {
+                crc.update(buffer, 0, read);
+            }
+        }
+        return Long.toHexString(crc.getValue());
+    }
+
+    /**
+     * Creates the configuration of the given host class.
+     *
+     * @param klass the host class
+     * @return the configuration or {@code null} if the class is not supported by the browser
+     * @throws ReflectiveOperationException if a referenced member does not exist (anymore)
+     */
+    public ClassConfiguration createClassConfiguration(final Class<? extends HtmlUnitScriptable> klass)
+            throws ReflectiveOperationException {
+        final List<String[]> entries = entries_.get(klass.getName());
+        if (entries == null) {
+            throw new ClassNotFoundException("No table entry for " + klass.getName());
+        }
+
+        final String[] head = entries.get(0);
+        if (NOT_SUPPORTED.equals(head[0])) {
+            return null;
+        }
+
+        final ClassLoader loader = klass.getClassLoader();
+        final List<Class<?>> domClasses = new ArrayList<>();
+        if (!head[5].isEmpty()) {
+            for (final String domClass : head[5].split(",")) {
+                domClasses.add(getType(domClass, loader));
+            }
+        }
+        final ClassConfiguration config = new ClassConfiguration(klass, domClasses.toArray(new Class<?>[0]),
+                Boolean.parseBoolean(head[2]), head[3], head[4]);
+
+        for (int i = 1; i < entries.size(); i++) {
+            final String[] entry = entries.get(i);
+            switch (entry[0]) {
+                case CONSTRUCTOR:
+                    config.setJSConstructor(entry[1], getMethod(klass, entry[2]));
+                    break;
+
+                case CONSTRUCTOR_ALIAS:
+                    config.setJSConstructorAlias(entry[1]);
+                    break;
+
+                case PROPERTY:
+                    config.addProperty(entry[1], getMethod(klass, entry[2]),
+                            entry[3].isEmpty() ? null : getMethod(klass, entry[3]));
+                    break;
+
+                case STATIC_PROPERTY:
+                    config.addStaticProperty(entry[1], getMethod(klass, entry[2]), null);
+                    break;
+
+                case FUNCTION:
+                    config.addFunction(entry[1], getMethod(klass, entry[2]));
+                    break;
+
+                case STATIC_FUNCTION:
+                    config.addStaticFunction(entry[1], getMethod(klass, entry[2]));
+                    break;
+
+                case SYMBOL:
+                    config.addSymbol(toSymbol(entry[1]), getMethod(klass, entry[2]));
+                    break;
+
+                case SYMBOL_CONSTANT:
+                    config.addSymbolConstant(toSymbol(entry[1]), entry[2]);
+                    break;
+
+                case CONSTANT:
+                    config.addConstant(entry[1], klass.getDeclaredField(entry[1]).get(null));
+                    break;
+
+                default:
+                    throw new IllegalArgumentException("Unknown table entry '" + entry[0] + "'");
+            }
+        }
+        return config;
+    }
+
+    private Method getMethod(final Class<?> klass, final String signature) throws ReflectiveOperationException {
+        final int open = signature.indexOf('(');
+        final String name = signature.substring(0, open);
+        final String params = signature.substring(open + 1, signature.length() - 1);
+
+        if (params.isEmpty()) {
+            return klass.getDeclaredMethod(name);
+        }
+        final String[] paramNames = params.split(",");
+        final Class<?>[] paramTypes = new Class<?>[paramNames.length];
+        for (int i = 0; i < paramNames.length; i++) {
+            paramTypes[i] = getType(paramNames[i], klass.getClassLoader());
+        }
+        return klass.getDeclaredMethod(name, paramTypes);
+    }
+
+    private Class<?> getType(final String name, final ClassLoader loader) throws ClassNotFoundException {
+        Class<?> type = types_.get(name);
+        if (type == null) {
+            type = Class.forName(name, false, loader);
+            types_.put(name, type);
+        }
+        return type;
+    }
+
+    private static Symbol toSymbol(final String name) {
+        if ("ITERATOR".equals(name)) {
+            return SymbolKey.ITERATOR;
+        }
+        if ("TO_STRING_TAG".equals(name)) {
+            return SymbolKey.TO_STRING_TAG;
+        }
+        throw new IllegalArgumentException("Unsupported symbol '" + name + "'");
+    }
+
+    static String getResourceName(final SupportedBrowser browser) {
+        return "jsconfig-" + browser.name().toLowerCase(Locale.ROOT) + ".txt";
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2002-2024 Gargoyle Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.htmlunit.javascript.configuration;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.htmlunit.BrowserVersion;
+import org.htmlunit.corejs.javascript.Symbol;
+import org.htmlunit.corejs.javascript.SymbolKey;
+import org.htmlunit.javascript.HtmlUnitScriptable;
+import org.htmlunit.javascript.configuration.ClassConfiguration.ConstantInfo;
+import org.htmlunit.javascript.configuration.ClassConfiguration.PropertyInfo;
+
+/**
+ * <span style="color:red">INTERNAL API - SUBJECT TO CHANGE AT ANY TIME - USE AT YOUR OWN RISK.</span><br>
+ *
+ * Generates the {@link ClassConfigurationTable}s from the annotations of the host classes;
+ * this is called by the build.
+ *
+ * @author agent <agent@local>
+ */
+public final class ClassConfigurationTableGenerator {
+
+    private ClassConfigurationTableGenerator() {
+        // utility class
+    }
+
+    /**
+     * Writes the table of the given browser by processing the annotations of all the host classes.
+     *
+     * @param writer the writer to write to
+     * @param browserVersion the browser version
+     * @throws IOException in case of problems
+     */
+    public static void write(final Writer writer, final BrowserVersion browserVersion) throws IOException {
+        writer.write("# generated from the annotations of the host classes - do not edit\n");
+        writeEntry(writer, ClassConfigurationTable.STAMP, ClassConfigurationTable.computeStamp());
+
+        for (final Class<? extends HtmlUnitScriptable> klass : ClassConfigurationTable.getHostClasses()) {
+            final ClassConfiguration config =
+                    AbstractJavaScriptConfiguration.getClassConfiguration(klass, browserVersion);
+            if (config == null) {
+                writeEntry(writer, ClassConfigurationTable.NOT_SUPPORTED, klass.getName());
+                continue;
+            }
+
+            final StringBuilder domClasses = new StringBuilder();
+            for (final Class<?> domClass : config.getDomClasses()) {
+                if (domClasses.length() > 0) {
+                    domClasses.append(',');
+                }
+                domClasses.append(domClass.getName());
+            }
+            writeEntry(writer, ClassConfigurationTable.CLASS, klass.getName(), Boolean.toString(config.isJsObject()),
+                    config.getClassName(), config.getExtendedClassName(), domClasses.toString());
+
+            final Map.Entry<String, Member> jsConstructor = config.getJsConstructor();
+            if (jsConstructor != null) {
+                writeEntry(writer, ClassConfigurationTable.CONSTRUCTOR, jsConstructor.getKey(),
+                        toSignature((Method) jsConstructor.getValue()));
+                if (config.getJsConstructorAlias() != null) {
+                    writeEntry(writer, ClassConfigurationTable.CONSTRUCTOR_ALIAS, config.getJsConstructorAlias());
+                }
+            }
+            if (config.getPropertyMap() != null) {
+                for (final Map.Entry<String, PropertyInfo> entry : new TreeMap<>(config.getPropertyMap()).entrySet()) {
+                    final Method writeMethod = entry.getValue().getWriteMethod();
+                    writeEntry(writer, ClassConfigurationTable.PROPERTY, entry.getKey(),
+                            toSignature(entry.getValue().getReadMethod()),
+                            writeMethod == null ? "" : toSignature(writeMethod));
+                }
+            }
+            if (config.getStaticPropertyMap() != null) {
+                for (final Map.Entry<String, PropertyInfo> entry
+                        : new TreeMap<>(config.getStaticPropertyMap()).entrySet()) {
+                    writeEntry(writer, ClassConfigurationTable.STATIC_PROPERTY, entry.getKey(),
+                            toSignature(entry.getValue().getReadMethod()));
+                }
+            }
+            if (config.getFunctionMap() != null) {
+                for (final Map.Entry<String, Method> entry : new TreeMap<>(config.getFunctionMap()).entrySet()) {
+                    writeEntry(writer, ClassConfigurationTable.FUNCTION, entry.getKey(), toSignature(entry.getValue()));
+                }
+            }
+            if (config.getStaticFunctionMap() != null) {
+                for (final Map.Entry<String, Method> entry
+                        : new TreeMap<>(config.getStaticFunctionMap()).entrySet()) {
+                    writeEntry(writer, ClassConfigurationTable.STATIC_FUNCTION, entry.getKey(),
+                            toSignature(entry.getValue()));
+                }
+            }
+            if (config.getSymbolMap() != null) {
+                for (final Map.Entry<Symbol, Method> entry : config.getSymbolMap().entrySet()) {
+                    writeEntry(writer, ClassConfigurationTable.SYMBOL, toName(entry.getKey()),
+                            toSignature(entry.getValue()));
+                }
+            }
+            if (config.getSymbolConstantMap() != null) {
+                for (final Map.Entry<Symbol, String> entry : config.getSymbolConstantMap().entrySet()) {
+                    writeEntry(writer, ClassConfigurationTable.SYMBOL_CONSTANT, toName(entry.getKey()),
+                            entry.getValue());
+                }
+            }
+            if (config.getConstants() != null) {
+                for (final ConstantInfo constant : config.getConstants()) {
+                    writeEntry(writer, ClassConfigurationTable.CONSTANT, constant.getName());
+                }
+            }
+        }
+    }
+
+    private static void writeEntry(final Writer writer, final String... values) throws IOException {
+        writer.write(String.join("\t", values));
+        writer.write('\n');
+    }
+
+    private static String toSignature(final Method method) {
+        final StringBuilder signature = new StringBuilder(method.getName()).append('(');
+        final Class<?>[] paramTypes = method.getParameterTypes();
+        for (int i = 0; i < paramTypes.length; i++) {
+            if (i > 0) {
+                signature.append(',');
+            }
+            signature.append(paramTypes[i].getName());
+        }
+        return signature.append(')').toString();
+    }
+
+    private static String toName(final Symbol symbol) {
+        if (symbol == SymbolKey.ITERATOR) {
+            return "ITERATOR";
+        }
+        if (symbol == SymbolKey.TO_STRING_TAG) {
+            return "TO_STRING_TAG";
+        }
+        throw new IllegalArgumentException("Unsupported symbol '" + symbol + "'");
+    }
+
+    /**
+     * Generates the tables of all supported browsers.
+     *
+     * @param args the output directory (the root of the class path)
+     * @throws IOException in case of problems
+     */
+    public static void main(final String[] args) throws IOException {
+        final File dir = new File(args[0], ClassConfigurationTable.class.getPackage().getName().replace('.', '/'));
+        Files.createDirectories(dir.toPath());
+
+        final Map<SupportedBrowser, BrowserVersion> browsers = new TreeMap<>();
+        browsers.put(SupportedBrowser.CHROME, BrowserVersion.CHROME);
+        browsers.put(SupportedBrowser.EDGE, BrowserVersion.EDGE);
+        browsers.put(SupportedBrowser.FF, BrowserVersion.FIREFOX);
+        browsers.put(SupportedBrowser.FF_ESR, BrowserVersion.FIREFOX_ESR);
+
+        for (final Map.Entry<SupportedBrowser, BrowserVersion> entry : browsers.entrySet()) {
+            final File file = new File(dir, ClassConfigurationTable.getResourceName(entry.getKey()));
+            try (Writer writer = new OutputStreamWriter(Files.newOutputStream(file.toPath()),
+                    StandardCharsets.UTF_8)) {
+                write(writer, entry.getValue());
+            }
+        }
+    }
+}
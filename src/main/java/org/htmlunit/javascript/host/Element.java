@@ -38,6 +38,7 @@ import org.htmlunit.corejs.javascript.NativeObject;
 import org.htmlunit.corejs.javascript.Scriptable;
 import org.htmlunit.css.ComputedCssStyleDeclaration;
 import org.htmlunit.css.ElementCssStyleDeclaration;
+import org.htmlunit.css.LayoutBoxCache;
 import org.htmlunit.cssparser.parser.CSSException;
 import org.htmlunit.html.DomAttr;
 import org.htmlunit.html.DomCharacterData;
@@ -47,6 +48,7 @@ import org.htmlunit.html.DomNode;
 import org.htmlunit.html.DomText;
 import org.htmlunit.html.HtmlElement;
 import org.htmlunit.html.HtmlElement.DisplayStyle;
+import org.htmlunit.html.HtmlPage;
 import org.htmlunit.html.HtmlTemplate;
 import org.htmlunit.javascript.HtmlUnitScriptable;
 import org.htmlunit.javascript.JavaScriptEngine;
@@ -664,6 +666,16 @@ public class Element extends Node {
      * @return whether the {@code display} is {@code none} or not
      */
     protected final boolean isDisplayNone() {
+        final DomNode node = getDomNodeOrDie();
+        final SgmlPage page = node.getPage();
+        if (page instanceof HtmlPage && node.isAttachedToPage()) {
+            return ((HtmlPage) page).getLayoutBoxCache()
+                    .get(node, LayoutBoxCache.DISPLAY_NONE, () -> calculateDisplayNone() ? 1 : 0) == 1;
+        }
+        return calculateDisplayNone();
+    }
+
+    private boolean calculateDisplayNone() {
         Element element = this;
         while (element != null) {
             final CSSStyleDeclaration style = element.getWindow().getComputedStyle(element, null);
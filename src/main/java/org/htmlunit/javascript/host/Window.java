@@ -660,10 +660,10 @@ public class Window extends EventTarget implements WindowOrWorkerGlobalScope, Au
         final List<AnimationFrame> animationFrames = new ArrayList<>(animationFrames_);
         animationFrames_.clear();
 
-        final double now = System.nanoTime() / 1_000_000d;
+        final WebWindow ww = getWindow().getWebWindow();
+        final double now = ww.getWebClient().getVirtualClock().highResolutionMillis();
         final Object[] args = {now};
 
-        final WebWindow ww = getWindow().getWebWindow();
         final JavaScriptEngine jsEngine = (JavaScriptEngine) ww.getWebClient().getJavaScriptEngine();
 
         for (final AnimationFrame animationFrame : animationFrames) {
@@ -15,7 +15,6 @@
 package org.htmlunit.javascript.host.dom;
 
 import java.io.Serializable;
-import java.lang.ref.WeakReference;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.List;
@@ -23,14 +22,12 @@ import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
 
+import org.htmlunit.SgmlPage;
 import org.htmlunit.corejs.javascript.ExternalArrayData;
 import org.htmlunit.corejs.javascript.Scriptable;
-import org.htmlunit.html.DomChangeEvent;
-import org.htmlunit.html.DomChangeListener;
 import org.htmlunit.html.DomElement;
 import org.htmlunit.html.DomNode;
 import org.htmlunit.html.HtmlAttributeChangeEvent;
-import org.htmlunit.html.HtmlAttributeChangeListener;
 import org.htmlunit.html.HtmlElement;
 import org.htmlunit.html.HtmlPage;
 import org.htmlunit.javascript.HtmlUnitScriptable;
@@ -68,7 +65,10 @@ public class AbstractList extends HtmlUnitScriptable implements ExternalArrayDat
      */
     private List<DomNode> cachedElements_;
 
-    private boolean listenerRegistered_;
+    /** The modification counts of the dom node (and its page) at the time the cache was filled. */
+    private int cachedModificationCount_;
+    private int cachedAttributeModificationCount_;
+    private long cachedAttributeChangesCount_;
 
     private Function<HtmlAttributeChangeEvent, EffectOnCache> effectOnCacheFunction_ =
             (Function<HtmlAttributeChangeEvent, EffectOnCache> & Serializable) event -> EffectOnCache.RESET;
@@ -116,10 +116,10 @@ public class AbstractList extends HtmlUnitScriptable implements ExternalArrayDat
             }
         }
         attributeChangeSensitive_ = attributeChangeSensitive;
-        cachedElements_ = initialElements;
         if (initialElements != null) {
-            registerListener();
+            rememberModificationCounts();
         }
+        cachedElements_ = initialElements;
         setExternalArrayData(this);
     }
 
@@ -202,26 +202,17 @@ public class AbstractList extends HtmlUnitScriptable implements ExternalArrayDat
         return get(key, this);
     }
 
-    @Override
-    public void setDomNode(final DomNode domNode, final boolean assignScriptObject) {
-        final DomNode oldDomNode = getDomNodeOrNull();
-
-        super.setDomNode(domNode, assignScriptObject);
-
-        if (oldDomNode != domNode) {
-            listenerRegistered_ = false;
-        }
-    }
-
     /**
      * Gets the HTML elements from cache or retrieve them at first call.
+     * The cache is invalidated lazily by comparing the modification counts of the dom node.
      * @return the list of {@link HtmlElement} contained in this collection
      */
     public List<DomNode> getElements() {
         // a bit strange but we like to avoid sync
         List<DomNode> cachedElements = cachedElements_;
 
-        if (cachedElements == null) {
+        if (cachedElements == null || isCacheOutdated()) {
+            rememberModificationCounts();
             if (getParentScope() == null) {
                 cachedElements = new ArrayList<>();
             }
@@ -230,30 +221,59 @@ public class AbstractList extends HtmlUnitScriptable implements ExternalArrayDat
             }
             cachedElements_ = cachedElements;
         }
-        registerListener();
-
-        // maybe the cache was cleared in between
-        // then this returns the old state and never null
         return cachedElements;
     }
 
-    private void registerListener() {
-        if (!listenerRegistered_) {
-            final DomNode domNode = getDomNodeOrNull();
-            if (domNode != null) {
-                final DomHtmlAttributeChangeListenerImpl listener = new DomHtmlAttributeChangeListenerImpl(this);
-                domNode.addDomChangeListener(listener);
-                if (attributeChangeSensitive_) {
-                    if (domNode instanceof HtmlElement) {
-                        ((HtmlElement) domNode).addHtmlAttributeChangeListener(listener);
-                    }
-                    else if (domNode instanceof HtmlPage) {
-                        ((HtmlPage) domNode).addHtmlAttributeChangeListener(listener);
-                    }
-                }
-                listenerRegistered_ = true;
+    private void rememberModificationCounts() {
+        final DomNode domNode = getDomNodeOrNull();
+        if (domNode != null) {
+            cachedModificationCount_ = domNode.getSubtreeModificationCount();
+            cachedAttributeModificationCount_ = domNode.getSubtreeAttributeModificationCount();
+            final SgmlPage page = domNode.getPage();
+            if (page instanceof HtmlPage) {
+                cachedAttributeChangesCount_ = ((HtmlPage) page).getAttributeChangesCount();
+            }
+        }
+    }
+
+    private boolean isCacheOutdated() {
+        final DomNode domNode = getDomNodeOrNull();
+        if (domNode == null) {
+            return false;
+        }
+        if (cachedModificationCount_ != domNode.getSubtreeModificationCount()) {
+            return true;
+        }
+        if (!attributeChangeSensitive_) {
+            return false;
+        }
+
+        final int attributeModificationCount = domNode.getSubtreeAttributeModificationCount();
+        if (cachedAttributeModificationCount_ == attributeModificationCount) {
+            return false;
+        }
+
+        // some attributes have changed, check if one of the changes is relevant for this collection
+        final SgmlPage page = domNode.getPage();
+        if (!(page instanceof HtmlPage)) {
+            return true;
+        }
+        final List<HtmlAttributeChangeEvent> events =
+                ((HtmlPage) page).getAttributeChangesSince(cachedAttributeChangesCount_);
+        if (events == null) {
+            // too many changes in between
+            return true;
+        }
+        for (final HtmlAttributeChangeEvent event : events) {
+            if (domNode.isAncestorOf(event.getHtmlElement())
+                    && EffectOnCache.RESET == effectOnCacheFunction_.apply(event)) {
+                return true;
             }
         }
+
+        cachedAttributeModificationCount_ = attributeModificationCount;
+        cachedAttributeChangesCount_ += events.size();
+        return false;
     }
 
     /**
@@ -380,86 +400,6 @@ public class AbstractList extends HtmlUnitScriptable implements ExternalArrayDat
         return super.equivalentValues(other);
     }
 
-    private static final class DomHtmlAttributeChangeListenerImpl
-                                    implements DomChangeListener, HtmlAttributeChangeListener {
-
-        private final transient WeakReference<AbstractList> nodeList_;
-
-        DomHtmlAttributeChangeListenerImpl(final AbstractList nodeList) {
-            super();
-
-            nodeList_ = new WeakReference<>(nodeList);
-        }
-
-        /**
-         * {@inheritDoc}
-         */
-        @Override
-        public void nodeAdded(final DomChangeEvent event) {
-            clearCache();
-        }
-
-        /**
-         * {@inheritDoc}
-         */
-        @Override
-        public void nodeDeleted(final DomChangeEvent event) {
-            clearCache();
-        }
-
-        /**
-         * {@inheritDoc}
-         */
-        @Override
-        public void attributeAdded(final HtmlAttributeChangeEvent event) {
-            handleChangeOnCache(event);
-        }
-
-        /**
-         * {@inheritDoc}
-         */
-        @Override
-        public void attributeRemoved(final HtmlAttributeChangeEvent event) {
-            handleChangeOnCache(event);
-        }
-
-        /**
-         * {@inheritDoc}
-         */
-        @Override
-        public void attributeReplaced(final HtmlAttributeChangeEvent event) {
-            final AbstractList nodes = nodeList_.get();
-            if (null == nodes) {
-                return;
-            }
-            if (nodes.attributeChangeSensitive_) {
-                handleChangeOnCache(event);
-            }
-        }
-
-        private void handleChangeOnCache(final HtmlAttributeChangeEvent event) {
-            final AbstractList nodes = nodeList_.get();
-            if (null == nodes) {
-                return;
-            }
-
-            final EffectOnCache effectOnCache = nodes.effectOnCacheFunction_.apply(event);
-            if (EffectOnCache.NONE == effectOnCache) {
-                return;
-            }
-            if (EffectOnCache.RESET == effectOnCache) {
-                clearCache();
-            }
-        }
-
-        private void clearCache() {
-            final AbstractList nodes = nodeList_.get();
-            if (null != nodes) {
-                nodes.cachedElements_ = null;
-            }
-        }
-    }
-
     /**
      * Gets the scriptable for the provided element that may already be the right scriptable.
      * @param object the object for which to get the scriptable
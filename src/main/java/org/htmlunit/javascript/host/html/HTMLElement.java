@@ -31,6 +31,7 @@ import java.lang.reflect.Method;
 import java.util.HashSet;
 import java.util.Locale;
 import java.util.Set;
+import java.util.function.IntSupplier;
 
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -38,6 +39,7 @@ import org.htmlunit.SgmlPage;
 import org.htmlunit.WebWindow;
 import org.htmlunit.corejs.javascript.Function;
 import org.htmlunit.css.ComputedCssStyleDeclaration;
+import org.htmlunit.css.LayoutBoxCache;
 import org.htmlunit.css.StyleAttributes;
 import org.htmlunit.html.DomElement;
 import org.htmlunit.html.DomNode;
@@ -79,6 +81,7 @@ import org.htmlunit.html.HtmlNoEmbed;
 import org.htmlunit.html.HtmlNoFrames;
 import org.htmlunit.html.HtmlNoLayer;
 import org.htmlunit.html.HtmlNoScript;
+import org.htmlunit.html.HtmlPage;
 import org.htmlunit.html.HtmlPlainText;
 import org.htmlunit.html.HtmlRb;
 import org.htmlunit.html.HtmlRp;
@@ -544,6 +547,15 @@ public class HTMLElement extends Element {
      */
     @JsxGetter
     public int getOffsetHeight() {
+        return getLayoutValue(LayoutBoxCache.OFFSET_HEIGHT, this::calculateOffsetHeight);
+    }
+
+    /**
+     * Calculates this element's <code>offsetHeight</code>.
+     * @return this element's <code>offsetHeight</code>
+     * @see #getOffsetHeight()
+     */
+    protected int calculateOffsetHeight() {
         if (isDisplayNone() || !getDomNodeOrDie().isAttachedToPage()) {
             return 0;
         }
@@ -566,6 +578,15 @@ public class HTMLElement extends Element {
      */
     @JsxGetter
     public int getOffsetWidth() {
+        return getLayoutValue(LayoutBoxCache.OFFSET_WIDTH, this::calculateOffsetWidth);
+    }
+
+    /**
+     * Calculates this element's <code>offsetWidth</code>.
+     * @return this element's <code>offsetWidth</code>
+     * @see #getOffsetWidth()
+     */
+    protected int calculateOffsetWidth() {
         if (isDisplayNone() || !getDomNodeOrDie().isAttachedToPage()) {
             return 0;
         }
@@ -579,6 +600,28 @@ public class HTMLElement extends Element {
         return style.getCalculatedWidth(true, true);
     }
 
+    /**
+     * Returns the layout value from the layout cache of the page; the value is calculated
+     * only if there is no valid value cached.
+     * During mouse events the values are faked (see {@link #isAncestorOfEventTarget(MouseEvent)}),
+     * therefore the cache is not used.
+     * @param index the index of the value in the {@link LayoutBoxCache}
+     * @param calculation the calculation
+     * @return the value
+     */
+    private int getLayoutValue(final int index, final IntSupplier calculation) {
+        final DomNode node = getDomNodeOrDie();
+        if (MouseEvent.getCurrentMouseEvent() != null || !node.isAttachedToPage()) {
+            return calculation.getAsInt();
+        }
+
+        final SgmlPage page = node.getPage();
+        if (!(page instanceof HtmlPage)) {
+            return calculation.getAsInt();
+        }
+        return ((HtmlPage) page).getLayoutBoxCache().get(node, index, calculation);
+    }
+
     /**
      * Returns {@code true} if this element's node is an ancestor of the specified event's target node.
      * @param event the event whose target node is to be checked
@@ -913,6 +956,10 @@ public class HTMLElement extends Element {
      */
     @JsxGetter
     public int getOffsetLeft() {
+        return getLayoutValue(LayoutBoxCache.OFFSET_LEFT, this::calculateOffsetLeft);
+    }
+
+    private int calculateOffsetLeft() {
         if (this instanceof HTMLBodyElement) {
             return 0;
         }
@@ -1017,6 +1064,10 @@ public class HTMLElement extends Element {
      */
     @JsxGetter
     public int getOffsetTop() {
+        return getLayoutValue(LayoutBoxCache.OFFSET_TOP, this::calculateOffsetTop);
+    }
+
+    private int calculateOffsetTop() {
         if (this instanceof HTMLBodyElement) {
             return 0;
         }
@@ -55,10 +55,10 @@ public class HTMLTableCellElement extends HTMLTableComponent {
      * {@inheritDoc}
      */
     @Override
-    public int getOffsetHeight() {
+    protected int calculateOffsetHeight() {
         final MouseEvent event = MouseEvent.getCurrentMouseEvent();
         if (isAncestorOfEventTarget(event)) {
-            return super.getOffsetHeight();
+            return super.calculateOffsetHeight();
         }
 
         if (isDisplayNone()) {
@@ -72,8 +72,8 @@ public class HTMLTableCellElement extends HTMLTableComponent {
      * {@inheritDoc}
      */
     @Override
-    public int getOffsetWidth() {
-        float w = super.getOffsetWidth();
+    protected int calculateOffsetWidth() {
+        float w = super.calculateOffsetWidth();
         final MouseEvent event = MouseEvent.getCurrentMouseEvent();
         if (isAncestorOfEventTarget(event)) {
             return (int) w;
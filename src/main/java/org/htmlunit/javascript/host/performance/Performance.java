@@ -14,12 +14,15 @@
  */
 package org.htmlunit.javascript.host.performance;
 
+import org.htmlunit.WebWindow;
 import org.htmlunit.corejs.javascript.Scriptable;
+import org.htmlunit.corejs.javascript.ScriptableObject;
 import org.htmlunit.javascript.JavaScriptEngine;
 import org.htmlunit.javascript.configuration.JsxClass;
 import org.htmlunit.javascript.configuration.JsxConstructor;
 import org.htmlunit.javascript.configuration.JsxFunction;
 import org.htmlunit.javascript.configuration.JsxGetter;
+import org.htmlunit.javascript.host.Window;
 import org.htmlunit.javascript.host.event.EventTarget;
 
 /**
@@ -74,6 +77,13 @@ public class Performance extends EventTarget {
      */
     @JsxFunction
     public double now() {
+        final Scriptable top = ScriptableObject.getTopLevelScope(this);
+        if (top instanceof Window) {
+            final WebWindow webWindow = ((Window) top).getWebWindow();
+            if (webWindow != null) {
+                return webWindow.getWebClient().getVirtualClock().highResolutionMillis();
+            }
+        }
         return System.nanoTime() / 1_000_000d;
     }
 
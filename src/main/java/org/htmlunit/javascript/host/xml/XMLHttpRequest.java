@@ -24,10 +24,12 @@ import static org.htmlunit.BrowserVersionFeatures.XHR_SEND_NETWORK_ERROR_IF_ABOR
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.StringWriter;
 import java.net.MalformedURLException;
 import java.net.SocketTimeoutException;
 import java.net.URL;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.util.Arrays;
 import java.util.Collections;
@@ -36,6 +38,8 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map.Entry;
 import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 
 import javax.xml.transform.OutputKeys;
 import javax.xml.transform.Transformer;
@@ -43,7 +47,6 @@ import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamResult;
 
-import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -157,6 +160,7 @@ public class XMLHttpRequest extends XMLHttpRequestEventTarget {
     private boolean async_;
     private int jobID_;
     private WebResponse webResponse_;
+    private transient CompletableFuture<WebResponse> pendingResponse_;
     private String overriddenMimeType_;
     private boolean withCredentials_;
     private boolean isSameOrigin_;
@@ -318,36 +322,11 @@ public class XMLHttpRequest extends XMLHttpRequestEventTarget {
         }
 
         if (RESPONSE_TYPE_ARRAYBUFFER.equals(responseType_)) {
-            long contentLength = webResponse_.getContentLength();
-            NativeArrayBuffer nativeArrayBuffer = new NativeArrayBuffer(contentLength);
-
             try {
-                final int bufferLength = Math.min(1024, (int) contentLength);
-                final byte[] buffer = new byte[bufferLength];
-                int offset = 0;
-                try (InputStream inputStream = webResponse_.getContentAsStream()) {
-                    int readLen;
-                    while ((readLen = inputStream.read(buffer, 0, bufferLength)) != -1) {
-                        final long newLength = offset + readLen;
-                        // gzip content and the unzipped content is larger
-                        if (newLength > contentLength) {
-                            final NativeArrayBuffer expanded = new NativeArrayBuffer(newLength);
-                            System.arraycopy(nativeArrayBuffer.getBuffer(), 0,
-                                    expanded.getBuffer(), 0, (int) contentLength);
-                            contentLength = newLength;
-                            nativeArrayBuffer = expanded;
-                        }
-                        System.arraycopy(buffer, 0, nativeArrayBuffer.getBuffer(), offset, readLen);
-                        offset = (int) newLength;
-                    }
-                }
-
-                // for small responses the gzipped content might be larger than the original
-                if (offset < contentLength) {
-                    final NativeArrayBuffer shrinked = new NativeArrayBuffer(offset);
-                    System.arraycopy(nativeArrayBuffer.getBuffer(), 0, shrinked.getBuffer(), 0, offset);
-                    nativeArrayBuffer = shrinked;
-                }
+                // the content is already decoded, copy it once into the array buffer
+                final ByteBuffer content = webResponse_.getContentAsByteBuffer();
+                final NativeArrayBuffer nativeArrayBuffer = new NativeArrayBuffer(content.remaining());
+                content.get(nativeArrayBuffer.getBuffer());
 
                 nativeArrayBuffer.setParentScope(getParentScope());
                 nativeArrayBuffer.setPrototype(
@@ -363,13 +342,15 @@ public class XMLHttpRequest extends XMLHttpRequestEventTarget {
         else if (RESPONSE_TYPE_BLOB.equals(responseType_)) {
             try {
                 if (webResponse_ != null) {
-                    try (InputStream inputStream = webResponse_.getContentAsStream()) {
-                        final Blob blob = new Blob(IOUtils.toByteArray(inputStream), webResponse_.getContentType());
-                        blob.setParentScope(getParentScope());
-                        blob.setPrototype(ScriptableObject.getClassPrototype(getWindow(), blob.getClassName()));
+                    final ByteBuffer content = webResponse_.getContentAsByteBuffer();
+                    final byte[] bytes = new byte[content.remaining()];
+                    content.get(bytes);
 
-                        return blob;
-                    }
+                    final Blob blob = new Blob(bytes, webResponse_.getContentType());
+                    blob.setParentScope(getParentScope());
+                    blob.setPrototype(ScriptableObject.getClassPrototype(getWindow(), blob.getClassName()));
+
+                    return blob;
                 }
             }
             catch (final IOException e) {
@@ -575,6 +556,10 @@ public class XMLHttpRequest extends XMLHttpRequestEventTarget {
     @JsxFunction
     public void abort() {
         getWindow().getWebWindow().getJobManager().stopJob(jobID_);
+        if (pendingResponse_ != null) {
+            pendingResponse_.cancel(false);
+            pendingResponse_ = null;
+        }
 
         if (state_ == OPENED
                 || state_ == HEADERS_RECEIVED
@@ -775,6 +760,8 @@ public class XMLHttpRequest extends XMLHttpRequestEventTarget {
             doSend();
         }
         else {
+            startLoading(client);
+
             // Create and start a thread in which to execute the request.
             final HtmlUnitContextFactory cf = client.getJavaScriptEngine().getContextFactory();
             final ContextAction<Object> action = new ContextAction<Object>() {
@@ -883,15 +870,79 @@ public class XMLHttpRequest extends XMLHttpRequestEventTarget {
         }
     }
 
+    /**
+     * Starts loading the response of an async request in the background, if this can be done
+     * without any further processing (e.g. a preflight request). This way the responses of
+     * many async requests are loaded in parallel instead of one after the other by the
+     * javascript job; the job only waits for the response.
+     * @param wc the web client
+     */
+    private void startLoading(final WebClient wc) {
+        if (isLocalResourceForbidden(wc) || (!isSameOrigin_ && isPreflight())) {
+            return;
+        }
+
+        blockCookiesIfRequired();
+        pendingResponse_ = wc.loadWebResponseAsync(webRequest_);
+    }
+
+    /**
+     * Returns the response started by {@link #startLoading(WebClient)} or loads the response.
+     * @param wc the web client
+     * @return the response
+     * @throws IOException if an IO problem occurs
+     */
+    private WebResponse loadWebResponse(final WebClient wc) throws IOException {
+        final CompletableFuture<WebResponse> pendingResponse = pendingResponse_;
+        if (pendingResponse == null) {
+            return wc.loadWebResponse(webRequest_);
+        }
+        pendingResponse_ = null;
+
+        try {
+            return pendingResponse.get();
+        }
+        catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while loading " + webRequest_.getUrl());
+        }
+        catch (final ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    private boolean isLocalResourceForbidden(final WebClient wc) {
+        // accessing to local resource is forbidden for security reason
+        return !wc.getOptions().isFileProtocolForXMLHttpRequestsAllowed()
+                && "file".equals(webRequest_.getUrl().getProtocol());
+    }
+
+    private void blockCookiesIfRequired() {
+        if (!isSameOrigin_) {
+            // Cookies should not be sent for cross-origin requests when withCredentials is false
+            if (!isWithCredentials()) {
+                webRequest_.addHint(HttpHint.BlockCookies);
+            }
+        }
+    }
+
     /**
      * The real send job.
      */
     void doSend() {
         final WebClient wc = getWindow().getWebWindow().getWebClient();
 
-        // accessing to local resource is forbidden for security reason
-        if (!wc.getOptions().isFileProtocolForXMLHttpRequestsAllowed()
-                && "file".equals(webRequest_.getUrl().getProtocol())) {
+        if (isLocalResourceForbidden(wc)) {
 
             if (async_) {
                 setState(DONE);
@@ -962,14 +1013,9 @@ public class XMLHttpRequest extends XMLHttpRequestEventTarget {
                 }
             }
 
-            if (!isSameOrigin_) {
-                // Cookies should not be sent for cross-origin requests when withCredentials is false
-                if (!isWithCredentials()) {
-                    webRequest_.addHint(HttpHint.BlockCookies);
-                }
-            }
+            blockCookiesIfRequired();
 
-            webResponse_ = wc.loadWebResponse(webRequest_);
+            webResponse_ = loadWebResponse(wc);
             LOG.debug("Web response loaded successfully.");
 
             boolean allowOriginResponse = true;
@@ -1030,6 +1076,8 @@ public class XMLHttpRequest extends XMLHttpRequestEventTarget {
 
                 setState(LOADING);
                 fireJavascriptEvent(Event.TYPE_READY_STATE_CHANGE);
+                // the response is already complete; there is only one progress event
+                // reporting the whole content (no events while the content is received)
                 fireJavascriptEvent(Event.TYPE_PROGRESS);
             }
 
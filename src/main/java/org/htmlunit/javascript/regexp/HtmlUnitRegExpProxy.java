@@ -15,9 +15,7 @@
 package org.htmlunit.javascript.regexp;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.regex.MatchResult;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -35,6 +33,7 @@ import org.htmlunit.corejs.javascript.regexp.NativeRegExp;
 import org.htmlunit.corejs.javascript.regexp.RegExpImpl;
 import org.htmlunit.corejs.javascript.regexp.SubString;
 import org.htmlunit.javascript.JavaScriptEngine;
+import org.htmlunit.util.LruCache;
 
 /**
  * Begins customization of JavaScript RegExp base on JDK regular expression support.
@@ -47,8 +46,14 @@ import org.htmlunit.javascript.JavaScriptEngine;
 public class HtmlUnitRegExpProxy extends RegExpImpl {
 
     private static final Log LOG = LogFactory.getLog(HtmlUnitRegExpProxy.class);
-    /** Pattern cache */
-    private static final Map<String, Pattern> PATTENS = new HashMap<>();
+
+    /** The default size of the pattern cache. */
+    public static final int DEFAULT_CACHE_SIZE = 1_000;
+
+    /** JS regex source to Java regex source. */
+    private static final LruCache<String, String> TRANSLATIONS = new LruCache<>(DEFAULT_CACHE_SIZE);
+    /** Pattern cache. */
+    private static final LruCache<PatternKey, Pattern> PATTERNS = new LruCache<>(DEFAULT_CACHE_SIZE);
 
     private final RegExpProxy wrapped_;
 
@@ -439,22 +444,13 @@ public class HtmlUnitRegExpProxy extends RegExpImpl {
 
             global_ = jsFlags.indexOf('g') != -1;
 
-            pattern_ = PATTENS.get(str);
-            if (pattern_ == null) {
-                final String jsSource = StringUtils.substringBeforeLast(str.substring(1), "/");
-                pattern_ = Pattern.compile(jsRegExpToJavaRegExp(jsSource), getJavaFlags(jsFlags));
-                PATTENS.put(str, pattern_);
-            }
+            final String jsSource = StringUtils.substringBeforeLast(str.substring(1), "/");
+            pattern_ = getCachedPattern(jsSource, getJavaFlags(jsFlags));
         }
 
         RegExpData(final String string) {
             global_ = false;
-
-            pattern_ = PATTENS.get(string);
-            if (pattern_ == null) {
-                pattern_ = Pattern.compile(jsRegExpToJavaRegExp(string), 0);
-                PATTENS.put(string, pattern_);
-            }
+            pattern_ = getCachedPattern(string, 0);
         }
 
         /**
@@ -484,14 +480,86 @@ public class HtmlUnitRegExpProxy extends RegExpImpl {
         }
     }
 
+    /**
+     * Returns the (cached) compiled java pattern for the given JavaScript regular expression.
+     * @param jsSource the JavaScript regular expression
+     * @param javaFlags the Java Pattern flags
+     * @return the pattern
+     */
+    static Pattern getCachedPattern(final String jsSource, final int javaFlags) {
+        return PATTERNS.computeIfAbsent(new PatternKey(jsSource, javaFlags),
+            key -> Pattern.compile(jsRegExpToJavaRegExp(jsSource), javaFlags));
+    }
+
     /**
      * Transform a JavaScript regular expression to a Java regular expression
      * @param re the JavaScript regular expression to transform
      * @return the transformed expression
      */
     static String jsRegExpToJavaRegExp(final String re) {
-        final RegExpJsToJavaConverter regExpJsToJavaFSM = new RegExpJsToJavaConverter();
-        return regExpJsToJavaFSM.convert(re);
+        return TRANSLATIONS.computeIfAbsent(re, key -> {
+            final RegExpJsToJavaConverter regExpJsToJavaFSM = new RegExpJsToJavaConverter();
+            return regExpJsToJavaFSM.convert(key);
+        });
+    }
+
+    /**
+     * Sets the max number of cached (translated and compiled) regular expressions.
+     * The cache is shared by all {@link org.htmlunit.WebClient}s; the least recently used
+     * expressions are dropped first.
+     * @param cacheSize the new size, 0 disables the caching
+     */
+    public static void setCacheSize(final int cacheSize) {
+        TRANSLATIONS.setMaxSize(cacheSize);
+        PATTERNS.setMaxSize(cacheSize);
+    }
+
+    /**
+     * @return the max number of cached regular expressions
+     */
+    public static int getCacheSize() {
+        return PATTERNS.getMaxSize();
+    }
+
+    /**
+     * @return the number of pattern lookups answered by the cache
+     */
+    public static long getCacheHitCount() {
+        return PATTERNS.getHitCount();
+    }
+
+    /**
+     * @return the number of pattern lookups that had to compile the pattern
+     */
+    public static long getCacheMissCount() {
+        return PATTERNS.getMissCount();
+    }
+
+    /**
+     * The key of the pattern cache; JS source and flags.
+     */
+    private static final class PatternKey {
+        private final String jsSource_;
+        private final int javaFlags_;
+
+        PatternKey(final String jsSource, final int javaFlags) {
+            jsSource_ = jsSource;
+            javaFlags_ = javaFlags;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * jsSource_.hashCode() + javaFlags_;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (!(obj instanceof PatternKey)) {
+                return false;
+            }
+            final PatternKey other = (PatternKey) obj;
+            return javaFlags_ == other.javaFlags_ && jsSource_.equals(other.jsSource_);
+        }
     }
 
     /**
@@ -17,6 +17,7 @@ package org.htmlunit.platform;
 import java.io.IOException;
 import java.io.InputStream;
 import java.lang.reflect.InvocationTargetException;
+import java.nio.ByteBuffer;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -159,10 +160,24 @@ public final class Platform {
     }
 
     public static ImageData buildImageData(final InputStream inputStream) throws IOException {
+        return newImageData(inputStream);
+    }
+
+    /**
+     * Builds the image data from a buffer holding the image content; the buffer is not copied.
+     * @param buffer the content
+     * @return the image data
+     * @throws IOException in case of error
+     */
+    public static ImageData buildImageData(final ByteBuffer buffer) throws IOException {
+        return newImageData(buffer);
+    }
+
+    private static ImageData newImageData(final Object input) throws IOException {
         try {
             final Class<?> backendClass = Class.forName(
                         "org.htmlunit.platform.image.ImageIOImageData");
-            return (ImageData) ConstructorUtils.invokeConstructor(backendClass, inputStream);
+            return (ImageData) ConstructorUtils.invokeConstructor(backendClass, input);
         }
         catch (final InvocationTargetException ex) {
             final Throwable targetEx = ex.getTargetException();
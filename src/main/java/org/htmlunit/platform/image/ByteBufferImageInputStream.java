@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2002-2024 Gargoyle Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.htmlunit.platform.image;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import javax.imageio.stream.ImageInputStreamImpl;
+
+/**
+ * An {@link javax.imageio.stream.ImageInputStream} reading directly from a {@link ByteBuffer}.
+ * Different from the streams created by {@link javax.imageio.ImageIO#createImageInputStream(Object)}
+ * the content is not cached in memory or in a file again.
+ *
+ * @author agent <agent@local>
+ */
+class ByteBufferImageInputStream extends ImageInputStreamImpl {
+
+    private final ByteBuffer buffer_;
+
+    ByteBufferImageInputStream(final ByteBuffer buffer) {
+        buffer_ = buffer.slice();
+    }
+
+    @Override
+    public int read() throws IOException {
+        checkClosed();
+        bitOffset = 0;
+        if (streamPos >= buffer_.limit()) {
+            return -1;
+        }
+        return buffer_.get((int) streamPos++) & 0xFF;
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+        checkClosed();
+        bitOffset = 0;
+        if (len == 0) {
+            return 0;
+        }
+        if (streamPos >= buffer_.limit()) {
+            return -1;
+        }
+        final int count = (int) Math.min(len, buffer_.limit() - streamPos);
+        buffer_.position((int) streamPos);
+        buffer_.get(b, off, count);
+        streamPos += count;
+        return count;
+    }
+
+    @Override
+    public long length() {
+        return buffer_.limit();
+    }
+}
@@ -16,6 +16,7 @@ package org.htmlunit.platform.image;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.Iterator;
 
 import javax.imageio.ImageIO;
@@ -50,7 +51,19 @@ public class ImageIOImageData implements ImageData {
     private final ImageReader imageReader_;
 
     public ImageIOImageData(final InputStream inputStream) throws IOException {
-        final ImageInputStream iis = ImageIO.createImageInputStream(inputStream);
+        this(ImageIO.createImageInputStream(inputStream));
+    }
+
+    /**
+     * Ctor.
+     * @param buffer the image content; the reader works directly on the buffer
+     * @throws IOException in case of error
+     */
+    public ImageIOImageData(final ByteBuffer buffer) throws IOException {
+        this(new ByteBufferImageInputStream(buffer));
+    }
+
+    private ImageIOImageData(final ImageInputStream iis) throws IOException {
         final Iterator<ImageReader> iter = ImageIO.getImageReaders(iis);
         if (!iter.hasNext()) {
             iis.close();
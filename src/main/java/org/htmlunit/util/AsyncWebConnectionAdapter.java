@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2002-2024 Gargoyle Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.htmlunit.util;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+import org.htmlunit.AsyncWebConnection;
+import org.htmlunit.WebConnection;
+import org.htmlunit.WebRequest;
+import org.htmlunit.WebResponse;
+
+/**
+ * Makes a blocking {@link WebConnection} (e.g. the {@link org.htmlunit.MockWebConnection}
+ * or a {@link WebConnectionWrapper}) usable as {@link AsyncWebConnection}; the blocking calls
+ * are done using the given executor.
+ *
+ * @author agent <agent@local>
+ */
+public class AsyncWebConnectionAdapter implements AsyncWebConnection {
+    private final WebConnection webConnection_;
+    private final Executor executor_;
+
+    /**
+     * Ctor.
+     * @param webConnection the connection doing the real work
+     * @param executor the executor used for the blocking calls
+     * @throws IllegalArgumentException if the connection or the executor is {@code null}
+     */
+    public AsyncWebConnectionAdapter(final WebConnection webConnection, final Executor executor)
+            throws IllegalArgumentException {
+        if (webConnection == null) {
+            throw new IllegalArgumentException("Wrapped connection can't be null");
+        }
+        if (executor == null) {
+            throw new IllegalArgumentException("Executor can't be null");
+        }
+        webConnection_ = webConnection;
+        executor_ = executor;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<WebResponse> getResponseAsync(final WebRequest request) {
+        final CompletableFuture<WebResponse> future = new CompletableFuture<>();
+        executor_.execute(() -> {
+            if (future.isDone()) {
+                // cancelled in the meantime
+                return;
+            }
+            try {
+                future.complete(webConnection_.getResponse(request));
+            }
+            catch (final IOException | RuntimeException | Error e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public WebResponse getResponse(final WebRequest request) throws IOException {
+        return webConnection_.getResponse(request);
+    }
+
+    /**
+     * Gets the wrapped {@link WebConnection}.
+     * @return the wrapped connection
+     */
+    public WebConnection getWrappedWebConnection() {
+        return webConnection_;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() throws IOException {
+        webConnection_.close();
+    }
+}
@@ -0,0 +1,236 @@
+/*
+ * Copyright (c) 2002-2024 Gargoyle Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.htmlunit.util;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * A thread-safe cache with a max size, intended for (static) caches of
+ * expensive to build values like compiled patterns or parsed expressions.
+ *
+ * Lookups are lock free; every entry remembers the time of its last access.
+ * If the cache overflows, the least recently used entries are removed in one
+ * batch (down to ~90% of the max size), so the cost of the eviction is
+ * spread over many insertions.
+ *
+ * Null keys and values are not supported.
+ *
+ * @param <K> the type of the key
+ * @param <V> the type of the value
+ *
+ * @author agent <agent@local>
+ */
+public class LruCache<K, V> {
+
+    private final Map<K, Node<V>> map_ = new ConcurrentHashMap<>();
+    private final AtomicLong ticker_ = new AtomicLong();
+    private final ReentrantLock evictionLock_ = new ReentrantLock();
+    private volatile int maxSize_;
+
+    private final LongAdder hitCount_ = new LongAdder();
+    private final LongAdder missCount_ = new LongAdder();
+    private final LongAdder evictionCount_ = new LongAdder();
+
+    private static final class Node<V> {
+        private final V value_;
+        private volatile long lastAccess_;
+
+        Node(final V value, final long lastAccess) {
+            value_ = value;
+            lastAccess_ = lastAccess;
+        }
+    }
+
+    /**
+     * Ctor.
+     * @param maxSize the max number of entries
+     */
+    public LruCache(final int maxSize) {
+        maxSize_ = maxSize;
+    }
+
+    /**
+     * Returns the value for the given key.
+     * @param key the key
+     * @return the value or {@code null}
+     */
+    public V get(final K key) {
+        final Node<V> node = map_.get(key);
+        if (node == null) {
+            missCount_.increment();
+            return null;
+        }
+        hitCount_.increment();
+        node.lastAccess_ = ticker_.incrementAndGet();
+        return node.value_;
+    }
+
+    /**
+     * Returns the value for the given key; if not available the value is created
+     * using the given function and stored. The function is called outside any lock,
+     * therefore it might be called more than once for the same key if many threads
+     * are looking for the same value.
+     * Exceptions thrown by the function are passed to the caller, nothing is stored.
+     *
+     * @param key the key
+     * @param mappingFunction the function to create the value
+     * @return the value
+     */
+    public V computeIfAbsent(final K key, final Function<? super K, ? extends V> mappingFunction) {
+        final V value = get(key);
+        if (value != null) {
+            return value;
+        }
+
+        final V newValue = mappingFunction.apply(key);
+        if (newValue != null) {
+            put(key, newValue);
+        }
+        return newValue;
+    }
+
+    /**
+     * Stores the value.
+     * @param key the key
+     * @param value the value
+     */
+    public void put(final K key, final V value) {
+        if (maxSize_ <= 0) {
+            return;
+        }
+
+        map_.put(key, new Node<>(value, ticker_.incrementAndGet()));
+        if (map_.size() > maxSize_) {
+            evict(false);
+        }
+    }
+
+    /**
+     * Removes the least recently used entries.
+     * @param force if false this is skipped if another thread is already evicting
+     */
+    private void evict(final boolean force) {
+        if (force) {
+            evictionLock_.lock();
+        }
+        else if (!evictionLock_.tryLock()) {
+            return;
+        }
+
+        try {
+            final int maxSize = maxSize_;
+            final int size = map_.size();
+            if (size <= maxSize) {
+                return;
+            }
+            if (maxSize <= 0) {
+                evictionCount_.add(size);
+                map_.clear();
+                return;
+            }
+
+            // snapshot the access times; they may change while we are sorting
+            final int target = maxSize - maxSize / 10;
+            final List<Map.Entry<K, Long>> candidates = new ArrayList<>(size);
+            for (final Map.Entry<K, Node<V>> entry : map_.entrySet()) {
+                candidates.add(new AbstractMap.SimpleImmutableEntry<>(
+                        entry.getKey(), entry.getValue().lastAccess_));
+            }
+            candidates.sort(Map.Entry.comparingByValue());
+
+            int toRemove = candidates.size() - target;
+            for (final Map.Entry<K, Long> candidate : candidates) {
+                if (toRemove <= 0) {
+                    break;
+                }
+                if (map_.remove(candidate.getKey()) != null) {
+                    evictionCount_.increment();
+                }
+                toRemove--;
+            }
+        }
+        finally {
+            evictionLock_.unlock();
+        }
+    }
+
+    /**
+     * @return the max number of entries
+     */
+    public int getMaxSize() {
+        return maxSize_;
+    }
+
+    /**
+     * Sets the max number of entries; use 0 to disable the cache.
+     * @param maxSize the new max size
+     */
+    public void setMaxSize(final int maxSize) {
+        maxSize_ = maxSize;
+        evict(true);
+    }
+
+    /**
+     * @return the number of entries
+     */
+    public int size() {
+        return map_.size();
+    }
+
+    /**
+     * Removes all entries.
+     */
+    public void clear() {
+        map_.clear();
+    }
+
+    /**
+     * @return the number of lookups that found a value
+     */
+    public long getHitCount() {
+        return hitCount_.sum();
+    }
+
+    /**
+     * @return the number of lookups that found nothing
+     */
+    public long getMissCount() {
+        return missCount_.sum();
+    }
+
+    /**
+     * @return the number of entries removed because the cache was full
+     */
+    public long getEvictionCount() {
+        return evictionCount_.sum();
+    }
+
+    /**
+     * Resets the hit, miss and eviction counters.
+     */
+    public void resetStatistics() {
+        hitCount_.reset();
+        missCount_.reset();
+        evictionCount_.reset();
+    }
+}
@@ -16,6 +16,7 @@ package org.htmlunit.util;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.util.List;
 
@@ -69,6 +70,15 @@ public class WebResponseWrapper extends WebResponse {
         return wrappedWebResponse_.getContentAsStream();
     }
 
+    /**
+     * {@inheritDoc}
+     * The default behavior of this method is to return getContentAsByteBuffer() on the wrapped webResponse object.
+     */
+    @Override
+    public ByteBuffer getContentAsByteBuffer() throws IOException {
+        return wrappedWebResponse_.getContentAsByteBuffer();
+    }
+
     /**
      * {@inheritDoc}
      * The default behavior of this method is to return wasContentCharsetTentative() on the wrapped webResponse object.
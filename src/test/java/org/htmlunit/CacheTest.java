@@ -14,6 +14,7 @@
  */
 package org.htmlunit;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.apache.http.client.utils.DateUtils.formatDate;
 import static org.htmlunit.HttpHeader.CACHE_CONTROL;
 import static org.htmlunit.HttpHeader.ETAG;
@@ -22,6 +23,8 @@ import static org.htmlunit.HttpHeader.IF_MODIFIED_SINCE;
 import static org.htmlunit.HttpHeader.IF_NONE_MATCH;
 import static org.htmlunit.HttpHeader.LAST_MODIFIED;
 
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.net.URL;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
@@ -30,6 +33,7 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.zip.GZIPOutputStream;
 
 import org.apache.commons.lang3.time.DateUtils;
 import org.htmlunit.html.HtmlPage;
@@ -38,8 +42,11 @@ import org.htmlunit.junit.BrowserRunner;
 import org.htmlunit.junit.BrowserRunner.Alerts;
 import org.htmlunit.util.MimeType;
 import org.htmlunit.util.NameValuePair;
+import org.htmlunit.util.UrlUtils;
 import org.htmlunit.util.mocks.WebResponseMock;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 
 /**
@@ -56,6 +63,12 @@ import org.junit.runner.RunWith;
 @RunWith(BrowserRunner.class)
 public class CacheTest extends SimpleWebTestCase {
 
+    /**
+     * Has to be public due to JUnit's constraints for @Rule.
+     */
+    @Rule
+    public final TemporaryFolder tmpFolderProvider_ = new TemporaryFolder();
+
     private static final long ONE_MINUTE = 60_000L;
     private static final long ONE_HOUR = ONE_MINUTE * 60;
 
@@ -883,4 +896,303 @@ public class CacheTest extends SimpleWebTestCase {
         assertEquals(1, response1.getCallCount("cleanUp"));
         assertEquals(6, response1.getCallCount("getResponseHeaderValue"));
     }
+
+    /**
+     * The least recently used entry is evicted first.
+     */
+    @Test
+    public void evictLeastRecentlyUsed() {
+        final Cache cache = new Cache();
+        cache.setMaxSize(2);
+
+        cache.cache("a {}", null);
+        cache.cache("b {}", null);
+        cache.getCachedStyleSheet("a {}");
+        cache.cache("c {}", null);
+
+        assertEquals(2, cache.getSize());
+        assertEquals(1L, cache.getEvictionCount());
+        cache.getCachedStyleSheet("a {}");
+        cache.getCachedStyleSheet("b {}");
+        cache.getCachedStyleSheet("c {}");
+        assertEquals(3L, cache.getHitCount());
+        assertEquals(1L, cache.getMissCount());
+
+        cache.resetStatistics();
+        assertEquals(0L, cache.getHitCount());
+        assertEquals(0L, cache.getMissCount());
+        assertEquals(0L, cache.getEvictionCount());
+    }
+
+    /**
+     * The byte budget is maintained.
+     */
+    @Test
+    public void maxBytesMaintained() {
+        final Cache cache = new Cache();
+        cache.setMaxBytes(20);
+
+        // 8 bytes each
+        cache.cache("a {}", null);
+        cache.cache("b {}", null);
+        assertEquals(2, cache.getSize());
+        assertEquals(16L, cache.getByteSize());
+
+        cache.cache("c {}", null);
+        assertEquals(2, cache.getSize());
+        assertEquals(16L, cache.getByteSize());
+        assertEquals(1L, cache.getEvictionCount());
+
+        cache.setMaxBytes(10);
+        assertEquals(1, cache.getSize());
+        assertEquals(8L, cache.getByteSize());
+
+        cache.clear();
+        assertEquals(0, cache.getSize());
+        assertEquals(0L, cache.getByteSize());
+    }
+
+    /**
+     * Concurrent access does not corrupt the cache.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void concurrentAccess() throws Exception {
+        final Cache cache = new Cache();
+        cache.setMaxSize(10);
+
+        final List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            final int offset = t;
+            final Thread thread = new Thread(() -> {
+                for (int i = 0; i < 2_000; i++) {
+                    final String css = "x" + ((i + offset) % 30) + " {}";
+                    if (cache.getCachedStyleSheet(css) == null) {
+                        cache.cache(css, null);
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(10, cache.getSize());
+        // "x1 {}" or "x12 {}"
+        assertTrue(cache.getByteSize() >= 10 * 10);
+        assertTrue(cache.getByteSize() <= 10 * 12);
+        assertEquals(8_000L, cache.getHitCount() + cache.getMissCount());
+    }
+
+    /**
+     * Responses stored on disk survive a new {@link Cache}.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void diskCacheWarmRestart() throws Exception {
+        final String html = "<html><head><title>page 1</title>\n"
+            + "<script src='foo.js'></script>\n"
+            + "</head><body>abc</body></html>";
+
+        final File directory = tmpFolderProvider_.newFolder("cache");
+        final WebClient client = getWebClient();
+        client.getCache().setDiskCache(new DiskCache(directory, 1_000_000));
+
+        final MockWebConnection connection = new MockWebConnection();
+        client.setWebConnection(connection);
+
+        final URL pageUrl = new URL(URL_FIRST, "page1.html");
+        connection.setResponse(pageUrl, html);
+
+        final List<NameValuePair> headers =
+            Collections.singletonList(new NameValuePair(LAST_MODIFIED, "Sun, 15 Jul 2007 20:46:27 GMT"));
+        connection.setResponse(new URL(URL_FIRST, "foo.js"), "alert('foo');", 200, "ok",
+                MimeType.TEXT_JAVASCRIPT, headers);
+
+        final List<String> collectedAlerts = new ArrayList<>();
+        client.setAlertHandler(new CollectingAlertHandler(collectedAlerts));
+
+        client.getPage(pageUrl);
+        assertEquals(2, connection.getRequestCount());
+        assertTrue(client.getCache().getDiskCache().getByteSize() > 0);
+
+        final Cache cache = new Cache();
+        cache.setDiskCache(new DiskCache(directory, 1_000_000));
+        client.setCache(cache);
+
+        client.getPage(pageUrl);
+        assertEquals(3, connection.getRequestCount());
+        assertEquals(pageUrl, connection.getLastWebRequest().getUrl());
+        assertEquals(new String[] {"foo", "foo"}, collectedAlerts);
+    }
+
+    /**
+     * Outdated responses from disk are revalidated.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void diskCacheRevalidation() throws Exception {
+        final String html = "<html><head><title>page 1</title></head><body>x</body></html>";
+
+        final File directory = tmpFolderProvider_.newFolder("cache");
+        final WebClient client = getWebClient();
+        client.getCache().setDiskCache(new DiskCache(directory, 1_000_000));
+
+        final MockWebConnection connection = new MockWebConnection();
+        client.setWebConnection(connection);
+
+        final List<NameValuePair> headers = new ArrayList<>();
+        headers.add(new NameValuePair(CACHE_CONTROL, "max-age=60"));
+        headers.add(new NameValuePair(ETAG, "foo"));
+        headers.add(new NameValuePair(LAST_MODIFIED, "Sun, 15 Jul 2007 20:46:27 GMT"));
+
+        final URL pageUrl = new URL(URL_FIRST, "page1.html");
+        connection.setResponse(pageUrl, html, 200, "OK", MimeType.TEXT_HTML, headers);
+
+        client.getPage(pageUrl);
+        assertEquals(1, connection.getRequestCount());
+
+        // one hour later
+        final Cache cache = new Cache() {
+            @Override
+            protected long getCurrentTimestamp() {
+                return super.getCurrentTimestamp() + ONE_HOUR;
+            }
+        };
+        cache.setDiskCache(new DiskCache(directory, 1_000_000));
+        client.setCache(cache);
+
+        final List<NameValuePair> headers304 =
+            Collections.singletonList(new NameValuePair(CACHE_CONTROL, "max-age=120"));
+        connection.setResponse(pageUrl, "", 304, "Not Modified", MimeType.TEXT_HTML, headers304);
+
+        final HtmlPage page = client.getPage(pageUrl);
+        assertEquals(2, connection.getRequestCount());
+        assertEquals("foo", connection.getLastWebRequest().getAdditionalHeader(IF_NONE_MATCH));
+        assertEquals("page 1", page.getTitleText());
+
+        // the disk tier is updated too
+        final WebResponse stored = new DiskCache(directory, 1_000_000)
+                .get(UrlUtils.normalize(pageUrl), new WebRequest(pageUrl)).getResponse();
+        assertEquals("max-age=120", stored.getResponseHeaderValue(CACHE_CONTROL));
+        assertEquals("foo", stored.getResponseHeaderValue(ETAG));
+        assertEquals(html, stored.getContentAsString());
+    }
+
+    /**
+     * Cookies are not stored on disk.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void diskCacheWithoutSetCookie() throws Exception {
+        final DiskCache diskCache = new DiskCache(tmpFolderProvider_.newFolder("cache"), 1_000_000);
+
+        final List<NameValuePair> headers = new ArrayList<>();
+        headers.add(new NameValuePair(LAST_MODIFIED, "Sun, 15 Jul 2007 20:46:27 GMT"));
+        headers.add(new NameValuePair("Set-Cookie", "session=secret"));
+        headers.add(new NameValuePair(HttpHeader.CONTENT_TYPE, MimeType.TEXT_HTML));
+
+        final WebRequest request = new WebRequest(new URL(URL_FIRST, "cookie.html"));
+        final WebResponseData data = new WebResponseData("<html></html>".getBytes(UTF_8), 200, "OK", headers);
+        final String key = request.getUrl().toExternalForm();
+        diskCache.put(key, new WebResponse(data, request, 0), now_);
+
+        final WebResponse stored = diskCache.get(key, request).getResponse();
+        assertNull(stored.getResponseHeaderValue("Set-Cookie"));
+        assertEquals(MimeType.TEXT_HTML, stored.getResponseHeaderValue(HttpHeader.CONTENT_TYPE));
+    }
+
+    /**
+     * Trimming the disk cache keeps the bodies of responses still in use.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void diskCacheTrimKeepsBodiesInUse() throws Exception {
+        final DiskCache diskCache = new DiskCache(tmpFolderProvider_.newFolder("cache"), 100);
+
+        final MockWebConnection connection = new MockWebConnection();
+        final List<NameValuePair> headers =
+            Collections.singletonList(new NameValuePair(LAST_MODIFIED, "Sun, 15 Jul 2007 20:46:27 GMT"));
+
+        final WebRequest request = new WebRequest(new URL(URL_FIRST, "foo0.txt"));
+        final String content = String.join("", Collections.nCopies(80, "x"));
+        connection.setResponse(request.getUrl(), content, 200, "OK", MimeType.TEXT_PLAIN, headers);
+        diskCache.put(request.getUrl().toExternalForm(), connection.getResponse(request), now_);
+        final WebResponse inUse = diskCache.get(request.getUrl().toExternalForm(), request).getResponse();
+
+        for (int i = 1; i < 3; i++) {
+            final WebRequest other = new WebRequest(new URL(URL_FIRST, "foo" + i + ".txt"));
+            connection.setResponse(other.getUrl(), String.join("", Collections.nCopies(79, "y")) + i,
+                    200, "OK", MimeType.TEXT_PLAIN, headers);
+            diskCache.put(other.getUrl().toExternalForm(), connection.getResponse(other), now_);
+        }
+        diskCache.trim();
+
+        assertEquals(content, inUse.getContentAsString());
+    }
+
+    /**
+     * The disk cache size is limited.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void diskCacheMaxBytes() throws Exception {
+        final DiskCache diskCache = new DiskCache(tmpFolderProvider_.newFolder("cache"), 100);
+
+        final MockWebConnection connection = new MockWebConnection();
+        final List<NameValuePair> headers =
+            Collections.singletonList(new NameValuePair(LAST_MODIFIED, "Sun, 15 Jul 2007 20:46:27 GMT"));
+
+        for (int i = 0; i < 3; i++) {
+            final WebRequest request = new WebRequest(new URL(URL_FIRST, "foo" + i + ".txt"));
+            // 80 bytes, different for every response
+            connection.setResponse(request.getUrl(), String.join("", Collections.nCopies(79, "x")) + i,
+                    200, "OK", MimeType.TEXT_PLAIN, headers);
+            diskCache.put(request.getUrl().toExternalForm(), connection.getResponse(request), now_);
+        }
+        diskCache.trim();
+
+        assertTrue(diskCache.getByteSize() <= 100);
+
+        diskCache.clear();
+        assertEquals(0L, diskCache.getByteSize());
+    }
+
+    /**
+     * Compressed responses are stored decoded; reading them back must not decode them again.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void diskCacheGzipRoundTrip() throws Exception {
+        final DiskCache diskCache = new DiskCache(tmpFolderProvider_.newFolder("cache"), 1_000_000);
+
+        final String content = "<html><head><title>gzip</title></head><body>compressed</body></html>";
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(bos)) {
+            gzip.write(content.getBytes(UTF_8));
+        }
+        final byte[] gzipped = bos.toByteArray();
+
+        final List<NameValuePair> headers = new ArrayList<>();
+        headers.add(new NameValuePair(LAST_MODIFIED, "Sun, 15 Jul 2007 20:46:27 GMT"));
+        headers.add(new NameValuePair(HttpHeader.CONTENT_ENCODING, "gzip"));
+        headers.add(new NameValuePair(HttpHeader.CONTENT_LENGTH, Integer.toString(gzipped.length)));
+        headers.add(new NameValuePair(HttpHeader.CONTENT_TYPE, MimeType.TEXT_HTML));
+
+        final WebRequest request = new WebRequest(new URL(URL_FIRST, "gzip.html"));
+        final WebResponseData data = new WebResponseData(gzipped, 200, "OK", headers);
+        final WebResponse response = new WebResponse(data, request, 0);
+        assertEquals(content, response.getContentAsString(UTF_8));
+
+        final String key = request.getUrl().toExternalForm();
+        diskCache.put(key, response, now_);
+
+        final WebResponse stored = diskCache.get(key, request).getResponse();
+        assertEquals(content, stored.getContentAsString(UTF_8));
+        assertNull(stored.getResponseHeaderValue(HttpHeader.CONTENT_ENCODING));
+        assertNull(stored.getResponseHeaderValue(HttpHeader.CONTENT_LENGTH));
+        assertEquals(MimeType.TEXT_HTML, stored.getResponseHeaderValue(HttpHeader.CONTENT_TYPE));
+    }
 }
@@ -16,10 +16,13 @@ package org.htmlunit;
 
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
 
+import org.apache.http.impl.cookie.BasicClientCookie;
 import org.htmlunit.html.HtmlPage;
 import org.htmlunit.junit.BrowserRunner;
 import org.htmlunit.junit.BrowserRunner.Alerts;
@@ -169,4 +172,103 @@ public class CookieManager2Test extends SimpleWebTestCase {
         assertEquals(1, initialCookies.size());
         assertEquals(2, webClient.getCookieManager().getCookies().size());
     }
+
+    /**
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void cookiesForHost() throws Exception {
+        final CookieManager mgr = new CookieManager();
+        mgr.addCookie(new Cookie("www.example.com", "c1", "1"));
+        mgr.addCookie(new Cookie(".Example.com", "c2", "2"));
+        mgr.addCookie(new Cookie("other.com", "c3", "3"));
+        mgr.addCookie(new Cookie("sub.www.example.com", "c4", "4"));
+        mgr.addCookie(new Cookie("www.example.com", "c5", "5"));
+        // replaced; moves to the end
+        mgr.addCookie(new Cookie("www.example.com", "c1", "6"));
+
+        assertEquals("[c2=2, c5=5, c1=6]", names(mgr.getCookiesForHost("WWW.example.com")));
+        assertEquals("[c2=2]", names(mgr.getCookiesForHost("example.com")));
+        assertEquals("[c3=3]", names(mgr.getCookiesForHost("other.com")));
+        assertTrue(mgr.getCookiesForHost("notexample.com").isEmpty());
+        assertTrue(mgr.getCookiesForHost("com").isEmpty());
+
+        mgr.removeCookie(new Cookie(".example.com", "c2", ""));
+        assertEquals("[c5=5, c1=6]", names(mgr.getCookiesForHost("www.example.com")));
+
+        final CookieManager copy = clone(mgr);
+        assertEquals("[c5=5, c1=6]", names(copy.getCookiesForHost("www.example.com")));
+        assertEquals(mgr.getCookies(), copy.getCookies());
+
+        mgr.setCookiesEnabled(false);
+        assertTrue(mgr.getCookiesForHost("www.example.com").isEmpty());
+    }
+
+    /**
+     * Cookies without domain are not lost by the domain index.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void cookiesForHostWithoutDomain() throws Exception {
+        final CookieManager mgr = new CookieManager();
+        mgr.addCookie(new Cookie("example.com", "c1", "1"));
+        mgr.addCookie(new Cookie(new BasicClientCookie("c2", "2")));
+
+        assertEquals("[c1=1, c2=2]", names(mgr.getCookies()));
+        assertEquals("[c1=1, c2=2]", names(mgr.getCookiesForHost("www.example.com")));
+        assertEquals("[c2=2]", names(mgr.getCookiesForHost("other.com")));
+    }
+
+    /**
+     * Subclasses providing their own cookies still work.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void cookiesForHostSubclass() throws Exception {
+        final Set<Cookie> cookies = Collections.singleton(new Cookie("www.example.com", "c1", "1", "/", null, false));
+        final CookieManager mgr = new CookieManager() {
+            @Override
+            public synchronized Set<Cookie> getCookies() {
+                return cookies;
+            }
+        };
+
+        assertEquals("[c1=1]", names(mgr.getCookiesForHost("www.example.com")));
+
+        final WebClient client = getWebClient();
+        client.setCookieManager(mgr);
+        assertEquals("[c1=1]", names(client.getCookies(new URL("http://www.example.com/"))));
+        assertTrue(client.getCookies(new URL("http://other.com/")).isEmpty());
+    }
+
+    /**
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void clearExpiredReplacedCookie() throws Exception {
+        final long now = System.currentTimeMillis();
+        final CookieManager mgr = new CookieManager();
+        mgr.addCookie(new Cookie("example.com", "c1", "1", "/", new Date(now + 1_000), false));
+        mgr.addCookie(new Cookie("example.com", "c2", "2", "/", new Date(now + 2_000), false));
+        // replaced by a cookie that lives longer
+        mgr.addCookie(new Cookie("example.com", "c1", "3", "/", new Date(now + 10_000), false));
+        mgr.addCookie(new Cookie("example.com", "c4", "4"));
+
+        assertFalse(mgr.clearExpired(new Date(now)));
+        assertTrue(mgr.clearExpired(new Date(now + 5_000)));
+        assertEquals("[c1=3, c4=4]", names(mgr.getCookies()));
+        assertEquals("[c1=3, c4=4]", names(mgr.getCookiesForHost("example.com")));
+
+        assertTrue(mgr.clearExpired(new Date(now + 20_000)));
+        assertEquals("[c4=4]", names(mgr.getCookies()));
+        assertFalse(mgr.clearExpired(new Date(now + 20_000)));
+    }
+
+    private static String names(final Set<Cookie> cookies) {
+        final List<String> names = new ArrayList<>();
+        for (final Cookie cookie : cookies) {
+            names.add(cookie.getName() + "=" + cookie.getValue());
+        }
+        return names.toString();
+    }
 }
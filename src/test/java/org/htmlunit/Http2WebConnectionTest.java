@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2002-2024 Gargoyle Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.htmlunit;
+
+import static org.junit.Assert.assertNotEquals;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import javax.servlet.Servlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.htmlunit.junit.BrowserRunner;
+import org.htmlunit.util.MimeType;
+import org.htmlunit.util.NameValuePair;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Tests for {@link Http2WebConnection}.
+ *
+ * @author agent <agent@local>
+ */
+@RunWith(BrowserRunner.class)
+public class Http2WebConnectionTest extends WebServerTestCase {
+
+    /**
+     * Without prior knowledge plain http connections are using HTTP/1.1.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void http11() throws Exception {
+        final Map<String, Class<? extends Servlet>> servlets = new HashMap<>();
+        servlets.put("/test", ProtocolServlet.class);
+        startWebServer("./", null, servlets);
+
+        final WebClient client = getWebClient();
+        client.getOptions().setHttp2Enabled(true);
+
+        String[] result = load(client, "first");
+        assertEquals("HTTP/1.1", result[0]);
+        assertEquals("", result[2]);
+        assertEquals("first", result[3]);
+        assertEquals(client.getBrowserVersion().getUserAgent(), result[4]);
+
+        result = load(client, "second");
+        assertEquals("HTTP/1.1", result[0]);
+        assertEquals("h2=1", result[2]);
+        assertEquals("second", result[3]);
+    }
+
+    /**
+     * With prior knowledge HTTP/2 is used and all requests share one connection.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void priorKnowledge() throws Exception {
+        final Map<String, Class<? extends Servlet>> servlets = new HashMap<>();
+        servlets.put("/test", ProtocolServlet.class);
+        startWebServer("./", null, servlets);
+
+        final WebClient client = getWebClient();
+        client.getOptions().setHttp2Enabled(true);
+        client.getOptions().setHttp2PriorKnowledge(true);
+
+        String[] result = load(client, "first");
+        assertEquals("HTTP/2.0", result[0]);
+        assertEquals("", result[2]);
+        assertEquals("first", result[3]);
+        assertEquals(client.getBrowserVersion().getUserAgent(), result[4]);
+
+        result = load(client, "second");
+        assertEquals("HTTP/2.0", result[0]);
+        assertEquals("h2=1", result[2]);
+        assertEquals("second", result[3]);
+        final String port = result[1];
+
+        // multiplexed
+        client.setWebConnection(new Http2WebConnection(client));
+        final List<CompletableFuture<WebResponse>> futures = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            futures.add(client.loadWebResponseAsync(new WebRequest(new URL(URL_FIRST, "test?p=" + i))));
+        }
+        String asyncPort = null;
+        for (int i = 0; i < futures.size(); i++) {
+            result = futures.get(i).get().getContentAsString().split("\\|");
+            assertEquals("HTTP/2.0", result[0]);
+            assertEquals(String.valueOf(i), result[3]);
+            if (asyncPort == null) {
+                asyncPort = result[1];
+                assertNotEquals(port, asyncPort);
+            }
+            assertEquals(asyncPort, result[1]);
+        }
+    }
+
+    private static String[] load(final WebClient client, final String parameter) throws IOException {
+        final WebRequest request = new WebRequest(new URL(URL_FIRST, "test"), HttpMethod.POST);
+        request.setRequestParameters(Collections.singletonList(new NameValuePair("p", parameter)));
+        return client.loadWebResponse(request).getContentAsString().split("\\|", -1);
+    }
+
+    /**
+     * Servlet for {@link #http11()} and {@link #priorKnowledge()}.
+     */
+    public static class ProtocolServlet extends HttpServlet {
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        protected void doGet(final HttpServletRequest request, final HttpServletResponse response) throws IOException {
+            response.addCookie(new javax.servlet.http.Cookie("h2", "1"));
+            response.setContentType(MimeType.TEXT_PLAIN);
+
+            final StringBuilder cookies = new StringBuilder();
+            if (request.getCookies() != null) {
+                for (final javax.servlet.http.Cookie c : request.getCookies()) {
+                    cookies.append(c.getName()).append('=').append(c.getValue());
+                }
+            }
+            response.getWriter().write(request.getProtocol()
+                    + "|" + request.getRemotePort()
+                    + "|" + cookies
+                    + "|" + request.getParameter("p")
+                    + "|" + request.getHeader(HttpHeader.USER_AGENT));
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        protected void doPost(final HttpServletRequest request, final HttpServletResponse response)
+                throws IOException {
+            doGet(request, response);
+        }
+    }
+}
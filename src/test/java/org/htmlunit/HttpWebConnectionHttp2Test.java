@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2002-2024 Gargoyle Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.htmlunit;
+
+import org.htmlunit.junit.BrowserRunner;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Runs the {@link HttpWebConnectionTest} tests using the {@link Http2WebConnection}.
+ *
+ * @author agent <agent@local>
+ */
+@RunWith(BrowserRunner.class)
+public class HttpWebConnectionHttp2Test extends HttpWebConnectionTest {
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected WebClient createNewWebClient() {
+        final WebClient webClient = super.createNewWebClient();
+        webClient.getOptions().setHttp2Enabled(true);
+        webClient.getOptions().setHttp2PriorKnowledge(true);
+        return webClient;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Test
+    @Ignore("the HttpClient 4 builder is not used for HTTP/2")
+    public void designedForExtension() throws Exception {
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Test
+    @Ignore("checks the HttpClient 4 client")
+    public void reuseHttpClient() throws Exception {
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Test
+    @Ignore("checks the HttpClient 4 connection pool")
+    public void maxConnectionsPerRoute() throws Exception {
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Test
+    @Ignore("the PrimitiveWebServer only talks HTTP/1.1")
+    public void contentLengthLargerThanContent() throws Exception {
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Test
+    @Ignore("downloadResponse() of the HttpWebConnection is not used for HTTP/2")
+    public void contentBlocking() throws Exception {
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Test
+    @Ignore("downloadResponse() of the HttpWebConnection is not used for HTTP/2")
+    public void contentSizeBlocking() throws Exception {
+    }
+}
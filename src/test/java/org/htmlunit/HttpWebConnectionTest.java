@@ -14,6 +14,7 @@
  */
 package org.htmlunit;
 
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.fail;
 
 import java.io.BufferedInputStream;
@@ -27,7 +28,9 @@ import java.io.Writer;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.net.URL;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -38,6 +41,7 @@ import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.http.HttpEntity;
@@ -48,6 +52,7 @@ import org.apache.http.client.methods.HttpUriRequest;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.entity.mime.MultipartEntityBuilder;
 import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.apache.http.message.BasicHttpResponse;
 import org.apache.http.message.BasicStatusLine;
 import org.htmlunit.html.HtmlPage;
@@ -415,6 +420,110 @@ public class HttpWebConnectionTest extends WebServerTestCase {
         }
     }
 
+    /**
+     * The shared client keeps the connection, sends the request specific headers
+     * and is only built again if the configuration changes.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void reuseHttpClient() throws Exception {
+        final Map<String, Class<? extends Servlet>> servlets = new HashMap<>();
+        servlets.put("/test", ReuseHttpClientServlet.class);
+        startWebServer("./", null, servlets);
+
+        final WebClient client = getWebClient();
+        client.getOptions().setReuseHttpClient(true);
+
+        String firstPort = null;
+        for (int i = 0; i < 3; i++) {
+            final WebRequest request = new WebRequest(new URL(URL_FIRST, "test"));
+            request.setAdditionalHeader("X-Test", "value" + i);
+            final String[] result = client.loadWebResponse(request).getContentAsString().split("\\|");
+
+            if (firstPort == null) {
+                firstPort = result[0];
+                assertEquals("", result[2]);
+            }
+            else {
+                assertEquals(firstPort, result[0]);
+                assertEquals("reuse=1", result[2]);
+            }
+            assertEquals("value" + i, result[1]);
+            assertEquals(client.getBrowserVersion().getUserAgent(), result[3]);
+        }
+
+        // a new configuration requires a new client
+        client.getOptions().setTimeout(client.getOptions().getTimeout() + 1);
+        final String[] result = client.loadWebResponse(new WebRequest(new URL(URL_FIRST, "test")))
+                                    .getContentAsString().split("\\|");
+        assertNotEquals(firstPort, result[0]);
+        assertEquals("reuse=1", result[2]);
+
+        // changes of the (mutable) proxy configuration are detected as well
+        final HttpWebConnection connection = (HttpWebConnection) client.getWebConnection();
+        final Object sharedHttpClient = get(connection, "sharedHttpClient_");
+        client.getOptions().getProxyConfig().addHostsToProxyBypass("localhost");
+        client.loadWebResponse(new WebRequest(new URL(URL_FIRST, "test")));
+        assertNotSame(sharedHttpClient, get(connection, "sharedHttpClient_"));
+    }
+
+    /**
+     * Servlet for {@link #reuseHttpClient()}.
+     */
+    public static class ReuseHttpClientServlet extends HttpServlet {
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        protected void doGet(final HttpServletRequest request, final HttpServletResponse response) throws IOException {
+            response.addCookie(new javax.servlet.http.Cookie("reuse", "1"));
+            response.setContentType(MimeType.TEXT_PLAIN);
+
+            final StringBuilder cookies = new StringBuilder();
+            if (request.getCookies() != null) {
+                for (final javax.servlet.http.Cookie c : request.getCookies()) {
+                    cookies.append(c.getName()).append('=').append(c.getValue());
+                }
+            }
+            response.getWriter().write(request.getRemotePort()
+                    + "|" + request.getHeader("X-Test")
+                    + "|" + cookies
+                    + "|" + request.getHeader(HttpHeader.USER_AGENT));
+        }
+    }
+
+    /**
+     * The connection pool follows the max connections per route setting.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void maxConnectionsPerRoute() throws Exception {
+        final Map<String, Class<? extends Servlet>> servlets = new HashMap<>();
+        servlets.put("/test", RemotePortServlet.class);
+        startWebServer("./", null, servlets);
+
+        final WebClient client = getWebClient();
+        final HttpWebConnection connection = (HttpWebConnection) client.getWebConnection();
+        client.getPage(URL_FIRST + "test");
+        PoolingHttpClientConnectionManager manager = get(connection, "connectionManager_");
+        assertEquals(6, manager.getDefaultMaxPerRoute());
+        assertEquals(20, manager.getMaxTotal());
+
+        client.getOptions().setMaxConnectionsPerRoute(10);
+        client.getPage(URL_FIRST + "test");
+        assertSame(manager, get(connection, "connectionManager_"));
+        assertEquals(10, manager.getDefaultMaxPerRoute());
+        assertEquals(30, manager.getMaxTotal());
+
+        client.getOptions().setReuseHttpClient(true);
+        client.getPage(URL_FIRST + "test");
+        manager = get(get(connection, "sharedHttpClient_"), "connectionManager_");
+        assertEquals(10, manager.getDefaultMaxPerRoute());
+        assertEquals(30, manager.getMaxTotal());
+    }
+
+
     /**
      * @throws Exception if an error occurs
      */
@@ -657,6 +766,111 @@ public class HttpWebConnectionTest extends WebServerTestCase {
         BigContentServlet.CANCEL_ = true;
     }
 
+    /**
+     * Content bigger than one chunk is kept in memory without being copied into one array.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void downloadContentChunked() throws Exception {
+        final byte[] bytes = new byte[DownloadedContent.CHUNK_SIZE * 3 + 17];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) i;
+        }
+
+        DownloadedContent content = HttpWebConnection.downloadContent(new ByteArrayInputStream(bytes), -1, null);
+        assertTrue(content instanceof DownloadedContent.InMemoryChunks);
+        assertEquals(bytes.length, content.length());
+        try (InputStream is = content.getInputStream()) {
+            assertTrue(Arrays.equals(bytes, IOUtils.toByteArray(is)));
+        }
+        assertFalse(content.hasByteBuffer());
+        final ByteBuffer buffer = content.getByteBuffer();
+        assertTrue(buffer.isReadOnly());
+        assertEquals(bytes.length, buffer.remaining());
+        assertEquals(bytes[bytes.length - 1], buffer.get(bytes.length - 1));
+
+        content = HttpWebConnection.downloadContent(new ByteArrayInputStream(bytes, 0, 10), -1, null);
+        assertTrue(content instanceof DownloadedContent.InMemory);
+        assertTrue(content.hasByteBuffer());
+        assertEquals(10, content.length());
+
+        content = HttpWebConnection.downloadContent(new ByteArrayInputStream(new byte[0]), -1, null);
+        assertTrue(content.isEmpty());
+    }
+
+    /**
+     * Content bigger than maxInMemory is written to a file.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void downloadContentOnFile() throws Exception {
+        final byte[] bytes = new byte[DownloadedContent.CHUNK_SIZE * 2 + 5];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) (i * 7);
+        }
+
+        final DownloadedContent content = HttpWebConnection.downloadContent(new ByteArrayInputStream(bytes),
+                DownloadedContent.CHUNK_SIZE + 1, null);
+        try {
+            assertTrue(content instanceof DownloadedContent.OnMappedFile);
+            assertEquals(bytes.length, content.length());
+            try (InputStream is = content.getInputStream()) {
+                assertTrue(Arrays.equals(bytes, IOUtils.toByteArray(is)));
+            }
+
+            assertTrue(content.hasByteBuffer());
+            final ByteBuffer buffer = content.getByteBuffer();
+            assertTrue(buffer.isReadOnly());
+            assertEquals(bytes.length, buffer.remaining());
+            assertEquals(bytes[bytes.length - 1], buffer.get(bytes.length - 1));
+
+            try (InputStream is = content.getInputStream()) {
+                assertEquals(bytes[0] & 0xFF, is.read());
+                try {
+                    is.reset();
+                    fail("IOException expected");
+                }
+                catch (final IOException e) {
+                    // expected
+                }
+                is.mark(10);
+                assertEquals(bytes[1] & 0xFF, is.read());
+                is.reset();
+                assertEquals(bytes[1] & 0xFF, is.read());
+            }
+        }
+        finally {
+            content.cleanUp();
+        }
+    }
+
+    /**
+     * A mapped temporary file is not deleted by cleanUp() as long as the mapping might be in use.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void downloadContentOnFileMappingInUse() throws Exception {
+        final File mapped = File.createTempFile("htmlunit", ".tmp");
+        final File unmapped = File.createTempFile("htmlunit", ".tmp");
+        try {
+            FileUtils.writeByteArrayToFile(mapped, new byte[] {1, 2, 3});
+            DownloadedContent content = new DownloadedContent.OnMappedFile(mapped, true);
+            final ByteBuffer buffer = content.getByteBuffer();
+            content.cleanUp();
+            assertTrue(mapped.exists());
+            assertEquals(3, buffer.get(2));
+
+            FileUtils.writeByteArrayToFile(unmapped, new byte[] {1, 2, 3});
+            content = new DownloadedContent.OnMappedFile(unmapped, true);
+            content.cleanUp();
+            assertFalse(unmapped.exists());
+        }
+        finally {
+            FileUtils.deleteQuietly(mapped);
+            FileUtils.deleteQuietly(unmapped);
+        }
+    }
+
     /**
      * Servlet for bigContent().
      */
@@ -15,7 +15,9 @@
 package org.htmlunit;
 
 import static org.htmlunit.httpclient.HtmlUnitBrowserCompatCookieSpec.EMPTY_COOKIE_NAME;
+import static org.junit.Assert.fail;
 
+import java.io.IOException;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.temporal.ChronoUnit;
@@ -24,6 +26,8 @@ import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 
 import org.apache.commons.lang3.SerializationUtils;
 import org.htmlunit.html.HtmlPage;
@@ -33,6 +37,9 @@ import org.htmlunit.junit.BrowserRunner.HtmlUnitNYI;
 import org.htmlunit.junit.BrowserRunner.NotYetImplemented;
 import org.htmlunit.junit.Retry;
 import org.htmlunit.util.Cookie;
+import org.htmlunit.util.MimeType;
+import org.htmlunit.util.NameValuePair;
+import org.htmlunit.util.UrlUtils;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
@@ -379,4 +386,43 @@ public class WebClient2Test extends SimpleWebTestCase {
         page = loadPage(html);
         assertEquals("\u0069", page.getTitleText());
     }
+
+    /**
+     * @throws Exception if something goes wrong
+     */
+    @Test
+    public void loadWebResponseAsync() throws Exception {
+        final WebClient client = getWebClientWithMockWebConnection();
+        final MockWebConnection connection = getMockWebConnection();
+        final List<NameValuePair> headers = new ArrayList<>();
+        headers.add(new NameValuePair("Location", URL_SECOND.toExternalForm()));
+        connection.setResponse(URL_FIRST, "", 302, "Found", MimeType.TEXT_HTML, headers);
+        connection.setResponse(URL_SECOND, "second");
+
+        final CompletableFuture<WebResponse> future = client.loadWebResponseAsync(new WebRequest(URL_FIRST));
+        final WebResponse response = future.get();
+        assertEquals(URL_SECOND, response.getWebRequest().getUrl());
+        assertEquals("second", response.getContentAsString());
+        assertEquals(2, connection.getRequestCount());
+
+        final CompletableFuture<WebResponse> dataFuture =
+                client.loadWebResponseAsync(new WebRequest(UrlUtils.toUrlUnsafe("data:text/plain,hello")));
+        assertTrue(dataFuture.isDone());
+        assertEquals("hello", dataFuture.get().getContentAsString());
+
+        client.setWebConnection(new MockWebConnection() {
+            @Override
+            public WebResponse getResponse(final WebRequest request) throws IOException {
+                throw new IOException("failed");
+            }
+        });
+        try {
+            client.loadWebResponseAsync(new WebRequest(URL_FIRST)).get();
+            fail("ExecutionException expected");
+        }
+        catch (final ExecutionException e) {
+            assertTrue(e.getCause() instanceof IOException);
+            assertEquals("failed", e.getCause().getMessage());
+        }
+    }
 }
@@ -21,6 +21,7 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.Writer;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -174,6 +175,28 @@ public class WebResponseTest extends WebServerTestCase {
         assertEquals("<html/>", webResponse.getContentAsString(webResponse.getContentCharset()));
     }
 
+    /**
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void getContentAsByteBuffer() throws Exception {
+        final byte[] bom = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+        final byte[] html = "<html>\u00e4</html>".getBytes(UTF_8);
+        final byte[] bytes = new byte[bom.length + html.length];
+        System.arraycopy(bom, 0, bytes, 0, bom.length);
+        System.arraycopy(html, 0, bytes, bom.length, html.length);
+
+        final WebResponseData data = new WebResponseData(bytes, 200, "OK", new ArrayList<>());
+        final WebResponse webResponse = new WebResponse(data, URL_FIRST, HttpMethod.GET, 0);
+
+        final ByteBuffer buffer = webResponse.getContentAsByteBuffer();
+        assertTrue(buffer.isReadOnly());
+        assertEquals(bytes.length, buffer.remaining());
+
+        // the bom wins
+        assertEquals("<html>\u00e4</html>", webResponse.getContentAsString(ISO_8859_1));
+    }
+
     /**
      * Servlet for {@link #binaryResponseHeaders()}.
      */
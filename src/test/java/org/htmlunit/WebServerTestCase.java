@@ -26,6 +26,7 @@ import java.util.Map;
 import javax.servlet.Servlet;
 
 import org.eclipse.jetty.http.MimeTypes;
+import org.eclipse.jetty.http2.server.HTTP2CServerConnectionFactory;
 import org.eclipse.jetty.security.ConstraintMapping;
 import org.eclipse.jetty.security.ConstraintSecurityHandler;
 import org.eclipse.jetty.security.HashLoginService;
@@ -489,13 +490,21 @@ public abstract class WebServerTestCase extends WebTestCase {
         return null;
     }
 
+    /**
+     * Returns a new WebClient instance for the current test with the current {@link BrowserVersion}.
+     * @return a WebClient with the current {@link BrowserVersion}
+     */
+    protected WebClient createNewWebClient() {
+        return new WebClient(getBrowserVersion());
+    }
+
     /**
      * Returns the WebClient instance for the current test with the current {@link BrowserVersion}.
      * @return a WebClient with the current {@link BrowserVersion}
      */
     protected final WebClient getWebClient() {
         if (webClient_ == null) {
-            webClient_ = new WebClient(getBrowserVersion());
+            webClient_ = createNewWebClient();
             webClient_.setAlertHandler(alertHandler_);
         }
         return webClient_;
@@ -521,7 +530,10 @@ public abstract class WebServerTestCase extends WebTestCase {
 
         final Server server = new Server(threadPool);
 
-        final ServerConnector connector = new ServerConnector(server, 1, -1, new HttpConnectionFactory());
+        // h2c is only used if the client starts with the HTTP/2 preface (prior knowledge)
+        final HttpConfiguration configuration = new HttpConfiguration();
+        final ServerConnector connector = new ServerConnector(server, 1, -1,
+                new HttpConnectionFactory(configuration), new HTTP2CServerConnectionFactory(configuration));
         connector.setPort(port);
         server.setConnectors(new Connector[] {connector});
 
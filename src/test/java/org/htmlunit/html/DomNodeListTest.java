@@ -73,6 +73,39 @@ public class DomNodeListTest extends SimpleWebTestCase {
         validateDomNodeList(bodyChildren);
     }
 
+    /**
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void liveAfterSubtreeChanges() throws Exception {
+        final String firstContent
+            = "<html><head><title>First</title></head>\n"
+            + "<body>\n"
+            + "<div id='root'><p><span>a</span></p><span>b</span></div>\n"
+            + "<span>outside</span>\n"
+            + "</body></html>";
+
+        final HtmlPage page = loadPage(firstContent);
+        final HtmlElement root = page.getHtmlElementById("root");
+
+        final DomNodeList<HtmlElement> spans = root.getElementsByTagName("span");
+        assertEquals(2, spans.getLength());
+
+        // changes outside of the subtree keep the cache
+        final HtmlElement outside = (HtmlElement) page.getBody().getLastElementChild();
+        outside.getParentNode().removeChild(outside);
+        assertEquals(2, spans.getLength());
+
+        // changes deep inside of the subtree
+        final HtmlElement p = (HtmlElement) root.getFirstElementChild();
+        p.appendChild(page.createElement("span"));
+        assertEquals(3, spans.getLength());
+
+        p.getFirstElementChild().remove();
+        assertEquals(2, spans.getLength());
+        validateDomNodeList(spans);
+    }
+
     private <E extends DomNode> void validateDomNodeList(final DomNodeList<E> nodes) {
         assertEquals(nodes.getLength(), nodes.size());
         final Iterator<E> nodesIterator = nodes.iterator();
@@ -17,14 +17,23 @@ package org.htmlunit.html;
 import static org.junit.Assert.fail;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.htmlunit.ElementNotFoundException;
 import org.htmlunit.SimpleWebTestCase;
 import org.htmlunit.WebClient;
+import org.htmlunit.cssparser.parser.CSSException;
+import org.htmlunit.cssparser.parser.selector.SelectorList;
 import org.htmlunit.html.DomNode.DescendantElementsIterator;
+import org.htmlunit.html.xpath.XPathHelper;
 import org.htmlunit.junit.BrowserRunner;
 import org.htmlunit.junit.BrowserRunner.Alerts;
+import org.htmlunit.util.LruCache;
 import org.htmlunit.util.MimeType;
 import org.htmlunit.xml.XmlPage;
 import org.junit.Test;
@@ -855,4 +864,197 @@ public class DomNodeTest extends SimpleWebTestCase {
         assertTrue(elem1.isDisplayed());
         assertTrue(elem2.isDisplayed());
     }
+
+    /**
+     * Parsed selectors are reused.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void selectorCache() throws Exception {
+        final String content = "<html><head></head><body>\n"
+            + "<div id='d1' class='x'><span class='x'></span></div>\n"
+            + "</body></html>";
+        final HtmlPage page = loadPage(content);
+        final LruCache<String, SelectorList> cache = page.getWebClient().getSelectorCache();
+        cache.clear();
+
+        assertEquals(2, page.querySelectorAll(".x").size());
+        assertEquals(1, cache.size());
+
+        final long hits = cache.getHitCount();
+        final DomElement div = page.getElementById("d1");
+        assertEquals(1, div.querySelectorAll(".x").size());
+        assertTrue(div.matches(".x"));
+        assertEquals(div, div.getFirstElementChild().closest("div.x, #d1"));
+        assertEquals(2, cache.size());
+        assertEquals(hits + 2, cache.getHitCount());
+
+        // invalid selectors are not cached
+        for (int i = 0; i < 2; i++) {
+            try {
+                page.querySelectorAll("p:unknown");
+                fail("CSSException expected");
+            }
+            catch (final CSSException e) {
+                // expected
+            }
+        }
+        assertEquals(2, cache.size());
+    }
+
+    /**
+     * Id selectors use the id index of the page, the result has to be
+     * the same as for the generic search.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void querySelectorById() throws Exception {
+        final String content = "<html><head></head><body>\n"
+            + "<div id='outer'>\n"
+            + "  <p id='dup' class='a'></p>\n"
+            + "  <div id='inner'><p id='dup' class='b'></p></div>\n"
+            + "</div>\n"
+            + "<p id='dup' class='c'></p>\n"
+            + "</body></html>";
+        final HtmlPage page = loadPage(content);
+
+        assertEquals(3, page.querySelectorAll("#dup").size());
+        assertEquals("a", ((DomElement) page.querySelector("#dup")).getAttribute("class"));
+        assertEquals("b", ((DomElement) page.querySelector("#inner > p#dup")).getAttribute("class"));
+
+        final DomElement outer = page.getElementById("outer");
+        assertEquals(2, outer.querySelectorAll("#dup").size());
+        assertEquals(0, outer.querySelectorAll("#outer").size());
+        assertEquals(1, outer.querySelectorAll("#inner #dup").size());
+        assertEquals(1, outer.querySelectorAll("#dup + #inner").size());
+
+        // detached nodes are not part of the index
+        final DomElement inner = page.getElementById("inner");
+        inner.remove();
+        assertEquals(1, inner.querySelectorAll("#dup").size());
+        assertEquals(2, page.querySelectorAll("#dup").size());
+    }
+
+    /**
+     * Elements missing in the id index of the page are found by id selectors too.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void querySelectorByIdNotIndexed() throws Exception {
+        final String content = "<html><head></head><body>\n"
+            + "<svg><rect id='rect'/></svg>\n"
+            + "<div id='before'></div>\n"
+            + "</body></html>";
+        final HtmlPage page = loadPage(content);
+
+        assertEquals("rect", ((DomElement) page.querySelector("#rect")).getLocalName());
+        assertEquals(1, page.querySelectorAll("svg #rect").size());
+
+        // changed using the attribute node, the index is not updated
+        final DomElement div = page.querySelector("#before");
+        div.getAttributeNode("id").setValue("after");
+        assertNull(page.querySelector("#before"));
+        assertSame(div, page.querySelector("#after"));
+        assertEquals(1, page.querySelectorAll("body > #after").size());
+    }
+
+    /**
+     * querySelectorAll() finds the elements missing in the id index even if
+     * an indexed element matches.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void querySelectorAllByIdPartlyIndexed() throws Exception {
+        final String content = "<html><head></head><body>\n"
+            + "<svg><rect id='x'/></svg>\n"
+            + "<div id='x'></div>\n"
+            + "<p id='other'></p>\n"
+            + "</body></html>";
+        final HtmlPage page = loadPage(content);
+
+        // changed using the attribute node, the index is not updated
+        page.getHtmlElementById("other").getAttributeNode("id").setValue("x");
+
+        final DomNodeList<DomNode> found = page.querySelectorAll("#x");
+        assertEquals(3, found.size());
+        assertEquals("rect", found.get(0).getLocalName());
+        assertEquals("div", found.get(1).getLocalName());
+        assertEquals("p", found.get(2).getLocalName());
+    }
+
+    /**
+     * The iterator returns the same elements as querySelectorAll().
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void querySelectorIterator() throws Exception {
+        final String content = "<html><head></head><body>\n"
+            + "<div id='outer'>\n"
+            + "  <p id='dup' class='a'></p>\n"
+            + "  <div id='inner'><p id='dup' class='b'></p></div>\n"
+            + "</div>\n"
+            + "<p id='dup' class='c'></p>\n"
+            + "</body></html>";
+        final HtmlPage page = loadPage(content);
+
+        for (final String selectors : new String[] {"#dup", "p", "div, p", "#outer p.b", "span"}) {
+            final List<DomNode> found = new ArrayList<>();
+            final Iterator<DomNode> iterator = page.querySelectorIterator(selectors);
+            while (iterator.hasNext()) {
+                found.add(iterator.next());
+            }
+            assertEquals(selectors, page.querySelectorAll(selectors), found);
+        }
+
+        final Iterator<DomNode> iterator = page.getElementById("outer").querySelectorIterator("p");
+        assertEquals("a", ((DomElement) iterator.next()).getAttribute("class"));
+        assertEquals("b", ((DomElement) iterator.next()).getAttribute("class"));
+        assertFalse(iterator.hasNext());
+        try {
+            iterator.next();
+            fail("NoSuchElementException expected");
+        }
+        catch (final NoSuchElementException e) {
+            // expected
+        }
+    }
+
+    /**
+     * The stream returns the same results as getByXPath().
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void streamByXPath() throws Exception {
+        final String content = "<html><head></head><body>\n"
+            + "<div id='outer'>\n"
+            + "  <p class='a'>1</p>\n"
+            + "  <div><p class='b'>2</p></div>\n"
+            + "</div>\n"
+            + "<p class='c'>3</p>\n"
+            + "</body></html>";
+        final HtmlPage page = loadPage(content);
+
+        for (final String xpath : new String[] {"//body//p", "//p", "//p/text()", "//body/p[@class='x']"}) {
+            try (Stream<Object> stream = page.streamByXPath(xpath)) {
+                assertEquals(xpath, page.getByXPath(xpath), stream.collect(Collectors.toList()));
+            }
+        }
+
+        try (Stream<Object> stream = page.streamByXPath("count(//body//p)")) {
+            assertEquals(Arrays.asList(Double.valueOf(3)), stream.collect(Collectors.toList()));
+        }
+
+        final DomElement outer = page.getElementById("outer");
+        try (Stream<DomElement> stream = outer.streamByXPath(".//p")) {
+            assertTrue(stream.anyMatch(p -> "b".equals(p.getAttribute("class"))));
+        }
+        assertEquals("a", ((DomElement) outer.getFirstByXPath(".//p")).getAttribute("class"));
+        assertNull(outer.getFirstByXPath(".//span"));
+
+        // a closed stream releases the xpath context of the page
+        final long dtmBuildCount = XPathHelper.getDtmBuildCount();
+        assertEquals("a", ((DomElement) page.getFirstByXPath("//body//p")).getAttribute("class"));
+        assertEquals("c", ((DomElement) page.getFirstByXPath("//body/p")).getAttribute("class"));
+        assertEquals(dtmBuildCount, XPathHelper.getDtmBuildCount());
+    }
 }
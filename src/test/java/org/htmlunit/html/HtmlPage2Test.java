@@ -19,6 +19,7 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
 import java.util.ArrayList;
@@ -32,6 +33,8 @@ import org.htmlunit.CollectingAlertHandler;
 import org.htmlunit.MockWebConnection;
 import org.htmlunit.SimpleWebTestCase;
 import org.htmlunit.WebClient;
+import org.htmlunit.WebRequest;
+import org.htmlunit.WebResponse;
 import org.htmlunit.junit.BrowserRunner;
 import org.htmlunit.junit.BrowserRunner.Alerts;
 import org.htmlunit.util.MimeType;
@@ -446,4 +449,91 @@ public class HtmlPage2Test extends SimpleWebTestCase {
             assertTrue(file.delete());
         }
     }
+
+    /**
+     * External resources are loaded in the background, the scripts are executed in order.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void prefetchSubresources() throws Exception {
+        final String html = "<html><head>\n"
+            + "<link rel='stylesheet' href='style.css'>\n"
+            + "<script src='a.js'></script>\n"
+            + "<script src='b.js'></script>\n"
+            + "<!-- <script src='commented.js'></script> -->\n"
+            + "</head><body>\n"
+            + "<script src='c.js'></script>\n"
+            + "</body></html>";
+
+        final Thread testThread = Thread.currentThread();
+        final List<String> prefetched = Collections.synchronizedList(new ArrayList<>());
+        final MockWebConnection conn = new MockWebConnection() {
+            @Override
+            public WebResponse getResponse(final WebRequest request) throws IOException {
+                if (Thread.currentThread() != testThread) {
+                    prefetched.add(request.getUrl().getPath());
+                }
+                return super.getResponse(request);
+            }
+        };
+        conn.setResponse(URL_FIRST, html);
+        conn.setResponse(new URL(URL_FIRST, "style.css"), "p { color: red; }", MimeType.TEXT_CSS);
+        conn.setResponse(new URL(URL_FIRST, "a.js"), "alert('a');", MimeType.TEXT_JAVASCRIPT);
+        conn.setResponse(new URL(URL_FIRST, "b.js"), "alert('b');", MimeType.TEXT_JAVASCRIPT);
+        conn.setResponse(new URL(URL_FIRST, "c.js"), "alert('c');", MimeType.TEXT_JAVASCRIPT);
+
+        final WebClient client = getWebClient();
+        client.setWebConnection(conn);
+        client.getOptions().setPrefetchSubresources(true);
+        final List<String> collectedAlerts = new ArrayList<>();
+        client.setAlertHandler(new CollectingAlertHandler(collectedAlerts));
+
+        client.getPage(URL_FIRST);
+        assertEquals(new String[] {"a", "b", "c"}, collectedAlerts);
+
+        // every resource is requested only once
+        assertEquals(5, conn.getRequestCount());
+        Collections.sort(prefetched);
+        assertEquals("[/a.js, /b.js, /c.js, /style.css]", prefetched.toString());
+    }
+
+    /**
+     * A prefetched response is not used if a script changed the cookies in the meantime.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void prefetchSubresourcesCookieChanged() throws Exception {
+        final String html = "<html><head>\n"
+            + "<script>document.cookie = 'c=1';</script>\n"
+            + "<script src='a.js'></script>\n"
+            + "</head><body>\n"
+            + "</body></html>";
+
+        final Thread testThread = Thread.currentThread();
+        final List<String> loaded = Collections.synchronizedList(new ArrayList<>());
+        final MockWebConnection conn = new MockWebConnection() {
+            @Override
+            public WebResponse getResponse(final WebRequest request) throws IOException {
+                if (request.getUrl().getPath().endsWith(".js")) {
+                    loaded.add(Thread.currentThread() == testThread ? "regular" : "prefetch");
+                }
+                return super.getResponse(request);
+            }
+        };
+        conn.setResponse(URL_FIRST, html);
+        conn.setResponse(new URL(URL_FIRST, "a.js"), "alert(document.cookie);", MimeType.TEXT_JAVASCRIPT);
+
+        final WebClient client = getWebClient();
+        client.setWebConnection(conn);
+        client.getOptions().setPrefetchSubresources(true);
+        final List<String> collectedAlerts = new ArrayList<>();
+        client.setAlertHandler(new CollectingAlertHandler(collectedAlerts));
+
+        client.getPage(URL_FIRST);
+        assertEquals(new String[] {"c=1"}, collectedAlerts);
+
+        // the prefetch was done without the cookie, the script is requested again
+        Collections.sort(loaded);
+        assertEquals("[prefetch, regular]", loaded.toString());
+    }
 }
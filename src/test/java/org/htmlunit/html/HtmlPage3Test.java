@@ -637,4 +637,74 @@ public class HtmlPage3Test extends WebDriverTestCase {
 
         loadPageVerifyTitle2(html);
     }
+
+    /**
+     * The live collection returned by getElementsByClassName() has to notice class changes
+     * of the elements inside of its subtree.
+     * @throws Exception if the test fails
+     */
+    @Test
+    @Alerts({"1", "2", "2", "1", "0"})
+    public void liveCollection_classNameChange() throws Exception {
+        final String html = "<html>\n"
+            + "<head></head>\n"
+            + "<body>\n"
+            + "<div id='root'><p id='p1' class='a'>1</p><div><p id='p2'>2</p></div></div>\n"
+            + "<p id='p3'>3</p>\n"
+            + "<script>\n"
+            + LOG_TITLE_FUNCTION
+            + "  var coll = document.getElementById('root').getElementsByClassName('a');\n"
+            + "  log(coll.length);\n"
+            + "  document.getElementById('p2').className = 'b a';\n"
+            + "  log(coll.length);\n"
+            + "  document.getElementById('p3').className = 'a';\n"
+            + "  log(coll.length);\n"
+            + "  document.getElementById('p1').removeAttribute('class');\n"
+            + "  log(coll.length);\n"
+            + "  document.getElementById('p2').className = 'b';\n"
+            + "  log(coll.length);\n"
+            + "</script></body></html>";
+
+        loadPageVerifyTitle2(html);
+    }
+
+    /**
+     * The live collection returned by getElementsByName() has to notice a name change
+     * even if many other attribute changes were done after it.
+     * @throws Exception if the test fails
+     */
+    @Test
+    @Alerts({"1", "1", "2", "2", "1"})
+    public void liveCollection_nameChangeFollowedByManyOtherChanges() throws Exception {
+        final String html = "<html>\n"
+            + "<head></head>\n"
+            + "<body>\n"
+            + "<input id='i1' name='n'><input id='i2' name='x'>\n"
+            + "<script>\n"
+            + LOG_TITLE_FUNCTION
+            + "  var coll = document.getElementsByName('n');\n"
+            + "  log(coll.length);\n"
+            + "  var i1 = document.getElementById('i1');\n"
+            + "  var i2 = document.getElementById('i2');\n"
+            + "  i1.title = 'changed';\n"
+            + "  log(coll.length);\n"
+            + "  i2.name = 'n';\n"
+            + "  for (var i = 0; i < 40; i++) {\n"
+            + "    i1.title = 'title' + i;\n"
+            + "  }\n"
+            + "  log(coll.length);\n"
+            + "  for (var i = 0; i < 5; i++) {\n"
+            + "    i2.title = 'title' + i;\n"
+            + "  }\n"
+            + "  log(coll.length);\n"
+            + "  for (var i = 0; i < 5; i++) {\n"
+            + "    i2.title = 'other' + i;\n"
+            + "  }\n"
+            + "  i1.name = 'x';\n"
+            + "  i2.title = 'last';\n"
+            + "  log(coll.length);\n"
+            + "</script></body></html>";
+
+        loadPageVerifyTitle2(html);
+    }
 }
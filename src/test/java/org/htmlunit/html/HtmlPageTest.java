@@ -48,6 +48,8 @@ import org.htmlunit.StringWebResponse;
 import org.htmlunit.WebClient;
 import org.htmlunit.WebRequest;
 import org.htmlunit.WebResponse;
+import org.htmlunit.WebWindow;
+import org.htmlunit.css.LayoutBoxCache;
 import org.htmlunit.html.HtmlElementTest.HtmlAttributeChangeListenerTestImpl;
 import org.htmlunit.junit.BrowserRunner;
 import org.htmlunit.junit.BrowserRunner.Alerts;
@@ -2086,4 +2088,249 @@ public class HtmlPageTest extends SimpleWebTestCase {
         page = loadPage(getBrowserVersion(), html, null, new URL(URL_FIRST.toString() + path));
         assertEquals(URL_FIRST.toExternalForm() + path, page.getBaseURL().toExternalForm());
     }
+
+    /**
+     * The style sheets are maintained when style elements are added, removed or moved.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void styleSheetsMaintained() throws Exception {
+        final String html = "<html><head>\n"
+            + "<style id='s1'>p { color: red; }</style>\n"
+            + "</head><body>\n"
+            + "<p id='p'>text</p>\n"
+            + "<div id='d'><style id='s2'>p { color: green; }</style></div>\n"
+            + "</body></html>";
+
+        final HtmlPage page = loadPage(html);
+        final DomElement p = page.getElementById("p");
+        assertEquals(2, page.getStyleSheets().size());
+        assertEquals("rgb(0, 128, 0)", page.getEnclosingWindow().getComputedStyle(p, null).getColor());
+
+        page.getElementById("d").remove();
+        assertEquals(1, page.getStyleSheets().size());
+        assertEquals("rgb(255, 0, 0)", page.getEnclosingWindow().getComputedStyle(p, null).getColor());
+
+        final DomElement s3 = page.createElement("style");
+        s3.appendChild(page.createTextNode("p { color: blue; }"));
+        page.getBody().appendChild(s3);
+        assertEquals(2, page.getStyleSheets().size());
+        assertEquals("rgb(0, 0, 255)", page.getEnclosingWindow().getComputedStyle(p, null).getColor());
+
+        // moved behind s3
+        page.getBody().appendChild(page.getElementById("s1"));
+        assertEquals(2, page.getStyleSheets().size());
+        assertEquals("rgb(255, 0, 0)", page.getEnclosingWindow().getComputedStyle(p, null).getColor());
+    }
+
+    /**
+     * The style sheets and frames inside of a non html element are maintained too.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void styleSheetsAndFramesInsideSvgMaintained() throws Exception {
+        final String html = "<html><head>\n"
+            + "<style>p { color: red; }</style>\n"
+            + "</head><body>\n"
+            + "<p id='p'>text</p>\n"
+            + "</body></html>";
+
+        final HtmlPage page = loadPage(html);
+        assertEquals(1, page.getStyleSheets().size());
+        assertEquals(0, page.getFrames().size());
+
+        final DomElement svg = page.createElementNS(Html.SVG_NAMESPACE, "svg");
+        final DomElement style = page.createElement("style");
+        style.appendChild(page.createTextNode("p { color: green; }"));
+        svg.appendChild(style);
+        svg.appendChild(page.createElement("iframe"));
+
+        page.getBody().appendChild(svg);
+        assertEquals(2, page.getStyleSheets().size());
+        assertEquals(1, page.getFrames().size());
+
+        svg.remove();
+        assertEquals(1, page.getStyleSheets().size());
+        assertEquals(0, page.getFrames().size());
+    }
+
+    /**
+     * Only the computed styles of the changed element, its descendants and the following siblings
+     * are removed from the cache if an attribute was changed.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void computedStylesInvalidation() throws Exception {
+        final String html = "<html><head>\n"
+            + "<style>.on + p { color: red; } .on p { color: green; }</style>\n"
+            + "</head><body>\n"
+            + "<div id='d1'><p id='p1'>a</p></div>\n"
+            + "<div id='d2'><p id='p2'>b</p></div>\n"
+            + "<p id='s1'>c</p>\n"
+            + "<p id='s2'>d</p>\n"
+            + "</body></html>";
+
+        final HtmlPage page = loadPage(html);
+        final WebWindow window = page.getEnclosingWindow();
+        final String[] ids = {"d1", "p1", "d2", "p2", "s1", "s2"};
+        for (final String id : ids) {
+            window.getComputedStyle(page.getElementById(id), null);
+        }
+        final long invalidations = page.getComputedStylesInvalidationCount();
+        final long clears = page.getComputedStylesClearCount();
+
+        page.getElementById("d2").setAttribute("class", "on");
+        assertEquals(invalidations + 1, page.getComputedStylesInvalidationCount());
+        assertEquals(clears, page.getComputedStylesClearCount());
+
+        assertNotNull(page.getStyleFromCache(page.getElementById("d1"), null));
+        assertNotNull(page.getStyleFromCache(page.getElementById("p1"), null));
+        assertNull(page.getStyleFromCache(page.getElementById("d2"), null));
+        assertNull(page.getStyleFromCache(page.getElementById("p2"), null));
+        assertNull(page.getStyleFromCache(page.getElementById("s1"), null));
+        assertNull(page.getStyleFromCache(page.getElementById("s2"), null));
+
+        final long rebuilds = page.getComputedStylesRebuildCount();
+        assertEquals("rgb(0, 128, 0)", window.getComputedStyle(page.getElementById("p2"), null).getColor());
+        assertEquals("rgb(255, 0, 0)", window.getComputedStyle(page.getElementById("s1"), null).getColor());
+        assertEquals("rgb(0, 0, 0)", window.getComputedStyle(page.getElementById("s2"), null).getColor());
+        assertTrue(page.getComputedStylesRebuildCount() > rebuilds);
+
+        // structural change; the former siblings are affected
+        page.getElementById("d1").remove();
+        assertNull(page.getStyleFromCache(page.getElementById("s2"), null));
+    }
+
+    /**
+     * Layout values are cached until the page is modified.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void layoutBoxCache() throws Exception {
+        final String html = "<html><head>\n"
+            + "<script>\n"
+            + "  function read() {\n"
+            + "    var d = document.getElementById('d2');\n"
+            + "    var result = '';\n"
+            + "    for (var i = 0; i < 3; i++) {\n"
+            + "      result = d.offsetTop + ',' + d.offsetHeight;\n"
+            + "    }\n"
+            + "    return result;\n"
+            + "  }\n"
+            + "</script>\n"
+            + "</head><body>\n"
+            + "<div id='d1' style='height: 10px'></div>\n"
+            + "<div id='d2' style='height: 20px'></div>\n"
+            + "</body></html>";
+
+        final HtmlPage page = loadPage(html);
+        final LayoutBoxCache cache = page.getLayoutBoxCache();
+
+        final String first = page.executeJavaScript("read()").getJavaScriptResult().toString();
+        final long hits = cache.getHitCount();
+        assertTrue(hits >= 4);
+
+        assertEquals(first, page.executeJavaScript("read()").getJavaScriptResult().toString());
+        assertTrue(cache.getHitCount() > hits);
+
+        final long invalidations = cache.getInvalidationCount();
+        page.getElementById("d1").setAttribute("style", "height: 30px");
+        assertEquals(invalidations + 1, cache.getInvalidationCount());
+
+        final String[] firstValues = first.split(",");
+        final String[] values = page.executeJavaScript("read()").getJavaScriptResult().toString().split(",");
+        assertEquals(Integer.parseInt(firstValues[0]) + 20, Integer.parseInt(values[0]));
+        assertEquals(firstValues[1], values[1]);
+    }
+
+    /**
+     * Adding or removing a node changes the subtree modification count of its parent and of all
+     * ancestors, but not the one of other nodes.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void subtreeModificationCounts() throws Exception {
+        final String html = "<html><head></head><body>\n"
+            + "<div id='d1'><p id='p1'>a</p></div>\n"
+            + "<div id='d2'></div>\n"
+            + "</body></html>";
+
+        final HtmlPage page = loadPage(html);
+        final DomElement d1 = page.getElementById("d1");
+        final DomElement p1 = page.getElementById("p1");
+        final DomElement d2 = page.getElementById("d2");
+
+        final int pageCount = page.getSubtreeModificationCount();
+        final int d1Count = d1.getSubtreeModificationCount();
+        final int p1Count = p1.getSubtreeModificationCount();
+        final int d2Count = d2.getSubtreeModificationCount();
+        final int pageAttributeCount = page.getSubtreeAttributeModificationCount();
+        final int d2AttributeCount = d2.getSubtreeAttributeModificationCount();
+
+        p1.appendChild(page.createElement("span"));
+        assertTrue(pageCount != page.getSubtreeModificationCount());
+        assertTrue(d1Count != d1.getSubtreeModificationCount());
+        assertTrue(p1Count != p1.getSubtreeModificationCount());
+        assertEquals(d2Count, d2.getSubtreeModificationCount());
+
+        // attribute changes only touch the attribute counts
+        final int d1CountAfterAdd = d1.getSubtreeModificationCount();
+        final int d1AttributeCount = d1.getSubtreeAttributeModificationCount();
+        p1.setAttribute("class", "x");
+        assertEquals(d1CountAfterAdd, d1.getSubtreeModificationCount());
+        assertTrue(d1AttributeCount != d1.getSubtreeAttributeModificationCount());
+        assertTrue(pageAttributeCount != page.getSubtreeAttributeModificationCount());
+        assertEquals(d2AttributeCount, d2.getSubtreeAttributeModificationCount());
+
+        // removing changes the count of the former parent
+        p1.getFirstElementChild().remove();
+        assertTrue(d1CountAfterAdd != d1.getSubtreeModificationCount());
+        assertEquals(d2Count, d2.getSubtreeModificationCount());
+    }
+
+    /**
+     * The page keeps the latest 32 attribute changes.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void attributeChangesLog() throws Exception {
+        final String html = "<html><head></head><body>\n"
+            + "<div id='d1'></div>\n"
+            + "</body></html>";
+
+        final HtmlPage page = loadPage(html);
+        final DomElement d1 = page.getElementById("d1");
+
+        final long start = page.getAttributeChangesCount();
+        assertTrue(page.getAttributeChangesSince(start).isEmpty());
+
+        d1.setAttribute("class", "a");
+        d1.setAttribute("class", "b");
+        d1.removeAttribute("class");
+        assertEquals(start + 3, page.getAttributeChangesCount());
+
+        List<HtmlAttributeChangeEvent> events = page.getAttributeChangesSince(start);
+        assertEquals(3, events.size());
+        assertEquals("a", events.get(0).getValue());
+        assertEquals("a", events.get(1).getValue());
+        assertEquals("b", events.get(2).getValue());
+        for (final HtmlAttributeChangeEvent event : events) {
+            assertSame(d1, event.getHtmlElement());
+            assertEquals("class", event.getName());
+        }
+
+        events = page.getAttributeChangesSince(start + 2);
+        assertEquals(1, events.size());
+
+        // fill the log; the first changes are dropped
+        for (int i = 0; i < 30; i++) {
+            d1.setAttribute("title", "t" + i);
+        }
+        assertEquals(start + 33, page.getAttributeChangesCount());
+        assertNull(page.getAttributeChangesSince(start));
+        events = page.getAttributeChangesSince(start + 1);
+        assertEquals(32, events.size());
+        assertEquals("class", events.get(0).getName());
+        assertEquals("t29", events.get(31).getValue());
+    }
 }
@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2002-2024 Gargoyle Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.htmlunit.html;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link PreloadScanner}.
+ *
+ * @author agent <agent@local>
+ */
+public class PreloadScannerTest {
+
+    private static String scan(final String html) {
+        final List<String> found = new ArrayList<>();
+        for (final PreloadScanner.Resource resource : new PreloadScanner(html).scan()) {
+            found.add(resource.getType() + " " + resource.getUrl());
+        }
+        return found.toString();
+    }
+
+    /**
+     * Scripts, style sheets and images are found in document order.
+     */
+    @Test
+    public void resources() {
+        final String html = "<html><head>\n"
+                + "<LINK REL='Alternate  StyleSheet' href=\"alt.css\">\n"
+                + "<link rel=icon href=favicon.ico>\n"
+                + "<script src=a.js></script>\n"
+                + "<script>var s = '<script src=\"inline.js\"></script>';</script>\n"
+                + "<script type='text/javascript' src = ' b.js?x=1&amp;y=2 ' ></script>\n"
+                + "</head><body>\n"
+                + "<img alt='>' src='img.png'>\n"
+                + "<script src=''></script>\n"
+                + "</body></html>";
+
+        assertEquals("[STYLESHEET alt.css, SCRIPT a.js, SCRIPT b.js?x=1&y=2, IMAGE img.png]", scan(html));
+    }
+
+    /**
+     * Comments and the content of raw text elements are skipped.
+     */
+    @Test
+    public void skipped() {
+        final String html = "<html><head>\n"
+                + "<!-- <script src='comment.js'></script> -->\n"
+                + "<title><script src='title.js'></script></title>\n"
+                + "<style>/* <link rel=stylesheet href=style.css> */</style>\n"
+                + "<textarea><img src='textarea.png'></TEXTAREA>\n"
+                + "<template><img src='template.png'></template>\n"
+                + "</head><body><script src='body.js'></script></body></html>";
+
+        assertEquals("[SCRIPT body.js]", scan(html));
+    }
+
+    /**
+     * The first base tag wins; unclosed tags at the end are ignored.
+     */
+    @Test
+    public void baseAndBrokenMarkup() {
+        PreloadScanner scanner = new PreloadScanner("<base href='/first/'><base href='/second/'>"
+                + "<script src='a.js'");
+        assertEquals(0, scanner.scan().size());
+        assertEquals("/first/", scanner.getBaseHref());
+
+        scanner = new PreloadScanner("<!-- <script src='a.js'>");
+        assertEquals(0, scanner.scan().size());
+        assertNull(scanner.getBaseHref());
+
+        assertEquals("[]", scan("<script src='a.js"));
+        assertEquals("[]", scan("<"));
+        assertEquals("[]", scan("<script"));
+    }
+}
@@ -341,4 +341,90 @@ public class HtmlUnitXPathTest extends SimpleWebTestCase {
         assertNull(page.getFirstByXPath("//td[text()='[x]']"));
         assertSame(cell, page.getFirstByXPath("//td[text()='[X]']"));
     }
+
+    /**
+     * Compiled expressions and the DTM of the page are reused until the page is modified.
+     * @throws Exception if test fails
+     */
+    @Test
+    public void reuseCompiledExpressionAndDtm() throws Exception {
+        final String content = "<html><head></head>\n"
+            + "<body>\n"
+            + "  <div id='d1' class='x'>one</div>\n"
+            + "</body></html>";
+
+        final HtmlPage page = loadPage(content);
+        assertEquals(1, page.getByXPath("//body/div[@class='x']").size());
+
+        final long compileCount = XPathHelper.getCompileCount();
+        final long dtmBuildCount = XPathHelper.getDtmBuildCount();
+        assertEquals(1, page.getByXPath("//body/div[@class='x']").size());
+        assertEquals(compileCount, XPathHelper.getCompileCount());
+        assertEquals(dtmBuildCount, XPathHelper.getDtmBuildCount());
+
+        final HtmlDivision div = (HtmlDivision) page.createElement("div");
+        div.setAttribute("class", "x");
+        page.getBody().appendChild(div);
+        assertEquals(2, page.getByXPath("//body/div[@class='x']").size());
+        assertEquals(compileCount, XPathHelper.getCompileCount());
+        assertEquals(dtmBuildCount + 1, XPathHelper.getDtmBuildCount());
+
+        div.setAttribute("class", "y");
+        assertEquals(1, page.getByXPath("//body/div[@class='x']").size());
+        assertEquals(dtmBuildCount + 2, XPathHelper.getDtmBuildCount());
+    }
+
+    /**
+     * Some common expressions are answered from the indexes of the page; the results
+     * have to be the same as the ones of the XPath engine.
+     * @throws Exception if test fails
+     */
+    @Test
+    public void indexedQueries() throws Exception {
+        final String content = "<html><head></head>\n"
+            + "<body>\n"
+            + "  <div id='x' class='y'>one</div>\n"
+            + "  <DIV id='x'>two</DIV>\n"
+            + "  <form><input name='q'><input name='Q'><span name='q'></span></form>\n"
+            + "  <table><tr><td><table><tr><td><a class='y'>a</a></td></tr></table></td></tr></table>\n"
+            + "</body></html>";
+
+        final HtmlPage page = loadPage(content);
+
+        final String[] expressions = {"//div[@id='x']", "//DIV[@ID=\"x\"]", "//*[@id='x']", "//div[@id='X']",
+            "//a[@class='y']", "//*[@class='y']", "//input[@name='q']", "//*[@name='q']",
+            "//table//tr", "//table//td", "//tr", "//*", "//body//*", "//unknown"};
+        for (final String expression : expressions) {
+            final long indexQueryCount = XPathHelper.getIndexQueryCount();
+            final List<?> indexed = page.getByXPath(expression);
+            assertEquals(expression, indexQueryCount + 1, XPathHelper.getIndexQueryCount());
+
+            final List<?> expected = page.getByXPath("(" + expression + ")");
+            assertEquals(expression, indexQueryCount + 1, XPathHelper.getIndexQueryCount());
+            assertEquals(expression, expected, indexed);
+        }
+
+        // the index follows the changes
+        page.getBody().appendChild(page.createElement("table"));
+        ((HtmlElement) page.getFirstByXPath("//div[@class='y']")).setAttribute("id", "z");
+        assertEquals(3, page.getByXPath("//table").size());
+        assertEquals(1, page.getByXPath("//div[@id='x']").size());
+        assertEquals(1, page.getByXPath("//div[@id='z']").size());
+
+        // changes of the attribute node are not reflected by the id and name maps of the page
+        final HtmlElement div = page.getFirstByXPath("//div[@id='z']");
+        div.getAttributeNode("id").setValue("w");
+        final HtmlElement input = page.getFirstByXPath("//input[@name='q']");
+        input.getAttributeNode("name").setValue("r");
+        for (final String expression : new String[] {"//div[@id='z']", "//div[@id='w']", "//*[@id='w']",
+            "//input[@name='q']", "//input[@name='r']", "//*[@name='r']"}) {
+            final long indexQueryCount = XPathHelper.getIndexQueryCount();
+            final List<?> indexed = page.getByXPath(expression);
+            assertEquals(expression, indexQueryCount + 1, XPathHelper.getIndexQueryCount());
+            assertEquals(expression, page.getByXPath("(" + expression + ")"), indexed);
+        }
+        assertEquals(0, page.getByXPath("//div[@id='z']").size());
+        assertEquals(div, page.getFirstByXPath("//*[@id='w']"));
+        assertEquals(input, page.getFirstByXPath("//*[@name='r']"));
+    }
 }
@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2002-2024 Gargoyle Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.htmlunit.javascript;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.htmlunit.CollectingAlertHandler;
+import org.htmlunit.MockWebConnection;
+import org.htmlunit.SimpleWebTestCase;
+import org.htmlunit.WebClient;
+import org.htmlunit.junit.BrowserRunner;
+import org.htmlunit.util.MimeType;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Tests for {@link CompiledScriptCache}.
+ *
+ * @author agent <agent@local>
+ */
+@RunWith(BrowserRunner.class)
+public class CompiledScriptCacheTest extends SimpleWebTestCase {
+
+    private static final String INLINE_PAGE = "<html><head><script>alert('boot');</script></head>"
+            + "<body></body></html>";
+
+    /**
+     * The same inline script is compiled only once when the page is loaded again.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void inlineScriptReused() throws Exception {
+        final WebClient client = getWebClientWithMockWebConnection();
+        final List<String> collectedAlerts = new ArrayList<>();
+        client.setAlertHandler(new CollectingAlertHandler(collectedAlerts));
+        getMockWebConnection().setResponse(URL_FIRST, INLINE_PAGE);
+
+        final CompiledScriptCache cache = client.getCompiledScriptCache();
+        cache.setMaxSize(CompiledScriptCache.DEFAULT_MAX_SIZE);
+        client.getPage(URL_FIRST);
+        final long misses = cache.getMissCount();
+
+        client.getPage(URL_FIRST);
+        assertEquals(new String[] {"boot", "boot"}, collectedAlerts);
+        assertEquals(misses, cache.getMissCount());
+        assertTrue(cache.getHitCount() > 0);
+    }
+
+    /**
+     * Identical inline scripts on different pages are only shared if the source name is ignored.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void sourceNamePolicy() throws Exception {
+        final WebClient client = getWebClientWithMockWebConnection();
+        getMockWebConnection().setResponse(URL_FIRST, INLINE_PAGE);
+        getMockWebConnection().setResponse(URL_SECOND, INLINE_PAGE);
+
+        final CompiledScriptCache cache = client.getCompiledScriptCache();
+        cache.setMaxSize(CompiledScriptCache.DEFAULT_MAX_SIZE);
+        client.getPage(URL_FIRST);
+        client.getPage(URL_SECOND);
+        assertEquals(0L, cache.getHitCount());
+
+        cache.clear();
+        cache.resetStatistics();
+        cache.setIgnoreSourceName(true);
+
+        client.getPage(URL_FIRST);
+        client.getPage(URL_SECOND);
+        assertEquals(1L, cache.getHitCount());
+    }
+
+    /**
+     * External scripts without caching headers are shared between clients.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void sharedBetweenClients() throws Exception {
+        final String html = "<html><head><script src='foo.js'></script></head><body></body></html>";
+
+        final CompiledScriptCache cache = new CompiledScriptCache();
+        for (int i = 0; i < 2; i++) {
+            try (WebClient client = new WebClient(getBrowserVersion())) {
+                final MockWebConnection connection = new MockWebConnection();
+                connection.setResponse(URL_FIRST, html);
+                connection.setResponse(new URL(URL_FIRST, "foo.js"), "alert('foo');", MimeType.TEXT_JAVASCRIPT);
+                client.setWebConnection(connection);
+                client.setCompiledScriptCache(cache);
+                client.getPage(URL_FIRST);
+            }
+        }
+
+        assertEquals(1L, cache.getHitCount());
+        assertEquals(1, cache.getSize());
+    }
+
+    /**
+     * The cache of a new client is disabled.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void disabledByDefault() throws Exception {
+        final WebClient client = getWebClientWithMockWebConnection();
+        getMockWebConnection().setResponse(URL_FIRST, INLINE_PAGE);
+
+        final CompiledScriptCache cache = client.getCompiledScriptCache();
+        client.getPage(URL_FIRST);
+        client.getPage(URL_FIRST);
+        assertEquals(0, cache.getSize());
+        assertEquals(0L, cache.getHitCount());
+        assertEquals(0L, cache.getMissCount());
+    }
+
+    /**
+     * The limits are maintained.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void limits() throws Exception {
+        final WebClient client = getWebClientWithMockWebConnection();
+        final StringBuilder html = new StringBuilder("<html><head>");
+        for (int i = 0; i < 5; i++) {
+            html.append("<script>var x").append(i).append(" = 1;</script>");
+        }
+        html.append("</head><body></body></html>");
+        getMockWebConnection().setResponse(URL_FIRST, html.toString());
+
+        final CompiledScriptCache cache = client.getCompiledScriptCache();
+        cache.setMaxSize(3);
+        client.getPage(URL_FIRST);
+        assertEquals(3, cache.getSize());
+        assertEquals(2L, cache.getEvictionCount());
+
+        // "var xN = 1;"
+        cache.clear();
+        cache.setMaxScriptLength(10);
+        client.getPage(URL_FIRST);
+        assertEquals(0, cache.getSize());
+
+        cache.setMaxScriptLength(CompiledScriptCache.DEFAULT_MAX_SCRIPT_LENGTH);
+        client.getPage(URL_FIRST);
+        assertEquals(3, cache.getSize());
+
+        cache.setMaxSize(0);
+        assertEquals(0, cache.getSize());
+    }
+}
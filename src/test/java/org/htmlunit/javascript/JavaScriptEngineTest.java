@@ -1311,4 +1311,30 @@ public class JavaScriptEngineTest extends SimpleWebTestCase {
         engine.registerWindowAndMaybeStartEventLoop(window);
         assertTrue(getJavaScriptThreads().isEmpty());
     }
+
+    /**
+     * @throws Exception if the test fails
+     */
+    @Test
+    @Alerts({"function", "true", "true", "true", "true", "1", "IMG", "OPTION"})
+    public void lazyJavaScriptPrototypes() throws Exception {
+        final String html
+            = "<html><head><script>\n"
+            + "function test() {\n"
+            + "  var div = document.getElementById('d');\n"
+            + "  alert(typeof div.cloneNode);\n"
+            + "  alert(div instanceof HTMLElement);\n"
+            + "  alert(Object.getPrototypeOf(div) === HTMLDivElement.prototype);\n"
+            + "  alert(Object.getOwnPropertyNames(HTMLElement.prototype).indexOf('click') != -1);\n"
+            + "  alert(Object.getOwnPropertyNames(Node.prototype).indexOf('ELEMENT_NODE') != -1);\n"
+            + "  alert(document.getElementsByTagName('div').length);\n"
+            + "  alert(new Image().tagName);\n"
+            + "  alert(new Option().tagName);\n"
+            + "}\n"
+            + "</script></head>\n"
+            + "<body onload='test()'><div id='d'></div></body></html>";
+
+        getWebClientWithMockWebConnection().getOptions().setLazyJavaScriptPrototypesEnabled(true);
+        loadPageWithAlerts(html);
+    }
 }
@@ -15,6 +15,7 @@
 package org.htmlunit.javascript.background;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
@@ -215,4 +216,97 @@ public class JavaScriptJobManagerTest extends SimpleWebTestCase {
 
         assertEquals("No new alerts should have happened", finalValue, collectedAlerts.size());
     }
+
+    /**
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void virtualTime() throws Exception {
+        final String content = "<html>\n"
+            + "<head>\n"
+            + "  <script>\n"
+            + "    var start = Date.now();\n"
+            + "    var count = 0;\n"
+            + "    function poll() {\n"
+            + "      count++;\n"
+            + "      alert(count + ' ' + (Date.now() - start >= count * 5000) + ' ' + (new Date() >= start));\n"
+            + "      if (count < 3) {\n"
+            + "        setTimeout(poll, 5000);\n"
+            + "      }\n"
+            + "    }\n"
+            + "    setTimeout(poll, 5000);\n"
+            + "  </script>\n"
+            + "</head>\n"
+            + "<body></body>\n"
+            + "</html>";
+
+        getWebClient().getOptions().setVirtualTimeEnabled(true);
+        final List<String> collectedAlerts = Collections.synchronizedList(new ArrayList<String>());
+        final HtmlPage page = loadPage(content, collectedAlerts);
+
+        startTimedTest();
+        final JavaScriptJobManager jobManager = page.getEnclosingWindow().getJobManager();
+        assertEquals(0, jobManager.waitForJobs(20_000));
+        assertEquals(Arrays.asList("1 true true", "2 true true", "3 true true"), collectedAlerts);
+        assertTrue(getWebClient().getVirtualClock().getOffset() >= 14_000);
+        assertMaxTestRunTime(5_000);
+    }
+
+    /**
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void virtualTimeMaxAdvance() throws Exception {
+        final String content = "<html>\n"
+            + "<head>\n"
+            + "  <script>\n"
+            + "    setTimeout(function() { alert('early'); }, 500);\n"
+            + "    setTimeout(function() { alert('late'); }, 5000);\n"
+            + "  </script>\n"
+            + "</head>\n"
+            + "<body></body>\n"
+            + "</html>";
+
+        getWebClient().getOptions().setVirtualTimeEnabled(true);
+        getWebClient().getOptions().setVirtualTimeMaxAdvance(1_000);
+        final List<String> collectedAlerts = Collections.synchronizedList(new ArrayList<String>());
+        final HtmlPage page = loadPage(content, collectedAlerts);
+
+        final JavaScriptJobManager jobManager = page.getEnclosingWindow().getJobManager();
+        assertEquals(1, jobManager.waitForJobs(1_500));
+        assertEquals(Arrays.asList("early"), collectedAlerts);
+    }
+
+    /**
+     * The virtual time must not change the behavior of the Date constructor.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void virtualTimeDate() throws Exception {
+        final String content = "<html>\n"
+            + "<head>\n"
+            + "  <script>\n"
+            + "    var d = new Date();\n"
+            + "    alert(d instanceof Date);\n"
+            + "    alert(d.constructor === Date);\n"
+            + "    alert(Object.getPrototypeOf(d) === Date.prototype);\n"
+            + "    alert(new Date(0).getTime());\n"
+            + "    alert(typeof Date());\n"
+            + "    function MyDate() {}\n"
+            + "    MyDate.prototype = Object.create(Date.prototype);\n"
+            + "    alert(new MyDate() instanceof Date);\n"
+            + "    setTimeout(function() { alert(Date.now() - d.getTime() >= 5000); }, 5000);\n"
+            + "  </script>\n"
+            + "</head>\n"
+            + "<body></body>\n"
+            + "</html>";
+
+        getWebClient().getOptions().setVirtualTimeEnabled(true);
+        final List<String> collectedAlerts = Collections.synchronizedList(new ArrayList<String>());
+        final HtmlPage page = loadPage(content, collectedAlerts);
+
+        final JavaScriptJobManager jobManager = page.getEnclosingWindow().getJobManager();
+        assertEquals(0, jobManager.waitForJobs(10_000));
+        assertEquals(Arrays.asList("true", "true", "true", "0", "string", "true", "true"), collectedAlerts);
+    }
 }
@@ -0,0 +1,219 @@
+/*
+ * Copyright (c) 2002-2024 Gargoyle Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.htmlunit.javascript.background;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.lang3.mutable.MutableInt;
+import org.htmlunit.MockWebConnection;
+import org.htmlunit.Page;
+import org.htmlunit.WebClient;
+import org.htmlunit.WebWindow;
+import org.htmlunit.html.HtmlPage;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for {@link SharedJavaScriptExecutor}.
+ *
+ * @author agent <agent@local>
+ */
+public class SharedJavaScriptExecutorTest {
+
+    private WebClient client_;
+    private WebWindow window_;
+    private Page page_;
+    private JavaScriptJobManager manager_;
+    private SharedJavaScriptExecutor eventLoop_;
+
+    /**
+     * Initializes variables required by the unit tests.
+     */
+    @Before
+    public void before() {
+        client_ = new WebClient();
+        window_ = client_.getCurrentWindow();
+        page_ = window_.getEnclosedPage();
+        manager_ = window_.getJobManager();
+        eventLoop_ = new SharedJavaScriptExecutor(client_);
+        eventLoop_.addWindow(window_);
+    }
+
+    /**
+     * Shuts down the event loop.
+     */
+    @After
+    public void after() {
+        eventLoop_.shutdown();
+        if (client_ != null) {
+            client_.close();
+        }
+    }
+
+    /**
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void singleExecution() throws Exception {
+        final MutableInt count = new MutableInt(0);
+        final JavaScriptJob job = new BasicJavaScriptJob(5, null) {
+            @Override
+            public void run() {
+                count.increment();
+            }
+        };
+        manager_.addJob(job, page_);
+        assertEquals(1, manager_.getJobCount());
+        manager_.waitForJobs(1000);
+        assertEquals(1, count.intValue());
+    }
+
+    /**
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void periodicJob() throws Exception {
+        final MutableInt count = new MutableInt(0);
+        final JavaScriptJob job = new BasicJavaScriptJob(5, Integer.valueOf(100)) {
+            @Override
+            public void run() {
+                count.increment();
+            }
+        };
+        manager_.addJob(job, page_);
+        final int remainingJobs = manager_.waitForJobs(1090);
+        assertTrue("At least one remaining job expected.", remainingJobs >= 1);
+        assertTrue("Less than 10 jobs (" + count.intValue() + ") processed.", count.intValue() >= 10);
+    }
+
+    /**
+     * An earlier job added after a later one has to wake up the timer.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void earlierJobWakesUp() throws Exception {
+        final List<String> executed = Collections.synchronizedList(new ArrayList<>());
+        final JavaScriptJob late = new BasicJavaScriptJob(10_000, null) {
+            @Override
+            public void run() {
+                executed.add("late");
+            }
+        };
+        final JavaScriptJob early = new BasicJavaScriptJob(20, null) {
+            @Override
+            public void run() {
+                executed.add("early");
+            }
+        };
+        manager_.addJob(late, page_);
+        manager_.addJob(early, page_);
+
+        final long start = System.currentTimeMillis();
+        manager_.waitForJobsStartingBefore(100);
+        assertTrue(System.currentTimeMillis() - start < 5_000);
+        assertEquals(Collections.singletonList("early"), executed);
+        assertEquals(1, manager_.getJobCount());
+    }
+
+    /**
+     * Every executor has only one pending wakeup; it is removed at shutdown.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void oneWakeupPerExecutor() throws Exception {
+        for (int i = 0; i < 20; i++) {
+            final JavaScriptJob job = new BasicJavaScriptJob(60_000 - i * 100, null) {
+                @Override
+                public void run() {
+                    // nothing
+                }
+            };
+            manager_.addJob(job, page_);
+        }
+
+        final SharedJavaScriptEventLoop loop = SharedJavaScriptEventLoop.getInstance();
+        assertEquals(1, loop.getWakeupCount(eventLoop_));
+
+        eventLoop_.shutdown();
+        assertEquals(0, loop.getWakeupCount(eventLoop_));
+    }
+
+    /**
+     * The jobs are executed in order of their execution time.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void order() throws Exception {
+        final List<Integer> executed = Collections.synchronizedList(new ArrayList<>());
+        for (int i = 5; i > 0; i--) {
+            final Integer idx = Integer.valueOf(i);
+            final JavaScriptJob job = new BasicJavaScriptJob(i * 20, null) {
+                @Override
+                public void run() {
+                    executed.add(idx);
+                }
+            };
+            manager_.addJob(job, page_);
+        }
+        manager_.waitForJobs(2000);
+        assertEquals("[1, 2, 3, 4, 5]", executed.toString());
+    }
+
+    /**
+     * Many clients do not need many threads.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void manyClients() throws Exception {
+        final int threadsBefore = Thread.activeCount();
+        final List<WebClient> clients = new ArrayList<>();
+        try {
+            for (int i = 0; i < 50; i++) {
+                final WebClient client = new WebClient();
+                client.getOptions().setSharedJavaScriptExecutorEnabled(true);
+                final MockWebConnection conn = new MockWebConnection();
+                conn.setDefaultResponse("<html><head><script>"
+                        + "setTimeout(function() { document.title = 'done'; }, 10);"
+                        + "</script></head><body></body></html>");
+                client.setWebConnection(conn);
+                clients.add(client);
+            }
+
+            final List<HtmlPage> pages = new ArrayList<>();
+            for (final WebClient client : clients) {
+                pages.add(client.getPage("http://localhost/"));
+            }
+            assertTrue(Thread.activeCount() - threadsBefore < 25);
+
+            for (final WebClient client : clients) {
+                assertEquals(0, client.waitForBackgroundJavaScript(5_000));
+            }
+            for (final HtmlPage page : pages) {
+                assertEquals("done", page.getTitleText());
+            }
+        }
+        finally {
+            for (final WebClient client : clients) {
+                client.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2002-2024 Gargoyle Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.htmlunit.javascript.configuration;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import org.htmlunit.BrowserVersion;
+import org.htmlunit.SimpleWebTestCase;
+import org.htmlunit.javascript.HtmlUnitScriptable;
+import org.htmlunit.javascript.host.Window;
+import org.htmlunit.javascript.host.dom.Document;
+import org.htmlunit.javascript.configuration.ClassConfiguration.ConstantInfo;
+import org.htmlunit.javascript.configuration.ClassConfiguration.PropertyInfo;
+import org.junit.Test;
+
+/**
+ * Tests for {@link ClassConfigurationTable} and {@link ClassConfigurationTableGenerator}.
+ *
+ * @author agent <agent@local>
+ */
+public class ClassConfigurationTableTest extends SimpleWebTestCase {
+
+    /**
+     * The configurations created from the table have to be the same as the ones
+     * created by processing the annotations.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void sameAsAnnotations() throws Exception {
+        for (final BrowserVersion browserVersion : BrowserVersion.ALL_SUPPORTED_BROWSERS) {
+            final StringWriter writer = new StringWriter();
+            ClassConfigurationTableGenerator.write(writer, browserVersion);
+            final ClassConfigurationTable table =
+                    ClassConfigurationTable.read(new StringReader(writer.toString()));
+            assertTrue(table.isUpToDate());
+
+            final List<Class<? extends HtmlUnitScriptable>> classes = new ArrayList<>();
+            classes.addAll(Arrays.asList(JavaScriptConfiguration.CLASSES_));
+            classes.addAll(Arrays.asList(WorkerJavaScriptConfiguration.CLASSES_));
+            classes.addAll(Arrays.asList(ProxyAutoConfigJavaScriptConfiguration.CLASSES_));
+
+            for (final Class<? extends HtmlUnitScriptable> klass : classes) {
+                assertTrue(klass.getName(), table.contains(klass));
+
+                final ClassConfiguration expected =
+                        AbstractJavaScriptConfiguration.getClassConfiguration(klass, browserVersion);
+                final ClassConfiguration actual = table.createClassConfiguration(klass);
+                if (expected == null) {
+                    assertNull(klass.getName(), actual);
+                    continue;
+                }
+
+                final String name = browserVersion.getNickname() + " " + klass.getName();
+                assertEquals(name, expected.getClassName(), actual.getClassName());
+                assertEquals(name, expected.isJsObject(), actual.isJsObject());
+                assertEquals(name, expected.getExtendedClassName(), actual.getExtendedClassName());
+                assertEquals(name, new HashSet<>(Arrays.asList(expected.getDomClasses())),
+                        new HashSet<>(Arrays.asList(actual.getDomClasses())));
+                assertEquals(name, expected.getJsConstructor(), actual.getJsConstructor());
+                assertEquals(name, expected.getJsConstructorAlias(), actual.getJsConstructorAlias());
+                assertEquals(name, toStrings(expected.getPropertyMap()), toStrings(actual.getPropertyMap()));
+                assertEquals(name, toStrings(expected.getStaticPropertyMap()),
+                        toStrings(actual.getStaticPropertyMap()));
+                assertEquals(name, expected.getFunctionMap(), actual.getFunctionMap());
+                assertEquals(name, expected.getStaticFunctionMap(), actual.getStaticFunctionMap());
+                assertEquals(name, expected.getSymbolMap(), actual.getSymbolMap());
+                assertEquals(name, expected.getSymbolConstantMap(), actual.getSymbolConstantMap());
+                assertEquals(name, toStrings(expected.getConstants()), toStrings(actual.getConstants()));
+            }
+        }
+    }
+
+    /**
+     * A table generated from other classes is outdated.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void stampMismatch() throws Exception {
+        final StringWriter writer = new StringWriter();
+        ClassConfigurationTableGenerator.write(writer, BrowserVersion.BEST_SUPPORTED);
+
+        final String stamp = ClassConfigurationTable.computeStamp();
+        final String stampLine = ClassConfigurationTable.STAMP + "\t" + stamp + "\n";
+        final String content = writer.toString();
+        assertTrue(content.contains(stampLine));
+
+        ClassConfigurationTable table = ClassConfigurationTable.read(new StringReader(content));
+        assertTrue(table.isUpToDate());
+        assertTrue(table.contains(Window.class));
+        assertTrue(table.contains(Document.class));
+
+        table = ClassConfigurationTable.read(new StringReader(
+                content.replace(stampLine, ClassConfigurationTable.STAMP + "\t0\n")));
+        assertFalse(table.isUpToDate());
+
+        table = ClassConfigurationTable.read(new StringReader(content.replace(stampLine, "")));
+        assertFalse(table.isUpToDate());
+    }
+
+    private static Map<String, String> toStrings(final Map<String, PropertyInfo> properties) {
+        if (properties == null) {
+            return null;
+        }
+        final Map<String, String> result = new HashMap<>();
+        for (final Map.Entry<String, PropertyInfo> entry : properties.entrySet()) {
+            result.put(entry.getKey(), entry.getValue().getReadMethod() + " " + entry.getValue().getWriteMethod());
+        }
+        return result;
+    }
+
+    private static List<String> toStrings(final List<ConstantInfo> constants) {
+        if (constants == null) {
+            return null;
+        }
+        final List<String> result = new ArrayList<>();
+        for (final ConstantInfo constant : constants) {
+            result.add(constant.getName() + " " + constant.getValue() + " " + constant.getFlag());
+        }
+        return result;
+    }
+}
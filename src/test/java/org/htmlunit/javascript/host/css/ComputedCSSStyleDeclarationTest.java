@@ -3000,4 +3000,73 @@ public class ComputedCSSStyleDeclarationTest extends WebDriverTestCase {
 
         loadPageVerifyTitle2(html);
     }
+
+    /**
+     * @throws Exception if an error occurs
+     */
+    @Test
+    @Alerts({"block", "rgb(0, 0, 0)", "0px",
+             "none", "rgb(0, 0, 0)", "0px",
+             "block", "rgb(255, 0, 0)", "7px"})
+    public void changedAfterRead() throws Exception {
+        final String html
+            = "<html><body>\n"
+            + "<p id='p1'>p1</p>\n"
+
+            + "<script>\n"
+            + LOG_TITLE_FUNCTION
+            + "function dump() {\n"
+            + "  var style = document.defaultView.getComputedStyle(p1, null);\n"
+            + "  log(style.display);\n"
+            + "  log(style.color);\n"
+            + "  log(style.marginLeft);\n"
+            + "}\n"
+            + "var p1 = document.getElementById('p1');\n"
+            + "dump();\n"
+            + "p1.hidden = true;\n"
+            + "dump();\n"
+            + "p1.hidden = false;\n"
+            + "p1.style.color = 'red';\n"
+            + "p1.style.marginLeft = '7px';\n"
+            + "dump();\n"
+            + "</script>\n"
+            + "</body></html>";
+
+        loadPageVerifyTitle2(html);
+    }
+
+    /**
+     * The computed style is live; a style held by the script reflects later changes.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    @Alerts({"block", "rgb(0, 0, 0)", "rgba(0, 0, 0, 0)",
+             "inline", "rgb(255, 0, 0)", "rgb(0, 128, 0)",
+             "none", "rgb(0, 0, 255)", "rgb(0, 128, 0)"})
+    public void heldChangedAfterRead() throws Exception {
+        final String html
+            = "<html><body>\n"
+            + "<p id='p1'>p1</p>\n"
+
+            + "<script>\n"
+            + LOG_TITLE_FUNCTION
+            + "var p1 = document.getElementById('p1');\n"
+            + "var style = window.getComputedStyle(p1, null);\n"
+            + "function dump() {\n"
+            + "  log(style.display);\n"
+            + "  log(style.color);\n"
+            + "  log(style.backgroundColor);\n"
+            + "}\n"
+            + "dump();\n"
+            + "p1.style.display = 'inline';\n"
+            + "p1.style.color = 'red';\n"
+            + "p1.style.backgroundColor = 'green';\n"
+            + "dump();\n"
+            + "p1.setAttribute('style', 'display: none; color: blue; background-color: green');\n"
+            + "dump();\n"
+            + "</script>\n"
+            + "</body></html>";
+
+        loadPageVerifyTitle2(html);
+    }
 }
@@ -15,14 +15,24 @@
 package org.htmlunit.javascript.host.xml;
 
 import java.io.File;
+import java.io.IOException;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
+import org.htmlunit.CollectingAlertHandler;
 import org.htmlunit.SimpleWebTestCase;
 import org.htmlunit.WebClient;
+import org.htmlunit.WebRequest;
+import org.htmlunit.WebResponse;
 import org.htmlunit.WebWindow;
 import org.htmlunit.html.HtmlPage;
 import org.htmlunit.junit.BrowserRunner;
 import org.htmlunit.junit.BrowserRunner.Alerts;
+import org.htmlunit.util.WebConnectionWrapper;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
@@ -210,4 +220,52 @@ public class XMLHttpRequest4Test extends SimpleWebTestCase {
         assertEquals(0, client.waitForBackgroundJavaScriptStartingBefore(1000));
         assertEquals(getExpectedAlerts()[0], page.getTitleText());
     }
+
+    /**
+     * The responses of async requests are loaded in parallel.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void asyncRequestsLoadedInParallel() throws Exception {
+        final String content = "<html><head><script>\n"
+            + "  function load(url) {\n"
+            + "    var request = new XMLHttpRequest();\n"
+            + "    request.onload = function() { alert(request.responseText); };\n"
+            + "    request.open('GET', url, true);\n"
+            + "    request.send();\n"
+            + "  }\n"
+            + "  load('data1');\n"
+            + "  load('data2');\n"
+            + "</script></head><body></body></html>";
+
+        final WebClient client = getWebClientWithMockWebConnection();
+        final List<String> collectedAlerts = Collections.synchronizedList(new ArrayList<>());
+        client.setAlertHandler(new CollectingAlertHandler(collectedAlerts));
+        getMockWebConnection().setResponse(URL_FIRST, content);
+        getMockWebConnection().setDefaultResponse("done");
+
+        // every request waits until both requests have arrived
+        final CountDownLatch latch = new CountDownLatch(2);
+        final List<Boolean> parallel = Collections.synchronizedList(new ArrayList<>());
+        new WebConnectionWrapper(client) {
+            @Override
+            public WebResponse getResponse(final WebRequest request) throws IOException {
+                if (request.getUrl().getPath().startsWith("/data")) {
+                    latch.countDown();
+                    try {
+                        parallel.add(latch.await(5, TimeUnit.SECONDS));
+                    }
+                    catch (final InterruptedException e) {
+                        throw new IOException(e);
+                    }
+                }
+                return super.getResponse(request);
+            }
+        };
+
+        client.getPage(URL_FIRST);
+        assertEquals(0, client.waitForBackgroundJavaScript(20_000));
+        assertEquals(new String[] {"done", "done"}, collectedAlerts);
+        assertEquals("[true, true]", parallel.toString());
+    }
 }
@@ -15,6 +15,9 @@
 package org.htmlunit.javascript.regexp;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -27,6 +30,7 @@ import org.junit.Test;
  * @author Marc Guillemot
  * @author Ahmed Ashour
  * @author Frank Danek
+ * @author agent <agent@local>
  */
 public class HtmlUnitRegExpProxy3Test {
 
@@ -83,4 +87,19 @@ public class HtmlUnitRegExpProxy3Test {
             assertEquals("\\" + c, HtmlUnitRegExpProxy.jsRegExpToJavaRegExp("\\" + c));
         }
     }
+
+    /**
+     * Patterns are cached per source and flags.
+     */
+    @Test
+    public void patternCache() {
+        final long hits = HtmlUnitRegExpProxy.getCacheHitCount();
+
+        final Pattern pattern = HtmlUnitRegExpProxy.getCachedPattern("patternCache[a-z]+", 0);
+        assertSame(pattern, HtmlUnitRegExpProxy.getCachedPattern("patternCache[a-z]+", 0));
+        assertNotSame(pattern, HtmlUnitRegExpProxy.getCachedPattern("patternCache[a-z]+", Pattern.CASE_INSENSITIVE));
+        assertEquals(Pattern.CASE_INSENSITIVE,
+                HtmlUnitRegExpProxy.getCachedPattern("patternCache[a-z]+", Pattern.CASE_INSENSITIVE).flags());
+        assertTrue(HtmlUnitRegExpProxy.getCacheHitCount() - hits >= 2);
+    }
 }
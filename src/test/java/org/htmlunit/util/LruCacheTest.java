@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2002-2024 Gargoyle Software Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.htmlunit.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link LruCache}.
+ *
+ * @author agent <agent@local>
+ */
+public class LruCacheTest {
+
+    /**
+     * Least recently used entries are evicted first.
+     */
+    @Test
+    public void evictLeastRecentlyUsed() {
+        final LruCache<Integer, String> cache = new LruCache<>(10);
+        for (int i = 0; i < 10; i++) {
+            cache.put(i, "v" + i);
+        }
+        // touch the first one
+        assertEquals("v0", cache.get(0));
+
+        cache.put(10, "v10");
+        assertEquals(9, cache.size());
+        assertEquals(2L, cache.getEvictionCount());
+        assertEquals("v0", cache.get(0));
+        assertNull(cache.get(1));
+        assertNull(cache.get(2));
+        assertEquals("v10", cache.get(10));
+
+        assertEquals(3L, cache.getHitCount());
+        assertEquals(2L, cache.getMissCount());
+        cache.resetStatistics();
+        assertEquals(0L, cache.getHitCount());
+    }
+
+    /**
+     * Tests for {@link LruCache#computeIfAbsent(Object, java.util.function.Function)}.
+     */
+    @Test
+    public void computeIfAbsent() {
+        final LruCache<String, String> cache = new LruCache<>(10);
+        assertEquals("A", cache.computeIfAbsent("a", String::toUpperCase));
+        assertEquals("A", cache.computeIfAbsent("a", k -> "other"));
+        assertEquals(1L, cache.getHitCount());
+
+        assertThrows(IllegalArgumentException.class,
+            () -> cache.computeIfAbsent("b", k -> {
+                throw new IllegalArgumentException();
+            }));
+        assertEquals(1, cache.size());
+    }
+
+    /**
+     * Changing the max size.
+     */
+    @Test
+    public void setMaxSize() {
+        final LruCache<Integer, Integer> cache = new LruCache<>(100);
+        for (int i = 0; i < 100; i++) {
+            cache.put(i, i);
+        }
+        cache.setMaxSize(50);
+        assertTrue(cache.size() <= 50);
+
+        cache.setMaxSize(0);
+        assertEquals(0, cache.size());
+        cache.put(1, 1);
+        assertEquals(0, cache.size());
+    }
+
+    /**
+     * Concurrent access does not break the limit.
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void concurrentAccess() throws Exception {
+        final LruCache<Integer, Integer> cache = new LruCache<>(100);
+
+        final List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            final int offset = t;
+            final Thread thread = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    final int key = (i * 7 + offset) % 500;
+                    assertEquals(Integer.valueOf(key), cache.computeIfAbsent(key, k -> k));
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+
+        assertTrue(cache.size() <= 100);
+        assertEquals(40_000L, cache.getHitCount() + cache.getMissCount());
+    }
+}